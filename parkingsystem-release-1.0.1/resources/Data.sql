@@ -5,7 +5,9 @@ use prod;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+PARKING_ZONE varchar(10) NOT NULL DEFAULT 'A',
+PARKING_LEVEL int NOT NULL DEFAULT 0
 );
 
 create table ticket(
@@ -17,12 +19,66 @@ create table ticket(
  OUT_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
+create index TICKET_IN_TIME on ticket(IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+
+create table gate_distance(
+ GATE varchar(10) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ DISTANCE int NOT NULL,
+ PRIMARY KEY (GATE, PARKING_NUMBER),
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+create table reservation(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ EXPIRY_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE on ticket_archive(VEHICLE_REG_NUMBER);
+create index TICKET_ARCHIVE_IN_TIME on ticket_archive(IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(OUT_TIME);
+
+create table monthly_visit(
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ VISIT_MONTH int NOT NULL,
+ VISITS int NOT NULL,
+ PRIMARY KEY (VEHICLE_REG_NUMBER, VISIT_MONTH));
+
+create table event_checkpoint(
+ ID int PRIMARY KEY,
+ SEQUENCE bigint NOT NULL);
+insert into event_checkpoint(ID,SEQUENCE) values(1,0);
+
+create table ticket_id_block(
+ ID int PRIMARY KEY,
+ NEXT_ID int NOT NULL);
+insert into ticket_id_block(ID,NEXT_ID) values(1,1);
 
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE,PARKING_ZONE) values(4,true,'BIKE','B');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE,PARKING_ZONE) values(5,true,'BIKE','B');
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',1,10);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',2,20);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',3,30);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',4,15);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',5,25);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',1,30);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',2,20);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',3,10);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',4,25);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',5,15);
 commit;
 
 /* Setting up TEST DB */
@@ -32,7 +88,9 @@ use test;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+PARKING_ZONE varchar(10) NOT NULL DEFAULT 'A',
+PARKING_LEVEL int NOT NULL DEFAULT 0
 );
 
 create table ticket(
@@ -44,10 +102,64 @@ create table ticket(
  OUT_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
+create index TICKET_IN_TIME on ticket(IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+
+create table gate_distance(
+ GATE varchar(10) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ DISTANCE int NOT NULL,
+ PRIMARY KEY (GATE, PARKING_NUMBER),
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+create table reservation(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ EXPIRY_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE on ticket_archive(VEHICLE_REG_NUMBER);
+create index TICKET_ARCHIVE_IN_TIME on ticket_archive(IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(OUT_TIME);
+
+create table monthly_visit(
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ VISIT_MONTH int NOT NULL,
+ VISITS int NOT NULL,
+ PRIMARY KEY (VEHICLE_REG_NUMBER, VISIT_MONTH));
+
+create table event_checkpoint(
+ ID int PRIMARY KEY,
+ SEQUENCE bigint NOT NULL);
+insert into event_checkpoint(ID,SEQUENCE) values(1,0);
+
+create table ticket_id_block(
+ ID int PRIMARY KEY,
+ NEXT_ID int NOT NULL);
+insert into ticket_id_block(ID,NEXT_ID) values(1,1);
 
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE,PARKING_ZONE) values(4,true,'BIKE','B');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE,PARKING_ZONE) values(5,true,'BIKE','B');
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',1,10);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',2,20);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',3,30);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',4,15);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('NORTH',5,25);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',1,30);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',2,20);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',3,10);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',4,25);
+insert into gate_distance(GATE,PARKING_NUMBER,DISTANCE) values('SOUTH',5,15);
 commit;
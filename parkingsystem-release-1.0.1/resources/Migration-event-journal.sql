@@ -0,0 +1,16 @@
+/* Upgrading an existing database to event-sourced mode, for PROD then TEST DB : SEQUENCE is the last journaled event projected into tables */
+use prod;
+
+create table event_checkpoint(
+ ID int PRIMARY KEY,
+ SEQUENCE bigint NOT NULL);
+insert into event_checkpoint(ID,SEQUENCE) values(1,0);
+commit;
+
+use test;
+
+create table event_checkpoint(
+ ID int PRIMARY KEY,
+ SEQUENCE bigint NOT NULL);
+insert into event_checkpoint(ID,SEQUENCE) values(1,0);
+commit;
@@ -0,0 +1,16 @@
+/* Upgrading an existing database to reports, for PROD then TEST DB (after Migration-ticket-archive.sql) : each month's query reads tickets by IN_TIME and OUT_TIME ranges */
+use prod;
+
+create index TICKET_IN_TIME on ticket(IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+create index TICKET_ARCHIVE_IN_TIME on ticket_archive(IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(OUT_TIME);
+commit;
+
+use test;
+
+create index TICKET_IN_TIME on ticket(IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+create index TICKET_ARCHIVE_IN_TIME on ticket_archive(IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(OUT_TIME);
+commit;
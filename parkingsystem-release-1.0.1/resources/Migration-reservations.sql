@@ -0,0 +1,20 @@
+/* Upgrading an existing database to reservations, for PROD then TEST DB */
+use prod;
+
+create table reservation(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ EXPIRY_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+commit;
+
+use test;
+
+create table reservation(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ EXPIRY_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+commit;
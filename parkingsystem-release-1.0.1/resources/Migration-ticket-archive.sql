@@ -0,0 +1,24 @@
+/* Upgrading an existing database to ticket archival, for PROD then TEST DB : closed tickets older than the retention are moved to ticket_archive */
+use prod;
+
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE on ticket_archive(VEHICLE_REG_NUMBER);
+commit;
+
+use test;
+
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE on ticket_archive(VEHICLE_REG_NUMBER);
+commit;
@@ -0,0 +1,18 @@
+/* Upgrading an existing database to hi/lo ticket IDs, for PROD then TEST DB : NEXT_ID is the first ID not reserved yet, above all existing tickets */
+use prod;
+
+create table ticket_id_block(
+ ID int PRIMARY KEY,
+ NEXT_ID int NOT NULL);
+insert into ticket_id_block(ID,NEXT_ID)
+ select 1, greatest(coalesce(max(ID),0), (select coalesce(max(ID),0) from ticket_archive)) + 1 from ticket;
+commit;
+
+use test;
+
+create table ticket_id_block(
+ ID int PRIMARY KEY,
+ NEXT_ID int NOT NULL);
+insert into ticket_id_block(ID,NEXT_ID)
+ select 1, greatest(coalesce(max(ID),0), (select coalesce(max(ID),0) from ticket_archive)) + 1 from ticket;
+commit;
@@ -0,0 +1,21 @@
+/* Upgrading an existing database to monthly visit counts, for PROD then TEST DB : VISIT_MONTH is YYYYMM of OUT_TIME */
+use prod;
+
+create table monthly_visit(
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ VISIT_MONTH int NOT NULL,
+ VISITS int NOT NULL,
+ PRIMARY KEY (VEHICLE_REG_NUMBER, VISIT_MONTH));
+insert into monthly_visit(VEHICLE_REG_NUMBER, VISIT_MONTH, VISITS)
+ select VEHICLE_REG_NUMBER, year(OUT_TIME)*100 + month(OUT_TIME), count(*) from ticket
+ where OUT_TIME is not null group by VEHICLE_REG_NUMBER, year(OUT_TIME)*100 + month(OUT_TIME);
+commit;
+
+use test;
+
+create table monthly_visit(
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ VISIT_MONTH int NOT NULL,
+ VISITS int NOT NULL,
+ PRIMARY KEY (VEHICLE_REG_NUMBER, VISIT_MONTH));
+commit;
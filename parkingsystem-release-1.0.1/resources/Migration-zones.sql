@@ -0,0 +1,30 @@
+/* Upgrading an existing database to zone-aware allocation, for PROD then TEST DB */
+use prod;
+
+alter table parking add PARKING_ZONE varchar(10) NOT NULL DEFAULT 'A';
+alter table parking add PARKING_LEVEL int NOT NULL DEFAULT 0;
+update parking set PARKING_ZONE = 'B' where TYPE = 'BIKE';
+
+create table gate_distance(
+ GATE varchar(10) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ DISTANCE int NOT NULL,
+ PRIMARY KEY (GATE, PARKING_NUMBER),
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+commit;
+
+use test;
+
+alter table parking add PARKING_ZONE varchar(10) NOT NULL DEFAULT 'A';
+alter table parking add PARKING_LEVEL int NOT NULL DEFAULT 0;
+update parking set PARKING_ZONE = 'B' where TYPE = 'BIKE';
+
+create table gate_distance(
+ GATE varchar(10) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ DISTANCE int NOT NULL,
+ PRIMARY KEY (GATE, PARKING_NUMBER),
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+commit;
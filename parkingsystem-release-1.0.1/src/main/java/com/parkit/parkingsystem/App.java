@@ -18,18 +18,32 @@ public class App {
      * Main method to launch the app.
      * Gets the only one instance of main controller InteractiveShell in service package
      * Then can run instantiated methode loadInterface()  
-     * @param args not used in this method
+     * @param args "setDBConfig" to set DB configuration, "backfillMonthlyVisits" to rebuild monthly visit counts,
+     * "exportTickets file [csv|binary]" or "importTickets file [csv|binary]" for bulk transfer of tickets,
+     * "report file fromMonth toMonth [hour|day]" for revenue and occupancy report of months yyyy-MM
      */
     
     public static void main(String[] args){
     	logger.info("Initializing Parking System");
         interactiveShellInstance = InteractiveShell.getInstance();
+        if(args.length >= 2 && (args[0].equals("exportTickets") || args[0].equals("importTickets"))) {
+        	interactiveShellInstance.transferTickets(args[0].equals("exportTickets"), args[1], (args.length > 2) ? args[2] : "csv");
+        	return;
+        }
+        if(args.length >= 4 && args[0].equals("report")) {
+        	interactiveShellInstance.writeReport(args[1], args[2], args[3], (args.length > 4) ? args[4] : "day");
+        	return;
+        }
         switch (args.length) {
         	case 1 : {
         		if(args[0].equals("setDBConfig")) {
         			interactiveShellInstance.loadDBConfigInterface();
         			break;
         		}
+        		if(args[0].equals("backfillMonthlyVisits")) {
+        			interactiveShellInstance.backfillMonthlyVisits();
+        			break;
+        		}
         	}
         	default : {
         		interactiveShellInstance.loadInterface();
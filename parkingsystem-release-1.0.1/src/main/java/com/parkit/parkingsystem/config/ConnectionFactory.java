@@ -0,0 +1,22 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens a new physical connection to SGBD, used by ConnectionPool
+ * when it needs to grow
+ * @author Olivier MOREL
+ *
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+	/**
+	 * Opens a new physical connection
+	 * @return Connection to SGBD object
+	 * @throws ClassNotFoundException : if driver's class not found
+	 * @throws SQLException : if connection can't be opened
+	 */
+	Connection createConnection() throws ClassNotFoundException, SQLException;
+}
@@ -0,0 +1,354 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded pool of physical connections to SGBD :
+ *  - keeps at least minSize connections opened and never lends more than maxSize at the same time
+ *  - validates an idle connection before lending it (unless it was released a few milliseconds ago)
+ *  - reports connections held longer than the leak threshold with the stack trace of the borrower
+ *  - counts borrows, creations, destructions, validation failures, timeouts and leaks (see PoolStatistics)
+ *  - recycles every connection on evictAll(), e.g. when credentials change
+ *  - keeps a StatementCache per connection, prepared statements live as long as their connection
+ * Connections are given back with release(Connection), never with Connection.close()
+ * @author Olivier MOREL
+ *
+ */
+public class ConnectionPool {
+
+	private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+	private static final long VALIDATION_BYPASS_MILLIS = 500; //a connection released less than 500ms ago is not pinged again
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+	private static final long MAX_IDLE_MILLIS = 10 * 60 * 1000; //idle connections above minSize are closed after 10 minutes
+	private static final long HOUSEKEEPING_PERIOD_MILLIS = 5000;
+
+	private final String name;
+	private final ConnectionFactory connectionFactory;
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeoutMillis;
+	private final long leakThresholdMillis; //0 disables leak detection
+
+	private final Semaphore permits; //one permit per lent connection so at most maxSize active connections
+	private final BlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>(); //LIFO : the most recently used connection is lent first
+	private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+	private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+	private final AtomicInteger totalConnections = new AtomicInteger();
+	private final AtomicInteger generation = new AtomicInteger(); //incremented by evictAll() : older connections are closed instead of reused
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean closed = false;
+
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder destroyedCount = new LongAdder();
+	private final LongAdder validationFailureCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder leakCount = new LongAdder();
+	private final LongAdder statementHitCount = new LongAdder();
+	private final LongAdder statementMissCount = new LongAdder();
+
+	/**
+	 * Constructor : starts the housekeeping thread which opens the minSize first connections
+	 * @param name : pool's name used in logs (the JDBC URL)
+	 * @param connectionFactory : opens physical connections
+	 * @param minSize : connections kept opened even when idle
+	 * @param maxSize : maximum of connections lent at the same time
+	 * @param borrowTimeoutMillis : how long borrow() waits for a free connection
+	 * @param leakThresholdMillis : a connection borrowed for longer is reported as leaked, 0 to disable
+	 * @throws IllegalArgumentException if sizes are inconsistent
+	 */
+	public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize, long borrowTimeoutMillis, long leakThresholdMillis) {
+		if(minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool sizes min=" + minSize + " max=" + maxSize);
+		}
+		this.name = name;
+		this.connectionFactory = connectionFactory;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.permits = new Semaphore(maxSize, true); //fair : first waiting gate is first served
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ConnectionPool-housekeeper");
+			thread.setDaemon(true); //doesn't prevent JVM to exit
+			return thread;
+		});
+		long period = (leakThresholdMillis > 0) ? Math.min(HOUSEKEEPING_PERIOD_MILLIS, Math.max(1, leakThresholdMillis / 2)) : HOUSEKEEPING_PERIOD_MILLIS;
+		housekeeper.scheduleAtFixedRate(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Lends a validated connection, opens a new one if none is idle
+	 * @return Connection to SGBD object
+	 * @throws SQLException : if pool is closed, if no connection is free before timeout (SQLTimeoutException) or if a new one can't be opened
+	 */
+	public Connection borrow() throws SQLException {
+		if(closed) {
+			throw new SQLException("Connection pool " + name + " is closed");
+		}
+		try {
+			if(!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				timeoutCount.increment();
+				throw new SQLTimeoutException("No connection available in pool " + name + " after " + borrowTimeoutMillis + " ms");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		try {
+			IdleConnection idle;
+			while((idle = idleConnections.pollFirst()) != null) {
+				if(idle.generation != generation.get()) { //evicted
+					destroy(idle.connection);
+				} else if(isValid(idle)) {
+					return lease(idle.connection);
+				} else {
+					validationFailureCount.increment();
+					destroy(idle.connection);
+				}
+			}
+			return lease(createConnection());
+		} catch(SQLException | RuntimeException e) {
+			permits.release(); //nothing lent
+			throw e;
+		}
+	}
+
+	/**
+	 * Gives back a borrowed connection : rolls back uncommitted work and restores auto-commit
+	 * A connection which is not borrowed from this pool is closed
+	 * @param con : Connection object
+	 */
+	public void release(Connection con) {
+		if(con == null) {
+			return;
+		}
+		Lease lease = leases.remove(con);
+		if(lease == null) {
+			if(!isIdle(con)) { //released twice must not close an idle connection
+				logger.warn("Closing a connection not borrowed from pool " + name);
+				closeQuietly(con);
+			}
+			return;
+		}
+		try {
+			if(closed || lease.generation != generation.get() || con.isClosed() || totalConnections.get() > maxSize) {
+				destroy(con);
+			} else {
+				if(!con.getAutoCommit()) {
+					con.rollback();
+					con.setAutoCommit(true);
+				}
+				idleConnections.offerFirst(new IdleConnection(con, System.currentTimeMillis(), lease.generation));
+			}
+		} catch(SQLException e) {
+			logger.error("Error while resetting connection, it will be closed", e);
+			destroy(con);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Snapshot of the pool's gauges and counters
+	 * @return PoolStatistics object
+	 */
+	public PoolStatistics getStatistics() {
+		return new PoolStatistics(totalConnections.get(), idleConnections.size(), leases.size(), permits.getQueueLength(),
+				borrowCount.sum(), createdCount.sum(), destroyedCount.sum(), validationFailureCount.sum(), timeoutCount.sum(), leakCount.sum(),
+				statementHitCount.sum(), statementMissCount.sum());
+	}
+
+	/**
+	 * Gives the cached prepared statement of a borrowed connection
+	 * @param con : Connection object borrowed from this pool
+	 * @param sql : query, a DBConstants entry
+	 * @return PreparedStatement object, not cached if the connection doesn't come from this pool
+	 * @throws SQLException : if statement can't be prepared
+	 */
+	public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+		StatementCache statementCache = statementCaches.get(con);
+		return (statementCache == null) ? StatementCache.prepare(con, sql) : statementCache.prepareStatement(sql);
+	}
+
+	/**
+	 * Tests if a statement is cached, so it mustn't be closed after use
+	 * @param ps : PreparedStatement object
+	 * @return true if cached
+	 */
+	public boolean isCachedStatement(PreparedStatement ps) {
+		try {
+			StatementCache statementCache = statementCaches.get(ps.getConnection());
+			return statementCache != null && statementCache.contains(ps);
+		} catch(SQLException e) {
+			return false; //closed statement
+		}
+	}
+
+	/**
+	 * Recycles all connections : idle ones are closed now, borrowed ones when released
+	 */
+	public void evictAll() {
+		generation.incrementAndGet();
+		IdleConnection idle;
+		while((idle = idleConnections.pollFirst()) != null) {
+			destroy(idle.connection);
+		}
+		logger.info("Connection pool " + name + " evicted all connections");
+	}
+
+	/**
+	 * Closes idle connections and stops housekeeping, connections still borrowed are closed when released
+	 */
+	public void shutdown() {
+		closed = true;
+		housekeeper.shutdownNow();
+		IdleConnection idle;
+		while((idle = idleConnections.pollFirst()) != null) {
+			destroy(idle.connection);
+		}
+		logger.info("Connection pool " + name + " shut down : " + getStatistics());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private Connection lease(Connection con) {
+		leases.put(con, new Lease(System.currentTimeMillis(),
+				(leakThresholdMillis > 0) ? new Throwable("Connection borrowed by " + Thread.currentThread().getName()) : null,
+				generation.get()));
+		borrowCount.increment();
+		return con;
+	}
+
+	private Connection createConnection() throws SQLException {
+		try {
+			Connection con = connectionFactory.createConnection();
+			statementCaches.put(con, new StatementCache(con, statementHitCount, statementMissCount));
+			totalConnections.incrementAndGet();
+			createdCount.increment();
+			return con;
+		} catch(ClassNotFoundException e) {
+			throw new SQLException("JDBC driver not found", e);
+		}
+	}
+
+	private boolean isValid(IdleConnection idle) {
+		try {
+			if(System.currentTimeMillis() - idle.releasedAt < VALIDATION_BYPASS_MILLIS) {
+				return !idle.connection.isClosed(); //just used, no round trip
+			}
+			return idle.connection.isValid(VALIDATION_TIMEOUT_SECONDS); //round trip to SGBD
+		} catch(SQLException e) {
+			return false;
+		}
+	}
+
+	private boolean isIdle(Connection con) {
+		for(IdleConnection idle : idleConnections) {
+			if(idle.connection == con) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void destroy(Connection con) {
+		totalConnections.decrementAndGet();
+		destroyedCount.increment();
+		StatementCache statementCache = statementCaches.remove(con);
+		if(statementCache != null) {
+			statementCache.closeAll();
+		}
+		closeQuietly(con);
+	}
+
+	private void closeQuietly(Connection con) {
+		try {
+			con.close();
+			logger.info("Closing DB connection");
+		} catch(SQLException e) {
+			logger.error("Error while closing connection", e);
+		}
+	}
+
+	/**
+	 * Periodic task : reports leaks, closes connections idle for too long and opens connections up to minSize
+	 */
+	private void housekeep() {
+		try {
+			long now = System.currentTimeMillis();
+			if(leakThresholdMillis > 0) {
+				leases.forEach((con, lease) -> {
+					if(!lease.reported && now - lease.borrowedAt > leakThresholdMillis) {
+						lease.reported = true; //report once
+						leakCount.increment();
+						logger.warn("Connection leak suspected in pool " + name + " : borrowed " + (now - lease.borrowedAt) + " ms ago", lease.borrowSite);
+					}
+				});
+			}
+			Iterator<IdleConnection> oldestFirst = idleConnections.descendingIterator();
+			while(oldestFirst.hasNext() && totalConnections.get() > minSize) {
+				IdleConnection idle = oldestFirst.next();
+				if(now - idle.releasedAt > MAX_IDLE_MILLIS && idleConnections.remove(idle)) { //false if just borrowed
+					destroy(idle.connection);
+				}
+			}
+			while(!closed && totalConnections.get() < minSize) {
+				idleConnections.offerLast(new IdleConnection(createConnection(), now, generation.get()));
+			}
+		} catch(Exception e) {
+			logger.error("Error during housekeeping of pool " + name, e);
+		}
+	}
+
+	/**
+	 * Idle connection and when it was released
+	 */
+	private static final class IdleConnection {
+		private final Connection connection;
+		private final long releasedAt;
+		private final int generation;
+
+		private IdleConnection(Connection connection, long releasedAt, int generation) {
+			this.connection = connection;
+			this.releasedAt = releasedAt;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Borrowed connection : when and where it was borrowed
+	 */
+	private static final class Lease {
+		private final long borrowedAt;
+		private final Throwable borrowSite; //null if leak detection is disabled
+		private final int generation;
+		private volatile boolean reported = false;
+
+		private Lease(long borrowedAt, Throwable borrowSite, int generation) {
+			this.borrowedAt = borrowedAt;
+			this.borrowSite = borrowSite;
+			this.generation = generation;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * SGBD specific part of DataBaseConfig : driver, JDBC URL, connection properties and initialization.
+ * Chosen by configuration, see DataBaseBackends
+ * @author Olivier MOREL
+ *
+ */
+public interface DataBaseBackend {
+
+	/**
+	 * Backend's name used in configuration
+	 * @return name as a String
+	 */
+	String getName();
+
+	/**
+	 * JDBC driver's class to load
+	 * @return class name as a String
+	 */
+	String getDriverClassName();
+
+	/**
+	 * JDBC URL of a schema
+	 * @param schema : "prod" or "test"
+	 * @return URL as a String
+	 */
+	String getJdbcUrl(String schema);
+
+	/**
+	 * Properties given to DriverManager
+	 * @param dbProperties : a copy of db.properties (user and password)
+	 * @return connection properties
+	 */
+	Properties getConnectionProperties(Properties dbProperties);
+
+	/**
+	 * Called on every new physical connection, e.g. to create tables of an in-memory database
+	 * @param con : new connection
+	 * @param schema : "prod" or "test"
+	 * @throws SQLException : if initialization fails
+	 */
+	void initialize(Connection con, String schema) throws SQLException;
+}
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Chooses the DataBaseBackend from configuration :
+ * -Dparkingsystem.db.backend=mysql (default) or -Dparkingsystem.db.backend=h2
+ * @author Olivier MOREL
+ *
+ */
+public final class DataBaseBackends {
+
+	private static DataBaseBackend configuredBackend;
+
+	private DataBaseBackends() {
+	} //Constructor is private : only static methods
+
+	/**
+	 * Gives the configured backend, the same instance on each call
+	 * @return DataBaseBackend object
+	 * @throws IllegalArgumentException if backend's name is unknown
+	 */
+	public static synchronized DataBaseBackend getConfiguredBackend() {
+		if(configuredBackend == null) {
+			configuredBackend = forName(System.getProperty("parkingsystem.db.backend", MySqlBackend.NAME));
+		}
+		return configuredBackend;
+	}
+
+	/**
+	 * Gives a new backend from its name
+	 * @param name : "mysql" or "h2"
+	 * @return DataBaseBackend object
+	 * @throws IllegalArgumentException if name is unknown
+	 */
+	public static DataBaseBackend forName(String name) {
+		switch(name) {
+			case MySqlBackend.NAME: {
+				return new MySqlBackend();
+			}
+			case H2InMemoryBackend.NAME: {
+				return new H2InMemoryBackend();
+			}
+			default: {
+				throw new IllegalArgumentException("Unknown database backend : " + name);
+			}
+		}
+	}
+}
@@ -5,18 +5,21 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.parkit.parkingsystem.dao.DBConfigIO;
-import com.parkit.parkingsystem.dao.LoadDBConfigFromFile;
+import com.parkit.parkingsystem.dao.CachedDBConfigFromFile;
 
 /**
  * This class helps DAO and factors :
- *  - connection to SGBD (contains configurations)
+ *  - connection to SGBD (contains configurations), borrowed from a ConnectionPool shared by JDBC URL
  *  - close ResultSet (used for queries)
- *  - close PreparedStatement and connection
+ *  - prepare (cached) and close PreparedStatement and connection
  * @author Olivier MOREL
  *
  */
@@ -24,42 +27,152 @@ public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    public static final String DEFAULT_LOT_ID = "default"; //single lot deployment
+
+    /* Pool sizing, can be overridden with -Dparkingsystem.pool.minSize=... */
+    private static final int POOL_MIN_SIZE = Integer.getInteger("parkingsystem.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("parkingsystem.pool.maxSize", 10);
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = Long.getLong("parkingsystem.pool.borrowTimeoutMillis", 5000L);
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = Long.getLong("parkingsystem.pool.leakThresholdMillis", 60000L);
+
+    private static final Map<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>(); //one pool per JDBC URL, shared by all DAOs
+
     /**
-     * To get connected to SGBD
+     * To get connected to SGBD : the connection of the UnitOfWork opened on this thread with this pool if any,
+     * else borrows a connection from the pool
      * @return Connection to SGBD object
      * @throws ClassNotFoundException : if class not found
      * @throws SQLException : An exception that provides information on a database accesserror or other errors. 
      */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
+        UnitOfWork unitOfWork = UnitOfWork.joinedBy(this);
+        if(unitOfWork != null) {
+            return unitOfWork.getConnection(); //auto-commit off, committed by the UnitOfWork
+        }
+        return getConnectionPool().borrow();
+    }
+
+    /**
+     * Gets (creates on first call) the pool for this configuration's JDBC URL
+     * @return ConnectionPool object
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPools.computeIfAbsent(getJdbcUrl(), url -> {
+            ConnectionPool connectionPool = new ConnectionPool(url, () -> openConnection(url),
+                    POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS);
+            CachedDBConfigFromFile.getInstance().addCredentialsListener(dbProperties -> connectionPool.evictAll()); //reconnect with new credentials
+            return connectionPool;
+        });
+    }
+
+    /**
+     * SGBD specific part, chosen with -Dparkingsystem.db.backend=mysql (default) or h2 (in-memory)
+     * @return DataBaseBackend object
+     */
+    protected DataBaseBackend getBackend() {
+        return DataBaseBackends.getConfiguredBackend();
+    }
+
+    /**
+     * Parking lot whose tables are in this schema, see LotDataBaseConfig
+     * @return DEFAULT_LOT_ID
+     */
+    public String getLotId() {
+        return DEFAULT_LOT_ID;
+    }
+
+    /**
+     * Tests if a model of a lot can be read or written with this configuration
+     * @param lotId : model's lot, null if not yet routed
+     * @return true if null or this configuration's lot
+     */
+    public boolean isOfLot(String lotId) {
+        return lotId == null || lotId.equals(getLotId());
+    }
+
+    /**
+     * Name of the schema (database) used
+     * @return "prod"
+     */
+    protected String getSchemaName() {
+        return "prod";
+    }
+
+    /**
+     * JDBC URL of the SGBD
+     * @return URL as a String
+     */
+    protected String getJdbcUrl() {
+        return getBackend().getJdbcUrl(getSchemaName());
+    }
+
+    /**
+     * Opens a new physical connection, only called by the pool
+     * @param url : JDBC URL
+     * @return Connection to SGBD object
+     * @throws ClassNotFoundException : if class not found
+     * @throws SQLException : An exception that provides information on a database accesserror or other errors.
+     */
+    protected Connection openConnection(String url) throws ClassNotFoundException, SQLException {
         logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-		DBConfigIO fileDBConfigIO = new LoadDBConfigFromFile();
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod",fileDBConfigIO.getDBProperties());
+        DataBaseBackend backend = getBackend();
+        Class.forName(backend.getDriverClassName());
+		DBConfigIO cachedDBConfigIO = CachedDBConfigFromFile.getInstance(); //no file access, see hot reload in CachedDBConfigFromFile
+        Properties connectionProperties = backend.getConnectionProperties(cachedDBConfigIO.getDBProperties()); //a copy
+        Connection con = DriverManager.getConnection(url, connectionProperties);
+        try {
+            backend.initialize(con, getSchemaName());
+        } catch(SQLException e) {
+            con.close();
+            throw e;
+        }
+        return con;
     }
 
     /**
-     * To close connection to SGBD
+     * To give back connection to the pool, except the one of the UnitOfWork opened on this thread
      * @param con : Connection object
      */
     public void closeConnection(Connection con){
+        UnitOfWork unitOfWork = UnitOfWork.joinedBy(this);
+        if(unitOfWork != null && unitOfWork.isBoundTo(con)) {
+            return; //given back when the UnitOfWork completes
+        }
         if(con != null) {
-            try {
-                con.close();
-                logger.info("Closing DB connection");
-            } catch(SQLException e) {
-                logger.error("Error while closing connection",e);
-            }
+            getConnectionPool().release(con);
         }
     }
 
     /**
-     * To close prepared statement
+     * Closes all pools, to call when shutting down the system
+     */
+    public static void shutdownConnectionPools() {
+        connectionPools.values().forEach(ConnectionPool::shutdown);
+        connectionPools.clear();
+    }
+
+    /**
+     * To prepare a statement : the one cached for this pooled connection if already prepared
+     * @param con : Connection object
+     * @param sql : query, a DBConstants entry
+     * @return PreparedStatement object, give it back with closePreparedStatement
+     * @throws SQLException : if statement can't be prepared
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        return getConnectionPool().prepareStatement(con, sql);
+    }
+
+    /**
+     * To close prepared statement, a cached one is kept opened with its parameters cleared
      * @param ps : PreparedStatement object
      */
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps != null) {
             try {
+                if(getConnectionPool().isCachedStatement(ps)) {
+                    ps.clearParameters();
+                    return;
+                }
                 ps.close();
                 logger.info("Closing Prepared Statement");
             } catch(SQLException e) {
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Embedded H2 in-memory backend in MySQL compatibility mode, no MySQL server needed :
+ * on the first connection to a schema, the statements of resources/Data.sql for this schema
+ * ("use prod;" or "use test;" sections, the "prod" one for a lot's schema without section) are run. The database lives as long as the JVM.
+ * Used for load tests and benchmarks
+ * @author Olivier MOREL
+ *
+ */
+public class H2InMemoryBackend implements DataBaseBackend {
+
+	public static final String NAME = "h2";
+
+	private static final Logger logger = LogManager.getLogger("H2InMemoryBackend");
+
+	private static final String LOT_TEMPLATE_SCHEMA = System.getProperty("parkingsystem.db.lotTemplateSchema", "prod");
+
+	private final Path script;
+	private final Set<String> initializedSchemas = ConcurrentHashMap.newKeySet();
+
+	public H2InMemoryBackend() {
+		this(Paths.get(System.getProperty("parkingsystem.db.script", System.getProperty("user.dir") + "/resources/Data.sql"))); //user.dir=parkingsystem/
+	}
+
+	/**
+	 * Backend loading schemas from another script, for tests
+	 * @param script : path of the SQL script
+	 */
+	H2InMemoryBackend(Path script) {
+		this.script = script;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDriverClassName() {
+		return "org.h2.Driver";
+	}
+
+	@Override
+	public String getJdbcUrl(String schema) {
+		return "jdbc:h2:mem:" + schema + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"; //kept until JVM exits
+	}
+
+	@Override
+	public Properties getConnectionProperties(Properties dbProperties) {
+		Properties connectionProperties = new Properties(); //db.properties is for MySQL server
+		connectionProperties.setProperty("user", "sa");
+		connectionProperties.setProperty("password", "");
+		return connectionProperties;
+	}
+
+	@Override
+	public void initialize(Connection con, String schema) throws SQLException {
+		synchronized(initializedSchemas) {
+			if(initializedSchemas.contains(schema)) {
+				return;
+			}
+			List<String> statements = readScript(script, schema);
+			if(statements.isEmpty()) { //schema of a lot : same tables and spots as the template's section
+				statements = readScript(script, LOT_TEMPLATE_SCHEMA);
+			}
+			try(Statement st = con.createStatement()) {
+				for(String sql : statements) {
+					st.execute(sql);
+				}
+			}
+			initializedSchemas.add(schema);
+			logger.info("In-memory database " + schema + " loaded from " + script + " (" + statements.size() + " statements)");
+		}
+	}
+
+	/**
+	 * Reads the statements of a schema's section in the SQL script.
+	 * "create database", "use" and "commit" statements are not kept
+	 * @param script : path of Data.sql
+	 * @param schema : section to keep
+	 * @return list of SQL statements
+	 * @throws SQLException : if script can't be read
+	 */
+	List<String> readScript(Path script, String schema) throws SQLException {
+		String content;
+		try {
+			content = new String(Files.readAllBytes(script), StandardCharsets.UTF_8);
+		} catch(IOException e) {
+			throw new SQLException("Error reading " + script, e);
+		}
+		content = content.replaceAll("(?s)/\\*.*?\\*/", " "); //removes comments
+		List<String> statements = new ArrayList<>();
+		String currentSchema = null;
+		for(String statement : content.split(";")) {
+			String sql = statement.trim();
+			String lowerSql = sql.toLowerCase(Locale.ROOT);
+			if(sql.isEmpty() || lowerSql.startsWith("create database") || lowerSql.equals("commit")) {
+				continue;
+			}
+			if(lowerSql.startsWith("use ")) {
+				currentSchema = sql.substring(4).trim();
+				continue;
+			}
+			if(schema.equalsIgnoreCase(currentSchema)) {
+				statements.add(sql);
+			}
+		}
+		return statements;
+	}
+}
@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Configuration of a parking lot's schema : each lot has its own tables parking, ticket... and its own connection pool
+ * (pools are shared by JDBC URL, so by schema), a busy lot doesn't wait for connections of the others
+ * @author Olivier MOREL
+ *
+ */
+public class LotDataBaseConfig extends DataBaseConfig {
+
+    private final String lotId;
+    private final String schemaName;
+
+    /**
+     * Constructor
+     * @param lotId : lot's identifier
+     * @param schemaName : lot's schema (database), created as the "prod" one of Data.sql
+     */
+    public LotDataBaseConfig(String lotId, String schemaName) {
+        this.lotId = lotId;
+        this.schemaName = schemaName;
+    }
+
+    @Override
+    public String getLotId() {
+        return lotId;
+    }
+
+    @Override
+    protected String getSchemaName() {
+        return schemaName;
+    }
+}
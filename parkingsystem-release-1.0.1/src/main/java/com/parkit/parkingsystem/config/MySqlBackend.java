@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+/**
+ * MySQL server backend (default) : tables are created by running resources/Data.sql on the server
+ * @author Olivier MOREL
+ *
+ */
+public class MySqlBackend implements DataBaseBackend {
+
+	public static final String NAME = "mysql";
+
+	private final String hostAndPort = System.getProperty("parkingsystem.db.mysql.host", "localhost:3306");
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDriverClassName() {
+		return "com.mysql.cj.jdbc.Driver";
+	}
+
+	@Override
+	public String getJdbcUrl(String schema) {
+		return "jdbc:mysql://" + hostAndPort + "/" + schema;
+	}
+
+	@Override
+	public Properties getConnectionProperties(Properties dbProperties) {
+		dbProperties.setProperty("useServerPrepStmts", "true"); //statements are prepared by SGBD, cached by StatementCache
+		dbProperties.setProperty("useCursorFetch", "true"); //a fetch size streams rows with a server cursor, see TicketBulkTransfer
+		dbProperties.setProperty("rewriteBatchedStatements", "true"); //a batch of inserts is sent as multi-row inserts
+		return dbProperties;
+	}
+
+	@Override
+	public void initialize(Connection con, String schema) {
+		//schema already exists on the server
+	}
+}
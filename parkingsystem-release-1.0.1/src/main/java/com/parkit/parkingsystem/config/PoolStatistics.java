@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Immutable snapshot of a ConnectionPool's gauges and counters
+ * @author Olivier MOREL
+ *
+ */
+public class PoolStatistics {
+
+	private final int totalConnections; //idle + active
+	private final int idleConnections;
+	private final int activeConnections; //borrowed and not yet released
+	private final int waitingThreads; //threads waiting for a connection
+	private final long borrowCount;
+	private final long createdCount;
+	private final long destroyedCount;
+	private final long validationFailureCount;
+	private final long timeoutCount;
+	private final long leakCount;
+	private final long statementHitCount; //prepared statements found in StatementCache
+	private final long statementMissCount; //prepared statements prepared by SGBD
+
+	public PoolStatistics(int totalConnections, int idleConnections, int activeConnections, int waitingThreads,
+			long borrowCount, long createdCount, long destroyedCount, long validationFailureCount, long timeoutCount, long leakCount,
+			long statementHitCount, long statementMissCount) {
+		this.totalConnections = totalConnections;
+		this.idleConnections = idleConnections;
+		this.activeConnections = activeConnections;
+		this.waitingThreads = waitingThreads;
+		this.borrowCount = borrowCount;
+		this.createdCount = createdCount;
+		this.destroyedCount = destroyedCount;
+		this.validationFailureCount = validationFailureCount;
+		this.timeoutCount = timeoutCount;
+		this.leakCount = leakCount;
+		this.statementHitCount = statementHitCount;
+		this.statementMissCount = statementMissCount;
+	}
+
+	public int getTotalConnections() {
+		return totalConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	public int getWaitingThreads() {
+		return waitingThreads;
+	}
+
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	public long getCreatedCount() {
+		return createdCount;
+	}
+
+	public long getDestroyedCount() {
+		return destroyedCount;
+	}
+
+	public long getValidationFailureCount() {
+		return validationFailureCount;
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	public long getLeakCount() {
+		return leakCount;
+	}
+
+	public long getStatementHitCount() {
+		return statementHitCount;
+	}
+
+	public long getStatementMissCount() {
+		return statementMissCount;
+	}
+
+	@Override
+	public String toString() {
+		return "total=" + totalConnections + ", idle=" + idleConnections + ", active=" + activeConnections
+				+ ", waiting=" + waitingThreads + ", borrowed=" + borrowCount + ", created=" + createdCount
+				+ ", destroyed=" + destroyedCount + ", validationFailures=" + validationFailureCount
+				+ ", timeouts=" + timeoutCount + ", leaks=" + leakCount
+				+ ", statementHits=" + statementHitCount + ", statementMisses=" + statementMissCount;
+	}
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Prepared statements of one pooled connection, keyed by their SQL (the DBConstants entries) :
+ * a query is parsed and planned once per connection instead of once per vehicle.
+ * Not thread safe : a connection is used by one thread at a time
+ * @author Olivier MOREL
+ *
+ */
+public class StatementCache {
+
+	private static final Logger logger = LogManager.getLogger("StatementCache");
+	private static final int MAX_STATEMENTS = 32; //DBConstants has far less entries, beyond statements are not cached
+
+	private final Connection connection;
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+	private final Set<PreparedStatement> cachedStatements = Collections.newSetFromMap(new IdentityHashMap<>()); //values of statements, for contains() in O(1)
+	private final LongAdder hitCount; //shared by all connections of the pool
+	private final LongAdder missCount;
+
+	/**
+	 * Constructor
+	 * @param connection : pooled connection
+	 * @param hitCount : pool's counter of statements found in cache
+	 * @param missCount : pool's counter of statements prepared
+	 */
+	public StatementCache(Connection connection, LongAdder hitCount, LongAdder missCount) {
+		this.connection = connection;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+	}
+
+	/**
+	 * Gives the cached statement for this SQL or prepares and caches it
+	 * @param sql : query, a DBConstants entry
+	 * @return PreparedStatement object, its parameters are cleared when given back to closePreparedStatement
+	 * @throws SQLException : if statement can't be prepared
+	 */
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		PreparedStatement ps = statements.get(sql);
+		if(ps != null && !ps.isClosed()) {
+			hitCount.increment();
+			return ps;
+		}
+		missCount.increment();
+		ps = prepare(connection, sql);
+		if(statements.size() < MAX_STATEMENTS || statements.containsKey(sql)) {
+			PreparedStatement closed = statements.put(sql, ps);
+			if(closed != null) {
+				cachedStatements.remove(closed);
+			}
+			cachedStatements.add(ps);
+		}
+		return ps;
+	}
+
+	/**
+	 * Prepares a statement, an insert returns its generated keys (e.g. ticket's ID) with getGeneratedKeys()
+	 * @param connection : Connection object
+	 * @param sql : query, a DBConstants entry
+	 * @return PreparedStatement object
+	 * @throws SQLException : if statement can't be prepared
+	 */
+	static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+		if(sql.regionMatches(true, 0, "insert", 0, 6)) {
+			return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	/**
+	 * Tests if a statement belongs to this cache, so it mustn't be closed after use
+	 * @param ps : PreparedStatement object
+	 * @return true if cached
+	 */
+	public boolean contains(PreparedStatement ps) {
+		return cachedStatements.contains(ps);
+	}
+
+	/**
+	 * Closes all cached statements, when the connection is destroyed
+	 */
+	public void closeAll() {
+		statements.values().forEach(ps -> {
+			try {
+				ps.close();
+			} catch(SQLException e) {
+				logger.error("Error while closing cached prepared statement", e);
+			}
+		});
+		statements.clear();
+		cachedStatements.clear();
+	}
+}
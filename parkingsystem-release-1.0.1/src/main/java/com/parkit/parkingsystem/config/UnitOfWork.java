@@ -0,0 +1,263 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Transaction context bound to the current thread :
+ * while it is opened, DAOs using a DataBaseConfig with the same pool join it,
+ * so all their queries run on one connection in one transaction with a single commit.
+ *
+ * The connection is borrowed on first use only and given back by commit(), rollback() or close().
+ * A unit of work begun while another one of the same pool is opened on the thread joins the outer one :
+ * only the outer one commits. Begun on another pool, it is a transaction of its own, current until it completes.
+ *
+ * Usage : try(UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig)) { DAO calls ... unitOfWork.commit(); }
+ * close() rolls back if commit() wasn't called
+ *
+ * Work done outside the connection (e.g. queued writes, in-memory indexes) follows the transaction
+ * with afterCommit() and afterRollback() hooks, work that must succeed for the transaction to commit (e.g. journaled events)
+ * with beforeCommit() hooks
+ * @author Olivier MOREL
+ *
+ */
+public class UnitOfWork implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("UnitOfWork");
+
+	private static final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
+
+	private final DataBaseConfig dataBaseConfig; //null : no DAO joins (e.g. DAOs are mocks)
+	private final UnitOfWork outer; //not null if joined
+	private final UnitOfWork previous; //not null if begun on another pool while it was current, current again on completion
+	private Connection connection; //borrowed on first use
+	private boolean completed = false;
+	private final List<CommitHook> beforeCommitHooks = new ArrayList<>();
+	private final List<Runnable> afterCommitHooks = new ArrayList<>();
+	private final List<Runnable> afterRollbackHooks = new ArrayList<>();
+
+	private UnitOfWork(DataBaseConfig dataBaseConfig, UnitOfWork outer, UnitOfWork previous) {
+		this.dataBaseConfig = dataBaseConfig;
+		this.outer = outer;
+		this.previous = previous;
+	}
+
+	/**
+	 * Begins a unit of work on the current thread, or joins the one already opened on the same pool
+	 * @param dataBaseConfig : configuration whose pool gives the connection, can be null (joins any)
+	 * @return UnitOfWork object to close
+	 */
+	public static UnitOfWork begin(DataBaseConfig dataBaseConfig) {
+		UnitOfWork current = currentUnitOfWork.get();
+		if(current != null && (dataBaseConfig == null || current.dataBaseConfig == null || current.isJoinedBy(dataBaseConfig))) {
+			return new UnitOfWork(dataBaseConfig, current, null);
+		}
+		UnitOfWork unitOfWork = new UnitOfWork(dataBaseConfig, null, current);
+		currentUnitOfWork.set(unitOfWork);
+		return unitOfWork;
+	}
+
+	/**
+	 * Unit of work opened on the current thread
+	 * @return UnitOfWork object or null
+	 */
+	public static UnitOfWork current() {
+		return currentUnitOfWork.get();
+	}
+
+	/**
+	 * Unit of work opened on the current thread whose pool is a DAO's one, the last one begun first
+	 * @param requester : DAO's configuration
+	 * @return UnitOfWork object or null if none
+	 */
+	static UnitOfWork joinedBy(DataBaseConfig requester) {
+		for(UnitOfWork unitOfWork = currentUnitOfWork.get(); unitOfWork != null; unitOfWork = unitOfWork.previous) {
+			if(unitOfWork.isJoinedBy(requester)) {
+				return unitOfWork;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Tests if a DAO's configuration shares this unit of work's pool
+	 * @param requester : DAO's configuration
+	 * @return true if the DAO must use getConnection()
+	 */
+	boolean isJoinedBy(DataBaseConfig requester) {
+		return dataBaseConfig != null && requester != null
+				&& (requester == dataBaseConfig || requester.getConnectionPool() == dataBaseConfig.getConnectionPool());
+	}
+
+	/**
+	 * Tests if a connection is the one of this unit of work, so DAOs mustn't give it back to the pool
+	 * @param con : Connection object
+	 * @return true if bound to this unit of work
+	 */
+	boolean isBoundTo(Connection con) {
+		return con != null && con == connection;
+	}
+
+	/**
+	 * Connection of the transaction, borrowed with auto-commit off on first call
+	 * @return Connection to SGBD object
+	 * @throws SQLException : if no connection can be borrowed
+	 */
+	Connection getConnection() throws SQLException {
+		if(completed) {
+			throw new SQLException("Unit of work already completed");
+		}
+		if(connection == null) {
+			Connection con = dataBaseConfig.getConnectionPool().borrow();
+			try {
+				con.setAutoCommit(false);
+			} catch(SQLException e) {
+				dataBaseConfig.getConnectionPool().release(con);
+				throw e;
+			}
+			connection = con;
+		}
+		return connection;
+	}
+
+	/**
+	 * Registers an action run before the whole transaction is committed, in registration order :
+	 * if it fails, the transaction is rolled back
+	 * @param hook : action
+	 */
+	public void beforeCommit(CommitHook hook) {
+		if(outer != null) {
+			outer.beforeCommit(hook);
+			return;
+		}
+		beforeCommitHooks.add(hook);
+	}
+
+	/**
+	 * Registers an action run once the whole transaction is committed, in registration order
+	 * @param hook : action
+	 */
+	public void afterCommit(Runnable hook) {
+		if(outer != null) {
+			outer.afterCommit(hook);
+			return;
+		}
+		afterCommitHooks.add(hook);
+	}
+
+	/**
+	 * Registers an action run if the whole transaction is rolled back
+	 * @param hook : action
+	 */
+	public void afterRollback(Runnable hook) {
+		if(outer != null) {
+			outer.afterRollback(hook);
+			return;
+		}
+		afterRollbackHooks.add(hook);
+	}
+
+	/**
+	 * Commits all DAOs' work at once, a joined unit of work lets the outer one commit
+	 * @throws SQLException : if commit fails, work is rolled back
+	 */
+	public void commit() throws SQLException {
+		if(outer != null || completed) {
+			return;
+		}
+		boolean committed = false;
+		try {
+			for(CommitHook hook : beforeCommitHooks) {
+				hook.run(); //throws SQLException, the transaction is rolled back
+			}
+			if(connection != null) {
+				connection.commit();
+			}
+			committed = true;
+		} finally {
+			if(!committed && connection != null) {
+				rollbackConnection();
+			}
+			complete(); //release() restores auto-commit
+			runHooks(committed ? afterCommitHooks : afterRollbackHooks);
+		}
+	}
+
+	/**
+	 * Discards all DAOs' work
+	 */
+	public void rollback() {
+		if(outer != null) {
+			outer.rollback(); //the whole outer transaction fails
+			return;
+		}
+		if(completed) {
+			return;
+		}
+		try {
+			if(connection != null) {
+				rollbackConnection();
+			}
+		} finally {
+			complete();
+			runHooks(afterRollbackHooks);
+		}
+	}
+
+	private void rollbackConnection() {
+		try {
+			connection.rollback();
+		} catch(SQLException e) {
+			logger.error("Error while rolling back unit of work", e);
+		}
+	}
+
+	/**
+	 * Rolls back if neither commit() nor rollback() has been called
+	 */
+	@Override
+	public void close() {
+		if(outer == null && !completed) {
+			rollback();
+		}
+	}
+
+	private void runHooks(List<Runnable> hooks) {
+		hooks.forEach(hook -> {
+			try {
+				hook.run();
+			} catch(RuntimeException e) {
+				logger.error("Error in unit of work hook", e);
+			}
+		});
+		beforeCommitHooks.clear();
+		afterCommitHooks.clear();
+		afterRollbackHooks.clear();
+	}
+
+	private void complete() {
+		completed = true;
+		if(previous != null && !previous.completed) {
+			currentUnitOfWork.set(previous);
+		} else {
+			currentUnitOfWork.remove();
+		}
+		if(connection != null) {
+			dataBaseConfig.getConnectionPool().release(connection); //restores auto-commit
+			connection = null;
+		}
+	}
+
+	/**
+	 * Action run before commit, its failure rolls the transaction back
+	 */
+	@FunctionalInterface
+	public interface CommitHook {
+		void run() throws SQLException;
+	}
+}
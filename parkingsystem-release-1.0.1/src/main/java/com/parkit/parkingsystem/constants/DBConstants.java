@@ -8,15 +8,64 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_NEXT_PARKING_SPOT_AFTER = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ? and PARKING_NUMBER > ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true"; //1 row updated if claimed
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE, PARKING_ZONE, PARKING_LEVEL from parking";
+    public static final String GET_OCCUPANCY = "select TYPE, sum(case when AVAILABLE then 1 else 0 end), count(*) from parking group by TYPE";
+    public static final String GET_GATE_DISTANCES = "select GATE, PARKING_NUMBER, DISTANCE from gate_distance";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String CLOSE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is null"; //1 row updated if closed by this exit
+    public static final String SAVE_TICKET_WITH_ID = "insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
+    /* Hi/lo ticket IDs : a block is reserved by incrementing NEXT_ID then reading it in the same transaction */
+    public static final String RESERVE_TICKET_IDS = "update ticket_id_block set NEXT_ID = NEXT_ID + ? where ID = 1";
+    public static final String GET_TICKET_ID_BLOCK = "select NEXT_ID from ticket_id_block where ID = 1";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME,p.TYPE from ticket t,parking p "
     		+ "where p.parking_number = t.parking_number and t.OUT_TIME IS NULL and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t, parking p "
+    		+ "where p.parking_number = t.parking_number and t.OUT_TIME IS NULL";
     /*public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p "
     		+ "where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
 	*/
-    public static final String GET_TIMES = "select count(t.out_time) as 'times' from ticket t "
+    public static final String GET_TIMES = "select count(t.out_time) as times from ticket t "
     		+ "where (t.out_time between ? and ?) and t.VEHICLE_REG_NUMBER=?";
+    public static final String COUNT_MONTHLY_VISIT = "insert into monthly_visit(VEHICLE_REG_NUMBER, VISIT_MONTH, VISITS) values(?,?,1) "
+    		+ "on duplicate key update VISITS = VISITS + 1";
+    public static final String GET_MONTHLY_VISITS = "select VISITS from monthly_visit where VEHICLE_REG_NUMBER=? and VISIT_MONTH=?";
+    public static final String CLEAR_MONTHLY_VISITS = "delete from monthly_visit";
+    public static final String BACKFILL_MONTHLY_VISITS = "insert into monthly_visit(VEHICLE_REG_NUMBER, VISIT_MONTH, VISITS) "
+    		+ "select v.VEHICLE_REG_NUMBER, year(v.OUT_TIME)*100 + month(v.OUT_TIME), count(*) from "
+    		+ "(select VEHICLE_REG_NUMBER, OUT_TIME from ticket where OUT_TIME is not null "
+    		+ "union all select VEHICLE_REG_NUMBER, OUT_TIME from ticket_archive) v "
+    		+ "group by v.VEHICLE_REG_NUMBER, year(v.OUT_TIME)*100 + month(v.OUT_TIME)";
+
+    /* Closed tickets older than the retention are moved to ticket_archive, hot path queries above only read recent ones */
+    public static final String ARCHIVE_TICKETS = "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) "
+    		+ "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where OUT_TIME < ?";
+    public static final String PURGE_ARCHIVED_TICKETS = "delete from ticket where OUT_TIME < ?";
+    public static final String EXPORT_TICKETS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket "
+    		+ "union all select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive"; //no order by : streamed, not sorted
+    public static final String GET_TICKET_HISTORY = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t, parking p "
+    		+ "where p.parking_number = t.parking_number and t.OUT_TIME is not null and t.VEHICLE_REG_NUMBER=? "
+    		+ "union all select a.PARKING_NUMBER, a.ID, a.PRICE, a.IN_TIME, a.OUT_TIME, p.TYPE from ticket_archive a, parking p "
+    		+ "where p.parking_number = a.parking_number and a.VEHICLE_REG_NUMBER=? order by IN_TIME desc";
+
+    /* Reports : tickets parked during a period [start, end), recent and archived, streamed */
+    public static final String REPORT_TICKETS = "select t.IN_TIME, t.OUT_TIME, t.PRICE, p.TYPE from ticket t, parking p "
+    		+ "where p.parking_number = t.parking_number and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?) "
+    		+ "union all select a.IN_TIME, a.OUT_TIME, a.PRICE, p.TYPE from ticket_archive a, parking p "
+    		+ "where p.parking_number = a.parking_number and a.IN_TIME < ? and a.OUT_TIME >= ?";
+
+    /* Event-sourced mode : tables are a projection of the journal, a vehicle has one open ticket at most */
+    public static final String PRICE_OPEN_TICKET = "update ticket set PRICE=? where VEHICLE_REG_NUMBER=? and OUT_TIME is null";
+    public static final String CLOSE_OPEN_TICKET = "update ticket set OUT_TIME=? where VEHICLE_REG_NUMBER=? and OUT_TIME is null";
+    public static final String GET_EVENT_CHECKPOINT = "select SEQUENCE from event_checkpoint where ID = 1";
+    public static final String UPDATE_EVENT_CHECKPOINT = "update event_checkpoint set SEQUENCE = ? where ID = 1";
+
+    public static final String SAVE_RESERVATION = "insert into reservation(VEHICLE_REG_NUMBER, PARKING_NUMBER, EXPIRY_TIME) values(?,?,?)";
+    public static final String DELETE_RESERVATION = "delete from reservation where VEHICLE_REG_NUMBER=?";
+    public static final String GET_RESERVATIONS = "select r.VEHICLE_REG_NUMBER, r.PARKING_NUMBER, p.TYPE, r.EXPIRY_TIME from reservation r, parking p "
+    		+ "where p.PARKING_NUMBER = r.PARKING_NUMBER";
 }
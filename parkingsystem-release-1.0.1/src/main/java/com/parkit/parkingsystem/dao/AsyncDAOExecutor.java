@@ -0,0 +1,143 @@
+package com.parkit.parkingsystem.dao;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded executor of asynchronous DAOs' calls :
+ *  - on a JDK with virtual threads (21+), one virtual thread per call, at most maxConcurrency + queueCapacity calls in flight
+ *    (they block cheaply on the connection pool)
+ *  - else a fixed pool of maxConcurrency daemon threads with a queue of queueCapacity calls
+ * Beyond, calls are rejected : their future completes exceptionally with RejectedExecutionException
+ * @author Olivier MOREL
+ *
+ */
+public final class AsyncDAOExecutor implements Executor, AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("AsyncDAOExecutor");
+
+	private final ExecutorService delegate;
+	private final Semaphore inFlight; //null : bounded by ThreadPoolExecutor's queue
+	private final boolean virtualThreads;
+
+	/**
+	 * Constructor
+	 * @param maxConcurrency : number of platform threads, e.g. pool's max size
+	 * @param queueCapacity : number of calls waiting
+	 */
+	public AsyncDAOExecutor(int maxConcurrency, int queueCapacity) {
+		ExecutorService virtualThreadExecutor = Boolean.parseBoolean(System.getProperty("parkingsystem.async.virtualThreads", "true"))
+				? newVirtualThreadPerTaskExecutor() : null;
+		if(virtualThreadExecutor != null) {
+			delegate = virtualThreadExecutor;
+			inFlight = new Semaphore(maxConcurrency + queueCapacity);
+			virtualThreads = true;
+		} else {
+			AtomicInteger threadNumber = new AtomicInteger();
+			delegate = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+						Thread thread = new Thread(runnable, "AsyncDAO-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true); //doesn't prevent JVM to exit
+						return thread;
+					}, new ThreadPoolExecutor.AbortPolicy());
+			inFlight = null;
+			virtualThreads = false;
+		}
+	}
+
+	/**
+	 * Executor sized with -Dparkingsystem.async.maxConcurrency=... and queueCapacity
+	 * @return AsyncDAOExecutor object
+	 */
+	public static AsyncDAOExecutor fromSystemProperties() {
+		return new AsyncDAOExecutor(Integer.getInteger("parkingsystem.async.maxConcurrency", Integer.getInteger("parkingsystem.pool.maxSize", 10)),
+				Integer.getInteger("parkingsystem.async.queueCapacity", 1000));
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if(inFlight == null) {
+			delegate.execute(command); //throws RejectedExecutionException if queue is full
+			return;
+		}
+		if(!inFlight.tryAcquire()) {
+			throw new RejectedExecutionException("Too many asynchronous DAO calls in flight");
+		}
+		try {
+			delegate.execute(() -> {
+				try {
+					command.run();
+				} finally {
+					inFlight.release();
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			inFlight.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs a blocking DAO call asynchronously
+	 * @param <T> : result's type
+	 * @param call : blocking DAO call
+	 * @return future of the result, completed exceptionally if the call is rejected or throws
+	 */
+	public <T> CompletableFuture<T> supply(Supplier<T> call) {
+		try {
+			return CompletableFuture.supplyAsync(call, this);
+		} catch(RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+
+	/**
+	 * Tests if calls run on virtual threads
+	 * @return true on JDK 21+
+	 */
+	public boolean isUsingVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Refuses new calls and waits a while for running ones
+	 */
+	@Override
+	public void close() {
+		delegate.shutdown();
+		try {
+			if(!delegate.awaitTermination(5, TimeUnit.SECONDS)) {
+				delegate.shutdownNow();
+			}
+		} catch(InterruptedException e) {
+			delegate.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try { //by reflection : sources are Java 8
+			Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch(NoSuchMethodException e) {
+			return null; //JDK without virtual threads
+		} catch(Exception e) {
+			logger.warn("Virtual threads unavailable, using platform threads", e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Asynchronous variant of ParkingSpotDAO : each call runs on an AsyncDAOExecutor and returns a CompletableFuture.
+ * Calls run on another thread so they don't join the caller's UnitOfWork
+ * @author Olivier MOREL
+ *
+ */
+public class AsyncParkingSpotDAO {
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final AsyncDAOExecutor asyncDAOExecutor;
+
+    /**
+     * Constructor
+     * @param parkingSpotDAO : blocking DAO doing the calls
+     * @param asyncDAOExecutor : executor shared by asynchronous DAOs
+     */
+    public AsyncParkingSpotDAO(ParkingSpotDAO parkingSpotDAO, AsyncDAOExecutor asyncDAOExecutor) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.asyncDAOExecutor = asyncDAOExecutor;
+    }
+
+    /**
+     * Asynchronous getNextAvailableSlot
+     * @param parkingType : given vehicule's type
+     * @return future of the index of the available parking spot (0 if none),
+     * completed exceptionally with a SQLException on error instead of -1
+     */
+    public CompletableFuture<Integer> getNextAvailableSlot(ParkingType parkingType) {
+        return asyncDAOExecutor.supply(() -> {
+            int result = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            if(result < 0) {
+                throw new CompletionException(new SQLException("Error fetching next available slot")); //already logged by DAO
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Asynchronous claimNextAvailableSlot
+     * @param parkingType : given vehicule's type
+     * @return future of the index of the claimed parking spot (0 if none),
+     * completed exceptionally with a SQLException on error instead of -1
+     */
+    public CompletableFuture<Integer> claimNextAvailableSlot(ParkingType parkingType) {
+        return asyncDAOExecutor.supply(() -> {
+            int result = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+            if(result < 0) {
+                throw new CompletionException(new SQLException("Error claiming next available slot")); //already logged by DAO
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Asynchronous updateParking
+     * @param parkingSpot : model
+     * @return future of success or failure to get update
+     */
+    public CompletableFuture<Boolean> updateParking(ParkingSpot parkingSpot) {
+        return asyncDAOExecutor.supply(() -> parkingSpotDAO.updateParking(parkingSpot));
+    }
+}
@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Asynchronous variant of TicketDAO : each call runs on an AsyncDAOExecutor and returns a CompletableFuture.
+ * Calls run on another thread so they don't join the caller's UnitOfWork
+ * @author Olivier MOREL
+ *
+ */
+public class AsyncTicketDAO {
+
+    private final TicketDAO ticketDAO;
+    private final AsyncDAOExecutor asyncDAOExecutor;
+
+    /**
+     * Constructor
+     * @param ticketDAO : blocking DAO doing the calls
+     * @param asyncDAOExecutor : executor shared by asynchronous DAOs
+     */
+    public AsyncTicketDAO(TicketDAO ticketDAO, AsyncDAOExecutor asyncDAOExecutor) {
+        this.ticketDAO = ticketDAO;
+        this.asyncDAOExecutor = asyncDAOExecutor;
+    }
+
+    /**
+     * Asynchronous saveTicket
+     * @param ticket : model
+     * @return future of true = success or false = failure
+     */
+    public CompletableFuture<Boolean> saveTicket(Ticket ticket) {
+        return asyncDAOExecutor.supply(() -> ticketDAO.saveTicket(ticket));
+    }
+
+    /**
+     * Asynchronous getTicket
+     * @param vehicleRegNumber : vehicle's registration number
+     * @return future of the ticket, empty if none or on error (logged by DAO)
+     */
+    public CompletableFuture<Optional<Ticket>> getTicket(String vehicleRegNumber) {
+        return asyncDAOExecutor.supply(() -> Optional.ofNullable(ticketDAO.getTicket(vehicleRegNumber)));
+    }
+
+    /**
+     * Asynchronous updateTicket
+     * @param ticket : model
+     * @return future of true = success or false = failure
+     */
+    public CompletableFuture<Boolean> updateTicket(Ticket ticket) {
+        return asyncDAOExecutor.supply(() -> ticketDAO.updateTicket(ticket));
+    }
+
+    /**
+     * Asynchronous isRecurringUserTicket
+     * @param ticket : the pointer to object
+     * @return future of true if user parked at least 11 times last month,
+     * completed exceptionally with a SQLException on error instead of null
+     */
+    public CompletableFuture<Boolean> isRecurringUserTicket(Ticket ticket) {
+        return asyncDAOExecutor.supply(() -> Optional.ofNullable(ticketDAO.isRecurringUserTicket(ticket))
+                .orElseThrow(() -> new CompletionException(new SQLException("Error getting user last month times")))); //already logged by DAO
+    }
+}
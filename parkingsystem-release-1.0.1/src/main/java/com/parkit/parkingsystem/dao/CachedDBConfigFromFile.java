@@ -0,0 +1,182 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class for caching db properties :
+ *  - db.properties is loaded once (with LoadDBConfigFromFile) and kept as a snapshot never modified after
+ *  - a daemon thread watches the file (java.nio WatchService) and swaps the snapshot when it changes
+ *  - credentials listeners are told when user or password change, e.g. to recycle pooled connections
+ *
+ * This is a singleton, only one instance possible.
+ *
+ * @author Olivier MOREL
+ *
+ */
+public final class CachedDBConfigFromFile implements DBConfigIO {
+
+	private static final Logger logger = LogManager.getLogger("CachedDBConfigFromFile");
+	private static final long SETTLE_DELAY_MILLIS = 100; //WriteDBConfigToFile truncates then writes : wait for the end of writing
+
+	private static CachedDBConfigFromFile cachedDBConfigInstance;
+
+	private final Path directory;
+	private final String fileToWatch = "db.properties";
+	private final AtomicReference<Properties> dbPropertiesSnapshot = new AtomicReference<>();
+	private final List<Consumer<Properties>> credentialsListeners = new CopyOnWriteArrayList<>();
+	private WatchService watchService;
+
+	private CachedDBConfigFromFile() {
+		this(Paths.get(System.getProperty("user.dir")), true); //=parkingsystem/
+	} //Constructor is private to exercise access control
+
+	/**
+	 * Constructor of a cache of another directory, e.g. of a test
+	 * @param directory : directory of db.properties
+	 * @param watching : false to reload only with reload()
+	 */
+	CachedDBConfigFromFile(Path directory, boolean watching) {
+		this.directory = directory;
+		dbPropertiesSnapshot.set(load());
+		if(watching) {
+			startWatching();
+		}
+	}
+
+	/**
+	 * Getter Static to get it without instantiating it
+	 *
+	 * @return the only one CachedDBConfigFromFile()'s instance
+	 */
+	public static synchronized CachedDBConfigFromFile getInstance() {
+		if(cachedDBConfigInstance == null) {
+			cachedDBConfigInstance = new CachedDBConfigFromFile();
+		}
+		return cachedDBConfigInstance;
+	}
+
+	/**
+	 * Stops watching the file
+	 */
+	@Override
+	public void closeResource() {
+		try {
+			if(watchService != null) {
+				watchService.close(); //watcher thread ends with ClosedWatchServiceException
+			}
+		} catch(IOException e) {
+			logger.error("Error closing watch service", e);
+		}
+	}
+
+	/**
+	 * Gives the cached db properties without any file access
+	 * @return a copy of the snapshot, so callers can't modify it
+	 */
+	@Override
+	public Properties getDBProperties() {
+		Properties dbProperties = new Properties();
+		dbProperties.putAll(dbPropertiesSnapshot.get());
+		return dbProperties;
+	}
+
+	/**
+	 * Saves db properties to file (with WriteDBConfigToFile) and reloads the snapshot at once
+	 */
+	@Override
+	public void setDBProperties(Properties dbProperties) {
+		new WriteDBConfigToFile().setDBProperties(dbProperties);
+		reload();
+	}
+
+	/**
+	 * Registers a listener called with the new properties when user or password change
+	 * @param credentialsListener : listener
+	 */
+	public void addCredentialsListener(Consumer<Properties> credentialsListener) {
+		credentialsListeners.add(credentialsListener);
+	}
+
+	/**
+	 * Loads the file again and swaps the snapshot, an empty file (being written) is ignored
+	 */
+	synchronized void reload() {
+		Properties newDBProperties = load();
+		if(newDBProperties.isEmpty()) {
+			logger.warn("db.properties is empty or unreadable, keeping previous configuration");
+			return;
+		}
+		Properties oldDBProperties = dbPropertiesSnapshot.getAndSet(newDBProperties);
+		logger.info("db.properties reloaded");
+		if(!Objects.equals(oldDBProperties.getProperty("user"), newDBProperties.getProperty("user"))
+				|| !Objects.equals(oldDBProperties.getProperty("password"), newDBProperties.getProperty("password"))) {
+			logger.info("DB credentials changed");
+			credentialsListeners.forEach(listener -> listener.accept(newDBProperties));
+		}
+	}
+
+	private Properties load() {
+		return new LoadDBConfigFromFile(directory.resolve(fileToWatch).toString()).getDBProperties(); //closes its reader
+	}
+
+	private void startWatching() {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			Thread watcher = new Thread(this::watch, "CachedDBConfigFromFile-watcher");
+			watcher.setDaemon(true); //doesn't prevent JVM to exit
+			watcher.start();
+		} catch(IOException e) {
+			logger.error("Error watching db.properties, changes will need a restart", e);
+		} catch(Exception e) {
+			logger.error("Unexpected error watching db.properties", e);
+		}
+	}
+
+	private void watch() {
+		try {
+			while(true) {
+				WatchKey key = watchService.take(); //blocks until an event
+				boolean changed = false;
+				for(WatchEvent<?> event : key.pollEvents()) {
+					if(fileToWatch.equals(String.valueOf(event.context()))) {
+						changed = true;
+					}
+				}
+				key.reset();
+				if(changed) {
+					Thread.sleep(SETTLE_DELAY_MILLIS);
+					WatchKey next = watchService.poll(); //drops events of the same write
+					if(next != null) {
+						next.pollEvents();
+						next.reset();
+					}
+					reload();
+				}
+			}
+		} catch(ClosedWatchServiceException e) {
+			logger.info("Stop watching db.properties");
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(Exception e) {
+			logger.error("Unexpected error watching db.properties", e);
+		}
+	}
+}
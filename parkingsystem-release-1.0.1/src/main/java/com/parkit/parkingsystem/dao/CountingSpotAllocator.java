@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * SpotAllocator decorator keeping OccupancyCounters up to date : a claim is counted at once,
+ * a release in a UnitOfWork only once committed
+ * @author Olivier MOREL
+ *
+ */
+public class CountingSpotAllocator implements SpotAllocator {
+
+	private final SpotAllocator spotAllocator;
+	private final OccupancyCounters occupancyCounters;
+
+	/**
+	 * Constructor
+	 * @param spotAllocator : allocator claiming and releasing spots
+	 * @param occupancyCounters : counters to update
+	 */
+	public CountingSpotAllocator(SpotAllocator spotAllocator, OccupancyCounters occupancyCounters) {
+		this.spotAllocator = spotAllocator;
+		this.occupancyCounters = occupancyCounters;
+	}
+
+	@Override
+	public int claim(ParkingType parkingType) {
+		int parkingNumber = spotAllocator.claim(parkingType);
+		if(parkingNumber > 0) {
+			occupancyCounters.claimed(parkingType);
+			UnitOfWork unitOfWork = UnitOfWork.current();
+			if(unitOfWork != null) {
+				unitOfWork.afterRollback(() -> occupancyCounters.released(parkingType)); //claim undone
+			}
+		}
+		return parkingNumber;
+	}
+
+	@Override
+	public boolean release(ParkingSpot parkingSpot) {
+		if(!spotAllocator.release(parkingSpot)) {
+			return false;
+		}
+		ParkingType parkingType = parkingSpot.getParkingType();
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork != null) {
+			unitOfWork.afterCommit(() -> occupancyCounters.released(parkingType));
+		} else {
+			occupancyCounters.released(parkingType);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,432 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only journal of lot events in memory-mapped segment files "journal-(first sequence).log" of segmentSize bytes :
+ * an append is a sequential put into mapped pages, without system call, the OS writes them back.
+ * sync() writes them to disk (fsync) in groups : while one thread forces the segments, the appends of others wait
+ * and are forced together by the next one, so a disk write covers many appends (with force, callers sync each append).
+ * Events are numbered from 1 by a sequence. A record holds the events of one append :
+ * int length of the payload, int CRC32 of the payload, payload = long first sequence, short count, events (see LotEvent),
+ * so a batch is replayed whole or not at all. The record after the last one starts with a length 0.
+ * On open, records are checked up to the first torn one (length 0, bad CRC or sequence gap) and appends go on from there.
+ * One writer at a time (append is synchronized), cursors read concurrently up to the last appended sequence
+ * @author Olivier MOREL
+ *
+ */
+public class EventJournal implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("EventJournal");
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int RECORD_HEADER = 4 + 4; //length, CRC32
+	private static final int PAYLOAD_HEADER = 8 + 2; //first sequence, count
+
+	private final Path directory;
+	private final int segmentSize;
+	private final boolean force;
+	private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>(); //first sequence -> segment
+	private final CRC32 crc = new CRC32(); //guarded by this
+	private Segment current; //guarded by this, last segment
+	private volatile long lastSequence; //last appended, cursors don't read beyond
+	private final Object syncLock = new Object();
+	private long syncedSequence; //guarded by syncLock, last written to disk
+	private boolean syncing = false; //guarded by syncLock, a thread is forcing segments
+
+	private EventJournal(Path directory, int segmentSize, boolean force) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.force = force;
+	}
+
+	/**
+	 * Opens the journal of a directory, created if needed, and finds the end of its valid records
+	 * @param directory : directory of segment files
+	 * @param segmentSize : bytes of a new segment file
+	 * @param force : true if callers sync each append before reporting it done
+	 * @param firstSequence : sequence of the first event if the directory has no segment
+	 * @return EventJournal object
+	 * @throws IOException : if a segment can't be created or mapped
+	 */
+	public static EventJournal open(Path directory, int segmentSize, boolean force, long firstSequence) throws IOException {
+		if(segmentSize < 1024) {
+			throw new IllegalArgumentException("Segment size must be at least 1024 bytes");
+		}
+		Files.createDirectories(directory);
+		EventJournal journal = new EventJournal(directory, segmentSize, force);
+		journal.recover(firstSequence);
+		return journal;
+	}
+
+	private void recover(long firstSequence) throws IOException {
+		List<Long> firstSequences = new ArrayList<>();
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for(Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					firstSequences.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+				} catch(NumberFormatException e) {
+					logger.warn("File " + file + " ignored, not a journal segment");
+				}
+			}
+		}
+		firstSequences.sort(null);
+		if(firstSequences.isEmpty()) {
+			lastSequence = firstSequence - 1;
+			syncedSequence = lastSequence;
+			current = createSegment(firstSequence);
+			return;
+		}
+		lastSequence = firstSequences.get(0) - 1;
+		for(long segmentFirstSequence : firstSequences) {
+			Path file = segmentPath(segmentFirstSequence);
+			if(segmentFirstSequence != lastSequence + 1) { //after a torn record : never replayed
+				logger.warn("Segment " + file + " deleted, events up to " + lastSequence + " only are valid");
+				Files.delete(file);
+				continue;
+			}
+			Segment segment = mapSegment(segmentFirstSequence, Files.size(file));
+			lastSequence = scan(segment);
+			segments.put(segmentFirstSequence, segment);
+			current = segment;
+		}
+		syncedSequence = lastSequence; //as found on disk
+		current.buffer.position(current.end);
+		if(current.end + 4 <= current.buffer.capacity()) {
+			current.buffer.putInt(current.end, 0); //a torn record after the end isn't read
+		}
+		logger.info("Journal " + directory + " opened, events " + getFirstSequence() + " to " + lastSequence);
+	}
+
+	/**
+	 * Checks the records of a segment and sets its end after the last valid one
+	 * @param segment : mapped segment
+	 * @return sequence of its last valid event
+	 */
+	private long scan(Segment segment) {
+		ByteBuffer view = segment.buffer.duplicate();
+		long expected = segment.firstSequence;
+		int position = 0;
+		while(position + RECORD_HEADER + PAYLOAD_HEADER <= view.capacity()) {
+			int length = view.getInt(position);
+			if(length < PAYLOAD_HEADER || position + RECORD_HEADER + length > view.capacity()) {
+				break; //end or torn length
+			}
+			byte[] payload = new byte[length];
+			view.position(position + RECORD_HEADER);
+			view.get(payload);
+			CRC32 checksum = new CRC32();
+			checksum.update(payload, 0, length);
+			if((int) checksum.getValue() != view.getInt(position + 4)) {
+				logger.warn("Torn record at " + position + " of segment " + segment.firstSequence + " truncated");
+				break;
+			}
+			ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+			if(payloadBuffer.getLong() != expected) {
+				logger.warn("Sequence gap at " + position + " of segment " + segment.firstSequence + " truncated");
+				break;
+			}
+			expected += payloadBuffer.getShort();
+			position += RECORD_HEADER + length;
+		}
+		segment.end = position;
+		return expected - 1;
+	}
+
+	/**
+	 * Appends events as one record, in the mapped pages (see sync())
+	 * @param events : events to append, at least one
+	 * @return sequence of the last one
+	 * @throws IOException : if the record can't be written, nothing is appended
+	 */
+	public synchronized long append(List<LotEvent> events) throws IOException {
+		if(current == null) {
+			throw new IOException("Journal " + directory + " is closed");
+		}
+		if(events.isEmpty() || events.size() > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("1 to " + Short.MAX_VALUE + " events can be appended at once");
+		}
+		int length = PAYLOAD_HEADER;
+		for(LotEvent event : events) {
+			length += event.encodedSize();
+		}
+		if(RECORD_HEADER + length + 4 > segmentSize) {
+			throw new IOException("Record of " + length + " bytes larger than a segment");
+		}
+		if(current.buffer.remaining() < RECORD_HEADER + length + 4) { //room for the next record's length 0
+			roll();
+		}
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		payload.putLong(lastSequence + 1).putShort((short) events.size());
+		events.forEach(event -> event.encode(payload));
+		crc.reset();
+		crc.update(payload.array(), 0, length);
+		MappedByteBuffer buffer = current.buffer;
+		buffer.putInt(length).putInt((int) crc.getValue()).put(payload.array());
+		buffer.putInt(buffer.position(), 0); //end of records
+		current.end = buffer.position();
+		lastSequence += events.size(); //publishes the record to cursors
+		return lastSequence;
+	}
+
+	private void roll() throws IOException {
+		current = createSegment(lastSequence + 1); //the previous one is forced by the next sync()
+	}
+
+	/**
+	 * Tests if callers sync each append before reporting it done
+	 * @return force given on open
+	 */
+	public boolean isForce() {
+		return force;
+	}
+
+	/**
+	 * Writes to disk the events up to a sequence, with the ones appended meanwhile by other threads
+	 * @param sequence : last event needed on disk, e.g. returned by append()
+	 * @throws IOException : if segments can't be forced or the thread is interrupted
+	 */
+	public void sync(long sequence) throws IOException {
+		synchronized(syncLock) {
+			while(syncedSequence < sequence && syncing) {
+				try {
+					syncLock.wait(); //the forcing thread may cover this sequence
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted waiting for journal sync");
+				}
+			}
+			if(syncedSequence >= sequence) {
+				return;
+			}
+			syncing = true;
+		}
+		long target = 0;
+		List<Segment> dirtySegments = new ArrayList<>();
+		boolean synced = false;
+		try {
+			synchronized(this) {
+				target = lastSequence; //records up to it are in the mapped pages
+				Map.Entry<Long, Segment> first = segments.floorEntry(syncedSequence() + 1);
+				dirtySegments.addAll((first == null) ? segments.values() : segments.tailMap(first.getKey()).values());
+			}
+			for(Segment segment : dirtySegments) {
+				segment.buffer.force();
+			}
+			synced = true;
+		} catch(RuntimeException e) { //force() reports I/O errors unchecked
+			throw new IOException("Error forcing journal " + directory, e);
+		} finally {
+			synchronized(syncLock) {
+				syncing = false;
+				if(synced) {
+					syncedSequence = Math.max(syncedSequence, target);
+				}
+				syncLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Writes to disk all appended events
+	 * @throws IOException : if segments can't be forced
+	 */
+	public void sync() throws IOException {
+		sync(lastSequence);
+	}
+
+	private long syncedSequence() {
+		synchronized(syncLock) {
+			return syncedSequence;
+		}
+	}
+
+	private Segment createSegment(long firstSequence) throws IOException {
+		Segment segment = mapSegment(firstSequence, segmentSize);
+		segment.buffer.putInt(0, 0);
+		segments.put(firstSequence, segment);
+		return segment;
+	}
+
+	private Segment mapSegment(long firstSequence, long size) throws IOException {
+		try(FileChannel channel = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return new Segment(firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size)); //mapping outlives the channel
+		}
+	}
+
+	private Path segmentPath(long firstSequence) {
+		return directory.resolve(SEGMENT_PREFIX + firstSequence + SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Sequence of the first event kept
+	 * @return sequence, lastSequence + 1 if the journal is empty
+	 */
+	public long getFirstSequence() {
+		Map.Entry<Long, Segment> first = segments.firstEntry();
+		return (first == null) ? lastSequence + 1 : first.getKey();
+	}
+
+	/**
+	 * Sequence of the last event appended
+	 * @return sequence, getFirstSequence() - 1 if the journal is empty
+	 */
+	public long getLastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Opens a cursor on the events after a sequence
+	 * @param afterSequence : events up to this sequence are skipped
+	 * @return Cursor object
+	 * @throws IllegalStateException : if events after this sequence are deleted or this sequence isn't appended
+	 */
+	public Cursor cursor(long afterSequence) {
+		if(afterSequence > lastSequence) {
+			throw new IllegalStateException("Event " + afterSequence + " not in journal, last is " + lastSequence);
+		}
+		Map.Entry<Long, Segment> entry = segments.floorEntry(afterSequence + 1);
+		if(entry == null) {
+			throw new IllegalStateException("Events after " + afterSequence + " deleted, journal starts at " + getFirstSequence());
+		}
+		return new Cursor(entry.getValue(), afterSequence);
+	}
+
+	/**
+	 * Deletes the segments whose events are all up to a sequence, e.g. covered by a snapshot and projected.
+	 * The last segment is kept
+	 * @param sequence : last sequence not needed anymore
+	 * @return number of segments deleted
+	 */
+	public synchronized int deleteUpTo(long sequence) {
+		int deleted = 0;
+		for(Map.Entry<Long, Segment> entry : segments.entrySet()) {
+			Long next = segments.higherKey(entry.getKey());
+			if(next == null || next > sequence + 1) {
+				break;
+			}
+			try {
+				Files.deleteIfExists(segmentPath(entry.getKey()));
+				segments.remove(entry.getKey());
+				deleted++;
+			} catch(IOException e) {
+				logger.error("Error deleting journal segment " + entry.getKey(), e);
+				break;
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Writes the segments to disk and refuses new appends
+	 */
+	@Override
+	public synchronized void close() {
+		if(current != null) {
+			for(Segment segment : segments.values()) { //including rolled ones not synced yet
+				segment.buffer.force();
+			}
+			current = null;
+		}
+	}
+
+	/**
+	 * Reads events in sequence order from a segment to the next ones
+	 */
+	public final class Cursor {
+		private Segment segment;
+		private ByteBuffer view;
+		private int position = 0;
+		private final List<LotEvent> record = new ArrayList<>();
+		private int index = 0;
+		private long sequence; //of the last event read or skipped
+
+		private Cursor(Segment segment, long afterSequence) {
+			this.segment = segment;
+			this.view = segment.buffer.duplicate();
+			this.sequence = segment.firstSequence - 1;
+			while(sequence < afterSequence && next() != null) {
+				//skips events already read
+			}
+		}
+
+		/**
+		 * Next event
+		 * @return LotEvent object or null if none is appended yet
+		 */
+		public LotEvent next() {
+			while(index >= record.size()) {
+				if(sequence >= lastSequence || !readRecord()) {
+					return null;
+				}
+			}
+			sequence++;
+			return record.get(index++);
+		}
+
+		/**
+		 * Sequence of the event returned by the last next()
+		 * @return sequence
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		private boolean readRecord() {
+			int length = (position + 4 <= view.capacity()) ? view.getInt(position) : 0;
+			if(length == 0) { //end of segment, events go on in the next one
+				Map.Entry<Long, Segment> next = segments.higherEntry(segment.firstSequence);
+				if(next == null) {
+					return false;
+				}
+				segment = next.getValue();
+				view = segment.buffer.duplicate();
+				position = 0;
+				return true;
+			}
+			view.position(position + RECORD_HEADER);
+			long firstSequence = view.getLong();
+			int count = view.getShort();
+			if(firstSequence != sequence + 1) {
+				throw new IllegalStateException("Journal record of sequence " + firstSequence + " found after " + sequence);
+			}
+			record.clear();
+			for(int i = 0; i < count; i++) {
+				record.add(LotEvent.decode(view));
+			}
+			index = 0;
+			position += RECORD_HEADER + length;
+			return true;
+		}
+	}
+
+	private static final class Segment {
+		private final long firstSequence;
+		private final MappedByteBuffer buffer; //position : end of records, used by the writer only
+		private int end; //end of records
+
+		private Segment(long firstSequence, MappedByteBuffer buffer) {
+			this.firstSequence = firstSequence;
+			this.buffer = buffer;
+		}
+	}
+}
@@ -0,0 +1,706 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Event-sourced mode of DAOs : entries, prices, exits and spot updates are appended to an EventJournal
+ * instead of SAVE_TICKET, UPDATE_TICKET and UPDATE_PARKING_SPOT, and applied to the lot's LotState
+ * which answers open tickets and available spots. Tables ticket and parking become a projection :
+ *  - a daemon thread applies the journaled events to them every projection interval, in transactions
+ *    that also save the last projected sequence in table event_checkpoint, so each event is projected once
+ *  - reading DAOs call project() first to read the gates' writes (as with the write-behind buffer)
+ *  - the state is saved as a snapshot every snapshotEvery events, then journal segments both snapshotted and projected are deleted
+ *  - on open, the state is the snapshot (or tables at the checkpoint) plus the journal's tail
+ * In a UnitOfWork, events are appended as one record when it commits (the exit's price, exit and freed spot together),
+ * a spot claimed is taken at once and given back on rollback.
+ * Offline mode : when a projection fails (database unreachable), gates go on from the state and the journal, project()
+ * returns at once and only the daemon thread retries. The journal is synced to disk by groups : by each append with force,
+ * else every projection interval. Back online, the checkpoint is read again then the journal's tail is replayed in order
+ * with JDBC batches of consecutive same statements : the checkpoint committed with each batch is the idempotency key,
+ * an event is never projected twice even if a commit was lost with the connection.
+ * Fail-stop on a sync error : events already appended are in the state and the journal, so they are reported recorded
+ * (durability error logged), but the store is failed and rejects the next appends until the lot is reopened and replayed,
+ * a retried fsync may report success for pages the kernel already dropped
+ * @author Olivier MOREL
+ *
+ */
+public class EventStore implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("EventStore");
+
+	private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+	private final DataBaseConfig dataBaseConfig;
+	private final EventJournal journal;
+	private final LotState state; //guarded by this
+	private final Path snapshotFile;
+	private final int projectionBatchSize;
+	private final long snapshotEvery;
+	private final ThreadLocal<List<LotEvent>> unitEvents = new ThreadLocal<>(); //events of the UnitOfWork opened on this thread
+	private final Object projectionLock = new Object(); //one projection at a time, in sequence order
+	private final Object snapshotLock = new Object();
+	private EventJournal.Cursor projectionCursor; //guarded by projectionLock, null to read the checkpoint again
+	private volatile long projectedSequence; //-1 if unknown
+	private volatile boolean offline = false;
+	private volatile boolean failed = false; //journal not synced, no more appends
+	private volatile long snapshotSequence;
+	private volatile boolean visitRollup = false;
+	private ScheduledExecutorService scheduler;
+
+	private EventStore(DataBaseConfig dataBaseConfig, EventJournal journal, LotState state, Path snapshotFile,
+			int projectionBatchSize, long snapshotEvery, long projectedSequence, long snapshotSequence) {
+		this.dataBaseConfig = dataBaseConfig;
+		this.journal = journal;
+		this.state = state;
+		this.snapshotFile = snapshotFile;
+		this.projectionBatchSize = projectionBatchSize;
+		this.snapshotEvery = snapshotEvery;
+		this.projectedSequence = projectedSequence;
+		this.snapshotSequence = snapshotSequence;
+		this.offline = projectedSequence < 0;
+		this.projectionCursor = offline ? null : journal.cursor(projectedSequence);
+	}
+
+	/**
+	 * Opens the journal of a lot and rebuilds its state, offline if the database is unreachable but a snapshot exists
+	 * @param parkingSpotDAO : DAO of the lot, to load spots without snapshot
+	 * @param ticketDAO : DAO of the lot, to load open tickets without snapshot
+	 * @param directory : directory of the journal and snapshot
+	 * @param segmentSize : bytes of a journal segment
+	 * @param force : true to sync each append to disk before returning, else every projection interval
+	 * @param projectionBatchSize : events projected per transaction
+	 * @param snapshotEvery : events between two snapshots
+	 * @return EventStore object or null on error, logged
+	 */
+	public static EventStore open(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, Path directory, int segmentSize, boolean force,
+			int projectionBatchSize, long snapshotEvery) {
+		return open(parkingSpotDAO, ticketDAO, directory, firstSequence -> EventJournal.open(directory, segmentSize, force, firstSequence),
+				projectionBatchSize, snapshotEvery);
+	}
+
+	/**
+	 * Opens the journal once the state's sequence is known
+	 */
+	interface JournalOpener {
+		EventJournal open(long firstSequence) throws IOException;
+	}
+
+	/**
+	 * Opens a lot with a given way to open its journal, e.g. wrapped by a test
+	 * @param parkingSpotDAO : DAO of the lot
+	 * @param ticketDAO : DAO of the lot
+	 * @param directory : directory of the journal and snapshot
+	 * @param journalOpener : opens the journal at the state's next sequence
+	 * @param projectionBatchSize : events projected per transaction
+	 * @param snapshotEvery : events between two snapshots
+	 * @return EventStore object or null on error, logged
+	 */
+	static EventStore open(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, Path directory, JournalOpener journalOpener,
+			int projectionBatchSize, long snapshotEvery) {
+		if(projectionBatchSize < 1 || snapshotEvery < 1) {
+			throw new IllegalArgumentException("Projection batch size and snapshot interval must be positive");
+		}
+		DataBaseConfig dataBaseConfig = parkingSpotDAO.getDataBaseConfig();
+		long checkpoint = readCheckpoint(dataBaseConfig, true); //-1 if unreachable
+		Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+		LotState state = null;
+		if(Files.exists(snapshotFile)) {
+			try {
+				state = LotState.readSnapshot(snapshotFile, dataBaseConfig.getLotId());
+			} catch(IOException e) {
+				logger.warn("Snapshot " + snapshotFile + " not read, state is loaded from tables at event " + checkpoint, e);
+			}
+		}
+		long snapshotSequence = (state == null) ? 0 : state.getSequence();
+		boolean loadedFromTables = false;
+		if(state == null) {
+			if(checkpoint < 0) {
+				return null; //nothing to serve gates from
+			}
+			state = loadFromTables(parkingSpotDAO, ticketDAO, checkpoint);
+			if(state == null) {
+				return null;
+			}
+			loadedFromTables = true;
+		} else if(checkpoint < 0) {
+			logger.warn("Lot " + dataBaseConfig.getLotId() + " opened offline from snapshot at event " + snapshotSequence);
+		}
+		EventJournal journal = null;
+		try {
+			journal = journalOpener.open(state.getSequence() + 1);
+			if(journal.getFirstSequence() > state.getSequence() + 1 || journal.getLastSequence() < Math.max(state.getSequence(), checkpoint)) {
+				throw new IllegalStateException("Journal " + directory + " has events " + journal.getFirstSequence() + " to " + journal.getLastSequence()
+						+ ", state is at event " + state.getSequence() + " and tables at event " + checkpoint);
+			}
+			EventJournal.Cursor cursor = journal.cursor(state.getSequence());
+			int replayed = 0;
+			for(LotEvent event = cursor.next(); event != null; event = cursor.next()) {
+				state.apply(cursor.getSequence(), event);
+				replayed++;
+			}
+			logger.info("Lot " + dataBaseConfig.getLotId() + " recovered at event " + state.getSequence() + " (" + replayed + " replayed), "
+					+ state.getSpotCount() + " spots, " + state.getOpenTicketCount() + " open tickets");
+			EventStore eventStore = new EventStore(dataBaseConfig, journal, state, snapshotFile, projectionBatchSize, snapshotEvery, checkpoint, snapshotSequence);
+			if(loadedFromTables) {
+				eventStore.snapshot(); //a restart while the database is unreachable starts from it
+			}
+			return eventStore;
+		} catch(IOException | RuntimeException e) {
+			logger.error("Error opening journal " + directory, e);
+			if(journal != null) {
+				journal.close();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Store configured with -Dparkingsystem.journal.dir (default journal/(lot's identifier)), -Dparkingsystem.journal.segmentSize (default 64 MiB),
+	 * -Dparkingsystem.journal.force (default false, synced every projection interval), -Dparkingsystem.journal.projectionBatchSize (default 500)
+	 * and -Dparkingsystem.journal.snapshotEvery (default 10000)
+	 * @param parkingSpotDAO : DAO of the lot
+	 * @param ticketDAO : DAO of the lot
+	 * @return EventStore object or null on error, logged
+	 */
+	public static EventStore fromSystemProperties(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+		String lotId = parkingSpotDAO.getDataBaseConfig().getLotId();
+		return open(parkingSpotDAO, ticketDAO, Paths.get(System.getProperty("parkingsystem.journal.dir", "journal"), lotId),
+				Integer.getInteger("parkingsystem.journal.segmentSize", 64 * 1024 * 1024), Boolean.getBoolean("parkingsystem.journal.force"),
+				Integer.getInteger("parkingsystem.journal.projectionBatchSize", 500), Long.getLong("parkingsystem.journal.snapshotEvery", 10000L));
+	}
+
+	private static LotState loadFromTables(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, long checkpoint) {
+		List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+		List<Ticket> openTickets = ticketDAO.getOpenTickets();
+		if(parkingSpots == null || openTickets == null) {
+			return null;
+		}
+		LotState state = new LotState(parkingSpotDAO.getDataBaseConfig().getLotId(), checkpoint);
+		parkingSpots.forEach(parkingSpot -> state.putSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+		openTickets.forEach(state::putOpenTicket);
+		return state;
+	}
+
+	/**
+	 * Setter to count visits in table monthly_visit when exits are projected, as TicketDAO.setVisitRollup
+	 * @param visitRollup : true to count
+	 */
+	public void setVisitRollup(boolean visitRollup) {
+		this.visitRollup = visitRollup;
+	}
+
+	/**
+	 * Tests if the last projection failed : gates are served from the journal and replayed when the database is back
+	 * @return true if offline
+	 */
+	public boolean isOffline() {
+		return offline;
+	}
+
+	/**
+	 * Tests if a sync of the journal failed : appends are rejected until the lot is reopened
+	 * @return true if failed
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Starts the daemon thread syncing the journal (without force) and projecting events
+	 * @param projectionIntervalMillis : delay between two projections, bounds events lost by a crash without force
+	 */
+	public synchronized void start(long projectionIntervalMillis) {
+		if(scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "EventStore-" + dataBaseConfig.getLotId());
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				if(!journal.isForce() && !failed) {
+					long sequence = journal.getLastSequence();
+					try {
+						journal.sync(sequence); //one fsync for the interval's appends
+					} catch(IOException e) {
+						syncFailed(sequence, e);
+					}
+				}
+				projectAll(); //events appended before a failure are projected too
+				if(journal.getLastSequence() - snapshotSequence >= snapshotEvery) {
+					snapshot();
+				}
+			} catch(RuntimeException e) { //next ones still scheduled
+				logger.error("Error projecting events", e);
+			}
+		}, projectionIntervalMillis, projectionIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Journals the entry of a vehicle
+	 * @param ticket : open model with its spot, vehicle's registration number and in time
+	 * @return true if journaled, or registered in the UnitOfWork
+	 */
+	public boolean saveTicket(Ticket ticket) {
+		return record(Collections.singletonList(LotEvent.ticketEntered(ticket)));
+	}
+
+	/**
+	 * Journals the price then the exit of a vehicle
+	 * @param ticket : model with its vehicle's registration number, price and out time
+	 * @return true if journaled, or registered in the UnitOfWork, false if the vehicle has no open ticket
+	 */
+	public boolean updateTicket(Ticket ticket) {
+		if(getTicket(ticket.getVehicleRegNumber()) == null) {
+			logger.error("No open ticket for vehicle " + ticket.getVehicleRegNumber());
+			return false;
+		}
+		return record(Arrays.asList(LotEvent.ticketPriced(ticket), LotEvent.ticketExited(ticket)));
+	}
+
+	/**
+	 * Open ticket of a vehicle
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @return copy of the ticket, without ID, or null if none
+	 */
+	public synchronized Ticket getTicket(String vehicleRegNumber) {
+		return state.getOpenTicket(vehicleRegNumber);
+	}
+
+	/**
+	 * Lowest available spot of a type
+	 * @param parkingType : given vehicule's type
+	 * @return spot's number or 0 if none
+	 */
+	public synchronized int getNextAvailableSlot(ParkingType parkingType) {
+		return state.nextAvailable(parkingType, 0);
+	}
+
+	/**
+	 * Claims the lowest available spot of a type and journals it : no other gate gets it
+	 * @param parkingType : given vehicule's type
+	 * @return spot's number, 0 if none available, -1 on error
+	 */
+	public int claimNextAvailableSlot(ParkingType parkingType) {
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork == null) {
+			int parkingNumber;
+			long sequence;
+			synchronized(this) {
+				parkingNumber = state.nextAvailable(parkingType, 0);
+				if(parkingNumber <= 0) {
+					return parkingNumber;
+				}
+				sequence = appendAndApply(Collections.singletonList(LotEvent.spotUpdated(parkingNumber, false)));
+			}
+			return awaitDurable(sequence) ? parkingNumber : -1; //outside the lock, other gates' appends join the sync
+		}
+		int parkingNumber;
+		synchronized(this) {
+			parkingNumber = state.nextAvailable(parkingType, 0);
+			if(parkingNumber <= 0) {
+				return parkingNumber;
+			}
+			state.setAvailable(parkingNumber, false); //taken at once, journaled on commit
+		}
+		unitOfWork.afterRollback(() -> {
+			synchronized(this) {
+				state.setAvailable(parkingNumber, true);
+			}
+		});
+		record(Collections.singletonList(LotEvent.spotUpdated(parkingNumber, false)));
+		return parkingNumber;
+	}
+
+	/**
+	 * Journals a spot's availability
+	 * @param parkingSpot : model
+	 * @return true if journaled, or registered in the UnitOfWork
+	 */
+	public boolean updateParking(ParkingSpot parkingSpot) {
+		return record(Collections.singletonList(LotEvent.spotUpdated(parkingSpot.getId(), parkingSpot.isAvailable())));
+	}
+
+	/**
+	 * Appends events at once, or on commit of the UnitOfWork opened on this thread
+	 * @param events : events
+	 * @return false if not appended
+	 */
+	private boolean record(List<LotEvent> events) {
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork == null) {
+			return append(events);
+		}
+		List<LotEvent> pendingEvents = unitEvents.get();
+		if(pendingEvents == null) {
+			List<LotEvent> newPendingEvents = new ArrayList<>();
+			unitEvents.set(newPendingEvents);
+			unitOfWork.beforeCommit(() -> {
+				unitEvents.remove();
+				if(!append(newPendingEvents)) {
+					throw new SQLException("Events of the unit of work not journaled");
+				}
+			});
+			unitOfWork.afterRollback(unitEvents::remove);
+			pendingEvents = newPendingEvents;
+		}
+		pendingEvents.addAll(events);
+		return true;
+	}
+
+	/**
+	 * Appends events as one record, applies them to the state and waits for them on disk with force
+	 * @param events : events
+	 * @return false if not appended, logged
+	 */
+	private boolean append(List<LotEvent> events) {
+		return awaitDurable(appendAndApply(events));
+	}
+
+	/**
+	 * Appends events as one record and applies them to the state, in the same order
+	 * @param events : events
+	 * @return sequence of the last one or -1 if not appended, logged
+	 */
+	private synchronized long appendAndApply(List<LotEvent> events) {
+		if(failed) {
+			logger.error("Journal failed, " + events + " rejected until lot " + dataBaseConfig.getLotId() + " is reopened");
+			return -1;
+		}
+		try {
+			long lastSequence = journal.append(events);
+			long sequence = lastSequence - events.size();
+			for(LotEvent event : events) {
+				state.apply(++sequence, event);
+			}
+			return lastSequence;
+		} catch(IOException e) {
+			logger.error("Error journaling " + events, e);
+			return -1;
+		}
+	}
+
+	/**
+	 * With force, syncs the journal up to an appended sequence, with the appends of other gates meanwhile.
+	 * A sync error fails the store but the events stay recorded : they are in the state and will be projected
+	 * @param sequence : returned by appendAndApply
+	 * @return false if not appended
+	 */
+	private boolean awaitDurable(long sequence) {
+		if(sequence < 0) {
+			return false;
+		}
+		if(!journal.isForce()) {
+			return true;
+		}
+		try {
+			journal.sync(sequence);
+		} catch(IOException e) {
+			syncFailed(sequence, e);
+		}
+		return true;
+	}
+
+	private void syncFailed(long sequence, IOException e) {
+		failed = true; //volatile, read by appendAndApply before each append
+		logger.error("Error syncing journal up to event " + sequence + ", events may be lost by a crash, lot "
+				+ dataBaseConfig.getLotId() + " rejects entries and exits until it is reopened", e);
+	}
+
+	/**
+	 * Applies journaled events to tables ticket, parking (and monthly_visit) up to the last one, in the calling thread.
+	 * Offline, returns at once : the daemon thread replays them when the database is back
+	 * @return number of events projected or -1 on failure or offline
+	 */
+	public int project() {
+		if(offline) { //no wait for a connection in a DAO's call
+			return -1;
+		}
+		return projectAll();
+	}
+
+	private int projectAll() {
+		synchronized(projectionLock) {
+			int projected = 0;
+			while(true) {
+				int batch = projectBatch();
+				if(batch < 0) {
+					if(!offline) {
+						offline = true;
+						logger.warn("Lot " + dataBaseConfig.getLotId() + " offline from event " + (projectedSequence + 1)
+								+ ", gates are served from the journal");
+					}
+					return -1;
+				}
+				if(batch == 0) {
+					if(offline) {
+						offline = false;
+						logger.info("Lot " + dataBaseConfig.getLotId() + " online again, " + projected + " journaled events replayed");
+					}
+					return projected;
+				}
+				projected += batch;
+			}
+		}
+	}
+
+	private int projectBatch() {
+		if(projectionCursor == null) { //the last commit may have succeeded before the failure
+			long checkpoint = readCheckpoint(dataBaseConfig, !offline); //offline, retried quietly
+			if(checkpoint < 0) {
+				return -1;
+			}
+			projectionCursor = journal.cursor(checkpoint);
+			projectedSequence = checkpoint;
+		}
+		List<LotEvent> batch = new ArrayList<>(projectionBatchSize);
+		while(batch.size() < projectionBatchSize) {
+			LotEvent event = projectionCursor.next();
+			if(event == null) {
+				break;
+			}
+			batch.add(event);
+		}
+		if(batch.isEmpty()) {
+			return 0;
+		}
+		long lastSequence = projectionCursor.getSequence();
+		ConnectionPool connectionPool = dataBaseConfig.getConnectionPool();
+		Connection con = null;
+		try {
+			con = connectionPool.borrow(); //not the UnitOfWork's connection of the calling thread
+			con.setAutoCommit(false);
+			StatementBatch statements = new StatementBatch(con);
+			for(LotEvent event : batch) {
+				projectEvent(statements, event);
+			}
+			statements.execute();
+			PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_EVENT_CHECKPOINT);
+			try {
+				ps.setLong(1, lastSequence);
+				ps.executeUpdate();
+			} finally {
+				dataBaseConfig.closePreparedStatement(ps);
+			}
+			con.commit();
+			projectedSequence = lastSequence;
+			return batch.size();
+		} catch(SQLException | RuntimeException e) {
+			if(!offline) {
+				logger.error("Error projecting events " + (lastSequence - batch.size() + 1) + " to " + lastSequence, e);
+			}
+			projectionCursor = null; //rolled back by release(), projected again from the checkpoint next time
+			return -1;
+		} finally {
+			if(con != null) {
+				connectionPool.release(con);
+			}
+		}
+	}
+
+	private void projectEvent(StatementBatch statements, LotEvent event) throws SQLException {
+		switch(event.getType()) {
+			case TICKET_ENTERED: {
+				//PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+				statements.add(DBConstants.SAVE_TICKET, event, event.getParkingNumber(), event.getVehicleRegNumber(), 0.0, new Timestamp(event.getTime()), null);
+				break;
+			}
+			case TICKET_PRICED: {
+				statements.add(DBConstants.PRICE_OPEN_TICKET, event, event.getPrice(), event.getVehicleRegNumber());
+				break;
+			}
+			case TICKET_EXITED: {
+				statements.add(DBConstants.CLOSE_OPEN_TICKET, event, new Timestamp(event.getTime()), event.getVehicleRegNumber());
+				if(visitRollup) {
+					Calendar outTime = new GregorianCalendar();
+					outTime.setTimeInMillis(event.getTime());
+					statements.add(DBConstants.COUNT_MONTHLY_VISIT, event, event.getVehicleRegNumber(), TicketDAO.visitMonth(outTime));
+				}
+				break;
+			}
+			case SPOT_TAKEN:
+			case SPOT_FREED: {
+				statements.add(DBConstants.UPDATE_PARKING_SPOT, event, event.getType() == LotEvent.Type.SPOT_FREED, event.getParkingNumber());
+				break;
+			}
+			default: {
+				throw new IllegalArgumentException("Unknown event type " + event.getType());
+			}
+		}
+	}
+
+	/**
+	 * JDBC batch of consecutive events with the same statement : a statement change executes the batch, so the order is kept
+	 */
+	private class StatementBatch {
+
+		private final Connection con;
+		private final List<LotEvent> events = new ArrayList<>();
+		private String sql;
+		private PreparedStatement ps;
+
+		private StatementBatch(Connection con) {
+			this.con = con;
+		}
+
+		private void add(String sql, LotEvent event, Object... parameters) throws SQLException {
+			if(!sql.equals(this.sql)) {
+				execute();
+				this.sql = sql;
+				ps = dataBaseConfig.prepareStatement(con, sql);
+			}
+			for(int i = 0; i < parameters.length; i++) {
+				if(parameters[i] == null) {
+					ps.setNull(i + 1, Types.TIMESTAMP); //OUT_TIME of an entry
+				} else {
+					ps.setObject(i + 1, parameters[i]);
+				}
+			}
+			ps.addBatch();
+			events.add(event);
+		}
+
+		private void execute() throws SQLException {
+			if(ps == null) {
+				return;
+			}
+			try {
+				int[] counts = ps.executeBatch();
+				for(int i = 0; i < counts.length; i++) {
+					if(counts[i] == 0) { //the event is kept in the journal, tables are only a projection
+						logger.warn("Event " + events.get(i) + " updated no row");
+					}
+				}
+			} finally {
+				dataBaseConfig.closePreparedStatement(ps);
+				ps = null;
+				sql = null;
+				events.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes the state as a snapshot, then deletes the journal segments snapshotted and projected
+	 * @return false on failure, logged
+	 */
+	public boolean snapshot() {
+		synchronized(snapshotLock) {
+			LotState copy;
+			synchronized(this) {
+				copy = state.copy();
+			}
+			try {
+				copy.writeSnapshot(snapshotFile);
+			} catch(IOException e) {
+				logger.error("Error writing snapshot " + snapshotFile, e);
+				return false;
+			}
+			snapshotSequence = copy.getSequence();
+			int deleted = journal.deleteUpTo(Math.min(snapshotSequence, projectedSequence)); //none while the checkpoint is unknown
+			logger.info("Lot " + dataBaseConfig.getLotId() + " snapshot at event " + snapshotSequence + ", " + deleted + " journal segments deleted");
+			return true;
+		}
+	}
+
+	/**
+	 * Last projected event
+	 * @return sequence saved in table event_checkpoint, -1 if unknown (opened offline)
+	 */
+	public long getProjectedSequence() {
+		return projectedSequence;
+	}
+
+	/**
+	 * Last journaled event
+	 * @return sequence
+	 */
+	public long getLastSequence() {
+		return journal.getLastSequence();
+	}
+
+	/**
+	 * Reads the last projected sequence in table event_checkpoint
+	 * @param dataBaseConfig : configuration of the lot
+	 * @param logged : false not to log errors
+	 * @return sequence or -1 on error
+	 */
+	private static long readCheckpoint(DataBaseConfig dataBaseConfig, boolean logged) {
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_EVENT_CHECKPOINT);
+			rs = ps.executeQuery();
+			if(rs.next()) {
+				return rs.getLong(1);
+			}
+			logger.error("No row in table event_checkpoint");
+			return -1;
+		} catch(Exception ex) {
+			if(logged) {
+				logger.error("Error reading event checkpoint",ex);
+			}
+			return -1;
+		} finally {
+			dataBaseConfig.closeResultSet(rs); //will test rs != null
+			dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+			dataBaseConfig.closeConnection(con); //will test con != null
+		}
+	}
+
+	/**
+	 * Stops the projection thread, projects the last events if the database is reachable, writes a snapshot and closes the journal
+	 */
+	@Override
+	public void close() {
+		ScheduledExecutorService stoppedScheduler;
+		synchronized(this) {
+			stoppedScheduler = scheduler;
+			scheduler = null;
+		}
+		if(stoppedScheduler != null) {
+			stoppedScheduler.shutdown();
+			try {
+				stoppedScheduler.awaitTermination(5, TimeUnit.SECONDS);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		projectAll(); //offline, replayed on next open
+		snapshot();
+		journal.close();
+	}
+}
@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids (spots' numbers) with a long priority each,
+ * indexed by id so that insert, pollMin and remove of any id are O(log n). Not thread safe
+ * @author Olivier MOREL
+ *
+ */
+final class IndexedMinHeap {
+
+	private final long[] priorities; //by id
+	private final int[] positions; //by id, -1 if not in heap
+	private final int[] heap; //ids
+	private int size;
+
+	/**
+	 * Constructor
+	 * @param maxId : greatest id that can be inserted
+	 */
+	IndexedMinHeap(int maxId) {
+		priorities = new long[maxId + 1];
+		positions = new int[maxId + 1];
+		heap = new int[maxId + 1];
+		Arrays.fill(positions, -1);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean contains(int id) {
+		return id >= 0 && id < positions.length && positions[id] >= 0;
+	}
+
+	/**
+	 * Inserts an id
+	 * @param id : between 0 and maxId
+	 * @param priority : lowest comes first
+	 * @return false if already in heap
+	 */
+	boolean insert(int id, long priority) {
+		if(contains(id)) {
+			return false;
+		}
+		priorities[id] = priority;
+		heap[size] = id;
+		positions[id] = size;
+		siftUp(size++);
+		return true;
+	}
+
+	/**
+	 * Removes the id of lowest priority
+	 * @return id or -1 if empty
+	 */
+	int pollMin() {
+		if(size == 0) {
+			return -1;
+		}
+		int id = heap[0];
+		removeAt(0);
+		return id;
+	}
+
+	/**
+	 * Removes a given id
+	 * @param id : id to remove
+	 * @return false if not in heap
+	 */
+	boolean remove(int id) {
+		if(!contains(id)) {
+			return false;
+		}
+		removeAt(positions[id]);
+		return true;
+	}
+
+	private void removeAt(int position) {
+		int id = heap[position];
+		positions[id] = -1;
+		size--;
+		if(position == size) {
+			return;
+		}
+		int moved = heap[size]; //last one fills the hole then goes up or down
+		heap[position] = moved;
+		positions[moved] = position;
+		siftUp(position);
+		siftDown(positions[moved]);
+	}
+
+	private void siftUp(int position) {
+		while(position > 0) {
+			int parent = (position - 1) / 2;
+			if(priorities[heap[parent]] <= priorities[heap[position]]) {
+				return;
+			}
+			swap(parent, position);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position) {
+		while(true) {
+			int smallest = position;
+			int left = 2 * position + 1;
+			if(left < size && priorities[heap[left]] < priorities[heap[smallest]]) {
+				smallest = left;
+			}
+			if(left + 1 < size && priorities[heap[left + 1]] < priorities[heap[smallest]]) {
+				smallest = left + 1;
+			}
+			if(smallest == position) {
+				return;
+			}
+			swap(smallest, position);
+			position = smallest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int id = heap[i];
+		heap[i] = heap[j];
+		heap[j] = id;
+		positions[heap[i]] = i;
+		positions[heap[j]] = j;
+	}
+}
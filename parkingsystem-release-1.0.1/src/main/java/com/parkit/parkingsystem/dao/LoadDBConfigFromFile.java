@@ -21,14 +21,22 @@ public class LoadDBConfigFromFile implements DBConfigIO {
 	
 	private static final Logger logger = LogManager.getLogger("LoadDBConfigFromFile");
 	private Reader fileReader;
-	private final String userDir = System.getProperty("user.dir"); //=parkingsystem/
-	private final String fileToRead = "db.properties";
-	private String filePath = userDir+"/"+ fileToRead;
+	private static final String FILE_TO_READ = "db.properties";
+	private final String filePath;
 
 	/**
 	 * Constructor : initialize system resources
 	 */
 	public LoadDBConfigFromFile() {
+		this(System.getProperty("user.dir")+"/"+ FILE_TO_READ); //user.dir=parkingsystem/
+	}
+
+	/**
+	 * Constructor reading another file, e.g. of a test
+	 * @param filePath : path of the properties file
+	 */
+	LoadDBConfigFromFile(String filePath) {
+		this.filePath = filePath;
 		try {
 			fileReader = new InputStreamReader(new FileInputStream(filePath), "UTF-8");
 		} catch(FileNotFoundException e) {
@@ -0,0 +1,153 @@
+package com.parkit.parkingsystem.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Event of a lot in the journal of EventStore : an entry, the price or the exit of a ticket, a spot taken or freed.
+ * Tickets are identified by their vehicle's registration number, a vehicle has one open ticket at most.
+ * Encoding : byte type, int PARKING_NUMBER, short length and UTF-8 bytes of VEHICLE_REG_NUMBER (-1 if none),
+ * long time in epoch milliseconds (IN_TIME or OUT_TIME), double PRICE
+ * @author Olivier MOREL
+ *
+ */
+public final class LotEvent {
+
+	/**
+	 * Kinds of events, their ordinal is journaled : only add new ones at the end
+	 */
+	public enum Type {
+		TICKET_ENTERED,
+		TICKET_PRICED,
+		TICKET_EXITED,
+		SPOT_TAKEN,
+		SPOT_FREED
+	}
+
+	private final Type type;
+	private final int parkingNumber; //0 if none
+	private final String vehicleRegNumber; //null if none
+	private final byte[] encodedRegNumber; //null if none
+	private final long time; //0 if none
+	private final double price;
+
+	private LotEvent(Type type, int parkingNumber, String vehicleRegNumber, long time, double price) {
+		this.type = type;
+		this.parkingNumber = parkingNumber;
+		this.vehicleRegNumber = vehicleRegNumber;
+		this.encodedRegNumber = (vehicleRegNumber == null) ? null : vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+		this.time = time;
+		this.price = price;
+	}
+
+	/**
+	 * Vehicle entered, its ticket is open
+	 * @param ticket : model with its spot, vehicle's registration number and in time
+	 * @return LotEvent object
+	 */
+	public static LotEvent ticketEntered(Ticket ticket) {
+		return new LotEvent(Type.TICKET_ENTERED, ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber(), ticket.getInTime().getTime(), 0);
+	}
+
+	/**
+	 * Fare of an open ticket calculated
+	 * @param ticket : model with its vehicle's registration number and price
+	 * @return LotEvent object
+	 */
+	public static LotEvent ticketPriced(Ticket ticket) {
+		return new LotEvent(Type.TICKET_PRICED, ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber(), 0, ticket.getPrice());
+	}
+
+	/**
+	 * Vehicle exited, its ticket is closed
+	 * @param ticket : model with its vehicle's registration number and out time
+	 * @return LotEvent object
+	 */
+	public static LotEvent ticketExited(Ticket ticket) {
+		return new LotEvent(Type.TICKET_EXITED, ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber(), ticket.getOutTime().getTime(), 0);
+	}
+
+	/**
+	 * Spot claimed or freed
+	 * @param parkingNumber : spot's number
+	 * @param available : true if freed
+	 * @return LotEvent object
+	 */
+	public static LotEvent spotUpdated(int parkingNumber, boolean available) {
+		return new LotEvent(available ? Type.SPOT_FREED : Type.SPOT_TAKEN, parkingNumber, null, 0, 0);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getParkingNumber() {
+		return parkingNumber;
+	}
+
+	public String getVehicleRegNumber() {
+		return vehicleRegNumber;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 * Bytes written by encode()
+	 * @return size
+	 */
+	int encodedSize() {
+		return 1 + 4 + 2 + ((encodedRegNumber == null) ? 0 : encodedRegNumber.length) + 8 + 8;
+	}
+
+	/**
+	 * Writes this event at the buffer's position
+	 * @param buffer : buffer with encodedSize() bytes remaining
+	 */
+	void encode(ByteBuffer buffer) {
+		buffer.put((byte) type.ordinal()).putInt(parkingNumber);
+		if(encodedRegNumber == null) {
+			buffer.putShort((short) -1);
+		} else {
+			buffer.putShort((short) encodedRegNumber.length).put(encodedRegNumber);
+		}
+		buffer.putLong(time).putDouble(price);
+	}
+
+	/**
+	 * Reads an event at the buffer's position
+	 * @param buffer : buffer positioned on an encoded event
+	 * @return LotEvent object
+	 * @throws IllegalArgumentException : if the type is unknown
+	 */
+	static LotEvent decode(ByteBuffer buffer) {
+		int ordinal = buffer.get();
+		if(ordinal < 0 || ordinal >= Type.values().length) {
+			throw new IllegalArgumentException("Unknown event type " + ordinal);
+		}
+		int parkingNumber = buffer.getInt();
+		int length = buffer.getShort();
+		String vehicleRegNumber = null;
+		if(length >= 0) {
+			byte[] regNumber = new byte[length];
+			buffer.get(regNumber);
+			vehicleRegNumber = new String(regNumber, StandardCharsets.UTF_8);
+		}
+		long time = buffer.getLong();
+		double price = buffer.getDouble();
+		return new LotEvent(Type.values()[ordinal], parkingNumber, vehicleRegNumber, time, price);
+	}
+
+	@Override
+	public String toString() {
+		return type + " spot=" + parkingNumber + (vehicleRegNumber == null ? "" : ", vehicle=" + vehicleRegNumber)
+				+ (time == 0 ? "" : ", time=" + time) + (type == Type.TICKET_PRICED ? ", price=" + price : "");
+	}
+}
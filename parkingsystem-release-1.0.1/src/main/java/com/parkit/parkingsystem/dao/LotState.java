@@ -0,0 +1,272 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * State of a lot rebuilt from events : spots with their availability and open tickets by vehicle's registration number,
+ * with the sequence of the last event applied. Saved as a snapshot file so a restart replays the journal's tail only.
+ * Snapshot : int magic "PKS1", long sequence, int spots count then per spot int PARKING_NUMBER, byte TYPE ordinal, boolean AVAILABLE,
+ * int tickets count then per ticket UTF VEHICLE_REG_NUMBER, int PARKING_NUMBER, long IN_TIME, double PRICE.
+ * Not thread-safe, guarded by EventStore. Tickets are copied in and out
+ * @author Olivier MOREL
+ *
+ */
+public class LotState {
+
+	private static final int SNAPSHOT_MAGIC = 0x504B5331; //"PKS1"
+
+	private final String lotId;
+	private final Map<Integer, ParkingType> spotTypes = new HashMap<>();
+	private final Map<ParkingType, TreeSet<Integer>> availableSpots = new EnumMap<>(ParkingType.class);
+	private final Map<String, Ticket> openTickets = new HashMap<>();
+	private long sequence;
+
+	/**
+	 * Constructor of an empty state
+	 * @param lotId : lot of the spots and tickets
+	 * @param sequence : sequence of the last event included
+	 */
+	public LotState(String lotId, long sequence) {
+		this.lotId = lotId;
+		this.sequence = sequence;
+		for(ParkingType parkingType : ParkingType.values()) {
+			availableSpots.put(parkingType, new TreeSet<>());
+		}
+	}
+
+	/**
+	 * Sequence of the last event applied
+	 * @return sequence
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Adds or replaces a spot
+	 * @param parkingNumber : spot's number
+	 * @param parkingType : spot's type
+	 * @param available : availability
+	 */
+	public void putSpot(int parkingNumber, ParkingType parkingType, boolean available) {
+		ParkingType previousType = spotTypes.put(parkingNumber, parkingType);
+		if(previousType != null) {
+			availableSpots.get(previousType).remove(parkingNumber);
+		}
+		if(available) {
+			availableSpots.get(parkingType).add(parkingNumber);
+		}
+	}
+
+	/**
+	 * Adds an open ticket, kept only if it is the vehicle's last in (as GET_TICKET)
+	 * @param ticket : open model with its spot, copied
+	 */
+	public void putOpenTicket(Ticket ticket) {
+		Ticket openTicket = openTickets.get(ticket.getVehicleRegNumber());
+		if(openTicket == null || !ticket.getInTime().before(openTicket.getInTime())) {
+			openTickets.put(ticket.getVehicleRegNumber(), copy(ticket));
+		}
+	}
+
+	/**
+	 * Lowest available spot of a type above a number
+	 * @param parkingType : given vehicule's type
+	 * @param after : spots up to this number are skipped
+	 * @return spot's number or 0 if none
+	 */
+	public int nextAvailable(ParkingType parkingType, int after) {
+		Integer parkingNumber = availableSpots.get(parkingType).higher(after);
+		return (parkingNumber == null) ? 0 : parkingNumber;
+	}
+
+	/**
+	 * Sets a spot's availability
+	 * @param parkingNumber : spot's number
+	 * @param available : availability
+	 * @return false if the spot is unknown
+	 */
+	public boolean setAvailable(int parkingNumber, boolean available) {
+		ParkingType parkingType = spotTypes.get(parkingNumber);
+		if(parkingType == null) {
+			return false;
+		}
+		if(available) {
+			availableSpots.get(parkingType).add(parkingNumber);
+		} else {
+			availableSpots.get(parkingType).remove(parkingNumber);
+		}
+		return true;
+	}
+
+	/**
+	 * Open ticket of a vehicle
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @return copy of the ticket or null if none
+	 */
+	public Ticket getOpenTicket(String vehicleRegNumber) {
+		Ticket ticket = openTickets.get(vehicleRegNumber);
+		return (ticket == null) ? null : copy(ticket);
+	}
+
+	public int getSpotCount() {
+		return spotTypes.size();
+	}
+
+	public int getOpenTicketCount() {
+		return openTickets.size();
+	}
+
+	/**
+	 * Applies the next event of the journal
+	 * @param eventSequence : event's sequence
+	 * @param event : event
+	 */
+	public void apply(long eventSequence, LotEvent event) {
+		switch(event.getType()) {
+			case TICKET_ENTERED: {
+				openTickets.put(event.getVehicleRegNumber(), newOpenTicket(event.getVehicleRegNumber(), event.getParkingNumber(), event.getTime()));
+				break;
+			}
+			case TICKET_PRICED: {
+				Ticket ticket = openTickets.get(event.getVehicleRegNumber());
+				if(ticket != null) {
+					ticket.setPrice(event.getPrice());
+				}
+				break;
+			}
+			case TICKET_EXITED: {
+				openTickets.remove(event.getVehicleRegNumber());
+				break;
+			}
+			case SPOT_TAKEN: {
+				setAvailable(event.getParkingNumber(), false);
+				break;
+			}
+			case SPOT_FREED: {
+				setAvailable(event.getParkingNumber(), true);
+				break;
+			}
+			default: {
+				throw new IllegalArgumentException("Unknown event type " + event.getType());
+			}
+		}
+		sequence = eventSequence;
+	}
+
+	/**
+	 * Copy to write a snapshot outside EventStore's lock
+	 * @return LotState object
+	 */
+	public LotState copy() {
+		LotState copy = new LotState(lotId, sequence);
+		copy.spotTypes.putAll(spotTypes);
+		availableSpots.forEach((parkingType, parkingNumbers) -> copy.availableSpots.get(parkingType).addAll(parkingNumbers));
+		openTickets.values().forEach(copy::putOpenTicket);
+		return copy;
+	}
+
+	/**
+	 * Writes a snapshot into a temporary file then renames it, so a crash keeps the previous one
+	 * @param file : snapshot file
+	 * @throws IOException : if the file can't be written
+	 */
+	public void writeSnapshot(Path file) throws IOException {
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(sequence);
+			out.writeInt(spotTypes.size());
+			for(Map.Entry<Integer, ParkingType> spot : spotTypes.entrySet()) {
+				out.writeInt(spot.getKey());
+				out.writeByte(spot.getValue().ordinal());
+				out.writeBoolean(availableSpots.get(spot.getValue()).contains(spot.getKey()));
+			}
+			out.writeInt(openTickets.size());
+			for(Ticket ticket : openTickets.values()) {
+				out.writeUTF(ticket.getVehicleRegNumber());
+				out.writeInt(ticket.getParkingSpot().getId());
+				out.writeLong(ticket.getInTime().getTime());
+				out.writeDouble(ticket.getPrice());
+			}
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot
+	 * @param file : snapshot file
+	 * @param lotId : lot of the spots and tickets
+	 * @return LotState object at the snapshot's sequence
+	 * @throws IOException : if the file can't be read or isn't a snapshot
+	 */
+	public static LotState readSnapshot(Path file, String lotId) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(file + " is not a lot snapshot");
+			}
+			LotState state = new LotState(lotId, in.readLong());
+			int spots = in.readInt();
+			for(int i = 0; i < spots; i++) {
+				int parkingNumber = in.readInt();
+				int ordinal = in.readByte();
+				if(ordinal < 0 || ordinal >= ParkingType.values().length) {
+					throw new IOException("Unknown parking type " + ordinal + " in " + file);
+				}
+				state.putSpot(parkingNumber, ParkingType.values()[ordinal], in.readBoolean());
+			}
+			int tickets = in.readInt();
+			for(int i = 0; i < tickets; i++) {
+				String vehicleRegNumber = in.readUTF();
+				int parkingNumber = in.readInt();
+				Ticket ticket = state.newOpenTicket(vehicleRegNumber, parkingNumber, in.readLong());
+				ticket.setPrice(in.readDouble());
+				state.openTickets.put(vehicleRegNumber, ticket);
+			}
+			return state;
+		}
+	}
+
+	private Ticket newOpenTicket(String vehicleRegNumber, int parkingNumber, long inTime) {
+		Ticket ticket = new Ticket();
+		ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, spotTypes.get(parkingNumber), false);
+		parkingSpot.setLotId(lotId);
+		ticket.setParkingSpot(parkingSpot);
+		ticket.setLotId(lotId);
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setInTime(new Date(inTime));
+		return ticket;
+	}
+
+	private static Ticket copy(Ticket ticket) {
+		Ticket copy = new Ticket();
+		ParkingSpot parkingSpot = ticket.getParkingSpot();
+		ParkingSpot spotCopy = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable(),
+				parkingSpot.getZone(), parkingSpot.getLevel());
+		spotCopy.setLotId(parkingSpot.getLotId());
+		copy.setParkingSpot(spotCopy);
+		copy.setId(ticket.getId());
+		copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+		copy.setPrice(ticket.getPrice());
+		copy.setInTime(ticket.getInTime());
+		copy.setOutTime(ticket.getOutTime());
+		copy.setLotId(ticket.getLotId());
+		return copy;
+	}
+}
@@ -0,0 +1,231 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+/**
+ * Bounded cache of recurring user results in front of TicketDAO.isRecurringUserTicket() :
+ * once a month is over its count of visits can't change, so a vehicle's result is computed once per month.
+ * Entries are of the latest month asked only (keyed by plate), all are dropped when a later month is asked (month rollover).
+ * Least recently used entries are evicted beyond the maximum size, and entries expire after their time to live
+ * (e.g. a ticket of that month closed late by hand).
+ * Entries are primitive, without object per vehicle : plates encoded by PlateCodec index slots of parallel arrays
+ * in a LongIntHashMap, slots are linked in use order by their indexes (some 50 bytes per vehicle).
+ * A plate PlateCodec can't encode is never cached, its result is read from table each time.
+ * Thread safe, hits, misses and evictions are counted
+ * @author Olivier MOREL
+ *
+ */
+public class LoyaltyCache {
+
+	private static final int NO_SLOT = -1;
+	private static final int INITIAL_SLOTS = 16;
+
+	private final int maxSize;
+	private final long ttlMillis;
+	private final LongIntHashMap slots; //plate's code -> slot
+	/* Entries by slot, grown up to maxSize */
+	private long[] plates;
+	private boolean[] results;
+	private long[] expiries;
+	private int[] olderSlots; //use order : doubly linked from eldest (least recently used) to newest
+	private int[] newerSlots; //also links free slots
+	private int eldestSlot = NO_SLOT;
+	private int newestSlot = NO_SLOT;
+	private int freeSlot = NO_SLOT;
+	private int usedSlots = 0; //slots above are never used yet
+	private int month = 0; //YYYYMM of cached results
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Constructor
+	 * @param maxSize : maximum number of vehicles cached
+	 * @param ttlMillis : time to live of a result
+	 */
+	public LoyaltyCache(int maxSize, long ttlMillis) {
+		if(maxSize < 1 || ttlMillis < 1) {
+			throw new IllegalArgumentException("Loyalty cache size and time to live must be positive");
+		}
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.slots = new LongIntHashMap(Math.min(maxSize, INITIAL_SLOTS), NO_SLOT);
+		allocate(Math.min(maxSize, INITIAL_SLOTS));
+	}
+
+	private void allocate(int capacity) {
+		plates = (plates == null) ? new long[capacity] : Arrays.copyOf(plates, capacity);
+		results = (results == null) ? new boolean[capacity] : Arrays.copyOf(results, capacity);
+		expiries = (expiries == null) ? new long[capacity] : Arrays.copyOf(expiries, capacity);
+		olderSlots = (olderSlots == null) ? new int[capacity] : Arrays.copyOf(olderSlots, capacity);
+		newerSlots = (newerSlots == null) ? new int[capacity] : Arrays.copyOf(newerSlots, capacity);
+	}
+
+	/**
+	 * Cache sized with -Dparkingsystem.loyaltyCache.maxSize (default 10000)
+	 * and -Dparkingsystem.loyaltyCache.ttlMillis (default 24 hours)
+	 * @return LoyaltyCache object
+	 */
+	public static LoyaltyCache fromSystemProperties() {
+		return new LoyaltyCache(Integer.getInteger("parkingsystem.loyaltyCache.maxSize", 10000),
+				Long.getLong("parkingsystem.loyaltyCache.ttlMillis", 24L * 3600 * 1000));
+	}
+
+	/**
+	 * Cached result of a vehicle for a month
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @param visitMonth : YYYYMM of the month counted
+	 * @param nowMillis : current time
+	 * @return result or null on miss
+	 */
+	public synchronized Boolean get(String vehicleRegNumber, int visitMonth, long nowMillis) {
+		rollOver(visitMonth);
+		long plate = PlateCodec.encode(vehicleRegNumber);
+		int slot = (visitMonth == month && plate != PlateCodec.NONE) ? slots.get(plate) : NO_SLOT;
+		if(slot != NO_SLOT && expiries[slot] <= nowMillis) {
+			slots.remove(plate);
+			unlink(slot);
+			free(slot);
+			evictionCount.increment();
+			slot = NO_SLOT;
+		}
+		if(slot == NO_SLOT) {
+			missCount.increment();
+			return null;
+		}
+		unlink(slot);
+		linkNewest(slot);
+		hitCount.increment();
+		return results[slot];
+	}
+
+	/**
+	 * Caches the result of a vehicle for a month, not if an earlier month than the cached one
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @param visitMonth : YYYYMM of the month counted
+	 * @param recurring : result
+	 * @param nowMillis : current time
+	 */
+	public synchronized void put(String vehicleRegNumber, int visitMonth, boolean recurring, long nowMillis) {
+		rollOver(visitMonth);
+		long plate = PlateCodec.encode(vehicleRegNumber);
+		if(visitMonth != month || plate == PlateCodec.NONE) {
+			return;
+		}
+		int slot = slots.get(plate);
+		if(slot != NO_SLOT) {
+			unlink(slot);
+		} else {
+			if(slots.size() == maxSize) { //the least recently used makes room
+				int eldest = eldestSlot;
+				slots.remove(plates[eldest]);
+				unlink(eldest);
+				free(eldest);
+				evictionCount.increment();
+			}
+			slot = newSlot();
+			plates[slot] = plate;
+			slots.put(plate, slot);
+		}
+		results[slot] = recurring;
+		expiries[slot] = nowMillis + ttlMillis;
+		linkNewest(slot);
+	}
+
+	private int newSlot() {
+		if(freeSlot != NO_SLOT) {
+			int slot = freeSlot;
+			freeSlot = newerSlots[slot];
+			return slot;
+		}
+		if(usedSlots == plates.length) {
+			allocate((int) Math.min(maxSize, 2L * plates.length));
+		}
+		return usedSlots++;
+	}
+
+	private void free(int slot) {
+		newerSlots[slot] = freeSlot;
+		freeSlot = slot;
+	}
+
+	private void unlink(int slot) {
+		int older = olderSlots[slot];
+		int newer = newerSlots[slot];
+		if(older == NO_SLOT) {
+			eldestSlot = newer;
+		} else {
+			newerSlots[older] = newer;
+		}
+		if(newer == NO_SLOT) {
+			newestSlot = older;
+		} else {
+			olderSlots[newer] = older;
+		}
+	}
+
+	private void linkNewest(int slot) {
+		olderSlots[slot] = newestSlot;
+		newerSlots[slot] = NO_SLOT;
+		if(newestSlot == NO_SLOT) {
+			eldestSlot = slot;
+		} else {
+			newerSlots[newestSlot] = slot;
+		}
+		newestSlot = slot;
+	}
+
+	/**
+	 * Drops all results, e.g. after a correction of table ticket
+	 */
+	public synchronized void clear() {
+		slots.clear();
+		eldestSlot = NO_SLOT;
+		newestSlot = NO_SLOT;
+		freeSlot = NO_SLOT;
+		usedSlots = 0; //arrays are kept for the next month
+	}
+
+	private void rollOver(int visitMonth) {
+		if(visitMonth > month) { //results of the previous month are never asked again
+			clear();
+			month = visitMonth;
+		}
+	}
+
+	public synchronized int size() {
+		return slots.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * Part of lookups found in cache
+	 * @return hits / (hits + misses), 0 before any lookup
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.sum();
+		long lookups = hits + missCount.sum();
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "LoyaltyCache [size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+				+ ", evictions=" + getEvictionCount() + ", hitRatio=" + String.format("%.3f", getHitRatio()) + "]";
+	}
+}
@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+
+/**
+ * Live free and occupied counters of spots per type, so entry gates and display boards know
+ * if the lot is full without SQL round trip :
+ *  - counted on every claim and release by CountingSpotAllocator (LongAdder, no contention between gates)
+ *  - reconciled with table parking by reconcile(), periodically if startReconciliation() is called.
+ *    A drift is applied only if two consecutive reconciliations read the same one,
+ *    so claims and releases not yet persisted (asynchronous allocators) are not counted twice
+ * @author Olivier MOREL
+ *
+ */
+public class OccupancyCounters implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("OccupancyCounters");
+
+	private final ParkingSpotDAO parkingSpotDAO;
+	private final Map<ParkingType, LongAdder> freeCounters = new EnumMap<>(ParkingType.class);
+	private final Map<ParkingType, LongAdder> occupiedCounters = new EnumMap<>(ParkingType.class);
+	private final Map<ParkingType, Occupancy> lastDrifts = new EnumMap<>(ParkingType.class); //guarded by this
+	private boolean loaded = false; //guarded by this
+	private ScheduledExecutorService reconciler;
+
+	/**
+	 * Constructor, counters are 0 until the first reconcile()
+	 * @param parkingSpotDAO : DAO counting spots of table parking
+	 */
+	public OccupancyCounters(ParkingSpotDAO parkingSpotDAO) {
+		this.parkingSpotDAO = parkingSpotDAO;
+		for(ParkingType parkingType : ParkingType.values()) {
+			freeCounters.put(parkingType, new LongAdder());
+			occupiedCounters.put(parkingType, new LongAdder());
+		}
+	}
+
+	/**
+	 * Loads counters from table parking
+	 * @param parkingSpotDAO : DAO counting spots of table parking
+	 * @return OccupancyCounters object or null if spots can't be counted
+	 */
+	public static OccupancyCounters load(ParkingSpotDAO parkingSpotDAO) {
+		OccupancyCounters occupancyCounters = new OccupancyCounters(parkingSpotDAO);
+		return occupancyCounters.reconcile() ? occupancyCounters : null;
+	}
+
+	/**
+	 * Counts a claimed spot
+	 * @param parkingType : spot's type
+	 */
+	public void claimed(ParkingType parkingType) {
+		freeCounters.get(parkingType).decrement();
+		occupiedCounters.get(parkingType).increment();
+	}
+
+	/**
+	 * Counts a released spot
+	 * @param parkingType : spot's type
+	 */
+	public void released(ParkingType parkingType) {
+		occupiedCounters.get(parkingType).decrement();
+		freeCounters.get(parkingType).increment();
+	}
+
+	/**
+	 * Number of free spots
+	 * @param parkingType : given vehicule's type
+	 * @return count, without SQL round trip
+	 */
+	public long getFree(ParkingType parkingType) {
+		return Math.max(0, freeCounters.get(parkingType).sum());
+	}
+
+	/**
+	 * Number of occupied spots
+	 * @param parkingType : given vehicule's type
+	 * @return count, without SQL round trip
+	 */
+	public long getOccupied(ParkingType parkingType) {
+		return Math.max(0, occupiedCounters.get(parkingType).sum());
+	}
+
+	/**
+	 * Tests if no spot is free, e.g. to reject a vehicle at the entry gate
+	 * @param parkingType : given vehicule's type
+	 * @return boolean
+	 */
+	public boolean isFull(ParkingType parkingType) {
+		return getFree(parkingType) == 0;
+	}
+
+	/**
+	 * Occupancy of a type, e.g. for a display board
+	 * @param parkingType : given vehicule's type
+	 * @return Occupancy model
+	 */
+	public Occupancy getOccupancy(ParkingType parkingType) {
+		return new Occupancy(parkingType, getFree(parkingType), getOccupied(parkingType));
+	}
+
+	/**
+	 * Counts spots in table parking and corrects the counters : at once the first time,
+	 * then only a drift read twice in a row
+	 * @return boolean : false if spots can't be counted
+	 */
+	public synchronized boolean reconcile() {
+		Map<ParkingType, Occupancy> counted = parkingSpotDAO.getOccupancy();
+		if(counted == null) {
+			return false;
+		}
+		for(ParkingType parkingType : ParkingType.values()) {
+			Occupancy occupancy = counted.getOrDefault(parkingType, new Occupancy(parkingType, 0, 0));
+			LongAdder freeCounter = freeCounters.get(parkingType);
+			LongAdder occupiedCounter = occupiedCounters.get(parkingType);
+			Occupancy drift = new Occupancy(parkingType, occupancy.getFree() - freeCounter.sum(), occupancy.getOccupied() - occupiedCounter.sum());
+			Occupancy lastDrift = lastDrifts.get(parkingType);
+			if(!loaded || (lastDrift != null && lastDrift.getFree() == drift.getFree() && lastDrift.getOccupied() == drift.getOccupied())) {
+				if(loaded && (drift.getFree() != 0 || drift.getOccupied() != 0)) {
+					logger.warn("Occupancy counters of " + parkingType + " corrected by " + drift.getFree() + " free, " + drift.getOccupied() + " occupied");
+				}
+				freeCounter.add(drift.getFree()); //concurrent claims and releases are kept
+				occupiedCounter.add(drift.getOccupied());
+				lastDrifts.remove(parkingType);
+			} else {
+				lastDrifts.put(parkingType, drift);
+			}
+		}
+		loaded = true;
+		return true;
+	}
+
+	/**
+	 * Starts reconciliation on a daemon thread
+	 * @param periodMillis : delay between two reconciliations
+	 */
+	public synchronized void startReconciliation(long periodMillis) {
+		if(reconciler != null) {
+			return;
+		}
+		reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "OccupancyCounters-reconciler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reconciler.scheduleWithFixedDelay(() -> {
+			try {
+				reconcile();
+			} catch(RuntimeException e) { //next ones still scheduled
+				logger.error("Error reconciling occupancy counters", e);
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops reconciliation
+	 */
+	@Override
+	public synchronized void close() {
+		if(reconciler != null) {
+			reconciler.shutdownNow();
+			reconciler = null;
+		}
+	}
+}
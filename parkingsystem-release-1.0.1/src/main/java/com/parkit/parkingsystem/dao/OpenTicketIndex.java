@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * In-process index of open tickets (OUT_TIME is null) : vehicle's registration number -> last ticket in, with its spot.
+ * The exit's lookup is a hash probe instead of GET_TICKET, table ticket is queried on a miss only.
+ * Loaded from table ticket by TicketDAO.loadOpenTicketIndex() and kept in sync by TicketDAO.saveTicket() and updateTicket().
+ * Tickets are copied in and out, so a caller setting out time or price doesn't change the index.
+ * Authoritative only if this JVM is the only one writing table ticket
+ * @author Olivier MOREL
+ *
+ */
+public class OpenTicketIndex {
+
+	private final Map<String, Ticket> openTickets = new ConcurrentHashMap<>();
+	private volatile boolean loaded = false;
+
+	/**
+	 * Replaces the whole index, e.g. after loading open tickets of table ticket
+	 * @param tickets : open tickets, for a vehicle with many the last in is kept (as GET_TICKET)
+	 */
+	public synchronized void load(Collection<Ticket> tickets) {
+		openTickets.clear();
+		tickets.forEach(this::put);
+		loaded = true;
+	}
+
+	/**
+	 * Tests if the index is loaded
+	 * @return true once loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Open ticket of a vehicle
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @return copy of the ticket or null if not indexed
+	 */
+	public Ticket get(String vehicleRegNumber) {
+		Ticket ticket = openTickets.get(vehicleRegNumber);
+		return (ticket == null) ? null : copy(ticket);
+	}
+
+	/**
+	 * Indexes an open ticket, kept only if it is the vehicle's last in
+	 * @param ticket : model with its ID (generated key) and spot, copied
+	 */
+	public void put(Ticket ticket) {
+		if(ticket.getOutTime() != null || ticket.getVehicleRegNumber() == null) {
+			return; //closed tickets aren't indexed
+		}
+		openTickets.merge(ticket.getVehicleRegNumber(), copy(ticket),
+				(indexed, added) -> added.getInTime().before(indexed.getInTime()) ? indexed : added);
+	}
+
+	/**
+	 * Unindexes a ticket, e.g. once closed
+	 * @param ticket : model, a newer ticket of the same vehicle is kept
+	 */
+	public void remove(Ticket ticket) {
+		openTickets.computeIfPresent(ticket.getVehicleRegNumber(),
+				(vehicleRegNumber, indexed) -> (indexed.getId() == ticket.getId()) ? null : indexed);
+	}
+
+	/**
+	 * Unindexes the ticket of a vehicle, its next lookup queries table ticket
+	 * @param vehicleRegNumber : vehicle's registration number
+	 */
+	public void invalidate(String vehicleRegNumber) {
+		openTickets.remove(vehicleRegNumber);
+	}
+
+	/**
+	 * Number of indexed tickets
+	 * @return size
+	 */
+	public int size() {
+		return openTickets.size();
+	}
+
+	private static Ticket copy(Ticket ticket) {
+		Ticket copy = new Ticket();
+		copy.setId(ticket.getId());
+		ParkingSpot parkingSpot = ticket.getParkingSpot();
+		if(parkingSpot != null) {
+			ParkingSpot spotCopy = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable(),
+					parkingSpot.getZone(), parkingSpot.getLevel());
+			spotCopy.setLotId(parkingSpot.getLotId());
+			copy.setParkingSpot(spotCopy);
+		}
+		copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+		copy.setPrice(ticket.getPrice());
+		copy.setInTime(copyOf(ticket.getInTime()));
+		copy.setOutTime(copyOf(ticket.getOutTime()));
+		copy.setLotId(ticket.getLotId());
+		return copy;
+	}
+
+	private static Date copyOf(Date date) {
+		return (date == null) ? null : new Date(date.getTime());
+	}
+}
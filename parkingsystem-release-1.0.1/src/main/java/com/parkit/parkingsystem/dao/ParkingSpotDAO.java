@@ -4,13 +4,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
 import com.parkit.parkingsystem.model.ParkingSpot;
 
 /**
@@ -22,6 +31,9 @@ public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     private DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    private WriteBehindBuffer writeBehindBuffer; //null : updates are executed at once
+    private SpotAvailabilityIndex availabilityIndex; //null : next available slot is queried
+    private EventStore eventStore; //null : spots are claimed and updated in table parking
 
     /**
      * Setter for SIT tests
@@ -31,20 +43,164 @@ public class ParkingSpotDAO {
 		this.dataBaseConfig = dataBaseConfig;
 	}
 
-    
+    /**
+     * Getter to begin a UnitOfWork on the same pool
+     * @return configuration for database
+     */
+    public DataBaseConfig getDataBaseConfig() {
+        return dataBaseConfig;
+    }
+
+    /**
+     * Setter to turn on write-behind mode : updateParking() queues its update in the buffer
+     * @param writeBehindBuffer : buffer shared with TicketDAO, null to turn it off
+     */
+    public void setWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+        this.writeBehindBuffer = writeBehindBuffer;
+    }
+
+    /**
+     * Setter to turn on event-sourced mode : claims and updates are journaled, table parking is their projection
+     * @param eventStore : store shared with TicketDAO, null to turn it off
+     */
+    public void setEventStore(EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    /**
+     * Setter to read next available slot from an in-process index, see loadAvailabilityIndex()
+     * @param availabilityIndex : index, null to query table parking
+     */
+    public void setAvailabilityIndex(SpotAvailabilityIndex availabilityIndex) {
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /**
+     * Does a query to load all spots' availability into the index
+     * @return boolean : success or failure, on failure the index is not used
+     */
+    public boolean loadAvailabilityIndex() {
+        if(availabilityIndex == null) {
+            return false;
+        }
+        List<ParkingSpot> parkingSpots = getParkingSpots();
+        if(parkingSpots == null) {
+            return false;
+        }
+        Map<ParkingType, BitSet> availableSpots = new EnumMap<>(ParkingType.class);
+        parkingSpots.forEach(parkingSpot -> availableSpots.computeIfAbsent(parkingSpot.getParkingType(), type -> new BitSet())
+                .set(parkingSpot.getId(), parkingSpot.isAvailable()));
+        availabilityIndex.load(availableSpots);
+        return true;
+    }
+
+    /**
+     * Does a query to get all parking spots
+     * @return list of ParkingSpot models or null on error
+     */
+    public List<ParkingSpot> getParkingSpots() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            flushPendingWrites();
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_SPOTS);
+            rs = ps.executeQuery();
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            while(rs.next()) {
+                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2), rs.getString(4), rs.getInt(5));
+                parkingSpot.setLotId(dataBaseConfig.getLotId());
+                parkingSpots.add(parkingSpot);
+            }
+            return parkingSpots;
+        } catch(Exception ex) {
+            logger.error("Error loading parking spots",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+
+    /**
+     * Does a query to count free and occupied spots of each type
+     * @return map type -> Occupancy model, without types having no spot, or null on error
+     */
+    public Map<ParkingType, Occupancy> getOccupancy() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            flushPendingWrites();
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_OCCUPANCY);
+            rs = ps.executeQuery();
+            Map<ParkingType, Occupancy> occupancies = new EnumMap<>(ParkingType.class);
+            while(rs.next()) {
+                ParkingType parkingType = ParkingType.valueOf(rs.getString(1));
+                occupancies.put(parkingType, new Occupancy(parkingType, rs.getLong(2), rs.getLong(3) - rs.getLong(2)));
+            }
+            return occupancies;
+        } catch(Exception ex) {
+            logger.error("Error counting parking spots",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+
+    /**
+     * Does a query to get distances of spots from each gate
+     * @return map gate -> (spot's number -> distance), empty if no distances, or null on error
+     */
+    public Map<String, Map<Integer, Integer>> getGateDistances() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_GATE_DISTANCES);
+            rs = ps.executeQuery();
+            Map<String, Map<Integer, Integer>> gateDistances = new HashMap<>();
+            while(rs.next()) {
+                gateDistances.computeIfAbsent(rs.getString(1), gate -> new HashMap<>()).put(rs.getInt(2), rs.getInt(3));
+            }
+            return gateDistances;
+        } catch(Exception ex) {
+            logger.error("Error loading gate distances",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+
     /**
      * Does a query to get the first minimal index of an available parking spot for a given vehicule's type
+     * or reads it from the availability index if loaded (the lot's state in event-sourced mode), without SQL round trip
      * @param parkingType : given vehicule's type
      * @return the index of the available parking spot
      */
     public int getNextAvailableSlot(ParkingType parkingType) {
+        if(eventStore != null) {
+            return eventStore.getNextAvailableSlot(parkingType);
+        }
+        if(availabilityIndex != null && availabilityIndex.isLoaded()) {
+            return availabilityIndex.nextAvailable(parkingType);
+        }
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs =null;
         int result=-1;
         try {
+            flushPendingUpdates(parkingType); //reads queued updates of availability
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_NEXT_PARKING_SPOT);
             ps.setString(1, parkingType.toString());
             rs = ps.executeQuery();
             if(rs.next()){
@@ -64,22 +220,128 @@ public class ParkingSpotDAO {
         return result;
     }
 
+    /**
+     * Claims atomically the lowest available spot of a given type : a conditional update (AVAILABLE = true)
+     * is executed on the candidate, if another gate claimed it first no row is updated and the next candidate is tried.
+     * No lock is held on other spots. Called outside a UnitOfWork, the claim is committed at once
+     * @param parkingType : given vehicule's type
+     * @return the index of the claimed parking spot, 0 if none available, -1 on error
+     */
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        if(eventStore != null) {
+            return eventStore.claimNextAvailableSlot(parkingType); //lot's state is the authority
+        }
+        flushPendingUpdates(parkingType); //queued updates of availability are in table before claiming
+        int candidate = 0;
+        while(true) {
+            candidate = getNextAvailableSlotAfter(parkingType, candidate); //increases so loop ends
+            if(candidate <= 0) {
+                return candidate;
+            }
+            int updateRowCount = claimParkingSpot(candidate);
+            if(updateRowCount < 0) {
+                return -1;
+            }
+            if(updateRowCount == 1) {
+                syncAvailabilityIndex(new ParkingSpot(candidate, parkingType, false));
+                return candidate;
+            }
+            logger.info("Parking spot " + candidate + " already claimed, trying next one");
+            if(availabilityIndex != null) {
+                availabilityIndex.setAvailable(parkingType, candidate, false); //index was stale
+            }
+        }
+    }
+
+    /**
+     * Next available slot above a given number, from the availability index if loaded
+     * @param parkingType : given vehicule's type
+     * @param after : spots up to this number are skipped
+     * @return the index of the available parking spot, 0 if none, -1 on error
+     */
+    private int getNextAvailableSlotAfter(ParkingType parkingType, int after) {
+        if(availabilityIndex != null && availabilityIndex.isLoaded()) {
+            return availabilityIndex.nextAvailable(parkingType, after);
+        }
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs =null;
+        int result=-1;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_NEXT_PARKING_SPOT_AFTER);
+            ps.setString(1, parkingType.toString());
+            ps.setInt(2, after);
+            rs = ps.executeQuery();
+            if(rs.next()){
+                result = rs.getInt(1); //0 if min() is null
+            }
+        } catch(Exception ex) {
+            logger.error("Error fetching next available slot",ex);
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+        return result;
+    }
+
+    /**
+     * Executes the conditional update claiming a spot
+     * @param parkingNumber : spot's number
+     * @return number of rows updated : 1 if claimed, 0 if already taken, -1 on error
+     */
+    private int claimParkingSpot(int parkingNumber) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT);
+            ps.setInt(1, parkingNumber);
+            return ps.executeUpdate();
+        } catch(Exception ex) {
+            logger.error("Error claiming parking spot",ex);
+            return -1;
+        } finally { //The finally block will be executed even after a return statement in a method.
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
 	/**
      * updates field available for a given ParkingSpot's identifier
      * @param parkingSpot : model
      * @return boolean : success or failure to get update
      */
     public boolean updateParking(ParkingSpot parkingSpot){
+        if(!dataBaseConfig.isOfLot(parkingSpot.getLotId())) {
+            logger.error("Parking spot of lot " + parkingSpot.getLotId() + " routed to lot " + dataBaseConfig.getLotId());
+            return false;
+        }
+        if(eventStore != null) {
+            return eventStore.updateParking(parkingSpot);
+        }
+        if(writeBehindBuffer != null) {
+            CompletableFuture<Boolean> result = queueUpdateParking(parkingSpot);
+            boolean queued = !(result.isDone() && !result.join()); //true when queued, failure of batch is reported by the buffer
+            if(queued) {
+                syncAvailabilityIndex(parkingSpot);
+            }
+            return queued;
+        }
         //update the availability for that parking slot
         Connection con = null;
         PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT);
             ps.setBoolean(1, parkingSpot.isAvailable());
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
+            if(updateRowCount == 1) {
+                syncAvailabilityIndex(parkingSpot);
+            }
             return (updateRowCount == 1);
         } catch(Exception ex) {
             logger.error("Error updating parking info",ex);
@@ -89,4 +351,63 @@ public class ParkingSpotDAO {
             dataBaseConfig.closeConnection(con); //will test con != null
         }
     }
+
+    /**
+     * Queues the update of field available in the write-behind buffer
+     * @param parkingSpot : model, its values are copied
+     * @return future completed with true when the batch updated the row, false on failure
+     */
+    public CompletableFuture<Boolean> queueUpdateParking(ParkingSpot parkingSpot) {
+        if(writeBehindBuffer == null) {
+            return CompletableFuture.completedFuture(updateParking(parkingSpot));
+        }
+        boolean available = parkingSpot.isAvailable();
+        int parkingNumber = parkingSpot.getId();
+        return writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, parkingSpot.getParkingType(), ps -> {
+            ps.setBoolean(1, available);
+            ps.setInt(2, parkingNumber);
+        });
+    }
+
+    /**
+     * Reports an update into the availability index : in a UnitOfWork, a spot taken is removed at once
+     * (no other gate gets it) and given back on rollback, a spot freed is added on commit only
+     * @param parkingSpot : updated model
+     */
+    private void syncAvailabilityIndex(ParkingSpot parkingSpot) {
+        if(availabilityIndex == null || parkingSpot.getParkingType() == null) {
+            return;
+        }
+        ParkingType parkingType = parkingSpot.getParkingType();
+        int parkingNumber = parkingSpot.getId();
+        boolean available = parkingSpot.isAvailable();
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if(unitOfWork == null) {
+            availabilityIndex.setAvailable(parkingType, parkingNumber, available);
+        } else if(!available) {
+            availabilityIndex.setAvailable(parkingType, parkingNumber, false);
+            unitOfWork.afterRollback(() -> availabilityIndex.setAvailable(parkingType, parkingNumber, true));
+        } else {
+            unitOfWork.afterCommit(() -> availabilityIndex.setAvailable(parkingType, parkingNumber, true));
+        }
+    }
+
+    /**
+     * Executes the queued updates of availability of a type only : other queued writes (tickets) stay batched
+     * @param parkingType : given vehicule's type
+     */
+    private void flushPendingUpdates(ParkingType parkingType) {
+        if(writeBehindBuffer != null) {
+            writeBehindBuffer.flush(DBConstants.UPDATE_PARKING_SPOT, parkingType);
+        }
+    }
+
+    private void flushPendingWrites() {
+        if(writeBehindBuffer != null) {
+            writeBehindBuffer.flush(); //queued updates are in table before reading it
+        }
+        if(eventStore != null) {
+            eventStore.project(); //journaled claims and updates are in table before reading it
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+
+/**
+ * Saves (persists), Reads (query) and Deletes on table reservation
+ * @author Olivier MOREL
+ *
+ */
+public class ReservationDAO {
+
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    private DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Setter for SIT tests
+     * @param dataBaseConfig : configuration for database access
+     */
+    public void setDataBaseConfig(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Saves (persists) a new reservation model
+     * @param reservation : model
+     * @return boolean : true = success or false = failure, e.g. vehicle has already a reservation
+     */
+    public boolean saveReservation(Reservation reservation) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_RESERVATION);
+            //VEHICLE_REG_NUMBER, PARKING_NUMBER, EXPIRY_TIME
+            ps.setString(1, reservation.getVehicleRegNumber());
+            ps.setInt(2, reservation.getParkingSpot().getId());
+            ps.setTimestamp(3, new Timestamp(reservation.getExpiryTime().getTime()));
+            return (ps.executeUpdate() == 1);
+        } catch(Exception ex) {
+            logger.error("Error persisting reservation",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+
+    /**
+     * Deletes the reservation of a vehicle
+     * @param vehicleRegNumber : vehicle's registered number
+     * @return boolean : true = deleted or false = failure or no reservation
+     */
+    public boolean deleteReservation(String vehicleRegNumber) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.DELETE_RESERVATION);
+            ps.setString(1, vehicleRegNumber);
+            return (ps.executeUpdate() == 1);
+        } catch(Exception ex) {
+            logger.error("Error deleting reservation",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+
+    /**
+     * Does a query to get all reservations, expired or not
+     * @return list of Reservation models or null on error
+     */
+    public List<Reservation> getReservations() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_RESERVATIONS);
+            rs = ps.executeQuery();
+            List<Reservation> reservations = new ArrayList<>();
+            while(rs.next()) {
+                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(3)), false);
+                parkingSpot.setLotId(dataBaseConfig.getLotId());
+                reservations.add(new Reservation(rs.getString(1), parkingSpot, rs.getTimestamp(4)));
+            }
+            return reservations;
+        } catch(Exception ex) {
+            logger.error("Error loading reservations",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con);  //will test con != null
+        }
+    }
+}
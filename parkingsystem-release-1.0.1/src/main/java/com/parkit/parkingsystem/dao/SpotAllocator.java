@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Allocation of parking spots used by ParkingService :
+ * claim() gives a spot no other gate can get, release() gives it back
+ * @author Olivier MOREL
+ *
+ */
+public interface SpotAllocator {
+
+	/**
+	 * Claims an available spot of a given type
+	 * @param parkingType : given vehicule's type
+	 * @return the claimed spot's number, 0 if none available, -1 on error
+	 */
+	int claim(ParkingType parkingType);
+
+	/**
+	 * Gives a spot back, in the UnitOfWork opened on this thread if any
+	 * @param parkingSpot : spot, set available by this method
+	 * @return true if released
+	 */
+	boolean release(ParkingSpot parkingSpot);
+}
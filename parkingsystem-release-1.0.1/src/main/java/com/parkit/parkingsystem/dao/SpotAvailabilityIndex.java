@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * In-process index of available parking spots : one BitSet per ParkingType, bit n set if spot n is available.
+ * The next available spot is the lowest set bit, same as "select min(PARKING_NUMBER) ... where AVAILABLE = true".
+ * Loaded from table parking by ParkingSpotDAO.loadAvailabilityIndex() and kept in sync by ParkingSpotDAO.updateParking().
+ * Authoritative only if this JVM is the only one writing table parking
+ * @author Olivier MOREL
+ *
+ */
+public class SpotAvailabilityIndex {
+
+	private final Map<ParkingType, BitSet> availableSpots = new EnumMap<>(ParkingType.class);
+	private volatile boolean loaded = false;
+
+	/**
+	 * Replaces the whole index, e.g. after loading table parking
+	 * @param newAvailableSpots : available spots' numbers by type
+	 */
+	public synchronized void load(Map<ParkingType, BitSet> newAvailableSpots) {
+		availableSpots.clear();
+		newAvailableSpots.forEach((parkingType, spots) -> availableSpots.put(parkingType, (BitSet) spots.clone()));
+		loaded = true;
+	}
+
+	/**
+	 * Tests if the index can be used instead of table parking
+	 * @return true once loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Lowest available spot's number for a given type
+	 * @param parkingType : given vehicule's type
+	 * @return spot's number or 0 if none available (as DAO when min() is null)
+	 */
+	public int nextAvailable(ParkingType parkingType) {
+		return nextAvailable(parkingType, 0); //PARKING_NUMBER starts at 1
+	}
+
+	/**
+	 * Lowest available spot's number for a given type above a given number
+	 * @param parkingType : given vehicule's type
+	 * @param after : spots up to this number are skipped
+	 * @return spot's number or 0 if none available
+	 */
+	public synchronized int nextAvailable(ParkingType parkingType, int after) {
+		BitSet spots = availableSpots.get(parkingType);
+		if(spots == null) {
+			return 0;
+		}
+		int parkingNumber = spots.nextSetBit(after + 1);
+		return (parkingNumber < 0) ? 0 : parkingNumber;
+	}
+
+	/**
+	 * Sets a spot's availability
+	 * @param parkingType : spot's type
+	 * @param parkingNumber : spot's number
+	 * @param available : new availability
+	 */
+	public synchronized void setAvailable(ParkingType parkingType, int parkingNumber, boolean available) {
+		availableSpots.computeIfAbsent(parkingType, type -> new BitSet()).set(parkingNumber, available);
+	}
+
+	/**
+	 * Number of available spots for a given type
+	 * @param parkingType : given vehicule's type
+	 * @return count of set bits
+	 */
+	public synchronized int countAvailable(ParkingType parkingType) {
+		BitSet spots = availableSpots.get(parkingType);
+		return (spots == null) ? 0 : spots.cardinality();
+	}
+}
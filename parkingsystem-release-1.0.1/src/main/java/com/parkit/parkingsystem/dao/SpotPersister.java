@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Persists availability of spots for in-memory SpotAllocators :
+ *  - asynchronously (AsyncParkingSpotDAO), persists of a spot being chained in order so a release is never written before its claim
+ *  - or synchronously in the caller's UnitOfWork, after the spot's pending persists
+ * @author Olivier MOREL
+ *
+ */
+class SpotPersister {
+
+	private static final Logger logger = LogManager.getLogger("SpotPersister");
+
+	private final ParkingSpotDAO parkingSpotDAO; //null : no persistence (benchmarks, tests)
+	private final AsyncParkingSpotDAO asyncParkingSpotDAO;
+	private final ConcurrentMap<Integer, CompletableFuture<Void>> lastPersists = new ConcurrentHashMap<>(); //by spot's number
+	private final LongAdder persistFailureCount = new LongAdder();
+
+	/**
+	 * Constructor
+	 * @param parkingSpotDAO : DAO persisting claims and releases, null for no persistence
+	 * @param asyncDAOExecutor : executor of asynchronous persistence, null if no DAO
+	 */
+	SpotPersister(ParkingSpotDAO parkingSpotDAO, AsyncDAOExecutor asyncDAOExecutor) {
+		this.parkingSpotDAO = parkingSpotDAO;
+		this.asyncParkingSpotDAO = (parkingSpotDAO == null) ? null : new AsyncParkingSpotDAO(parkingSpotDAO, asyncDAOExecutor);
+	}
+
+	/**
+	 * Persists spot's availability on the executor, after the previous persists of this spot
+	 * @param parkingSpot : spot with its new availability
+	 */
+	void persistAsync(ParkingSpot parkingSpot) {
+		if(asyncParkingSpotDAO == null) {
+			return;
+		}
+		CompletableFuture<Void> persist = new CompletableFuture<>();
+		CompletableFuture<Void> previousPersist = lastPersists.put(parkingSpot.getId(), persist); //no lock : the last one is chained
+		Runnable update = () -> asyncParkingSpotDAO.updateParking(parkingSpot).whenComplete((updated, throwable) -> {
+			if(throwable != null || !updated) {
+				persistFailureCount.increment();
+				logger.error("Unable to persist parking spot " + parkingSpot.getId() + " availability " + parkingSpot.isAvailable(), throwable);
+			}
+			persist.complete(null);
+		});
+		if(previousPersist == null) {
+			update.run();
+		} else {
+			previousPersist.whenComplete((result, throwable) -> update.run()); //a release is not persisted before its claim
+		}
+	}
+
+	/**
+	 * Persists spot's availability on this thread, so in its UnitOfWork if one is opened, after the pending persists of this spot
+	 * @param parkingSpot : spot with its new availability
+	 * @return true if persisted or no persistence
+	 */
+	boolean persistNow(ParkingSpot parkingSpot) {
+		CompletableFuture<Void> lastPersist = lastPersists.get(parkingSpot.getId());
+		if(lastPersist != null) {
+			lastPersist.join(); //claim is persisted before
+		}
+		return parkingSpotDAO == null || parkingSpotDAO.updateParking(parkingSpot);
+	}
+
+	/**
+	 * Number of claims or releases not persisted
+	 * @return count since creation
+	 */
+	long getPersistFailureCount() {
+		return persistFailureCount.sum();
+	}
+}
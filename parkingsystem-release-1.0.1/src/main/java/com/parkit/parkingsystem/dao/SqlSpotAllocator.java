@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Default SpotAllocator : table parking is the authority, each claim and release is a SQL update
+ * (see ParkingSpotDAO.claimNextAvailableSlot)
+ * @author Olivier MOREL
+ *
+ */
+public class SqlSpotAllocator implements SpotAllocator {
+
+	private final ParkingSpotDAO parkingSpotDAO;
+
+	public SqlSpotAllocator(ParkingSpotDAO parkingSpotDAO) {
+		this.parkingSpotDAO = parkingSpotDAO;
+	}
+
+	@Override
+	public int claim(ParkingType parkingType) {
+		return parkingSpotDAO.claimNextAvailableSlot(parkingType);
+	}
+
+	@Override
+	public boolean release(ParkingSpot parkingSpot) {
+		parkingSpot.setAvailable(true);
+		return parkingSpotDAO.updateParking(parkingSpot);
+	}
+}
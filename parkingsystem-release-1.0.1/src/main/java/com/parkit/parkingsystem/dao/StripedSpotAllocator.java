@@ -0,0 +1,222 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Lock-free in-memory SpotAllocator for many gates in one JVM :
+ *  - spots of each type are dealt round-robin (by number) into stripes, each stripe is a bitmap of free spots (AtomicLongArray)
+ *  - a gate's thread claims in its home stripe by clearing the lowest free bit with compareAndSet,
+ *    when the home stripe runs dry it steals from the next ones
+ *  - claims are persisted asynchronously (AsyncParkingSpotDAO), releases in the UnitOfWork if one is opened
+ * Spots are near lowest number first but not strictly. Authoritative only if this JVM is the only one writing table parking
+ * @author Olivier MOREL
+ *
+ */
+public class StripedSpotAllocator implements SpotAllocator {
+
+	private static final Logger logger = LogManager.getLogger("StripedSpotAllocator");
+
+	private final Map<ParkingType, Stripe[]> stripesByType = new EnumMap<>(ParkingType.class);
+	private final int[] stripeOfSpot; //indexed by spot's number, -1 if unknown
+	private final int[] positionOfSpot;
+	private final SpotPersister spotPersister;
+	private final LongAdder stealCount = new LongAdder();
+
+	/**
+	 * Constructor
+	 * @param parkingSpots : all spots with their availability, e.g. ParkingSpotDAO.getParkingSpots()
+	 * @param stripeCount : number of stripes per type, e.g. number of gates
+	 * @param parkingSpotDAO : DAO persisting claims and releases, null for no persistence
+	 * @param asyncDAOExecutor : executor of asynchronous persistence, null if no DAO
+	 */
+	public StripedSpotAllocator(List<ParkingSpot> parkingSpots, int stripeCount, ParkingSpotDAO parkingSpotDAO, AsyncDAOExecutor asyncDAOExecutor) {
+		if(stripeCount < 1) {
+			throw new IllegalArgumentException("Stripe count must be positive");
+		}
+		this.spotPersister = new SpotPersister(parkingSpotDAO, asyncDAOExecutor);
+		int maxNumber = parkingSpots.stream().mapToInt(ParkingSpot::getId).max().orElse(0);
+		stripeOfSpot = new int[maxNumber + 1];
+		positionOfSpot = new int[maxNumber + 1];
+		Arrays.fill(stripeOfSpot, -1);
+		Map<ParkingType, List<ParkingSpot>> spotsByType = new EnumMap<>(ParkingType.class);
+		parkingSpots.forEach(parkingSpot -> spotsByType.computeIfAbsent(parkingSpot.getParkingType(), type -> new ArrayList<>()).add(parkingSpot));
+		spotsByType.forEach((parkingType, spots) -> {
+			spots.sort(Comparator.comparingInt(ParkingSpot::getId));
+			int stripesOfType = Math.min(stripeCount, spots.size());
+			List<List<ParkingSpot>> dealtSpots = new ArrayList<>();
+			for(int i = 0; i < stripesOfType; i++) {
+				dealtSpots.add(new ArrayList<>());
+			}
+			for(int k = 0; k < spots.size(); k++) { //k-th lowest spot goes to stripe k % stripes
+				ParkingSpot parkingSpot = spots.get(k);
+				stripeOfSpot[parkingSpot.getId()] = k % stripesOfType;
+				positionOfSpot[parkingSpot.getId()] = dealtSpots.get(k % stripesOfType).size();
+				dealtSpots.get(k % stripesOfType).add(parkingSpot);
+			}
+			Stripe[] stripes = new Stripe[stripesOfType];
+			for(int i = 0; i < stripesOfType; i++) {
+				stripes[i] = new Stripe(dealtSpots.get(i));
+			}
+			stripesByType.put(parkingType, stripes);
+		});
+	}
+
+	/**
+	 * Loads spots from table parking
+	 * @param parkingSpotDAO : DAO reading and persisting spots
+	 * @param stripeCount : number of stripes per type
+	 * @param asyncDAOExecutor : executor of asynchronous persistence
+	 * @return StripedSpotAllocator object or null if spots can't be loaded
+	 */
+	public static StripedSpotAllocator load(ParkingSpotDAO parkingSpotDAO, int stripeCount, AsyncDAOExecutor asyncDAOExecutor) {
+		List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+		return (parkingSpots == null) ? null : new StripedSpotAllocator(parkingSpots, stripeCount, parkingSpotDAO, asyncDAOExecutor);
+	}
+
+	@Override
+	public int claim(ParkingType parkingType) {
+		Stripe[] stripes = stripesByType.get(parkingType);
+		if(stripes == null) {
+			return 0;
+		}
+		int home = (int) (Thread.currentThread().getId() % stripes.length);
+		for(int i = 0; i < stripes.length; i++) {
+			int parkingNumber = stripes[(home + i) % stripes.length].claimLowest();
+			if(parkingNumber > 0) {
+				if(i > 0) {
+					stealCount.increment();
+				}
+				spotPersister.persistAsync(new ParkingSpot(parkingNumber, parkingType, false));
+				return parkingNumber;
+			}
+		}
+		return 0; //all stripes dry
+	}
+
+	@Override
+	public boolean release(ParkingSpot parkingSpot) {
+		int parkingNumber = parkingSpot.getId();
+		if(parkingNumber <= 0 || parkingNumber >= stripeOfSpot.length || stripeOfSpot[parkingNumber] < 0) {
+			logger.error("Unknown parking spot " + parkingNumber);
+			return false;
+		}
+		Stripe stripe = stripesByType.get(parkingSpot.getParkingType())[stripeOfSpot[parkingNumber]];
+		int position = positionOfSpot[parkingNumber];
+		parkingSpot.setAvailable(true);
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork != null) {
+			if(!spotPersister.persistNow(parkingSpot)) { //persisted with the UnitOfWork, after the claim
+				return false;
+			}
+			unitOfWork.afterCommit(() -> stripe.free(position)); //no other gate gets it before commit
+			return true;
+		}
+		if(!stripe.free(position)) {
+			logger.warn("Parking spot " + parkingNumber + " already free");
+			return false;
+		}
+		spotPersister.persistAsync(new ParkingSpot(parkingNumber, parkingSpot.getParkingType(), true));
+		return true;
+	}
+
+	/**
+	 * Number of free spots of a given type
+	 * @param parkingType : given vehicule's type
+	 * @return count of free spots in all stripes
+	 */
+	public int countAvailable(ParkingType parkingType) {
+		Stripe[] stripes = stripesByType.get(parkingType);
+		int count = 0;
+		if(stripes != null) {
+			for(Stripe stripe : stripes) {
+				count += stripe.countFree();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Number of claims served by another stripe than the thread's home one
+	 * @return count since creation
+	 */
+	public long getStealCount() {
+		return stealCount.sum();
+	}
+
+	/**
+	 * Number of claims or releases not persisted
+	 * @return count since creation
+	 */
+	public long getPersistFailureCount() {
+		return spotPersister.getPersistFailureCount();
+	}
+
+	/**
+	 * Spots of one stripe, bit i of freeBits set if spotNumbers[i] is free
+	 */
+	private static final class Stripe {
+		private final int[] spotNumbers;
+		private final AtomicLongArray freeBits;
+
+		private Stripe(List<ParkingSpot> spots) {
+			spotNumbers = new int[spots.size()];
+			freeBits = new AtomicLongArray((spots.size() + 63) / 64);
+			for(int i = 0; i < spots.size(); i++) {
+				spotNumbers[i] = spots.get(i).getId();
+				if(spots.get(i).isAvailable()) {
+					freeBits.set(i / 64, freeBits.get(i / 64) | (1L << (i % 64))); //not yet shared
+				}
+			}
+		}
+
+		private int claimLowest() {
+			for(int word = 0; word < freeBits.length(); word++) {
+				long bits = freeBits.get(word);
+				while(bits != 0) {
+					long lowestBit = Long.lowestOneBit(bits);
+					if(freeBits.compareAndSet(word, bits, bits & ~lowestBit)) {
+						return spotNumbers[word * 64 + Long.numberOfTrailingZeros(lowestBit)];
+					}
+					bits = freeBits.get(word); //another gate changed this word : retry
+				}
+			}
+			return 0;
+		}
+
+		private boolean free(int position) {
+			int word = position / 64;
+			long bit = 1L << (position % 64);
+			while(true) {
+				long bits = freeBits.get(word);
+				if((bits & bit) != 0) {
+					return false;
+				}
+				if(freeBits.compareAndSet(word, bits, bits | bit)) {
+					return true;
+				}
+			}
+		}
+
+		private int countFree() {
+			int count = 0;
+			for(int word = 0; word < freeBits.length(); word++) {
+				count += Long.bitCount(freeBits.get(word));
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Archival job of table ticket : closed tickets out before the retention window are moved to table ticket_archive,
+ * so table ticket (GET_TICKET, GET_TIMES, GET_OPEN_TICKETS) only keeps recent months whatever the history's size.
+ * The window is whole months before the current one, at least 2 : an exit checks the month before the ticket's in time
+ * in table ticket, so a vehicle in since last month needs the month before it kept for the recurring user check
+ * @author Olivier MOREL
+ *
+ */
+public class TicketArchiver implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("TicketArchiver");
+
+	private final TicketDAO ticketDAO;
+	private final int retentionMonths;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructor
+	 * @param ticketDAO : DAO moving tickets
+	 * @param retentionMonths : whole months kept before the current one, at least 2
+	 */
+	public TicketArchiver(TicketDAO ticketDAO, int retentionMonths) {
+		if(retentionMonths < 2) {
+			throw new IllegalArgumentException("The month before an entry is needed for recurring users, retention must be at least 2 months");
+		}
+		this.ticketDAO = ticketDAO;
+		this.retentionMonths = retentionMonths;
+	}
+
+	/**
+	 * Beginning of the retention window
+	 * @param now : current time
+	 * @return first day of the month, retentionMonths before now's month, at midnight
+	 */
+	public Date getCutoff(Date now) {
+		Calendar cutoff = new GregorianCalendar();
+		cutoff.setTime(now);
+		cutoff.set(Calendar.DATE, 1); //set date at the begin of month
+		cutoff.set(Calendar.HOUR_OF_DAY, 0);
+		cutoff.set(Calendar.MINUTE, 0);
+		cutoff.set(Calendar.SECOND, 0);
+		cutoff.set(Calendar.MILLISECOND, 0);
+		cutoff.add(Calendar.MONTH, -retentionMonths);
+		return cutoff.getTime();
+	}
+
+	/**
+	 * Archives tickets out before the retention window
+	 * @param now : current time
+	 * @return number of tickets archived or -1 on failure
+	 */
+	public int archive(Date now) {
+		Date cutoff = getCutoff(now);
+		int archived = ticketDAO.archiveTickets(cutoff);
+		if(archived >= 0) {
+			logger.info(archived + " tickets out before " + cutoff + " archived");
+		}
+		return archived;
+	}
+
+	/**
+	 * Archives now then periodically on a daemon thread
+	 * @param periodMillis : delay between two archivals
+	 */
+	public synchronized void start(long periodMillis) {
+		if(scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TicketArchiver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				archive(new Date());
+			} catch(RuntimeException e) { //next ones still scheduled
+				logger.error("Error archiving tickets", e);
+			}
+		}, 0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops archival
+	 */
+	@Override
+	public synchronized void close() {
+		if(scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+}
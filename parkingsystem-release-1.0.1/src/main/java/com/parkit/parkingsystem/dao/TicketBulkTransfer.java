@@ -0,0 +1,483 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Bulk import and export of ticket history between sites or to analytics, in constant memory whatever the number of tickets :
+ *  - export streams table ticket then table ticket_archive with a forward-only ResultSet and a fetch size,
+ *    each row written at once in a buffered channel
+ *  - import reads records one by one from a buffered channel and inserts them with JDBC batches,
+ *    committed every commit interval (a failure keeps the tickets committed before, see the log)
+ * Imported tickets get new IDs (SAVE_TICKET, or from the lot's TicketIdAllocator if set), their spots must exist in table parking.
+ * In the same batches, an open ticket (no out time) claims its spot, the import fails if the spot is already taken,
+ * and in visit rollup mode a closed ticket increments its month in table monthly_visit.
+ * Formats :
+ *  - CSV : header then ID,PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME, times as "yyyy-mm-dd hh:mm:ss.fffffffff", no out time is empty
+ *  - BINARY : magic "PKT1" then per ticket int ID, int PARKING_NUMBER, short length and UTF-8 bytes of VEHICLE_REG_NUMBER,
+ *    double PRICE, long IN_TIME and long OUT_TIME in epoch milliseconds (-1 if none), big-endian
+ * @author Olivier MOREL
+ *
+ */
+public class TicketBulkTransfer {
+
+	private static final Logger logger = LogManager.getLogger("TicketBulkTransfer");
+
+	private static final String CSV_HEADER = "ID,PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME";
+	private static final int BINARY_MAGIC = 0x504B5431; //"PKT1"
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long NO_TIME = -1L;
+
+	/**
+	 * Formats of a ticket stream
+	 */
+	public enum Format {
+		CSV,
+		BINARY
+	}
+
+	private final DataBaseConfig dataBaseConfig;
+	private final int batchSize;
+	private final int commitInterval;
+	private final int fetchSize;
+	private TicketIdAllocator ticketIdAllocator; //null : imported tickets get AUTO_INCREMENT IDs
+	private boolean visitRollup = false; //true : closed tickets counted in table monthly_visit
+
+	/**
+	 * Constructor
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @param batchSize : inserts sent at once
+	 * @param commitInterval : inserts per transaction, a multiple of batchSize is better
+	 * @param fetchSize : rows fetched at once on export
+	 */
+	public TicketBulkTransfer(DataBaseConfig dataBaseConfig, int batchSize, int commitInterval, int fetchSize) {
+		if(batchSize < 1 || commitInterval < 1 || fetchSize < 1) {
+			throw new IllegalArgumentException("Batch size, commit interval and fetch size must be positive");
+		}
+		this.dataBaseConfig = dataBaseConfig;
+		this.batchSize = batchSize;
+		this.commitInterval = commitInterval;
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Transfer sized with -Dparkingsystem.bulk.batchSize (default 1000), -Dparkingsystem.bulk.commitInterval (default 10000)
+	 * and -Dparkingsystem.bulk.fetchSize (default 1000)
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @return TicketBulkTransfer object
+	 */
+	public static TicketBulkTransfer fromSystemProperties(DataBaseConfig dataBaseConfig) {
+		return new TicketBulkTransfer(dataBaseConfig, Integer.getInteger("parkingsystem.bulk.batchSize", 1000),
+				Integer.getInteger("parkingsystem.bulk.commitInterval", 10000), Integer.getInteger("parkingsystem.bulk.fetchSize", 1000));
+	}
+
+	/**
+	 * Setter to give imported tickets IDs from the allocator used by the lot's gates, so they don't collide
+	 * @param ticketIdAllocator : allocator, null for AUTO_INCREMENT IDs
+	 */
+	public void setTicketIdAllocator(TicketIdAllocator ticketIdAllocator) {
+		this.ticketIdAllocator = ticketIdAllocator;
+	}
+
+	/**
+	 * Setter to count imported closed tickets in table monthly_visit, as TicketDAO.setVisitRollup
+	 * @param visitRollup : true to count
+	 */
+	public void setVisitRollup(boolean visitRollup) {
+		this.visitRollup = visitRollup;
+	}
+
+	/**
+	 * Exports all tickets, recent and archived
+	 * @param out : channel written, not closed
+	 * @param format : CSV or BINARY
+	 * @return number of tickets exported or -1 on failure
+	 */
+	public long exportTickets(WritableByteChannel out, Format format) {
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		long exported = 0;
+		try(TicketWriter writer = (format == Format.CSV) ? new CsvTicketWriter(out) : new BinaryTicketWriter(out)) {
+			con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+			con.setAutoCommit(false); //a cursor needs a transaction (MySQL useCursorFetch, H2 lazy results), restored by the pool
+			ps = con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY); //not cached, closed below
+			ps.setFetchSize(fetchSize);
+			rs = ps.executeQuery();
+			while(rs.next()) {
+				//ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+				Timestamp outTime = rs.getTimestamp(6);
+				writer.write(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getDouble(4),
+						rs.getTimestamp(5).getTime(), (outTime == null) ? NO_TIME : outTime.getTime());
+				exported++;
+			}
+			con.commit();
+		} catch(Exception ex) {
+			logger.error("Error exporting tickets after " + exported + " tickets",ex);
+			return -1;
+		} finally {
+			dataBaseConfig.closeResultSet(rs); //will test rs != null
+			dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+			dataBaseConfig.closeConnection(con); //will test con != null
+		}
+		logger.info(exported + " tickets exported as " + format);
+		return exported;
+	}
+
+	/**
+	 * Imports tickets as new ones
+	 * @param in : channel read to its end, not closed
+	 * @param format : CSV or BINARY
+	 * @return number of tickets imported or -1 on failure, tickets of committed transactions are kept
+	 */
+	public long importTickets(ReadableByteChannel in, Format format) {
+		Connection con = null;
+		PreparedStatement ps = null;
+		PreparedStatement claimPs = null;
+		PreparedStatement visitPs = null;
+		long committed = 0;
+		try(TicketReader reader = (format == Format.CSV) ? new CsvTicketReader(in) : new BinaryTicketReader(in)) {
+			con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+			con.setAutoCommit(false); //committed every commitInterval, restored by the pool
+			ps = con.prepareStatement((ticketIdAllocator == null) ? DBConstants.SAVE_TICKET : DBConstants.SAVE_TICKET_WITH_ID); //not cached, closed below
+			claimPs = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+			if(visitRollup) {
+				visitPs = con.prepareStatement(DBConstants.COUNT_MONTHLY_VISIT);
+			}
+			Calendar outTime = Calendar.getInstance();
+			long read = 0;
+			while(reader.next()) {
+				//(ID), PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+				int column = 0;
+				if(ticketIdAllocator != null) {
+					int id = ticketIdAllocator.nextId(); //blocks reserved on another connection
+					if(id < 0) {
+						throw new SQLException("No ticket ID reserved");
+					}
+					ps.setInt(++column, id);
+				}
+				ps.setInt(++column, reader.parkingNumber);
+				ps.setString(++column, reader.vehicleRegNumber);
+				ps.setDouble(++column, reader.price);
+				ps.setTimestamp(++column, new Timestamp(reader.inTime));
+				ps.setTimestamp(++column, (reader.outTime == NO_TIME) ? null : new Timestamp(reader.outTime));
+				ps.addBatch();
+				if(reader.outTime == NO_TIME) { //still in : its spot is taken
+					claimPs.setInt(1, reader.parkingNumber);
+					claimPs.addBatch();
+				} else if(visitPs != null) {
+					outTime.setTimeInMillis(reader.outTime);
+					visitPs.setString(1, reader.vehicleRegNumber);
+					visitPs.setInt(2, TicketDAO.visitMonth(outTime));
+					visitPs.addBatch();
+				}
+				read++;
+				if(read % batchSize == 0 || read % commitInterval == 0) {
+					executeBatches(ps, claimPs, visitPs);
+				}
+				if(read % commitInterval == 0) {
+					con.commit();
+					committed = read;
+				}
+			}
+			executeBatches(ps, claimPs, visitPs);
+			con.commit();
+			committed = read;
+		} catch(Exception ex) {
+			logger.error("Error importing tickets, " + committed + " tickets committed",ex);
+			rollback(con);
+			return -1;
+		} finally {
+			dataBaseConfig.closePreparedStatement(visitPs); //will test visitPs != null
+			dataBaseConfig.closePreparedStatement(claimPs); //will test claimPs != null
+			dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+			dataBaseConfig.closeConnection(con); //will test con != null
+		}
+		logger.info(committed + " tickets imported from " + format);
+		return committed;
+	}
+
+	/**
+	 * Executes the batches of inserts, spot claims and visit counts
+	 * @param ps : inserts of tickets
+	 * @param claimPs : claims of open tickets' spots
+	 * @param visitPs : visit counts of closed tickets, null if no visit rollup
+	 * @throws SQLException : if a statement fails or a spot of an open ticket is already taken
+	 */
+	private static void executeBatches(PreparedStatement ps, PreparedStatement claimPs, PreparedStatement visitPs) throws SQLException {
+		ps.executeBatch();
+		for(int claimCount : claimPs.executeBatch()) {
+			if(claimCount != 1 && claimCount != Statement.SUCCESS_NO_INFO) {
+				throw new SQLException("Parking spot of an open ticket is already taken");
+			}
+		}
+		if(visitPs != null) {
+			visitPs.executeBatch();
+		}
+	}
+
+	private void rollback(Connection con) {
+		if(con != null) {
+			try {
+				con.rollback();
+			} catch(SQLException e) {
+				logger.error("Error while rolling back import", e);
+			}
+		}
+	}
+
+	private interface TicketWriter extends AutoCloseable {
+		void write(int id, int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws IOException;
+
+		@Override
+		void close() throws IOException; //flushes, the channel is not closed
+	}
+
+	/**
+	 * Reads a record per next(), its fields are overwritten by the next one
+	 */
+	private abstract static class TicketReader implements AutoCloseable {
+		protected int parkingNumber;
+		protected String vehicleRegNumber;
+		protected double price;
+		protected long inTime;
+		protected long outTime;
+
+		abstract boolean next() throws IOException;
+
+		@Override
+		public void close() {
+			//the channel is not closed
+		}
+	}
+
+	private static final class CsvTicketWriter implements TicketWriter {
+		private final Writer writer;
+
+		private CsvTicketWriter(WritableByteChannel out) throws IOException {
+			writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+			writer.write(CSV_HEADER);
+			writer.write('\n');
+		}
+
+		@Override
+		public void write(int id, int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws IOException {
+			writer.write(Integer.toString(id));
+			writer.write(',');
+			writer.write(Integer.toString(parkingNumber));
+			writer.write(',');
+			writer.write(quote(vehicleRegNumber));
+			writer.write(',');
+			writer.write(Double.toString(price));
+			writer.write(',');
+			writer.write(new Timestamp(inTime).toString());
+			writer.write(',');
+			if(outTime != NO_TIME) {
+				writer.write(new Timestamp(outTime).toString());
+			}
+			writer.write('\n');
+		}
+
+		private static String quote(String value) {
+			if(value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+				return value;
+			}
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.flush(); //the channel's writer isn't closed, it would close the channel
+		}
+	}
+
+	private static final class CsvTicketReader extends TicketReader {
+		private final BufferedReader reader;
+		private long lineNumber = 1; //header
+
+		private CsvTicketReader(ReadableByteChannel in) throws IOException {
+			Reader channelReader = Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE);
+			reader = new BufferedReader(channelReader, BUFFER_SIZE);
+			String header = reader.readLine();
+			if(header == null || !header.trim().equalsIgnoreCase(CSV_HEADER)) {
+				throw new IOException("CSV header expected : " + CSV_HEADER);
+			}
+		}
+
+		@Override
+		boolean next() throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+				lineNumber++;
+				if(line == null) {
+					return false;
+				}
+			} while(line.trim().isEmpty());
+			List<String> fields = split(line);
+			if(fields.size() != 6) {
+				throw new IOException("Line " + lineNumber + " : 6 fields expected");
+			}
+			try {
+				parkingNumber = Integer.parseInt(fields.get(1).trim());
+				vehicleRegNumber = fields.get(2);
+				price = Double.parseDouble(fields.get(3).trim());
+				inTime = Timestamp.valueOf(fields.get(4).trim()).getTime();
+				outTime = fields.get(5).trim().isEmpty() ? NO_TIME : Timestamp.valueOf(fields.get(5).trim()).getTime();
+			} catch(IllegalArgumentException e) { //NumberFormatException too
+				throw new IOException("Line " + lineNumber + " : " + e.getMessage(), e);
+			}
+			return true;
+		}
+
+		private static List<String> split(String line) {
+			List<String> fields = new ArrayList<>(6);
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			for(int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if(quoted) {
+					if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else if(c == '"') {
+						quoted = false;
+					} else {
+						field.append(c);
+					}
+				} else if(c == '"') {
+					quoted = true;
+				} else if(c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else {
+					field.append(c);
+				}
+			}
+			fields.add(field.toString());
+			return fields;
+		}
+	}
+
+	private static final class BinaryTicketWriter implements TicketWriter {
+		private final WritableByteChannel out;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		private BinaryTicketWriter(WritableByteChannel out) {
+			this.out = out;
+			buffer.putInt(BINARY_MAGIC);
+		}
+
+		@Override
+		public void write(int id, int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws IOException {
+			byte[] regNumber = vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+			if(regNumber.length > Short.MAX_VALUE) {
+				throw new IOException("Vehicle registration number too long");
+			}
+			if(buffer.remaining() < 4 + 4 + 2 + regNumber.length + 8 + 8 + 8) {
+				drain();
+			}
+			buffer.putInt(id).putInt(parkingNumber).putShort((short) regNumber.length).put(regNumber)
+					.putDouble(price).putLong(inTime).putLong(outTime);
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			drain();
+		}
+	}
+
+	private static final class BinaryTicketReader extends TicketReader {
+		private final ReadableByteChannel in;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private boolean endOfChannel = false;
+
+		private BinaryTicketReader(ReadableByteChannel in) throws IOException {
+			this.in = in;
+			buffer.flip(); //empty, ready to read
+			if(!fill(4) || buffer.getInt() != BINARY_MAGIC) {
+				throw new IOException("Not a binary ticket stream");
+			}
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if(!fill(4 + 4 + 2)) {
+				if(buffer.hasRemaining()) {
+					throw new EOFException("Truncated ticket record");
+				}
+				return false;
+			}
+			buffer.getInt(); //ID, a new one is generated
+			parkingNumber = buffer.getInt();
+			int length = buffer.getShort();
+			if(length < 0 || !fill(length + 8 + 8 + 8)) {
+				throw new EOFException("Truncated ticket record");
+			}
+			try {
+				byte[] regNumber = new byte[length];
+				buffer.get(regNumber);
+				vehicleRegNumber = new String(regNumber, StandardCharsets.UTF_8);
+				price = buffer.getDouble();
+				inTime = buffer.getLong();
+				outTime = buffer.getLong();
+			} catch(BufferUnderflowException e) {
+				throw new EOFException("Truncated ticket record");
+			}
+			return true;
+		}
+
+		/**
+		 * Reads the channel until a given number of bytes can be got from the buffer
+		 * @param needed : bytes needed, at most the buffer's capacity
+		 * @return false if the channel ends before
+		 * @throws IOException : if the channel can't be read
+		 */
+		private boolean fill(int needed) throws IOException {
+			if(buffer.remaining() >= needed) {
+				return true;
+			}
+			buffer.compact();
+			while(buffer.position() < needed && !endOfChannel) {
+				if(in.read(buffer) < 0) {
+					endOfChannel = true;
+				}
+			}
+			buffer.flip();
+			return buffer.remaining() >= needed;
+		}
+	}
+}
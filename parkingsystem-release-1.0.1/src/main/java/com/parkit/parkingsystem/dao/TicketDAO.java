@@ -3,13 +3,20 @@ package com.parkit.parkingsystem.dao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
@@ -25,6 +32,12 @@ public class TicketDAO {
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
     private DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    private WriteBehindBuffer writeBehindBuffer; //null : inserts are executed at once
+    private OpenTicketIndex openTicketIndex; //null : open ticket is queried
+    private boolean visitRollup = false; //true : visits counted in table monthly_visit
+    private LoyaltyCache loyaltyCache; //null : recurring user computed on each exit
+    private EventStore eventStore; //null : tickets are inserted and updated in table ticket
+    private TicketIdAllocator ticketIdAllocator; //null : ID generated by AUTO_INCREMENT
 
     /**
      * Setter for SIT tests
@@ -34,28 +47,170 @@ public class TicketDAO {
 		this.dataBaseConfig = dataBaseConfig;
 	}
 
+    /**
+     * Getter to begin a UnitOfWork on the same pool
+     * @return configuration for database access
+     */
+    public DataBaseConfig getDataBaseConfig() {
+        return dataBaseConfig;
+    }
+
+    /**
+     * Setter to turn on write-behind mode : saveTicket() queues its insert in the buffer
+     * @param writeBehindBuffer : buffer shared with ParkingSpotDAO, null to turn it off
+     */
+    public void setWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+        this.writeBehindBuffer = writeBehindBuffer;
+    }
+
+    /**
+     * Setter to read open tickets from an in-process index, see loadOpenTicketIndex()
+     * @param openTicketIndex : index, null to query table ticket
+     */
+    public void setOpenTicketIndex(OpenTicketIndex openTicketIndex) {
+        this.openTicketIndex = openTicketIndex;
+    }
+
+    /**
+     * Setter to count visits in table monthly_visit : updateTicket() increments the month of out time in its transaction
+     * and isRecurringUserTicket() reads last month's count by primary key, see backfillMonthlyVisits()
+     * @param visitRollup : true to use table monthly_visit, false to count table ticket
+     */
+    public void setVisitRollup(boolean visitRollup) {
+        this.visitRollup = visitRollup;
+    }
+
+    /**
+     * Setter to cache recurring user results of last month, see isRecurringUserTicket()
+     * @param loyaltyCache : cache, null to compute on each exit
+     */
+    public void setLoyaltyCache(LoyaltyCache loyaltyCache) {
+        this.loyaltyCache = loyaltyCache;
+    }
+
+    /**
+     * Setter to turn on event-sourced mode : entries and exits are journaled, table ticket is their projection
+     * @param eventStore : store shared with ParkingSpotDAO, null to turn it off
+     */
+    public void setEventStore(EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    /**
+     * Setter to give tickets their ID on creation from blocks reserved in table ticket_id_block, instead of AUTO_INCREMENT
+     * (not used in event-sourced mode, where tickets are journaled by vehicle)
+     * @param ticketIdAllocator : allocator, null to read the generated ID back
+     */
+    public void setTicketIdAllocator(TicketIdAllocator ticketIdAllocator) {
+        this.ticketIdAllocator = ticketIdAllocator;
+    }
+
+    /**
+     * Does a query to load all open tickets into the index
+     * @return boolean : success or failure, on failure the index is not used
+     */
+    public boolean loadOpenTicketIndex() {
+        if(openTicketIndex == null) {
+            return false;
+        }
+        List<Ticket> tickets = getOpenTickets();
+        if(tickets == null) {
+            return false;
+        }
+        openTicketIndex.load(tickets);
+        return true;
+    }
+
+    /**
+     * Does a query to get all open tickets
+     * @return list of Ticket models or null on error
+     */
+    public List<Ticket> getOpenTickets() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            flushPendingWrites(); //reads queued tickets
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_OPEN_TICKETS);
+            rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            while(rs.next()) {
+                tickets.add(readTicket(rs, rs.getString(7)));
+            }
+            return tickets;
+        } catch(Exception ex) {
+            logger.error("Error loading open tickets",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
 	/**
-     * Saves (persists) a new ticket model
+     * Saves (persists) a new ticket model, with an ID from the allocator if any (set in the model before the insert)
      * @param ticket : model
      * @return boolean : true = success or false = failure
      */
     public boolean saveTicket(Ticket ticket){
+        if(!isOfThisLot(ticket)) {
+            return false;
+        }
+        if(eventStore != null) {
+            return eventStore.saveTicket(ticket);
+        }
+        if(!assignTicketId(ticket)) {
+            return false;
+        }
+        if(writeBehindBuffer != null) {
+            if(ticketIdAllocator != null) {
+                indexOpenTicket(ticket); //ID known before the batch
+            } else if(openTicketIndex != null) {
+                openTicketIndex.invalidate(ticket.getVehicleRegNumber()); //ID is generated with the batch, read it from table
+            }
+            CompletableFuture<Boolean> result = queueSaveTicket(ticket);
+            return !(result.isDone() && !result.join()); //true when queued, failure of batch is reported by the buffer
+        }
         Connection con = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         try {
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            int column = 0;
+            if(ticketIdAllocator != null) {
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET_WITH_ID);
+                ps.setInt(++column, ticket.getId());
+            } else {
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET);
+            }
+            //(ID), PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+            ps.setInt(++column,ticket.getParkingSpot().getId());
+            ps.setString(++column, ticket.getVehicleRegNumber());
+            ps.setDouble(++column, ticket.getPrice());
+            ps.setTimestamp(++column, new Timestamp(ticket.getInTime().getTime()));
+            ps.setTimestamp(++column, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+            if(ps.executeUpdate() != 1) { //execute() returns false for an insert
+                return false;
+            }
+            if(ticketIdAllocator != null) {
+                indexOpenTicket(ticket);
+                return true;
+            }
+            rs = ps.getGeneratedKeys();
+            if(rs != null && rs.next()) {
+                ticket.setId(rs.getInt(1));
+                indexOpenTicket(ticket);
+            } else if(openTicketIndex != null) {
+                openTicketIndex.invalidate(ticket.getVehicleRegNumber()); //without ID, read it from table
+            }
+            return true;
         } catch(Exception ex) {
             logger.error("Error persisting ticket",ex);
             return false;
         } finally { //The finally block will be executed even after a return statement in a method.
+        	dataBaseConfig.closeResultSet(rs); //will test rs != null
         	dataBaseConfig.closePreparedStatement(ps); //will test ps != null
             dataBaseConfig.closeConnection(con);//will test con =! null
         }
@@ -66,29 +221,37 @@ public class TicketDAO {
      * vehicle's registration number where out time is null and last time in (order desc, limit 1)
      * "... where p.parking_number = t.parking_number and t.OUT_TIME IS NULL and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1"
      *  
+     * The open ticket index is probed first, table ticket is queried on a miss.
+     * In event-sourced mode, the lot's state is the authority : no query
      * @param vehicleRegNumber : vehicle's registration number
      * @return Ticket model object or null
      */
     public Ticket getTicket(String vehicleRegNumber) {
+        if(eventStore != null) {
+            return eventStore.getTicket(vehicleRegNumber);
+        }
+        if(openTicketIndex != null && openTicketIndex.isLoaded()) {
+            Ticket ticket = openTicketIndex.get(vehicleRegNumber);
+            if(ticket != null) {
+                return ticket;
+            }
+        }
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
         Ticket ticket = null;
         try {
+            flushPendingWrites(); //reads queued tickets
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.GET_TICKET);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
             ps.setString(1,vehicleRegNumber);
             rs = ps.executeQuery();
             if(rs.next()) {
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+                ticket = readTicket(rs, vehicleRegNumber);
+                if(openTicketIndex != null && openTicketIndex.isLoaded() && UnitOfWork.current() == null) {
+                    openTicketIndex.put(ticket); //next lookup is a hit, in a UnitOfWork the row may be uncommitted
+                }
             }
         } catch(Exception ex) {
             logger.error("Error getting ticket",ex);
@@ -106,55 +269,335 @@ public class TicketDAO {
      * @return boolean : true = success or false = failure
      */
     public boolean updateTicket(Ticket ticket) {
+        if(!isOfThisLot(ticket)) {
+            return false;
+        }
+        if(eventStore != null) {
+            return eventStore.updateTicket(ticket); //visits are counted by the projection
+        }
+        if(!visitRollup) {
+            return executeUpdateTicket(ticket, DBConstants.UPDATE_TICKET) >= 0;
+        }
+        try(UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig)) { //joins the exit's one : ticket closed and visit counted together
+            int updateRowCount = executeUpdateTicket(ticket, DBConstants.CLOSE_TICKET);
+            if(updateRowCount == 0) { //stale ID or closed by another gate : its visit is already counted
+                logger.error("Ticket " + ticket.getId() + " not open, visit not counted");
+            }
+            if(updateRowCount == 1 && countMonthlyVisit(ticket)) {
+                unitOfWork.commit(); //throws SQLException will be caught see catch, a joined one lets the exit commit
+                return true;
+            }
+            return false; //close() rolls back, a joined one is rolled back by the exit
+        } catch(SQLException ex) {
+            logger.error("Error saving ticket info",ex);
+            return false;
+        }
+    }
+
+    /**
+     * Executes the update of a ticket's price and out time
+     * @param ticket : model
+     * @param sql : UPDATE_TICKET, or CLOSE_TICKET to update an open ticket only
+     * @return number of rows updated or -1 on error
+     */
+    private int executeUpdateTicket(Ticket ticket, String sql) {
         Connection con = null;
         PreparedStatement ps = null;
         try {
+            flushPendingWrites();
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+            ps = dataBaseConfig.prepareStatement(con, sql);
             ps.setDouble(1, ticket.getPrice());
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             ps.setInt(3,ticket.getId());
-            ps.execute();
-            return true;
+            int updateRowCount = ps.executeUpdate();
+            unindexClosedTicket(ticket);
+            return updateRowCount;
         } catch (Exception ex) {
             logger.error("Error saving ticket info",ex);
-            return false;
+            return -1;
         } finally { //The finally block will be executed even after a return statement in a method.
         	dataBaseConfig.closePreparedStatement(ps); //will test ps != null
         	dataBaseConfig.closeConnection(con); //will test con != null
         }
     }
 
+    /**
+     * Increments the visits of the ticket's vehicle for the month of its out time
+     * @param ticket : closed model
+     * @return boolean : true = success or false = failure
+     */
+    private boolean countMonthlyVisit(Ticket ticket) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection(); //the UnitOfWork's one, throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.COUNT_MONTHLY_VISIT);
+            Calendar outTime = new GregorianCalendar();
+            outTime.setTime(ticket.getOutTime());
+            ps.setString(1, ticket.getVehicleRegNumber());
+            ps.setInt(2, visitMonth(outTime));
+            ps.executeUpdate();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error counting monthly visit",ex);
+            return false;
+        } finally {
+        	dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+        	dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
+    /**
+     * Rebuilds table monthly_visit from table ticket in one transaction, a one-off job to run
+     * before turning visit rollup on (no exit must be processed meanwhile)
+     * @return number of (vehicle, month) rows counted or -1 on failure
+     */
+    public int backfillMonthlyVisits() {
+        try(UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig)) { //cleared and counted together
+            int rows = executeBackfillMonthlyVisits();
+            if(rows >= 0) {
+                unitOfWork.commit(); //throws SQLException, will be caught see catch
+            }
+            return rows; //on failure close() rolls back
+        } catch(SQLException ex) {
+            logger.error("Error backfilling monthly visits",ex);
+            return -1;
+        }
+    }
+
+    private int executeBackfillMonthlyVisits() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            flushPendingWrites(); //counts queued tickets
+            con = dataBaseConfig.getConnection(); //the UnitOfWork's one, throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.CLEAR_MONTHLY_VISITS);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.BACKFILL_MONTHLY_VISITS);
+            return ps.executeUpdate();
+        } catch(Exception ex) {
+            logger.error("Error backfilling monthly visits",ex);
+            return -1;
+        } finally {
+        	dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+        	dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
+    /**
+     * Moves closed tickets out before a given time from table ticket to table ticket_archive in one transaction
+     * @param cutoff : tickets with an out time before are archived
+     * @return number of tickets archived or -1 on failure (none is moved)
+     */
+    public int archiveTickets(Date cutoff) {
+        try(UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig)) { //copied and deleted together
+            int archived = executeArchiveTickets(new Timestamp(cutoff.getTime()));
+            if(archived >= 0) {
+                unitOfWork.commit(); //throws SQLException, will be caught see catch
+            }
+            return archived; //on failure close() rolls back
+        } catch(SQLException ex) {
+            logger.error("Error archiving tickets",ex);
+            return -1;
+        }
+    }
+
+    private int executeArchiveTickets(Timestamp cutoff) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            flushPendingWrites();
+            con = dataBaseConfig.getConnection(); //the UnitOfWork's one, throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.ARCHIVE_TICKETS);
+            ps.setTimestamp(1, cutoff);
+            int archived = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.PURGE_ARCHIVED_TICKETS);
+            ps.setTimestamp(1, cutoff);
+            int purged = ps.executeUpdate();
+            if(purged != archived) {
+                logger.error("Archived " + archived + " tickets but purged " + purged);
+                return -1;
+            }
+            return archived;
+        } catch(Exception ex) {
+            logger.error("Error archiving tickets",ex);
+            return -1;
+        } finally {
+        	dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+        	dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
+    /**
+     * Does a query to get all closed tickets of a vehicle, recent and archived, for reporting (not on the hot path)
+     * @param vehicleRegNumber : vehicle's registration number
+     * @return list of Ticket models, last in first, or null on error
+     */
+    public List<Ticket> getTicketHistory(String vehicleRegNumber) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            flushPendingWrites();
+            con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET_HISTORY);
+            ps.setString(1, vehicleRegNumber);
+            ps.setString(2, vehicleRegNumber);
+            rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            while(rs.next()) {
+                tickets.add(readTicket(rs, vehicleRegNumber));
+            }
+            return tickets;
+        } catch(Exception ex) {
+            logger.error("Error getting ticket history",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs); //will test rs != null
+            dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+            dataBaseConfig.closeConnection(con); //will test con != null
+        }
+    }
+
+    /**
+     * Key of a month in table monthly_visit, same as year(OUT_TIME)*100 + month(OUT_TIME)
+     * @param date : a date of the month
+     * @return YYYYMM
+     */
+    static int visitMonth(Calendar date) {
+        return date.get(Calendar.YEAR) * 100 + date.get(Calendar.MONTH) + 1;
+    }
+
+    /**
+     * Reads a row of GET_TICKET or GET_OPEN_TICKETS
+     * @param rs : ResultSet on the row
+     * @param vehicleRegNumber : vehicle's registration number
+     * @return Ticket model object
+     * @throws SQLException : if a column can't be read
+     */
+    private Ticket readTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        //PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, TYPE
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+        parkingSpot.setLotId(dataBaseConfig.getLotId());
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setLotId(dataBaseConfig.getLotId());
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        return ticket;
+    }
+
+    /**
+     * Reports a saved ticket into the open ticket index : in a UnitOfWork on commit only
+     * @param ticket : saved model with its generated ID
+     */
+    private void indexOpenTicket(Ticket ticket) {
+        if(openTicketIndex == null) {
+            return;
+        }
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if(unitOfWork == null) {
+            openTicketIndex.put(ticket);
+        } else {
+            unitOfWork.afterCommit(() -> openTicketIndex.put(ticket));
+        }
+    }
+
+    /**
+     * Reports a closed ticket into the open ticket index : in a UnitOfWork on commit only, it is still open on rollback
+     * @param ticket : updated model
+     */
+    private void unindexClosedTicket(Ticket ticket) {
+        if(openTicketIndex == null || ticket.getOutTime() == null) {
+            return;
+        }
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if(unitOfWork == null) {
+            openTicketIndex.remove(ticket);
+        } else {
+            unitOfWork.afterCommit(() -> openTicketIndex.remove(ticket));
+        }
+    }
+
+    /**
+     * Tests if a ticket is routed to the lot of this DAO's configuration
+     * @param ticket : model, with its lot or not yet routed
+     * @return boolean : false if of another lot, logged
+     */
+    private boolean isOfThisLot(Ticket ticket) {
+        if(dataBaseConfig.isOfLot(ticket.getLotId())) {
+            return true;
+        }
+        logger.error("Ticket of lot " + ticket.getLotId() + " routed to lot " + dataBaseConfig.getLotId());
+        return false;
+    }
+
 	/**
-	 * How many times user get parked last month
+	 * How many times user get parked last month, read from the LoyaltyCache if set
 	 * @param ticket : the pointer to object
 	 * @return Boolean : true if user parked at least 11 times last month 
 	 */
     public Boolean isRecurringUserTicket(Ticket ticket) {
+        if(loyaltyCache == null) {
+            return queryRecurringUserTicket(ticket);
+        }
+        Calendar lastMonth = new GregorianCalendar();
+        lastMonth.setTime(ticket.getInTime());
+        lastMonth.set(Calendar.DATE, 1);
+        lastMonth.add(Calendar.MONTH, -1);
+        int month = visitMonth(lastMonth);
+        Boolean isRecurring = loyaltyCache.get(ticket.getVehicleRegNumber(), month, System.currentTimeMillis());
+        if(isRecurring == null) {
+            isRecurring = queryRecurringUserTicket(ticket);
+            if(isRecurring != null) { //errors are not cached
+                loyaltyCache.put(ticket.getVehicleRegNumber(), month, isRecurring, System.currentTimeMillis());
+            }
+        }
+        return isRecurring;
+    }
+
+    private Boolean queryRecurringUserTicket(Ticket ticket) {
+        if(eventStore != null && eventStore.isOffline()) { //no wait for a connection at the exit
+            logger.warn("Database unreachable, loyalty of vehicle " + ticket.getVehicleRegNumber() + " not checked");
+            return null;
+        }
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
 
         int times = 0;
         try {
+            flushPendingWrites();
             con = dataBaseConfig.getConnection(); //throws ClassNotFoundException, SQLException will be caught see catch
-            ps = con.prepareStatement(DBConstants.GET_TIMES); // LAST_MONTH_BEGIN, LAST_MONT_END, VEHICLE_REG_NUMBER
             Calendar lastMonthBegin = new GregorianCalendar();
             lastMonthBegin.setTime(ticket.getInTime());
             lastMonthBegin.set(Calendar.DATE, 1); //set date at the begin of month
             lastMonthBegin.add(Calendar.MONTH, -1); //Add rule example : 01/01/2022 Calling add(Calendar.MONTH, -1) sets the calendar to 01/12/2021
-            Calendar lastMonthEnd = (GregorianCalendar)lastMonthBegin.clone();
-            lastMonthBegin.set(Calendar.HOUR_OF_DAY, 0);
-            lastMonthBegin.set(Calendar.MINUTE, 0);
-            lastMonthBegin.set(Calendar.SECOND, 0);
-            lastMonthEnd.set(Calendar.DATE, lastMonthEnd.getActualMaximum(Calendar.DATE));//Go to the last day of Month 
-            lastMonthEnd.set(Calendar.HOUR_OF_DAY, 23);
-            lastMonthEnd.set(Calendar.MINUTE, 59);
-            lastMonthEnd.set(Calendar.SECOND, 59);
-            
-            ps.setTimestamp(1, new Timestamp(lastMonthBegin.getTimeInMillis()));
-            ps.setTimestamp(2, new Timestamp(lastMonthEnd.getTimeInMillis()));
-            ps.setString(3, ticket.getVehicleRegNumber());
+            if(visitRollup) { //primary key lookup whatever the size of table ticket
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_MONTHLY_VISITS); // VEHICLE_REG_NUMBER, VISIT_MONTH
+                ps.setString(1, ticket.getVehicleRegNumber());
+                ps.setInt(2, visitMonth(lastMonthBegin));
+            } else {
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TIMES); // LAST_MONTH_BEGIN, LAST_MONT_END, VEHICLE_REG_NUMBER
+                Calendar lastMonthEnd = (GregorianCalendar)lastMonthBegin.clone();
+                lastMonthBegin.set(Calendar.HOUR_OF_DAY, 0);
+                lastMonthBegin.set(Calendar.MINUTE, 0);
+                lastMonthBegin.set(Calendar.SECOND, 0);
+                lastMonthEnd.set(Calendar.DATE, lastMonthEnd.getActualMaximum(Calendar.DATE));//Go to the last day of Month 
+                lastMonthEnd.set(Calendar.HOUR_OF_DAY, 23);
+                lastMonthEnd.set(Calendar.MINUTE, 59);
+                lastMonthEnd.set(Calendar.SECOND, 59);
+                
+                ps.setTimestamp(1, new Timestamp(lastMonthBegin.getTimeInMillis()));
+                ps.setTimestamp(2, new Timestamp(lastMonthEnd.getTimeInMillis()));
+                ps.setString(3, ticket.getVehicleRegNumber());
+            }
             rs = ps.executeQuery();
             if(rs.next()){
             times = rs.getInt(1);
@@ -169,4 +612,62 @@ public class TicketDAO {
         }
         return times>10;
 	}
-}
\ No newline at end of file
+
+    /**
+     * Queues the insert of a new ticket in the write-behind buffer
+     * @param ticket : model, its values are copied
+     * @return future completed with true when the batch inserted the row, false on failure
+     */
+    public CompletableFuture<Boolean> queueSaveTicket(Ticket ticket) {
+        if(writeBehindBuffer == null) {
+            return CompletableFuture.completedFuture(saveTicket(ticket));
+        }
+        if(!assignTicketId(ticket)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        int parkingNumber = ticket.getParkingSpot().getId();
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        double price = ticket.getPrice();
+        Timestamp inTime = new Timestamp(ticket.getInTime().getTime());
+        Timestamp outTime = (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime()));
+        int id = ticket.getId();
+        boolean withId = ticketIdAllocator != null;
+        return writeBehindBuffer.submit(withId ? DBConstants.SAVE_TICKET_WITH_ID : DBConstants.SAVE_TICKET, ps -> {
+            int column = 0;
+            if(withId) {
+                ps.setInt(++column, id);
+            }
+            ps.setInt(++column, parkingNumber);
+            ps.setString(++column, vehicleRegNumber);
+            ps.setDouble(++column, price);
+            ps.setTimestamp(++column, inTime);
+            ps.setTimestamp(++column, outTime);
+        });
+    }
+
+    /**
+     * Gives a new ticket its ID from the allocator, if any and not given yet
+     * @param ticket : model
+     * @return false if no ID could be reserved
+     */
+    private boolean assignTicketId(Ticket ticket) {
+        if(ticketIdAllocator == null || ticket.getId() > 0) {
+            return true;
+        }
+        int id = ticketIdAllocator.nextId();
+        if(id < 0) {
+            return false;
+        }
+        ticket.setId(id);
+        return true;
+    }
+
+    private void flushPendingWrites() {
+        if(writeBehindBuffer != null) {
+            writeBehindBuffer.flush(); //queued tickets are in table before reading or updating them
+        }
+        if(eventStore != null) {
+            eventStore.project(); //journaled entries and exits are in table before reading them
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Hi/lo allocation of ticket IDs : a block of blockSize IDs is reserved in table ticket_id_block in one transaction
+ * (NEXT_ID incremented then read, the row is locked meanwhile so nodes get disjoint blocks), then IDs are given locally.
+ * A ticket carries its ID from creation instead of reading AUTO_INCREMENT back. IDs of a block not used
+ * before a restart are skipped, never reused. The reservation has its own connection : it is kept even if
+ * the UnitOfWork of the calling gate rolls back. Thread safe
+ * @author Olivier MOREL
+ *
+ */
+public class TicketIdAllocator {
+
+	private static final Logger logger = LogManager.getLogger("TicketIdAllocator");
+
+	private final DataBaseConfig dataBaseConfig;
+	private final int blockSize;
+	private int nextId = 0; //guarded by this
+	private int blockEnd = 0; //guarded by this, first ID not reserved
+
+	/**
+	 * Constructor
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @param blockSize : IDs reserved per round trip
+	 */
+	public TicketIdAllocator(DataBaseConfig dataBaseConfig, int blockSize) {
+		if(blockSize < 1) {
+			throw new IllegalArgumentException("Ticket ID block size must be positive");
+		}
+		this.dataBaseConfig = dataBaseConfig;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Allocator sized with -Dparkingsystem.ticketIds.blockSize (default 100)
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @return TicketIdAllocator object
+	 */
+	public static TicketIdAllocator fromSystemProperties(DataBaseConfig dataBaseConfig) {
+		return new TicketIdAllocator(dataBaseConfig, Integer.getInteger("parkingsystem.ticketIds.blockSize", 100));
+	}
+
+	/**
+	 * Next ticket ID, reserves a block when the current one is used up
+	 * @return ID or -1 if a block can't be reserved, logged
+	 */
+	public synchronized int nextId() {
+		if(nextId == blockEnd && !reserveBlock()) {
+			return -1;
+		}
+		return nextId++;
+	}
+
+	private boolean reserveBlock() {
+		ConnectionPool connectionPool = dataBaseConfig.getConnectionPool();
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			con = connectionPool.borrow(); //not the UnitOfWork's connection of the calling thread
+			con.setAutoCommit(false);
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.RESERVE_TICKET_IDS);
+			ps.setInt(1, blockSize);
+			if(ps.executeUpdate() != 1) {
+				logger.error("No row in table ticket_id_block");
+				return false;
+			}
+			dataBaseConfig.closePreparedStatement(ps);
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET_ID_BLOCK);
+			rs = ps.executeQuery();
+			if(!rs.next()) {
+				logger.error("No row in table ticket_id_block");
+				return false;
+			}
+			int end = rs.getInt(1);
+			con.commit();
+			blockEnd = end;
+			nextId = end - blockSize;
+			logger.debug("Ticket IDs " + nextId + " to " + (blockEnd - 1) + " reserved");
+			return true;
+		} catch(SQLException | RuntimeException ex) {
+			logger.error("Error reserving ticket IDs",ex);
+			return false;
+		} finally { //a failed reservation is rolled back by release()
+			dataBaseConfig.closeResultSet(rs); //will test rs != null
+			dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+			if(con != null) {
+				connectionPool.release(con);
+			}
+		}
+	}
+}
@@ -0,0 +1,358 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+
+/**
+ * Write-behind mode of DAOs : writes (SAVE_TICKET, UPDATE_PARKING_SPOT) are queued and executed later
+ * with addBatch/executeBatch, one transaction per batch, when maxBatchSize writes are waiting
+ * or flushIntervalMillis after the last flush.
+ *  - memory is bounded : when capacity writes are waiting, submit() waits up to offerTimeoutMillis then fails
+ *  - each write gets a CompletableFuture completed with true (one row updated) or false
+ *  - batch listeners get a BatchReport for each batch executed
+ *  - shutdown() (and JVM shutdown) flushes all waiting writes
+ *  - writes submitted in a UnitOfWork are queued only when it commits, dropped when it rolls back
+ *
+ * Queued writes are grouped by SQL, so only writes to independent rows must go through this buffer.
+ * Reading DAOs call flush() first to read their own writes, or flush(sql, key) for the writes they depend on only.
+ * @author Olivier MOREL
+ *
+ */
+public class WriteBehindBuffer {
+
+	private static final Logger logger = LogManager.getLogger("WriteBehindBuffer");
+
+	private final DataBaseConfig dataBaseConfig;
+	private final int maxBatchSize;
+	private final long flushIntervalMillis;
+	private final long offerTimeoutMillis;
+	private final BlockingQueue<PendingWrite> pendingWrites;
+	private final Object flushLock = new Object(); //one batch executed at a time, in submission order
+	private final Object flushSignal = new Object(); //wakes flusher up when a batch is full
+	private final List<Consumer<BatchReport>> batchListeners = new CopyOnWriteArrayList<>();
+	private final Thread flusher;
+	private final Thread shutdownHook;
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor, starts the flusher daemon thread
+	 * @param dataBaseConfig : configuration whose pool gives batch connections
+	 * @param capacity : maximum number of waiting writes
+	 * @param maxBatchSize : number of writes flushed at once
+	 * @param flushIntervalMillis : maximum delay before a write is flushed
+	 * @param offerTimeoutMillis : maximum wait of submit() when buffer is full
+	 */
+	public WriteBehindBuffer(DataBaseConfig dataBaseConfig, int capacity, int maxBatchSize, long flushIntervalMillis, long offerTimeoutMillis) {
+		if(capacity < 1 || maxBatchSize < 1 || flushIntervalMillis < 1) {
+			throw new IllegalArgumentException("Invalid write-behind buffer sizing");
+		}
+		this.dataBaseConfig = dataBaseConfig;
+		this.maxBatchSize = maxBatchSize;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.offerTimeoutMillis = offerTimeoutMillis;
+		this.pendingWrites = new ArrayBlockingQueue<>(capacity);
+		flusher = new Thread(this::runFlusher, "WriteBehindBuffer-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		shutdownHook = new Thread(this::flush, "WriteBehindBuffer-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook); //writes waiting at JVM exit are not lost
+	}
+
+	/**
+	 * Buffer sized with -Dparkingsystem.writeBehind.capacity=... maxBatchSize, flushIntervalMillis, offerTimeoutMillis
+	 * @param dataBaseConfig : configuration whose pool gives batch connections
+	 * @return WriteBehindBuffer object
+	 */
+	public static WriteBehindBuffer fromSystemProperties(DataBaseConfig dataBaseConfig) {
+		return new WriteBehindBuffer(dataBaseConfig,
+				Integer.getInteger("parkingsystem.writeBehind.capacity", 1000),
+				Integer.getInteger("parkingsystem.writeBehind.maxBatchSize", 50),
+				Long.getLong("parkingsystem.writeBehind.flushIntervalMillis", 200L),
+				Long.getLong("parkingsystem.writeBehind.offerTimeoutMillis", 1000L));
+	}
+
+	/**
+	 * Registers a listener told of each batch's result
+	 * @param batchListener : listener, called by the flushing thread
+	 */
+	public void addBatchListener(Consumer<BatchReport> batchListener) {
+		batchListeners.add(batchListener);
+	}
+
+	/**
+	 * Queues a write, or registers it to be queued when the UnitOfWork opened on this thread commits
+	 * @param sql : statement, a DBConstants entry
+	 * @param binder : sets the statement's parameters, with values copied at submission
+	 * @return future completed with true if one row is updated, false on failure
+	 */
+	public CompletableFuture<Boolean> submit(String sql, StatementBinder binder) {
+		return submit(sql, null, binder);
+	}
+
+	/**
+	 * Queues a write with a key, see flush(sql, key)
+	 * @param sql : statement, a DBConstants entry
+	 * @param key : groups writes a reader depends on (e.g. the spot's type), null if none
+	 * @param binder : sets the statement's parameters, with values copied at submission
+	 * @return future completed with true if one row is updated, false on failure
+	 */
+	public CompletableFuture<Boolean> submit(String sql, Object key, StatementBinder binder) {
+		PendingWrite pendingWrite = new PendingWrite(sql, key, binder);
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork != null) {
+			unitOfWork.afterCommit(() -> enqueue(pendingWrite));
+			unitOfWork.afterRollback(() -> pendingWrite.result.complete(false));
+		} else {
+			enqueue(pendingWrite);
+		}
+		return pendingWrite.result;
+	}
+
+	/**
+	 * Executes all waiting writes in the calling thread
+	 */
+	public void flush() {
+		synchronized(flushLock) {
+			List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+			while(pendingWrites.drainTo(batch, maxBatchSize) > 0) {
+				executeBatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Executes in the calling thread the waiting writes of a statement and key only, other writes stay queued
+	 * @param sql : statement, a DBConstants entry
+	 * @param key : writes of this key and writes submitted without key are executed, null for all writes of the statement
+	 */
+	public void flush(String sql, Object key) {
+		synchronized(flushLock) {
+			List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+			Iterator<PendingWrite> iterator = pendingWrites.iterator();
+			while(iterator.hasNext()) {
+				PendingWrite pendingWrite = iterator.next();
+				if(pendingWrite.sql.equals(sql) && (key == null || pendingWrite.key == null || key.equals(pendingWrite.key))) {
+					iterator.remove();
+					batch.add(pendingWrite);
+					if(batch.size() == maxBatchSize) {
+						executeBatch(batch);
+						batch.clear();
+					}
+				}
+			}
+			if(!batch.isEmpty()) {
+				executeBatch(batch);
+			}
+		}
+	}
+
+	/**
+	 * Refuses new writes, flushes waiting ones and stops the flusher
+	 */
+	public void shutdown() {
+		closed = true;
+		synchronized(flushSignal) {
+			flushSignal.notifyAll();
+		}
+		try {
+			flusher.join(flushIntervalMillis * 2);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e) {
+			//JVM is already shutting down, the hook runs anyway
+		}
+	}
+
+	/**
+	 * Number of writes waiting
+	 * @return size of the queue
+	 */
+	public int getPendingCount() {
+		return pendingWrites.size();
+	}
+
+	private void enqueue(PendingWrite pendingWrite) {
+		if(closed) {
+			logger.error("Write-behind buffer is shut down, write refused");
+			pendingWrite.result.complete(false);
+			return;
+		}
+		try {
+			if(!pendingWrites.offer(pendingWrite, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				logger.error("Write-behind buffer is full, write refused");
+				pendingWrite.result.complete(false);
+				return;
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pendingWrite.result.complete(false);
+			return;
+		}
+		if(pendingWrites.size() >= maxBatchSize) {
+			synchronized(flushSignal) {
+				flushSignal.notifyAll();
+			}
+		}
+	}
+
+	private void runFlusher() {
+		while(!closed) {
+			try {
+				synchronized(flushSignal) {
+					if(pendingWrites.size() < maxBatchSize && !closed) {
+						flushSignal.wait(flushIntervalMillis);
+					}
+				}
+				flush();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch(Exception e) {
+				logger.error("Unexpected error flushing write-behind buffer", e);
+			}
+		}
+	}
+
+	private void executeBatch(List<PendingWrite> batch) {
+		long start = System.nanoTime();
+		Map<String, List<PendingWrite>> writesBySql = new LinkedHashMap<>();
+		batch.forEach(pendingWrite -> writesBySql.computeIfAbsent(pendingWrite.sql, sql -> new ArrayList<>()).add(pendingWrite));
+		Map<PendingWrite, Boolean> results = new LinkedHashMap<>();
+		ConnectionPool connectionPool = dataBaseConfig.getConnectionPool();
+		Connection con = null;
+		SQLException failure = null;
+		try {
+			con = connectionPool.borrow(); //not the UnitOfWork's connection of the calling thread
+			con.setAutoCommit(false);
+			for(Map.Entry<String, List<PendingWrite>> entry : writesBySql.entrySet()) {
+				PreparedStatement ps = dataBaseConfig.prepareStatement(con, entry.getKey());
+				try {
+					for(PendingWrite pendingWrite : entry.getValue()) {
+						pendingWrite.binder.bind(ps);
+						ps.addBatch();
+					}
+					int[] updateCounts = ps.executeBatch();
+					for(int i = 0; i < entry.getValue().size(); i++) {
+						results.put(entry.getValue().get(i), i < updateCounts.length
+								&& (updateCounts[i] == 1 || updateCounts[i] == Statement.SUCCESS_NO_INFO));
+					}
+				} finally {
+					dataBaseConfig.closePreparedStatement(ps);
+				}
+			}
+			con.commit();
+		} catch(SQLException e) {
+			logger.error("Error executing write-behind batch of " + batch.size() + " writes", e);
+			failure = e;
+			results.clear(); //rolled back by release()
+		} catch(RuntimeException e) {
+			logger.error("Unexpected error executing write-behind batch of " + batch.size() + " writes", e);
+			failure = new SQLException(e);
+			results.clear();
+		} finally {
+			if(con != null) {
+				connectionPool.release(con);
+			}
+		}
+		int succeeded = 0;
+		for(PendingWrite pendingWrite : batch) {
+			boolean success = results.getOrDefault(pendingWrite, false);
+			if(success) {
+				succeeded++;
+			}
+			pendingWrite.result.complete(success);
+		}
+		BatchReport batchReport = new BatchReport(batch.size(), succeeded, failure, System.nanoTime() - start);
+		batchListeners.forEach(listener -> listener.accept(batchReport));
+	}
+
+	/**
+	 * Sets a queued statement's parameters
+	 */
+	@FunctionalInterface
+	public interface StatementBinder {
+		void bind(PreparedStatement ps) throws SQLException;
+	}
+
+	/**
+	 * Result of one executed batch
+	 */
+	public static final class BatchReport {
+		private final int size;
+		private final int succeeded;
+		private final SQLException failure; //null if batch is committed
+		private final long elapsedNanos;
+
+		private BatchReport(int size, int succeeded, SQLException failure, long elapsedNanos) {
+			this.size = size;
+			this.succeeded = succeeded;
+			this.failure = failure;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getSucceeded() {
+			return succeeded;
+		}
+
+		public int getFailed() {
+			return size - succeeded;
+		}
+
+		public SQLException getFailure() {
+			return failure;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "batch size=" + size + ", succeeded=" + succeeded + ", failed=" + getFailed()
+					+ ", elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms"
+					+ (failure == null ? "" : ", failure=" + failure.getMessage());
+		}
+	}
+
+	private static final class PendingWrite {
+		private final String sql;
+		private final Object key;
+		private final StatementBinder binder;
+		private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+		private PendingWrite(String sql, Object key, StatementBinder binder) {
+			this.sql = sql;
+			this.key = key;
+			this.binder = binder;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * In-memory allocation of the nearest free spot to a gate :
+ *  - spots are tagged with zone and level (table parking) and a distance from each gate (table gate_distance)
+ *  - for each type, every gate has an indexed min-heap of free spots by (distance, number),
+ *    so claim() polls the nearest one in O(log n) and removes it from the other gates' heaps in O(log n) each
+ *  - a spot without distance for a gate comes after the measured ones, lowest number first
+ * Claims are persisted asynchronously, releases in the UnitOfWork if one is opened (see SpotPersister).
+ * ParkingService uses the view of its gate, see forGate(). Authoritative only if this JVM is the only one writing table parking
+ * @author Olivier MOREL
+ *
+ */
+public class ZoneAwareSpotAllocator {
+
+	public static final String DEFAULT_GATE = "MAIN"; //only gate if no distances
+
+	private static final Logger logger = LogManager.getLogger("ZoneAwareSpotAllocator");
+
+	private final Map<ParkingType, Map<String, IndexedMinHeap>> heapsByType = new EnumMap<>(ParkingType.class); //each map is its type's lock
+	private final Map<String, long[]> prioritiesByGate = new TreeMap<>(); //by spot's number
+	private final ParkingSpot[] parkingSpots; //by spot's number, null if unknown
+	private final SpotPersister spotPersister;
+
+	/**
+	 * Constructor
+	 * @param parkingSpots : all spots with their availability, zone and level, e.g. ParkingSpotDAO.getParkingSpots()
+	 * @param gateDistances : gate -> (spot's number -> distance), e.g. ParkingSpotDAO.getGateDistances(), empty for one DEFAULT_GATE
+	 * @param parkingSpotDAO : DAO persisting claims and releases, null for no persistence
+	 * @param asyncDAOExecutor : executor of asynchronous persistence, null if no DAO
+	 */
+	public ZoneAwareSpotAllocator(List<ParkingSpot> parkingSpots, Map<String, Map<Integer, Integer>> gateDistances,
+			ParkingSpotDAO parkingSpotDAO, AsyncDAOExecutor asyncDAOExecutor) {
+		this.spotPersister = new SpotPersister(parkingSpotDAO, asyncDAOExecutor);
+		int maxNumber = parkingSpots.stream().mapToInt(ParkingSpot::getId).max().orElse(0);
+		this.parkingSpots = new ParkingSpot[maxNumber + 1];
+		parkingSpots.forEach(parkingSpot -> this.parkingSpots[parkingSpot.getId()] = new ParkingSpot(parkingSpot.getId(),
+				parkingSpot.getParkingType(), false, parkingSpot.getZone(), parkingSpot.getLevel()));
+		Map<String, Map<Integer, Integer>> distances = gateDistances.isEmpty() ?
+				Collections.singletonMap(DEFAULT_GATE, Collections.emptyMap()) : gateDistances;
+		distances.forEach((gate, distanceOfSpot) -> {
+			long[] priorities = new long[maxNumber + 1];
+			for(int number = 1; number <= maxNumber; number++) { //distance in high bits, number breaks ties
+				priorities[number] = ((long) distanceOfSpot.getOrDefault(number, Integer.MAX_VALUE) << 32) | number;
+			}
+			prioritiesByGate.put(gate, priorities);
+		});
+		for(ParkingSpot parkingSpot : parkingSpots) {
+			Map<String, IndexedMinHeap> heaps = heapsByType.computeIfAbsent(parkingSpot.getParkingType(), type -> {
+				Map<String, IndexedMinHeap> heapOfGate = new TreeMap<>();
+				prioritiesByGate.keySet().forEach(gate -> heapOfGate.put(gate, new IndexedMinHeap(maxNumber)));
+				return heapOfGate;
+			});
+			if(parkingSpot.isAvailable()) {
+				heaps.forEach((gate, heap) -> heap.insert(parkingSpot.getId(), prioritiesByGate.get(gate)[parkingSpot.getId()]));
+			}
+		}
+	}
+
+	/**
+	 * Loads spots and gates' distances from tables parking and gate_distance
+	 * @param parkingSpotDAO : DAO reading and persisting spots
+	 * @param asyncDAOExecutor : executor of asynchronous persistence
+	 * @return ZoneAwareSpotAllocator object or null if spots or distances can't be loaded
+	 */
+	public static ZoneAwareSpotAllocator load(ParkingSpotDAO parkingSpotDAO, AsyncDAOExecutor asyncDAOExecutor) {
+		List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+		Map<String, Map<Integer, Integer>> gateDistances = parkingSpotDAO.getGateDistances();
+		return (parkingSpots == null || gateDistances == null) ? null
+				: new ZoneAwareSpotAllocator(parkingSpots, gateDistances, parkingSpotDAO, asyncDAOExecutor);
+	}
+
+	/**
+	 * Known gates
+	 * @return gates' names, sorted
+	 */
+	public SortedSet<String> getGates() {
+		return new TreeSet<>(prioritiesByGate.keySet());
+	}
+
+	/**
+	 * SpotAllocator of a gate, to plug in its ParkingService
+	 * @param gate : gate's name
+	 * @return allocator claiming the nearest spots to this gate
+	 * @throws IllegalArgumentException if gate is unknown
+	 */
+	public SpotAllocator forGate(String gate) {
+		if(!prioritiesByGate.containsKey(gate)) {
+			throw new IllegalArgumentException("Unknown gate " + gate);
+		}
+		return new SpotAllocator() {
+			@Override
+			public int claim(ParkingType parkingType) {
+				return ZoneAwareSpotAllocator.this.claim(gate, parkingType);
+			}
+
+			@Override
+			public boolean release(ParkingSpot parkingSpot) {
+				return ZoneAwareSpotAllocator.this.release(parkingSpot);
+			}
+		};
+	}
+
+	/**
+	 * Claims the nearest available spot of a given type to a gate
+	 * @param gate : gate's name
+	 * @param parkingType : given vehicule's type
+	 * @return the claimed spot's number, 0 if none available, -1 if gate is unknown
+	 */
+	public int claim(String gate, ParkingType parkingType) {
+		Map<String, IndexedMinHeap> heaps = heapsByType.get(parkingType);
+		if(heaps == null) {
+			return 0;
+		}
+		int parkingNumber;
+		synchronized(heaps) {
+			IndexedMinHeap heap = heaps.get(gate);
+			if(heap == null) {
+				logger.error("Unknown gate " + gate);
+				return -1;
+			}
+			parkingNumber = heap.pollMin();
+			if(parkingNumber < 0) {
+				return 0;
+			}
+			for(IndexedMinHeap otherHeap : heaps.values()) {
+				otherHeap.remove(parkingNumber);
+			}
+		}
+		spotPersister.persistAsync(new ParkingSpot(parkingNumber, parkingType, false));
+		return parkingNumber;
+	}
+
+	/**
+	 * Gives a spot back to all gates, in the UnitOfWork opened on this thread if any
+	 * @param parkingSpot : spot, set available by this method
+	 * @return true if released
+	 */
+	public boolean release(ParkingSpot parkingSpot) {
+		int parkingNumber = parkingSpot.getId();
+		if(parkingNumber <= 0 || parkingNumber >= parkingSpots.length || parkingSpots[parkingNumber] == null) {
+			logger.error("Unknown parking spot " + parkingNumber);
+			return false;
+		}
+		ParkingType parkingType = parkingSpots[parkingNumber].getParkingType();
+		parkingSpot.setAvailable(true);
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if(unitOfWork != null) {
+			if(!spotPersister.persistNow(parkingSpot)) { //persisted with the UnitOfWork, after the claim
+				return false;
+			}
+			unitOfWork.afterCommit(() -> free(parkingType, parkingNumber)); //no other gate gets it before commit
+			return true;
+		}
+		if(!free(parkingType, parkingNumber)) {
+			logger.warn("Parking spot " + parkingNumber + " already free");
+			return false;
+		}
+		spotPersister.persistAsync(new ParkingSpot(parkingNumber, parkingType, true));
+		return true;
+	}
+
+	/**
+	 * Zone and level of a spot, e.g. to guide the driver
+	 * @param parkingNumber : spot's number
+	 * @return copy of the spot (availability not kept up to date) or null if unknown
+	 */
+	public ParkingSpot getParkingSpot(int parkingNumber) {
+		if(parkingNumber <= 0 || parkingNumber >= parkingSpots.length || parkingSpots[parkingNumber] == null) {
+			return null;
+		}
+		ParkingSpot parkingSpot = parkingSpots[parkingNumber];
+		return new ParkingSpot(parkingNumber, parkingSpot.getParkingType(), false, parkingSpot.getZone(), parkingSpot.getLevel());
+	}
+
+	/**
+	 * Number of free spots of a given type
+	 * @param parkingType : given vehicule's type
+	 * @return count of free spots
+	 */
+	public int countAvailable(ParkingType parkingType) {
+		Map<String, IndexedMinHeap> heaps = heapsByType.get(parkingType);
+		if(heaps == null) {
+			return 0;
+		}
+		synchronized(heaps) {
+			return heaps.values().iterator().next().size(); //all gates' heaps hold the same spots
+		}
+	}
+
+	private boolean free(ParkingType parkingType, int parkingNumber) {
+		Map<String, IndexedMinHeap> heaps = heapsByType.get(parkingType);
+		synchronized(heaps) {
+			boolean freed = false;
+			for(Map.Entry<String, IndexedMinHeap> gateHeap : heaps.entrySet()) {
+				freed |= gateHeap.getValue().insert(parkingNumber, prioritiesByGate.get(gateHeap.getKey())[parkingNumber]);
+			}
+			return freed;
+		}
+	}
+}
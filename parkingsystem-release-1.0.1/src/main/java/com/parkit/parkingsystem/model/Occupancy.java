@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Occupancy Model : free and occupied spots of a type, e.g. for a display board
+ * @author Olivier MOREL
+ *
+ */
+public class Occupancy {
+    private final ParkingType parkingType;
+    private final long free;
+    private final long occupied;
+
+    public Occupancy(ParkingType parkingType, long free, long occupied) {
+        this.parkingType = parkingType;
+        this.free = free;
+        this.occupied = occupied;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public long getFree() {
+        return free;
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public long getCapacity() {
+        return free + occupied;
+    }
+
+    @Override
+    public String toString() {
+        return parkingType + " : " + free + " free / " + getCapacity();
+    }
+}
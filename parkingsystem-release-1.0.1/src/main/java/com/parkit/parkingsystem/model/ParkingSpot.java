@@ -11,6 +11,9 @@ public class ParkingSpot {
     private int number; //id
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String zone; //null if unknown
+    private int level;
+    private String lotId; //null if not yet routed to a lot
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
     	this.number = number;
@@ -18,6 +21,12 @@ public class ParkingSpot {
         this.isAvailable = isAvailable;
     }
 
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, String zone, int level) {
+        this(number, parkingType, isAvailable);
+        this.zone = zone;
+        this.level = level;
+    }
+
     public int getId() {
         return number;
     }
@@ -42,6 +51,30 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
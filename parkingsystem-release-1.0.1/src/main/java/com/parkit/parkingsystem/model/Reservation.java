@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+/**
+ * Reservation Model : a spot held for a vehicle until an expiry time
+ * @author Olivier MOREL
+ *
+ */
+public class Reservation {
+
+    private String vehicleRegNumber; //Primary Key
+    private ParkingSpot parkingSpot; //Foreign Key
+    private Date expiryTime;
+
+    public Reservation(String vehicleRegNumber, ParkingSpot parkingSpot, Date expiryTime) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingSpot = parkingSpot;
+        this.expiryTime = expiryTime;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public Date getExpiryTime() {
+        return expiryTime;
+    }
+
+    @Override
+    public String toString() {
+        return "reservation of spot " + parkingSpot.getId() + " for " + vehicleRegNumber + " until " + expiryTime;
+    }
+}
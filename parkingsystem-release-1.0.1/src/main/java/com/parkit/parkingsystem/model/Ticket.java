@@ -15,6 +15,7 @@ public class Ticket {
     private double price;
     private Date inTime;
     private Date outTime;
+    private String lotId; //null if not yet routed to a lot
 
     public int getId() {
         return id;
@@ -63,5 +64,13 @@ public class Ticket {
     public void setOutTime(Date outTime) {
         this.outTime = outTime;
     }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
     
 }
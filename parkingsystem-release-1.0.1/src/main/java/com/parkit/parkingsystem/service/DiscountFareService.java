@@ -12,6 +12,11 @@ import com.parkit.parkingsystem.model.Ticket;
  */
 public class DiscountFareService {
 
+	/**
+	 * Free stay in milliseconds : minutes rounded half up are 30 or less below 30 minutes and 30 seconds
+	 */
+	public static final long FREE_MILLIS = (30 * 60 + 30) * 1000L;
+
 	/**
 	 * Set ticket price to 0 when parked for thrty minutes or less.
 	 * Round seconds to half up : if parked for 30min and 29seconds, it'll be free
@@ -34,4 +39,24 @@ public class DiscountFareService {
 	public void fivePourcentsOff(Ticket ticket) {
 		ticket.setPrice(BigDecimal.valueOf(ticket.getPrice()*(1-5/100d)).setScale(2, RoundingMode.HALF_UP).doubleValue());		
 	}
+
+	/**
+	 * Fixed-point fareForThirtyOrLessMinutes, no allocation
+	 * @param durationMillis : stay in milliseconds
+	 * @param cents : fare in cents
+	 * @return 0 if free else cents
+	 */
+	public static long fareForThirtyOrLessMinutesCents(long durationMillis, long cents) {
+		return (durationMillis < FREE_MILLIS) ? 0 : cents;
+	}
+
+	/**
+	 * Fixed-point fivePourcentsOff, no allocation : cents * 95 / 100 rounded half up in integers,
+	 * so an exact half cent is always rounded up (1.50 gives 1.43 where 1.50 * 0.95 in double is 1.4249999999999998)
+	 * @param cents : fare in cents, not negative
+	 * @return discounted fare in cents
+	 */
+	public static long fivePourcentsOffCents(long cents) {
+		return (cents * 95 + 50) / 100;
+	}
 }
@@ -17,6 +17,31 @@ public class FareCalculatorService {
 	 * To calculate Fare discount
 	 */
 	private DiscountFareService discountFareService = new DiscountFareService();
+
+	private static final long HOUR_MILLIS = 3600 * 1000L;
+
+	/**
+	 * Fixed-point mode : durations and fares in long milliseconds and cents, rounded half up in integers, no BigDecimal
+	 */
+	private boolean fixedPoint = false;
+
+	/**
+	 * Setter of fixed-point mode, a pricing change : discounted prices on an exact half cent are rounded up, one cent higher
+	 * @param fixedPoint : true for fares in long cents
+	 */
+	public void setFixedPoint(boolean fixedPoint) {
+		this.fixedPoint = fixedPoint;
+	}
+
+	/**
+	 * Fare of a stay, no allocation
+	 * @param durationMillis : stay in milliseconds, not negative
+	 * @param rateCentsPerHour : e.g. Fare.CAR_RATE_CENTS_PER_HOUR
+	 * @return durationMillis * rateCentsPerHour / HOUR_MILLIS cents rounded half up
+	 */
+	public static long fareCents(long durationMillis, long rateCentsPerHour) {
+		return (durationMillis * rateCentsPerHour + HOUR_MILLIS / 2) / HOUR_MILLIS;
+	}
 	
 	/**
      * From a given ticket calculates the fare taking into account the vehicle's type
@@ -31,6 +56,10 @@ public class FareCalculatorService {
         long inHour = ticket.getInTime().getTime(); // Returns the number of milliseconds (long) since
         long outHour = ticket.getOutTime().getTime(); // January 1, 1970, 00:00:00 GMT represented by this Date object
 
+        if(fixedPoint) {
+        	calculateFareCents(ticket, outHour - inHour);
+        	return;
+        }
         double duration = (outHour - inHour) / (1000*3600d); // from milliseconds to decimal hours, d for double casting
         try {
 	        switch(ticket.getParkingSpot().getParkingType()) { //When null show up in switch statement, Java will throw NullPointerException
@@ -55,11 +84,38 @@ public class FareCalculatorService {
         }
     }
 
+	private void calculateFareCents(Ticket ticket, long durationMillis) {
+		long rateCentsPerHour;
+		try {
+			switch(ticket.getParkingSpot().getParkingType()) { //When null show up in switch statement, Java will throw NullPointerException
+				case CAR: {
+					rateCentsPerHour = Fare.CAR_RATE_CENTS_PER_HOUR;
+					break;
+				}
+				case BIKE: {
+					rateCentsPerHour = Fare.BIKE_RATE_CENTS_PER_HOUR;
+					break;
+				}
+				default: {
+					throw new IllegalArgumentException("Unkown Parking Type");
+				}
+			}
+		} catch(NullPointerException e) {
+			throw new IllegalArgumentException("Type is null");
+		}
+		long cents = DiscountFareService.fareForThirtyOrLessMinutesCents(durationMillis, fareCents(durationMillis, rateCentsPerHour));
+		ticket.setPrice(cents / 100d); //nearest double of the cents, read back exactly by Math.round(price * 100)
+	}
+
 	/**
 	 * Fare for Recurring User call service method for five percent discount
 	 * @param ticket : pointeur to object, not modified only the object so no need to return
 	 */
 	public void recurringUser(Ticket ticket) {
+		if(fixedPoint) {
+			ticket.setPrice(DiscountFareService.fivePourcentsOffCents(Math.round(ticket.getPrice() * 100)) / 100d);
+			return;
+		}
 		discountFareService.fivePourcentsOff(ticket);
 	}
 }
\ No newline at end of file
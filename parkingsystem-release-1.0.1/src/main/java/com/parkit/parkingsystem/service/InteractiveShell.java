@@ -1,15 +1,25 @@
 package com.parkit.parkingsystem.service;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.dao.DBConfigIO;
 import com.parkit.parkingsystem.dao.LoadDBConfigFromFile;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketBulkTransfer;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
 import com.parkit.parkingsystem.dao.WriteDBConfigToFile;
+import com.parkit.parkingsystem.service.report.ReportEngine;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.view.Viewer;
 import com.parkit.parkingsystem.view.ViewerImpl;
@@ -53,12 +63,12 @@ public final class InteractiveShell {
 
 		boolean continueApp = true;
 		InputReaderUtil inputReaderUtil = new InputReaderUtil(); //to read keyboard input and give an expected result
-		ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(); //for CRUD : Create, Read, Update and Delete on table parking
-		TicketDAO ticketDAO = new TicketDAO(); //for CRUD : Create, Read, Update and Delete on table ticket
-		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, viewer);
+		LotRouter lotRouter = LotRouter.fromSystemProperties(inputReaderUtil, viewer); //-Dparkingsystem.lots=north:parking_north,... : a schema per lot
+		ParkingLot parkingLot = lotRouter.route(chooseLotId(lotRouter));
+		ParkingService parkingService = parkingLot.getParkingService();
 
 		while(continueApp) {
-			loadMenu();
+			loadMenu(parkingLot.hasReservations());
 			int option = inputReaderUtil.readSelection();
 			switch(option) {
 				case 1: {
@@ -71,9 +81,15 @@ public final class InteractiveShell {
 				}
 				case 3: {
 					viewer.println("Exiting from the system !");
+					lotRouter.close(); //stops lots' threads and persists their pending writes
+					DataBaseConfig.shutdownConnectionPools(); //closes pooled connections
 					continueApp = false;
 					break;
 				}
+				case 4: {
+					parkingService.processReservation(); //tells if reservations are not available
+					break;
+				}
 				default: {
 					viewer.println("Unsupported option. Please enter a number corresponding to the provided menu");
 				}
@@ -81,11 +97,137 @@ public final class InteractiveShell {
 		}
 	}
 
-	private void loadMenu() {
+	/**
+	 * One-off job : rebuilds table monthly_visit of each lot from its table ticket, before running with -Dparkingsystem.visitRollup=true
+	 */
+	public void backfillMonthlyVisits() {
+		logger.info("Monthly visits backfill initialized!!!");
+		LotRouter.parseLots(System.getProperty("parkingsystem.lots")).forEach((lotId, dataBaseConfig) -> {
+			TicketDAO ticketDAO = new TicketDAO();
+			ticketDAO.setDataBaseConfig(dataBaseConfig);
+			int rows = ticketDAO.backfillMonthlyVisits();
+			if(rows < 0) {
+				viewer.println("Unable to backfill monthly visits of lot " + lotId + ". Error occurred");
+			} else {
+				viewer.println("Monthly visits of lot " + lotId + " backfilled : " + rows + " vehicle-months");
+			}
+		});
+		DataBaseConfig.shutdownConnectionPools(); //closes pooled connections
+	}
+
+	/**
+	 * Lot served by this shell
+	 * @param lotRouter : declared lots
+	 * @return lot's identifier given with -Dparkingsystem.lot=north, default the first declared
+	 */
+	private String chooseLotId(LotRouter lotRouter) {
+		String lotId = System.getProperty("parkingsystem.lot", lotRouter.getDefaultLotId()); //-Dparkingsystem.lot=north : lot of this shell's gate
+		if(!lotRouter.getLotIds().contains(lotId)) {
+			logger.warn("Lot " + lotId + " not in " + lotRouter.getLotIds() + ", lot " + lotRouter.getDefaultLotId() + " is served");
+			lotId = lotRouter.getDefaultLotId();
+		}
+		return lotId;
+	}
+
+	/**
+	 * Bulk export of the lot's tickets to a file or import of a file's tickets into the lot, see TicketBulkTransfer
+	 * @param export : true to export, false to import
+	 * @param fileName : file written or read
+	 * @param formatName : "csv" or "binary"
+	 */
+	public void transferTickets(boolean export, String fileName, String formatName) {
+		logger.info("Tickets bulk transfer initialized!!!");
+		TicketBulkTransfer.Format format;
+		try {
+			format = TicketBulkTransfer.Format.valueOf(formatName.toUpperCase());
+		} catch(IllegalArgumentException e) {
+			viewer.println("Unsupported format " + formatName + ". Please enter csv or binary");
+			return;
+		}
+		LotRouter lotRouter = LotRouter.fromSystemProperties(null, viewer); //no lot opened
+		String lotId = chooseLotId(lotRouter);
+		TicketBulkTransfer ticketBulkTransfer = TicketBulkTransfer.fromSystemProperties(lotRouter.getDataBaseConfig(lotId));
+		if(Boolean.getBoolean("parkingsystem.ticketIds")) { //same IDs as the lot's gates
+			ticketBulkTransfer.setTicketIdAllocator(TicketIdAllocator.fromSystemProperties(lotRouter.getDataBaseConfig(lotId)));
+		}
+		ticketBulkTransfer.setVisitRollup(Boolean.getBoolean("parkingsystem.visitRollup")); //imported exits counted as the lot's ones
+		Path path = Paths.get(fileName);
+		long tickets;
+		if(export) {
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				tickets = ticketBulkTransfer.exportTickets(channel, format);
+			} catch(IOException e) {
+				logger.error("Error opening " + path, e);
+				tickets = -1;
+			}
+		} else {
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				tickets = ticketBulkTransfer.importTickets(channel, format);
+			} catch(IOException e) {
+				logger.error("Error opening " + path, e);
+				tickets = -1;
+			}
+		}
+		if(tickets < 0) {
+			viewer.println("Unable to " + (export ? "export" : "import") + " tickets of lot " + lotId + ". Error occurred");
+		} else {
+			viewer.println(tickets + " tickets of lot " + lotId + (export ? " exported to " : " imported from ") + path);
+		}
+		DataBaseConfig.shutdownConnectionPools(); //closes pooled connections
+	}
+
+	/**
+	 * Revenue and occupancy report of the lot's tickets to a CSV file, see ReportEngine
+	 * @param fileName : file written
+	 * @param fromMonthName : first month "yyyy-MM"
+	 * @param toMonthName : last month "yyyy-MM", included
+	 * @param granularityName : "hour" or "day"
+	 */
+	public void writeReport(String fileName, String fromMonthName, String toMonthName, String granularityName) {
+		logger.info("Report initialized!!!");
+		ReportEngine.Granularity granularity;
+		YearMonth fromMonth;
+		YearMonth toMonth;
+		try {
+			granularity = ReportEngine.Granularity.valueOf(granularityName.toUpperCase());
+			fromMonth = YearMonth.parse(fromMonthName);
+			toMonth = YearMonth.parse(toMonthName);
+		} catch(IllegalArgumentException | DateTimeParseException e) {
+			viewer.println("Unsupported report " + fromMonthName + " " + toMonthName + " " + granularityName
+					+ ". Please enter months as yyyy-MM and hour or day");
+			return;
+		}
+		if(toMonth.isBefore(fromMonth)) {
+			viewer.println("Month " + toMonth + " is before " + fromMonth + ". Please enter months in order");
+			return;
+		}
+		LotRouter lotRouter = LotRouter.fromSystemProperties(null, viewer); //no lot opened
+		String lotId = chooseLotId(lotRouter);
+		ReportEngine reportEngine = ReportEngine.fromSystemProperties(lotRouter.getDataBaseConfig(lotId));
+		Path path = Paths.get(fileName);
+		long rows;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			rows = reportEngine.writeReport(fromMonth, toMonth, granularity, channel);
+		} catch(IOException e) {
+			logger.error("Error opening " + path, e);
+			rows = -1;
+		}
+		if(rows < 0) {
+			viewer.println("Unable to report tickets of lot " + lotId + ". Error occurred");
+		} else {
+			viewer.println(rows + " rows of lot " + lotId + " reported to " + path);
+		}
+		DataBaseConfig.shutdownConnectionPools(); //closes pooled connections
+	}
+
+	private void loadMenu(boolean withReservations) {
 		viewer.println("Please select an option. Simply enter the number to choose an action");
 		viewer.println("1 New Vehicle Entering - Allocate Parking Space");
 		viewer.println("2 Vehicle Exiting - Generate Ticket Price");
 		viewer.println("3 Shutdown System");
+		if(withReservations) {
+			viewer.println("4 Reserve Parking Space");
+		}
 	}
 
 	public void loadDBConfigInterface() {
@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.view.Viewer;
+
+/**
+ * Routes requests of a lot to its ParkingLot, opened on first use :
+ * each lot lives in its own schema with its own connection pool and caches, so lots don't contend.
+ * Lots are declared with -Dparkingsystem.lots=north:parking_north,south:parking_south (lotId:schema),
+ * without it there is one DEFAULT_LOT_ID lot on the "prod" schema
+ * @author Olivier MOREL
+ *
+ */
+public class LotRouter implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("LotRouter");
+
+	private final Map<String, DataBaseConfig> dataBaseConfigs; //by lot's identifier, in declaration order
+	private final Function<DataBaseConfig, ParkingLot> lotOpener;
+	private final Map<String, ParkingLot> openedLots = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param dataBaseConfigs : configuration of each lot's schema by lot's identifier
+	 * @param lotOpener : opens the ParkingLot of a configuration, e.g. ParkingLot.open()
+	 */
+	public LotRouter(Map<String, DataBaseConfig> dataBaseConfigs, Function<DataBaseConfig, ParkingLot> lotOpener) {
+		if(dataBaseConfigs.isEmpty()) {
+			throw new IllegalArgumentException("At least one lot is needed");
+		}
+		this.dataBaseConfigs = Collections.unmodifiableMap(new LinkedHashMap<>(dataBaseConfigs));
+		this.lotOpener = lotOpener;
+	}
+
+	/**
+	 * Router of the lots declared with -Dparkingsystem.lots
+	 * @param inputReaderUtil : to read keyboard input
+	 * @param viewer : console display
+	 * @return LotRouter object
+	 * @throws IllegalArgumentException if a declaration is not lotId:schema
+	 */
+	public static LotRouter fromSystemProperties(InputReaderUtil inputReaderUtil, Viewer viewer) {
+		return new LotRouter(parseLots(System.getProperty("parkingsystem.lots")),
+				dataBaseConfig -> ParkingLot.open(dataBaseConfig, inputReaderUtil, viewer));
+	}
+
+	/**
+	 * Parses lots' declarations
+	 * @param lots : "lotId:schema,lotId:schema", null or empty for the default lot
+	 * @return configuration of each lot's schema by lot's identifier
+	 * @throws IllegalArgumentException if a declaration is not lotId:schema or a lot is declared twice
+	 */
+	public static Map<String, DataBaseConfig> parseLots(String lots) {
+		Map<String, DataBaseConfig> dataBaseConfigs = new LinkedHashMap<>();
+		if(lots == null || lots.trim().isEmpty()) {
+			dataBaseConfigs.put(DataBaseConfig.DEFAULT_LOT_ID, new DataBaseConfig());
+			return dataBaseConfigs;
+		}
+		for(String lot : lots.split(",")) {
+			String[] lotIdAndSchema = lot.trim().split(":");
+			if(lotIdAndSchema.length != 2 || lotIdAndSchema[0].trim().isEmpty() || lotIdAndSchema[1].trim().isEmpty()) {
+				throw new IllegalArgumentException("Invalid lot declaration " + lot + ", expected lotId:schema");
+			}
+			String lotId = lotIdAndSchema[0].trim();
+			if(dataBaseConfigs.put(lotId, new LotDataBaseConfig(lotId, lotIdAndSchema[1].trim())) != null) {
+				throw new IllegalArgumentException("Lot " + lotId + " declared twice");
+			}
+		}
+		return dataBaseConfigs;
+	}
+
+	/**
+	 * Declared lots
+	 * @return lots' identifiers in declaration order
+	 */
+	public Set<String> getLotIds() {
+		return dataBaseConfigs.keySet();
+	}
+
+	/**
+	 * First declared lot, served when none is chosen
+	 * @return lot's identifier
+	 */
+	public String getDefaultLotId() {
+		return dataBaseConfigs.keySet().iterator().next();
+	}
+
+	/**
+	 * Configuration of a lot's schema, e.g. for tools not needing the whole ParkingLot
+	 * @param lotId : lot's identifier
+	 * @return DataBaseConfig object
+	 * @throws IllegalArgumentException if lot is not declared
+	 */
+	public DataBaseConfig getDataBaseConfig(String lotId) {
+		DataBaseConfig dataBaseConfig = dataBaseConfigs.get(lotId);
+		if(dataBaseConfig == null) {
+			throw new IllegalArgumentException("Unknown lot " + lotId);
+		}
+		return dataBaseConfig;
+	}
+
+	/**
+	 * Gets the ParkingLot of a lot, opened on first call
+	 * @param lotId : lot's identifier
+	 * @return ParkingLot object
+	 * @throws IllegalArgumentException if lot is not declared
+	 */
+	public ParkingLot route(String lotId) {
+		ParkingLot parkingLot = openedLots.get(lotId);
+		if(parkingLot != null) {
+			return parkingLot;
+		}
+		DataBaseConfig dataBaseConfig = getDataBaseConfig(lotId); //throws IllegalArgumentException if unknown
+		synchronized(this) { //a lot is opened once, other lots are still routed meanwhile
+			return openedLots.computeIfAbsent(lotId, id -> lotOpener.apply(dataBaseConfig));
+		}
+	}
+
+	/**
+	 * Closes opened lots, connection pools are closed by DataBaseConfig.shutdownConnectionPools()
+	 */
+	@Override
+	public synchronized void close() {
+		openedLots.forEach((lotId, parkingLot) -> {
+			try {
+				parkingLot.close();
+			} catch(RuntimeException e) { //other lots are still closed
+				logger.error("Error closing lot " + lotId, e);
+			}
+		});
+		openedLots.clear();
+	}
+}
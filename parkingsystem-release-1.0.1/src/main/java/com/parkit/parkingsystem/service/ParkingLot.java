@@ -0,0 +1,227 @@
+package com.parkit.parkingsystem.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.AsyncDAOExecutor;
+import com.parkit.parkingsystem.dao.EventStore;
+import com.parkit.parkingsystem.dao.LoyaltyCache;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.OpenTicketIndex;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.SpotAvailabilityIndex;
+import com.parkit.parkingsystem.dao.StripedSpotAllocator;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
+import com.parkit.parkingsystem.dao.WriteBehindBuffer;
+import com.parkit.parkingsystem.dao.ZoneAwareSpotAllocator;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.view.Viewer;
+
+/**
+ * One parking lot : its DAOs on its schema (so its connection pool), its in-memory caches
+ * (availability index, open ticket index, loyalty cache, allocator, occupancy counters, reservations), its write-behind buffer or event store, its asynchronous executor,
+ * and the ParkingService of its gates. Nothing is shared with other lots, see LotRouter
+ * @author Olivier MOREL
+ *
+ */
+public class ParkingLot implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("ParkingLot");
+
+	private final String lotId;
+	private final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(); //for CRUD : Create, Read, Update and Delete on table parking
+	private final TicketDAO ticketDAO = new TicketDAO(); //for CRUD : Create, Read, Update and Delete on table ticket
+	private final ParkingService parkingService;
+	private WriteBehindBuffer writeBehindBuffer;
+	private EventStore eventStore;
+	private AsyncDAOExecutor asyncDAOExecutor;
+	private OccupancyCounters occupancyCounters;
+	private LoyaltyCache loyaltyCache;
+	private TicketArchiver ticketArchiver;
+	private ReservationService reservationService;
+
+	private ParkingLot(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil, Viewer viewer) {
+		this.lotId = dataBaseConfig.getLotId();
+		parkingSpotDAO.setDataBaseConfig(dataBaseConfig);
+		ticketDAO.setDataBaseConfig(dataBaseConfig);
+		parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, viewer);
+	}
+
+	/**
+	 * Opens a lot, with the options given as system properties (-Dparkingsystem.writeBehind=true...)
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @param inputReaderUtil : to read keyboard input
+	 * @param viewer : console display
+	 * @return ParkingLot object, its caches loaded
+	 */
+	public static ParkingLot open(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil, Viewer viewer) {
+		ParkingLot parkingLot = new ParkingLot(dataBaseConfig, inputReaderUtil, viewer);
+		parkingLot.loadOptions();
+		logger.info("Parking lot " + parkingLot.lotId + " opened");
+		return parkingLot;
+	}
+
+	private void loadOptions() {
+		if(Boolean.getBoolean("parkingsystem.journal")) { //-Dparkingsystem.journal=true : events journaled, tables are their projection
+			eventStore = EventStore.fromSystemProperties(parkingSpotDAO, ticketDAO);
+			if(eventStore != null) {
+				eventStore.setVisitRollup(Boolean.getBoolean("parkingsystem.visitRollup"));
+				eventStore.start(Long.getLong("parkingsystem.journal.projectionIntervalMillis", 200L));
+				parkingSpotDAO.setEventStore(eventStore);
+				ticketDAO.setEventStore(eventStore);
+			} else {
+				logger.warn("Journal of lot " + lotId + " not opened, tickets and spots are updated in tables");
+			}
+		}
+		if(Boolean.getBoolean("parkingsystem.writeBehind") && eventStore == null) { //-Dparkingsystem.writeBehind=true : batched writes
+			writeBehindBuffer = WriteBehindBuffer.fromSystemProperties(parkingSpotDAO.getDataBaseConfig());
+			writeBehindBuffer.addBatchListener(batchReport -> {
+				if(batchReport.getFailed() > 0) {
+					logger.error("Write-behind of lot " + lotId + " " + batchReport);
+				} else {
+					logger.debug("Write-behind of lot " + lotId + " " + batchReport);
+				}
+			});
+			parkingSpotDAO.setWriteBehindBuffer(writeBehindBuffer);
+			ticketDAO.setWriteBehindBuffer(writeBehindBuffer);
+		}
+		if(eventStore == null && Boolean.parseBoolean(System.getProperty("parkingsystem.availabilityIndex", "true"))) { //next available slot without SQL round trip
+			parkingSpotDAO.setAvailabilityIndex(new SpotAvailabilityIndex());
+			if(!parkingSpotDAO.loadAvailabilityIndex()) {
+				logger.warn("Availability index of lot " + lotId + " not loaded, next available slot will be queried");
+			}
+		}
+		if(Boolean.getBoolean("parkingsystem.ticketIds") && eventStore == null) { //-Dparkingsystem.ticketIds=true : hi/lo IDs given on creation
+			ticketDAO.setTicketIdAllocator(TicketIdAllocator.fromSystemProperties(ticketDAO.getDataBaseConfig()));
+		}
+		ticketDAO.setVisitRollup(Boolean.getBoolean("parkingsystem.visitRollup")); //-Dparkingsystem.visitRollup=true : visits counted in table monthly_visit
+		if(Boolean.parseBoolean(System.getProperty("parkingsystem.loyaltyCache", "true"))) { //last month's recurring users computed once
+			loyaltyCache = LoyaltyCache.fromSystemProperties();
+			ticketDAO.setLoyaltyCache(loyaltyCache);
+		}
+		if(eventStore == null && Boolean.parseBoolean(System.getProperty("parkingsystem.openTicketIndex", "true"))) { //exit's ticket without SQL round trip
+			ticketDAO.setOpenTicketIndex(new OpenTicketIndex());
+			if(!ticketDAO.loadOpenTicketIndex()) {
+				logger.warn("Open ticket index of lot " + lotId + " not loaded, tickets will be queried");
+			}
+		}
+		if("striped".equals(System.getProperty("parkingsystem.allocator"))) { //-Dparkingsystem.allocator=striped : lock-free in-memory allocation
+			asyncDAOExecutor = AsyncDAOExecutor.fromSystemProperties();
+			StripedSpotAllocator stripedSpotAllocator = StripedSpotAllocator.load(parkingSpotDAO,
+					Integer.getInteger("parkingsystem.allocator.stripes", Runtime.getRuntime().availableProcessors()), asyncDAOExecutor);
+			if(stripedSpotAllocator != null) {
+				parkingService.setSpotAllocator(stripedSpotAllocator);
+			} else {
+				logger.warn("Striped allocator of lot " + lotId + " not loaded, spots will be claimed with SQL");
+			}
+		} else if("zone".equals(System.getProperty("parkingsystem.allocator"))) { //-Dparkingsystem.allocator=zone : nearest spot to this gate
+			asyncDAOExecutor = AsyncDAOExecutor.fromSystemProperties();
+			ZoneAwareSpotAllocator zoneAwareSpotAllocator = ZoneAwareSpotAllocator.load(parkingSpotDAO, asyncDAOExecutor);
+			if(zoneAwareSpotAllocator != null) {
+				String gate = System.getProperty("parkingsystem.gate", zoneAwareSpotAllocator.getGates().first());
+				try {
+					parkingService.setSpotAllocator(zoneAwareSpotAllocator.forGate(gate));
+				} catch(IllegalArgumentException e) {
+					logger.warn("Gate " + gate + " not in " + zoneAwareSpotAllocator.getGates() + ", spots will be claimed with SQL");
+				}
+			} else {
+				logger.warn("Zone-aware allocator of lot " + lotId + " not loaded, spots will be claimed with SQL");
+			}
+		}
+		if(Boolean.parseBoolean(System.getProperty("parkingsystem.occupancy", "true"))) { //full lot rejected without SQL round trip
+			occupancyCounters = OccupancyCounters.load(parkingSpotDAO);
+			if(occupancyCounters != null) {
+				occupancyCounters.startReconciliation(Long.getLong("parkingsystem.occupancy.reconcileMillis", 60000L));
+				parkingService.setOccupancyCounters(occupancyCounters);
+			} else {
+				logger.warn("Occupancy counters of lot " + lotId + " not loaded, each vehicle will claim a spot");
+			}
+		}
+		if(Boolean.getBoolean("parkingsystem.fare.fixedPoint")) { //-Dparkingsystem.fare.fixedPoint=true : fares in long cents, exact half up
+			FareCalculatorService fareCalculatorService = new FareCalculatorService();
+			fareCalculatorService.setFixedPoint(true);
+			parkingService.setFareCalculatorService(fareCalculatorService);
+		}
+		if(Boolean.getBoolean("parkingsystem.archive")) { //-Dparkingsystem.archive=true : old closed tickets moved to ticket_archive
+			ticketArchiver = new TicketArchiver(ticketDAO, Integer.getInteger("parkingsystem.archive.retentionMonths", 3));
+			ticketArchiver.start(Long.getLong("parkingsystem.archive.periodMillis", 24L * 3600 * 1000));
+		}
+		if(Boolean.getBoolean("parkingsystem.reservations")) { //-Dparkingsystem.reservations=true : spots held for reserved vehicles
+			ReservationDAO reservationDAO = new ReservationDAO();
+			reservationDAO.setDataBaseConfig(parkingSpotDAO.getDataBaseConfig());
+			reservationService = new ReservationService(parkingService.getSpotAllocator(), reservationDAO,
+					Long.getLong("parkingsystem.reservation.tickMillis", 1000L));
+			if(reservationService.load()) {
+				reservationService.start();
+				parkingService.setReservationService(reservationService);
+			} else {
+				logger.warn("Reservations of lot " + lotId + " not loaded, reservations are not available");
+				reservationService = null;
+			}
+		}
+	}
+
+	public String getLotId() {
+		return lotId;
+	}
+
+	public ParkingService getParkingService() {
+		return parkingService;
+	}
+
+	public ParkingSpotDAO getParkingSpotDAO() {
+		return parkingSpotDAO;
+	}
+
+	public TicketDAO getTicketDAO() {
+		return ticketDAO;
+	}
+
+	/**
+	 * Occupancy counters, e.g. for the lot's display boards
+	 * @return counters or null if not loaded
+	 */
+	public OccupancyCounters getOccupancyCounters() {
+		return occupancyCounters;
+	}
+
+	/**
+	 * Tests if spots can be reserved in this lot
+	 * @return boolean
+	 */
+	public boolean hasReservations() {
+		return reservationService != null;
+	}
+
+	/**
+	 * Stops the lot's threads and persists its pending writes, its connection pool is closed by DataBaseConfig.shutdownConnectionPools()
+	 */
+	@Override
+	public void close() {
+		if(reservationService != null) {
+			reservationService.close(); //holds are kept in table reservation
+		}
+		if(occupancyCounters != null) {
+			occupancyCounters.close(); //stops reconciliation
+		}
+		if(ticketArchiver != null) {
+			ticketArchiver.close(); //stops archival
+		}
+		if(asyncDAOExecutor != null) {
+			asyncDAOExecutor.close(); //waits for asynchronous persistence
+		}
+		if(writeBehindBuffer != null) {
+			writeBehindBuffer.shutdown(); //flushes queued writes before closing connections
+		}
+		if(eventStore != null) {
+			eventStore.close(); //projects journaled events and writes a snapshot
+		}
+		if(loyaltyCache != null) {
+			logger.info("Lot " + lotId + " closed : " + loyaltyCache);
+		}
+	}
+}
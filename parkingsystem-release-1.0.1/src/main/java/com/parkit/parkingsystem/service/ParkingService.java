@@ -6,10 +6,16 @@ import java.util.Optional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.CountingSpotAllocator;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotAllocator;
+import com.parkit.parkingsystem.dao.SqlSpotAllocator;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.view.Viewer;
@@ -28,6 +34,10 @@ public class ParkingService {
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private TicketDAO ticketDAO;
+    private SpotAllocator spotAllocator; //claims and releases parking spots, counted if occupancyCounters are set
+    private SpotAllocator uncountedSpotAllocator; //as set
+    private OccupancyCounters occupancyCounters; //null : no rejection before claim
+    private ReservationService reservationService; //null : no reservation, vehicle's type is asked first
     private Viewer viewer; // Declare Viewer instance
 
 	/**
@@ -41,59 +51,121 @@ public class ParkingService {
     	this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.uncountedSpotAllocator = new SqlSpotAllocator(parkingSpotDAO); //table parking is the authority
+        this.spotAllocator = uncountedSpotAllocator;
         this.viewer = viewer;
     }
+
+    /**
+     * Setter to allocate spots otherwise than with SQL, e.g. StripedSpotAllocator for many gates in one JVM
+     * @param spotAllocator : allocator
+     */
+    public void setSpotAllocator(SpotAllocator spotAllocator) {
+        this.uncountedSpotAllocator = spotAllocator;
+        plugSpotAllocator();
+    }
+
+    /**
+     * Setter to count claims and releases, and reject a vehicle without claim when its type is full
+     * @param occupancyCounters : live counters, null to claim always
+     */
+    public void setOccupancyCounters(OccupancyCounters occupancyCounters) {
+        this.occupancyCounters = occupancyCounters;
+        plugSpotAllocator();
+    }
+
+    /**
+     * Getter so that reservations claim and release spots like gates do
+     * @return allocator, counted if occupancy counters are set
+     */
+    public SpotAllocator getSpotAllocator() {
+        return spotAllocator;
+    }
+
+    /**
+     * Setter to admit reserved vehicles on their held spot : vehicle's registered number is then asked first
+     * @param reservationService : reservations, null for none
+     */
+    public void setReservationService(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    private void plugSpotAllocator() {
+        spotAllocator = (occupancyCounters == null) ? uncountedSpotAllocator : new CountingSpotAllocator(uncountedSpotAllocator, occupancyCounters);
+    }
     
     /**
-     * Processing incoming vehicle : tries to get an available parking space (asks for vehicule's type)
-     * then asks for vehicle's registered number, marks place occupied then creates a new model Ticket
-     * and persists it into SGBD
+     * Processing incoming vehicle : asks for vehicule's type and claims atomically an available parking space
+     * (no other gate can get it), then asks for vehicle's registered number, creates a new model Ticket
+     * and persists it into SGBD. If the ticket isn't saved, the claimed parking space is released.
+     * With reservations, vehicle's registered number is asked first and a reserved vehicle gets its held spot without claim
      */
     public void processIncomingVehicle() {
         try {
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable(); //Declare and try to get a available ParkingSpot model
+            String vehicleRegNumber = null;
+            ParkingSpot parkingSpot = null;
+            if(reservationService != null) { //fast path admission
+                vehicleRegNumber = getVehichleRegNumber(); //Throws Exception if invalid input, will be caught see catch
+                Reservation reservation = reservationService.admit(vehicleRegNumber);
+                if(reservation != null) {
+                    parkingSpot = reservation.getParkingSpot(); //already claimed
+                    viewer.println("Welcome, your reservation is found");
+                }
+            }
+            if(parkingSpot == null) {
+                parkingSpot = getNextParkingNumberIfAvailable(); //Declare and try to claim an available ParkingSpot model
+            }
             if(parkingSpot !=null && parkingSpot.getId() > 0) {
-                String vehicleRegNumber = getVehichleRegNumber(); //Throws Exception if invalid input, will be caught see catch
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-                // !!! WARNING What to do if it returns false ? In DAO : logger.error("Error updating parking info",ex)
-
-                /* Needs computer standards are defined in terms of Greenwich mean time (GMT)
-                 * to prevent summer/winter timetable changes if the car park is used at night
-                 * but will need a time zone offset to display in LocalDateTime 
-                 * Or use of GregorianCalendar :
-                 *  // create a Central Europe Standard Time time zone
- 				 * SimpleTimeZone cet = new SimpleTimeZone(+1 * 60 * 60 * 1000, ids[0]);
-				 *  // set up rules for Daylight Saving Time
-				 * cet.setStartRule(Calendar.APRIL, 1, Calendar.SUNDAY, 2 * 60 * 60 * 1000);
- 				 * cet.setEndRule(Calendar.OCTOBER, -1, Calendar.SUNDAY, 2 * 60 * 60 * 1000);*/
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                // !!! WARNING What to do if it returns false ? In DAO : logger.error("Error persisting ticket",ex);
+                boolean ticketSaved = false;
+                try {
+                    if(vehicleRegNumber == null) {
+                        vehicleRegNumber = getVehichleRegNumber(); //Throws Exception if invalid input, will be caught see catch
+                    }
+
+                    /* Needs computer standards are defined in terms of Greenwich mean time (GMT)
+                     * to prevent summer/winter timetable changes if the car park is used at night
+                     * but will need a time zone offset to display in LocalDateTime 
+                     * Or use of GregorianCalendar :
+                     *  // create a Central Europe Standard Time time zone
+     				 * SimpleTimeZone cet = new SimpleTimeZone(+1 * 60 * 60 * 1000, ids[0]);
+    				 *  // set up rules for Daylight Saving Time
+    				 * cet.setStartRule(Calendar.APRIL, 1, Calendar.SUNDAY, 2 * 60 * 60 * 1000);
+     				 * cet.setEndRule(Calendar.OCTOBER, -1, Calendar.SUNDAY, 2 * 60 * 60 * 1000);*/
+
+                    Date inTime = new Date();
+                    Ticket ticket = new Ticket();
+                    //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                    //ticket.setId(ticketID);
+                    ticket.setParkingSpot(parkingSpot);
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(0);
+                    ticket.setInTime(inTime);
+                    ticket.setOutTime(null);
+                    if(!ticketDAO.saveTicket(ticket)) {
+                        viewer.println("Unable to save ticket information. Error occurred");
+                        return; //finally releases parking spot
+                    }
+                    ticketSaved = true;
                 
-                viewer.println("Generated Ticket and saved in DB");
-                viewer.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                viewer.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
-                /*inTime.toString() : Converts this Date object to a String of the form: dow mon dd hh:mm:ss zzz yyyy
-                 *where:
-				 *	dow is the day of the week (Sun, Mon, Tue, Wed, Thu, Fri, Sat).
-				 *	mon is the month (Jan, Feb, Mar, Apr, May, Jun, Jul, Aug, Sep, Oct, Nov, Dec).
-				 *	dd is the day of the month (01 through 31), as two decimal digits.
-				 *	hh is the hour of the day (00 through 23), as two decimal digits.
-				 *	mm is the minute within the hour (00 through 59), as two decimal digits.
-				 *	ss is the second within the minute (00 through 61, as two decimal digits.
-				 *	zzz is the time zone (and may reflect daylight saving time). Standard time zone abbreviations include those recognized by the method parse.
-				 *	If time zone information is not available, then zzz is empty - that is, it consists of no characters at all.
-				 *	yyyy is the year, as four decimal digits.*/
+                    viewer.println("Generated Ticket and saved in DB");
+                    viewer.println("Please park your vehicle in spot number:"+parkingSpot.getId());
+                    viewer.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                    /*inTime.toString() : Converts this Date object to a String of the form: dow mon dd hh:mm:ss zzz yyyy
+                     *where:
+    				 *	dow is the day of the week (Sun, Mon, Tue, Wed, Thu, Fri, Sat).
+    				 *	mon is the month (Jan, Feb, Mar, Apr, May, Jun, Jul, Aug, Sep, Oct, Nov, Dec).
+    				 *	dd is the day of the month (01 through 31), as two decimal digits.
+    				 *	hh is the hour of the day (00 through 23), as two decimal digits.
+    				 *	mm is the minute within the hour (00 through 59), as two decimal digits.
+    				 *	ss is the second within the minute (00 through 61, as two decimal digits.
+    				 *	zzz is the time zone (and may reflect daylight saving time). Standard time zone abbreviations include those recognized by the method parse.
+    				 *	If time zone information is not available, then zzz is empty - that is, it consists of no characters at all.
+    				 *	yyyy is the year, as four decimal digits.*/
+                } finally {
+                    if(!ticketSaved) {
+                        releaseParkingSpot(parkingSpot);
+                    }
+                }
             }
         } catch(Exception e) { //if invalid vehivule's registered number input. Warning message already shown on console in InputReader method
             logger.error("Unable to process incoming vehicle",e);
@@ -101,17 +173,32 @@ public class ParkingService {
     }
 
     /**
-     * Tries to get an available parking space but before ask vehicule's type
-     * @return an available model ParkingSpot
+     * Gives back a claimed parking space when no ticket is saved for it
+     * @param parkingSpot : claimed model
+     */
+    private void releaseParkingSpot(ParkingSpot parkingSpot) {
+        if(!spotAllocator.release(parkingSpot)) {
+            logger.error("Unable to release parking spot " + parkingSpot.getId());
+        }
+    }
+
+    /**
+     * Tries to claim an available parking space but before ask vehicule's type
+     * @return a claimed model ParkingSpot (not available)
      */
     private ParkingSpot getNextParkingNumberIfAvailable() {
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try {
             ParkingType parkingType = getVehichleType(); // Throws IllegalArgumentException Will be caught see catch
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            if(occupancyCounters != null && occupancyCounters.isFull(parkingType)) { //no claim, no SQL round trip
+                viewer.println("Parking slots might be full");
+                logger.info("Vehicle rejected, no free " + parkingType + " spot counted");
+                return null;
+            }
+            parkingNumber = spotAllocator.claim(parkingType); //atomic : no double allocation between gates
             if(parkingNumber > 0) {
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = new ParkingSpot(parkingNumber,parkingType, false);
             } else {
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full"); //Will be caught see catch
             }
@@ -166,32 +253,65 @@ public class ParkingService {
          */ 
     }
 
+    /**
+     * Processing reservation : asks for vehicule's type and registered number, then holds a spot
+     * during parkingsystem.reservation.holdMinutes (default 30)
+     */
+    public void processReservation() {
+        if(reservationService == null) {
+            viewer.println("Reservations are not available");
+            return;
+        }
+        try {
+            ParkingType parkingType = getVehichleType(); // Throws IllegalArgumentException Will be caught see catch
+            String vehicleRegNumber = getVehichleRegNumber(); //Throws Exception if invalid input, will be caught see catch
+            Date expiryTime = new Date(System.currentTimeMillis() + Long.getLong("parkingsystem.reservation.holdMinutes", 30L) * 60000L);
+            Reservation reservation = reservationService.reserve(vehicleRegNumber, parkingType, expiryTime);
+            if(reservation != null) {
+                viewer.println("Parking spot number:" + reservation.getParkingSpot().getId() + " is reserved for vehicle number:"
+                        + vehicleRegNumber + " until:" + expiryTime);
+            } else {
+                viewer.println("Unable to reserve a parking spot : already reserved or parking slots might be full");
+            }
+        } catch(IllegalArgumentException ie) {
+            viewer.println("Incorrect input provided : provide 1 or 2");
+            logger.error("Error parsing user input for type of vehicle", ie);
+        } catch(Exception e) {
+            viewer.println("Unable to process reservation");
+            logger.error("Unable to process reservation",e);
+        }
+    }
+
     /**
      * Processing exiting vehicle : asks for vehicle's registered number, uses DAO to query the ticket, set out time,
-     * calls FareCalculatorService to calculate fare, updates ticket using DAO, set parking spot available and updates it with DAO  
+     * calls FareCalculatorService to calculate fare, updates ticket using DAO, set parking spot available and updates it with DAO.
+     * All DAOs' calls are done in one UnitOfWork : ticket is closed and spot freed together or not at all
      */
     public void processExitingVehicle() {
     	try {
             String vehicleRegNumber = getVehichleRegNumber(); //Throws Exception if invalid input, Will be caught see catch
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber); //can return null 
-            Date outTime = new Date();
-            ticket.setOutTime(outTime); //if ticket = null throws a NullPointerException, Will be caught see catch
-            fareCalculatorService.calculateFare(ticket); // Throws IllegalArgumentException, Will be caught see catch
-            //ticket is a pointer to the object. Only object'll be modified
-            if(isRecurringUser(ticket)) {
-            	fareCalculatorService.recurringUser(ticket);
-            }
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true); //setup after ticket's update
-                parkingSpotDAO.updateParking(parkingSpot);
-                /* !!! WARNING What to do if it returns false ? In DAO : logger.error("Error updating parking info",ex)
-                 * So not persisted but ticket persisted ...*/
- 
-                viewer.println("Please pay the parking fare:" + ticket.getPrice());
-                viewer.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-            } else {
-            	viewer.println("Unable to update ticket information. Error occurred");
+            try(UnitOfWork unitOfWork = UnitOfWork.begin(ticketDAO.getDataBaseConfig())) { //one connection, one transaction
+                Ticket ticket = ticketDAO.getTicket(vehicleRegNumber); //can return null 
+                Date outTime = new Date();
+                ticket.setOutTime(outTime); //if ticket = null throws a NullPointerException, Will be caught see catch
+                fareCalculatorService.calculateFare(ticket); // Throws IllegalArgumentException, Will be caught see catch
+                //ticket is a pointer to the object. Only object'll be modified
+                if(isRecurringUser(ticket)) {
+                	fareCalculatorService.recurringUser(ticket);
+                }
+                if(ticketDAO.updateTicket(ticket)) {
+                    ParkingSpot parkingSpot = ticket.getParkingSpot();
+                    if(spotAllocator.release(parkingSpot)) { //set available after ticket's update
+                        unitOfWork.commit(); //throws SQLException, will be caught see catch
+                        viewer.println("Please pay the parking fare:" + ticket.getPrice());
+                        viewer.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+                    } else {
+                        unitOfWork.rollback(); //ticket's update is not persisted either
+                        viewer.println("Unable to update parking spot information. Error occurred");
+                    }
+                } else {
+                	viewer.println("Unable to update ticket information. Error occurred");
+                }
             }
         } catch(Exception e) {
         	viewer.println("Unable to process exiting vehicle");
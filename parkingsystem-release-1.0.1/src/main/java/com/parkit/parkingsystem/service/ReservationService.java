@@ -0,0 +1,181 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.SpotAllocator;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.util.HashedTimingWheel;
+import com.parkit.parkingsystem.util.HashedTimingWheel.Timeout;
+
+/**
+ * Reservations of spots : a reserved spot is claimed (no other vehicle gets it) and held for a vehicle until its expiry time.
+ * Holds are kept in memory by vehicle's registered number and expire on a HashedTimingWheel, without scan of table reservation,
+ * which persists them to be reloaded at start
+ * @author Olivier MOREL
+ *
+ */
+public class ReservationService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ReservationService");
+
+    private final SpotAllocator spotAllocator;
+    private final ReservationDAO reservationDAO;
+    private final HashedTimingWheel<Reservation> timingWheel;
+    private final ConcurrentMap<String, Timeout<Reservation>> holds = new ConcurrentHashMap<>(); //by vehicle's registered number
+
+    /**
+     * Constructor
+     * @param spotAllocator : allocator of ParkingService, claims and releases held spots
+     * @param reservationDAO : DAO of table reservation
+     * @param tickMillis : precision of expiry
+     */
+    public ReservationService(SpotAllocator spotAllocator, ReservationDAO reservationDAO, long tickMillis) {
+        this.spotAllocator = spotAllocator;
+        this.reservationDAO = reservationDAO;
+        this.timingWheel = new HashedTimingWheel<>(tickMillis, 512, System.currentTimeMillis(), this::expire);
+    }
+
+    /**
+     * Reloads holds from table reservation, releasing spots of the ones expired meanwhile
+     * @return boolean : false if reservations can't be read
+     */
+    public boolean load() {
+        List<Reservation> reservations = reservationDAO.getReservations();
+        if(reservations == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for(Reservation reservation : reservations) {
+            if(reservation.getExpiryTime().getTime() <= now) {
+                release(reservation);
+            } else {
+                holds.put(reservation.getVehicleRegNumber(), timingWheel.schedule(reservation, reservation.getExpiryTime().getTime()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts expiring holds on the wheel's daemon thread
+     */
+    public void start() {
+        timingWheel.start();
+    }
+
+    /**
+     * Reserves a spot for a vehicle
+     * @param vehicleRegNumber : vehicle's registered number
+     * @param parkingType : vehicle's type
+     * @param expiryTime : end of hold
+     * @return Reservation model or null if vehicle has already one, no spot is available or on error
+     */
+    public Reservation reserve(String vehicleRegNumber, ParkingType parkingType, Date expiryTime) {
+        if(holds.containsKey(vehicleRegNumber)) {
+            return null;
+        }
+        int parkingNumber = spotAllocator.claim(parkingType);
+        if(parkingNumber <= 0) {
+            return null;
+        }
+        Reservation reservation = new Reservation(vehicleRegNumber, new ParkingSpot(parkingNumber, parkingType, false), expiryTime);
+        if(!reservationDAO.saveReservation(reservation)) { //primary key : one reservation per vehicle
+            releaseParkingSpot(reservation);
+            return null;
+        }
+        holds.put(vehicleRegNumber, timingWheel.schedule(reservation, expiryTime.getTime()));
+        return reservation;
+    }
+
+    /**
+     * Fast path admission at entry : takes the hold of a vehicle, its spot stays claimed for the ticket
+     * @param vehicleRegNumber : vehicle's registered number
+     * @return Reservation model or null if vehicle has no reservation or it expired
+     */
+    public Reservation admit(String vehicleRegNumber) {
+        Timeout<Reservation> hold = holds.remove(vehicleRegNumber); //expire() can't take it anymore
+        if(hold == null) {
+            return null;
+        }
+        hold.cancel();
+        Reservation reservation = hold.getItem();
+        if(reservation.getExpiryTime().getTime() <= System.currentTimeMillis()) { //expired but not yet visited by the wheel
+            release(reservation);
+            return null;
+        }
+        if(!reservationDAO.deleteReservation(vehicleRegNumber)) {
+            logger.error("Unable to delete " + reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Cancels the reservation of a vehicle and releases its spot
+     * @param vehicleRegNumber : vehicle's registered number
+     * @return false if vehicle has no reservation
+     */
+    public boolean cancel(String vehicleRegNumber) {
+        Timeout<Reservation> hold = holds.remove(vehicleRegNumber);
+        if(hold == null) {
+            return false;
+        }
+        hold.cancel();
+        release(hold.getItem());
+        return true;
+    }
+
+    /**
+     * Expires holds up to a time, without waiting for the wheel's thread
+     * @param nowMillis : current time
+     * @return number of expired holds
+     */
+    public int expireUpTo(long nowMillis) {
+        return timingWheel.advanceTo(nowMillis);
+    }
+
+    /**
+     * Number of holds
+     * @return count of reservations not yet admitted, cancelled or expired
+     */
+    public int getHoldCount() {
+        return holds.size();
+    }
+
+    /**
+     * Stops expiring holds, they are kept in table reservation
+     */
+    @Override
+    public void close() {
+        timingWheel.close();
+    }
+
+    private void expire(Reservation reservation) {
+        Timeout<Reservation> hold = holds.get(reservation.getVehicleRegNumber());
+        if(hold != null && hold.getItem() == reservation && holds.remove(reservation.getVehicleRegNumber(), hold)) { //not admitted meanwhile
+            logger.info("Expired " + reservation);
+            release(reservation);
+        }
+    }
+
+    private void release(Reservation reservation) {
+        if(!reservationDAO.deleteReservation(reservation.getVehicleRegNumber())) {
+            logger.error("Unable to delete " + reservation);
+        }
+        releaseParkingSpot(reservation);
+    }
+
+    private void releaseParkingSpot(Reservation reservation) {
+        ParkingSpot parkingSpot = reservation.getParkingSpot();
+        if(!spotAllocator.release(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false))) {
+            logger.error("Unable to release parking spot " + parkingSpot.getId());
+        }
+    }
+}
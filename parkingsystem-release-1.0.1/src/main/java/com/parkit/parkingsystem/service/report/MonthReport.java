@@ -0,0 +1,175 @@
+package com.parkit.parkingsystem.service.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Aggregates of one month partition, in primitive arrays indexed by ParkingType then hour of the month :
+ * entries (by IN_TIME), exits, revenue in cents and total stay (by OUT_TIME), and vehicles parked during the hour.
+ * Parking is counted with a difference array : +1 at the hour of entry, -1 after the hour of exit (or of the report
+ * for open tickets), summed once by finish(), so each ticket is added in O(1) whatever its stay.
+ * Memory depends on the month's hours only, not on its tickets. Not thread safe, filled by one thread
+ * @author Olivier MOREL
+ *
+ */
+final class MonthReport {
+
+	private static final long HOUR_MILLIS = 3600 * 1000L;
+	private static final int TYPES = ParkingType.values().length;
+	private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	private final ZoneId zoneId;
+	private final long startMillis;
+	private final long endMillis;
+	private final long nowMillis;
+	private final int hours;
+	private final int[] entries;
+	private final int[] exits;
+	private final long[] revenueCents;
+	private final long[] stayMillis;
+	private final int[] parked; //difference array until finish()
+	private long tickets = 0;
+
+	/**
+	 * Constructor
+	 * @param month : partition
+	 * @param zoneId : time zone of the month and of the hours
+	 * @param nowMillis : end of open tickets' stay
+	 */
+	MonthReport(YearMonth month, ZoneId zoneId, long nowMillis) {
+		this.zoneId = zoneId;
+		this.startMillis = month.atDay(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+		this.endMillis = month.plusMonths(1).atDay(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+		this.nowMillis = nowMillis;
+		this.hours = (int) ((endMillis - startMillis + HOUR_MILLIS - 1) / HOUR_MILLIS); //not 24 per day on daylight saving days
+		entries = new int[TYPES * hours];
+		exits = new int[TYPES * hours];
+		revenueCents = new long[TYPES * hours];
+		stayMillis = new long[TYPES * hours];
+		parked = new int[TYPES * hours];
+	}
+
+	long getStartMillis() {
+		return startMillis;
+	}
+
+	long getEndMillis() {
+		return endMillis;
+	}
+
+	long getTickets() {
+		return tickets;
+	}
+
+	/**
+	 * Adds a ticket parked during the month
+	 * @param parkingType : spot's type
+	 * @param inTime : IN_TIME in epoch milliseconds
+	 * @param outTime : OUT_TIME in epoch milliseconds or -1 if open
+	 * @param price : PRICE
+	 */
+	void add(ParkingType parkingType, long inTime, long outTime, double price) {
+		int base = parkingType.ordinal() * hours;
+		if(inTime >= startMillis && inTime < endMillis) {
+			entries[base + hour(inTime)]++;
+		}
+		if(outTime >= startMillis && outTime < endMillis) {
+			exits[base + hour(outTime)]++;
+			revenueCents[base + hour(outTime)] += Math.round(price * 100);
+			stayMillis[base + hour(outTime)] += outTime - inTime;
+		}
+		long from = Math.max(inTime, startMillis);
+		long to = Math.min((outTime < 0) ? nowMillis : outTime, endMillis - 1);
+		if(from <= to) {
+			parked[base + hour(from)]++;
+			if(hour(to) + 1 < hours) { //not into the next type's hours
+				parked[base + hour(to) + 1]--;
+			}
+		}
+		tickets++;
+	}
+
+	private int hour(long time) {
+		return (int) ((time - startMillis) / HOUR_MILLIS);
+	}
+
+	/**
+	 * Turns the difference array into vehicles parked per hour, once all tickets are added
+	 */
+	void finish() {
+		for(int type = 0; type < TYPES; type++) {
+			int count = 0;
+			for(int hour = 0; hour < hours; hour++) {
+				count += parked[type * hours + hour];
+				parked[type * hours + hour] = count;
+			}
+		}
+	}
+
+	/**
+	 * Writes a CSV row per hour or day and type, see ReportEngine.CSV_HEADER
+	 * @param writer : buffered writer
+	 * @param granularity : HOUR or DAY
+	 * @return number of rows written
+	 * @throws IOException : if rows can't be written
+	 */
+	long write(Writer writer, ReportEngine.Granularity granularity) throws IOException {
+		long rows = 0;
+		int hour = 0;
+		while(hour < hours) {
+			LocalDateTime period = LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis + hour * HOUR_MILLIS), zoneId);
+			int periodEnd = hour + 1;
+			if(granularity == ReportEngine.Granularity.DAY) {
+				while(periodEnd < hours && LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis + periodEnd * HOUR_MILLIS), zoneId)
+						.toLocalDate().equals(period.toLocalDate())) {
+					periodEnd++;
+				}
+			}
+			String label = (granularity == ReportEngine.Granularity.DAY) ? period.format(DAY_FORMAT) : period.format(HOUR_FORMAT);
+			for(ParkingType parkingType : ParkingType.values()) {
+				writeRow(writer, label, parkingType, parkingType.ordinal() * hours, hour, periodEnd);
+				rows++;
+			}
+			hour = periodEnd;
+		}
+		return rows;
+	}
+
+	private void writeRow(Writer writer, String label, ParkingType parkingType, int base, int fromHour, int toHour) throws IOException {
+		long periodEntries = 0;
+		long periodExits = 0;
+		long periodRevenueCents = 0;
+		long periodStayMillis = 0;
+		int peakParked = 0;
+		for(int hour = fromHour; hour < toHour; hour++) {
+			periodEntries += entries[base + hour];
+			periodExits += exits[base + hour];
+			periodRevenueCents += revenueCents[base + hour];
+			periodStayMillis += stayMillis[base + hour];
+			peakParked = Math.max(peakParked, parked[base + hour]);
+		}
+		writer.write(label);
+		writer.write(',');
+		writer.write(parkingType.name());
+		writer.write(',');
+		writer.write(Long.toString(periodEntries));
+		writer.write(',');
+		writer.write(Long.toString(periodExits));
+		writer.write(',');
+		writer.write(BigDecimal.valueOf(periodRevenueCents, 2).toPlainString());
+		writer.write(',');
+		writer.write(Long.toString((periodExits == 0) ? 0 : Math.round(periodStayMillis / (periodExits * 60000.0))));
+		writer.write(',');
+		writer.write(Integer.toString(peakParked));
+		writer.write('\n');
+	}
+}
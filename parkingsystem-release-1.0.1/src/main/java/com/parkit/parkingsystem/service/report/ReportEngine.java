@@ -0,0 +1,183 @@
+package com.parkit.parkingsystem.service.report;
+
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Revenue and occupancy reports over the whole ticket history, recent and archived, in constant memory :
+ *  - each month is a partition : its tickets are streamed with a forward-only ResultSet and a fetch size
+ *    and aggregated at once in a MonthReport (primitive arrays by ParkingType and hour), no ticket is kept
+ *  - months are aggregated in parallel, each on its own connection, at most parallelism months in flight,
+ *    and written in order as CSV so memory is bounded whatever the number of years
+ * CSV : header then PERIOD,TYPE,ENTRIES,EXITS,REVENUE,AVERAGE_STAY_MINUTES,PEAK_OCCUPANCY per hour or day and type.
+ * Exits, revenue and stays are counted when the ticket is closed, occupancy is the peak of vehicles parked during an hour
+ * @author Olivier MOREL
+ *
+ */
+public class ReportEngine {
+
+	private static final Logger logger = LogManager.getLogger("ReportEngine");
+
+	static final String CSV_HEADER = "PERIOD,TYPE,ENTRIES,EXITS,REVENUE,AVERAGE_STAY_MINUTES,PEAK_OCCUPANCY";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Periods of the report's rows
+	 */
+	public enum Granularity {
+		HOUR,
+		DAY
+	}
+
+	private final DataBaseConfig dataBaseConfig;
+	private final int fetchSize;
+	private final int parallelism;
+	private final ZoneId zoneId;
+
+	/**
+	 * Constructor
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @param fetchSize : rows fetched at once
+	 * @param parallelism : months aggregated at once, each one holds a connection
+	 * @param zoneId : time zone of months, days and hours
+	 */
+	public ReportEngine(DataBaseConfig dataBaseConfig, int fetchSize, int parallelism, ZoneId zoneId) {
+		if(fetchSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("Fetch size and parallelism must be positive");
+		}
+		this.dataBaseConfig = dataBaseConfig;
+		this.fetchSize = fetchSize;
+		this.parallelism = parallelism;
+		this.zoneId = zoneId;
+	}
+
+	/**
+	 * Engine sized with -Dparkingsystem.report.fetchSize (default 1000) and -Dparkingsystem.report.parallelism
+	 * (default 4 or the number of processors if less), in the system's time zone
+	 * @param dataBaseConfig : configuration of the lot's schema
+	 * @return ReportEngine object
+	 */
+	public static ReportEngine fromSystemProperties(DataBaseConfig dataBaseConfig) {
+		return new ReportEngine(dataBaseConfig, Integer.getInteger("parkingsystem.report.fetchSize", 1000),
+				Integer.getInteger("parkingsystem.report.parallelism", Math.min(4, Runtime.getRuntime().availableProcessors())),
+				ZoneId.systemDefault());
+	}
+
+	/**
+	 * Writes the report of months from to to
+	 * @param from : first month
+	 * @param to : last month, included
+	 * @param granularity : HOUR or DAY rows
+	 * @param out : channel written, not closed
+	 * @return number of rows written or -1 on failure
+	 */
+	public long writeReport(YearMonth from, YearMonth to, Granularity granularity, WritableByteChannel out) {
+		if(to.isBefore(from)) {
+			throw new IllegalArgumentException("Month " + to + " before " + from);
+		}
+		long nowMillis = System.currentTimeMillis(); //same end for open tickets in all months
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "ReportEngine-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true); //doesn't prevent JVM to exit
+			return thread;
+		});
+		ArrayDeque<Future<MonthReport>> inFlight = new ArrayDeque<>(parallelism);
+		long rows = 0;
+		long tickets = 0;
+		try {
+			Writer writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+			writer.write(CSV_HEADER);
+			writer.write('\n');
+			YearMonth next = from;
+			while(!next.isAfter(to) || !inFlight.isEmpty()) {
+				while(!next.isAfter(to) && inFlight.size() < parallelism) {
+					YearMonth month = next;
+					inFlight.add(executor.submit(() -> aggregate(month, nowMillis)));
+					next = next.plusMonths(1);
+				}
+				MonthReport monthReport = inFlight.poll().get(); //in order, the next months go on meanwhile
+				rows += monthReport.write(writer, granularity);
+				tickets += monthReport.getTickets();
+			}
+			writer.flush(); //the channel's writer isn't closed, it would close the channel
+		} catch(ExecutionException ex) {
+			logger.error("Error aggregating tickets after " + rows + " rows", ex.getCause());
+			return -1;
+		} catch(InterruptedException ex) {
+			logger.error("Report interrupted after " + rows + " rows", ex);
+			Thread.currentThread().interrupt();
+			return -1;
+		} catch(Exception ex) {
+			logger.error("Error writing report after " + rows + " rows", ex);
+			return -1;
+		} finally {
+			executor.shutdownNow(); //cancels months still in flight after a failure
+		}
+		logger.info(rows + " rows reported from " + tickets + " tickets of " + from + " to " + to);
+		return rows;
+	}
+
+	/**
+	 * Streams and aggregates the tickets parked during a month, on the calling thread
+	 * @param month : partition
+	 * @param nowMillis : end of open tickets' stay
+	 * @return month's aggregates, finished
+	 * @throws Exception : if tickets can't be read, connection is closed
+	 */
+	MonthReport aggregate(YearMonth month, long nowMillis) throws Exception {
+		MonthReport monthReport = new MonthReport(month, zoneId, nowMillis);
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			con = dataBaseConfig.getConnection(); //a worker thread has no UnitOfWork : a connection of the pool
+			con.setAutoCommit(false); //a cursor needs a transaction (MySQL useCursorFetch, H2 lazy results), restored by the pool
+			ps = con.prepareStatement(DBConstants.REPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY); //not cached, closed below
+			ps.setFetchSize(fetchSize);
+			Timestamp start = new Timestamp(monthReport.getStartMillis());
+			Timestamp end = new Timestamp(monthReport.getEndMillis());
+			ps.setTimestamp(1, end);
+			ps.setTimestamp(2, start);
+			ps.setTimestamp(3, end);
+			ps.setTimestamp(4, start);
+			rs = ps.executeQuery();
+			while(rs.next()) {
+				//IN_TIME, OUT_TIME, PRICE, TYPE
+				Timestamp outTime = rs.getTimestamp(2);
+				monthReport.add(ParkingType.valueOf(rs.getString(4)), rs.getTimestamp(1).getTime(),
+						(outTime == null) ? -1L : outTime.getTime(), rs.getDouble(3));
+			}
+			con.commit();
+		} finally {
+			dataBaseConfig.closeResultSet(rs); //will test rs != null
+			dataBaseConfig.closePreparedStatement(ps); //will test ps != null
+			dataBaseConfig.closeConnection(con); //will test con != null
+		}
+		monthReport.finish();
+		logger.debug(monthReport.getTickets() + " tickets aggregated for " + month);
+		return monthReport;
+	}
+}
@@ -0,0 +1,209 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hashed timing wheel : items expire at a deadline without scanning all of them.
+ * The wheel is an array of buckets, one per tick, a deadline beyond one turn waits some rounds in its bucket.
+ * schedule() and Timeout.cancel() are O(1), each tick only visits its bucket.
+ * Deadlines are rounded up to the next tick. Expired items are given to the handler
+ * by advanceTo(), called by the ticker thread once started or directly (tests)
+ * @author Olivier MOREL
+ *
+ * @param <T> : type of scheduled items
+ */
+public class HashedTimingWheel<T> implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger("HashedTimingWheel");
+
+	private final long tickMillis;
+	private final long startMillis;
+	private final Timeout<T>[] buckets; //heads of doubly linked lists, guarded by this
+	private final int mask;
+	private final Consumer<T> expiryHandler;
+	private long currentTick = 0; //last visited tick, guarded by this
+	private int size = 0; //guarded by this
+	private Thread ticker;
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor
+	 * @param tickMillis : duration of a tick, precision of expiry
+	 * @param ticksPerWheel : number of buckets, rounded up to a power of 2
+	 * @param startMillis : time of tick 0, e.g. System.currentTimeMillis()
+	 * @param expiryHandler : called with each expired item, outside the wheel's lock
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public HashedTimingWheel(long tickMillis, int ticksPerWheel, long startMillis, Consumer<T> expiryHandler) {
+		if(tickMillis <= 0 || ticksPerWheel <= 0) {
+			throw new IllegalArgumentException("Tick duration and ticks per wheel must be positive");
+		}
+		int bucketCount = Integer.highestOneBit(ticksPerWheel);
+		if(bucketCount < ticksPerWheel) {
+			bucketCount <<= 1;
+		}
+		this.tickMillis = tickMillis;
+		this.startMillis = startMillis;
+		this.buckets = new Timeout[bucketCount];
+		this.mask = bucketCount - 1;
+		this.expiryHandler = expiryHandler;
+	}
+
+	/**
+	 * Schedules an item
+	 * @param item : item given to the handler at expiry
+	 * @param deadlineMillis : expiry time, a past one expires at next tick
+	 * @return Timeout to cancel it
+	 */
+	public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+		long deadlineTick = Math.max(Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis), currentTick + 1);
+		Timeout<T> timeout = new Timeout<>(this, item, deadlineMillis);
+		timeout.remainingRounds = (deadlineTick - currentTick - 1) / buckets.length;
+		timeout.bucket = (int) (deadlineTick & mask);
+		timeout.next = buckets[timeout.bucket];
+		if(timeout.next != null) {
+			timeout.next.previous = timeout;
+		}
+		buckets[timeout.bucket] = timeout;
+		size++;
+		return timeout;
+	}
+
+	/**
+	 * Visits the ticks up to a time and expires their due items
+	 * @param nowMillis : current time
+	 * @return number of expired items
+	 */
+	public int advanceTo(long nowMillis) {
+		List<T> expiredItems = new ArrayList<>();
+		synchronized(this) {
+			long lastTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+			while(currentTick < lastTick) {
+				currentTick++;
+				Timeout<T> timeout = buckets[(int) (currentTick & mask)];
+				while(timeout != null) {
+					Timeout<T> next = timeout.next;
+					if(timeout.remainingRounds <= 0) {
+						unlink(timeout);
+						expiredItems.add(timeout.item);
+					} else {
+						timeout.remainingRounds--;
+					}
+					timeout = next;
+				}
+			}
+		}
+		for(T item : expiredItems) {
+			try {
+				expiryHandler.accept(item);
+			} catch(RuntimeException e) { //other items still expire
+				logger.error("Error expiring " + item, e);
+			}
+		}
+		return expiredItems.size();
+	}
+
+	/**
+	 * Number of scheduled items
+	 * @return count of items neither expired nor cancelled
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Starts a daemon thread advancing the wheel every tick
+	 */
+	public synchronized void start() {
+		if(ticker != null) {
+			return;
+		}
+		ticker = new Thread(() -> {
+			while(!closed) {
+				try {
+					Thread.sleep(tickMillis);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				advanceTo(System.currentTimeMillis());
+			}
+		}, "HashedTimingWheel-ticker");
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+
+	/**
+	 * Stops the ticker thread, scheduled items don't expire anymore
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if(ticker != null) {
+			ticker.interrupt();
+			ticker = null;
+		}
+	}
+
+	private void unlink(Timeout<T> timeout) {
+		if(timeout.previous != null) {
+			timeout.previous.next = timeout.next;
+		} else {
+			buckets[timeout.bucket] = timeout.next;
+		}
+		if(timeout.next != null) {
+			timeout.next.previous = timeout.previous;
+		}
+		timeout.previous = null;
+		timeout.next = null;
+		timeout.bucket = -1; //not in wheel anymore
+		size--;
+	}
+
+	/**
+	 * Handle of a scheduled item
+	 * @param <T> : type of scheduled item
+	 */
+	public static final class Timeout<T> {
+		private final HashedTimingWheel<T> wheel;
+		private final T item;
+		private final long deadlineMillis;
+		private long remainingRounds;
+		private int bucket;
+		private Timeout<T> previous;
+		private Timeout<T> next;
+
+		private Timeout(HashedTimingWheel<T> wheel, T item, long deadlineMillis) {
+			this.wheel = wheel;
+			this.item = item;
+			this.deadlineMillis = deadlineMillis;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		public long getDeadlineMillis() {
+			return deadlineMillis;
+		}
+
+		/**
+		 * Cancels expiry
+		 * @return false if already expired or cancelled
+		 */
+		public boolean cancel() {
+			synchronized(wheel) {
+				if(bucket < 0) {
+					return false;
+				}
+				wheel.unlink(this);
+				return true;
+			}
+		}
+	}
+}
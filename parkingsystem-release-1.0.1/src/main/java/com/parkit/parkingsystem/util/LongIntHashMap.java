@@ -0,0 +1,199 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of long keys (e.g. PlateCodec codes) to int values (e.g. indexes in arrays of tickets or cache entries),
+ * without boxing nor entry objects : open addressing with linear probing in a long[] and an int[],
+ * about 12 bytes per slot against some 80 for a HashMap&lt;String, Integer&gt; entry with its key and value.
+ * A free slot holds key 0, so key 0 itself is kept aside. Removal shifts the next keys of the probe back (no tombstones).
+ * The table doubles beyond 3/4 full. Not thread safe
+ * @author Olivier MOREL
+ *
+ */
+public class LongIntHashMap {
+
+	private static final long FREE_KEY = 0;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final int missingValue;
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size; //keys in the table, without key 0
+	private int resizeAt;
+	private boolean hasFreeKey = false;
+	private int freeKeyValue;
+
+	/**
+	 * Constructor
+	 * @param expectedSize : keys held without resizing
+	 * @param missingValue : value returned for a key not in map, e.g. -1 for indexes
+	 */
+	public LongIntHashMap(int expectedSize, int missingValue) {
+		if(expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must not be negative");
+		}
+		this.missingValue = missingValue;
+		allocate(tableSize(expectedSize));
+	}
+
+	private static int tableSize(int expectedSize) {
+		long capacity = Math.max(4L, (long) expectedSize * 4 / 3 + 1);
+		if(capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Map of " + expectedSize + " keys too large");
+		}
+		return Integer.highestOneBit((int) capacity - 1) << 1; //power of 2 : index is hash & mask
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		resizeAt = capacity / 4 * 3;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L; //Fibonacci hashing spreads consecutive keys
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Value of a key
+	 * @param key : key
+	 * @return value or missingValue if not in map
+	 */
+	public int get(long key) {
+		if(key == FREE_KEY) {
+			return hasFreeKey ? freeKeyValue : missingValue;
+		}
+		for(int index = hash(key) & mask; keys[index] != FREE_KEY; index = (index + 1) & mask) {
+			if(keys[index] == key) {
+				return values[index];
+			}
+		}
+		return missingValue;
+	}
+
+	public boolean containsKey(long key) {
+		if(key == FREE_KEY) {
+			return hasFreeKey;
+		}
+		for(int index = hash(key) & mask; keys[index] != FREE_KEY; index = (index + 1) & mask) {
+			if(keys[index] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds or replaces the value of a key
+	 * @param key : key
+	 * @param value : value
+	 * @return previous value or missingValue if none
+	 */
+	public int put(long key, int value) {
+		if(key == FREE_KEY) {
+			int previous = hasFreeKey ? freeKeyValue : missingValue;
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return previous;
+		}
+		int index = hash(key) & mask;
+		for(; keys[index] != FREE_KEY; index = (index + 1) & mask) {
+			if(keys[index] == key) {
+				int previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+		}
+		keys[index] = key;
+		values[index] = value;
+		if(++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return missingValue;
+	}
+
+	/**
+	 * Removes a key
+	 * @param key : key
+	 * @return its value or missingValue if not in map
+	 */
+	public int remove(long key) {
+		if(key == FREE_KEY) {
+			int previous = hasFreeKey ? freeKeyValue : missingValue;
+			hasFreeKey = false;
+			return previous;
+		}
+		for(int index = hash(key) & mask; keys[index] != FREE_KEY; index = (index + 1) & mask) {
+			if(keys[index] == key) {
+				int previous = values[index];
+				shiftKeys(index);
+				size--;
+				return previous;
+			}
+		}
+		return missingValue;
+	}
+
+	/**
+	 * Fills a freed slot with the next keys of its probe which would not be found anymore
+	 * @param freed : index of the removed key
+	 */
+	private void shiftKeys(int freed) {
+		int index = freed;
+		while(true) {
+			index = (index + 1) & mask;
+			long key = keys[index];
+			if(key == FREE_KEY) {
+				keys[freed] = FREE_KEY;
+				return;
+			}
+			int home = hash(key) & mask;
+			if(((index - home) & mask) >= ((index - freed) & mask)) { //its probe passes the freed slot
+				keys[freed] = key;
+				values[freed] = values[index];
+				freed = index;
+			}
+		}
+	}
+
+	private void rehash(int capacity) {
+		if(capacity > MAX_CAPACITY) {
+			throw new IllegalStateException("Map of " + size + " keys can't grow");
+		}
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for(int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+			long key = oldKeys[oldIndex];
+			if(key != FREE_KEY) {
+				int index = hash(key) & mask;
+				while(keys[index] != FREE_KEY) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = key;
+				values[index] = oldValues[oldIndex];
+			}
+		}
+	}
+
+	public int size() {
+		return hasFreeKey ? size + 1 : size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Removes all keys, keeps the table's capacity
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		size = 0;
+		hasFreeKey = false;
+	}
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+
+/**
+ * Packs a vehicle's registration number (VEHICLE_REG_NUMBER varchar(10)) into one long, a primitive key for in-memory maps :
+ * 6 bits per character of the alphabet 0-9, A-Z, a-z, '-' and space (10 characters = 60 bits)
+ * and the length in the 4 high bits, so codes are distinct for distinct plates and decoded exactly.
+ * A plate with another character or longer than 10 has no code (NONE) : callers keep it out of primitive maps
+ * @author Olivier MOREL
+ *
+ */
+public final class PlateCodec {
+
+	/**
+	 * Code of no plate (length 15), never returned for an encodable one
+	 */
+	public static final long NONE = -1L;
+
+	public static final int MAX_LENGTH = 10;
+
+	private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz- ";
+	private static final long SYMBOLS_MASK = (1L << 60) - 1;
+	private static final byte[] SYMBOLS = new byte[128]; //by ASCII character, -1 if not in alphabet
+
+	static {
+		Arrays.fill(SYMBOLS, (byte) -1);
+		for(int symbol = 0; symbol < ALPHABET.length(); symbol++) {
+			SYMBOLS[ALPHABET.charAt(symbol)] = (byte) symbol;
+		}
+	}
+
+	private PlateCodec() {
+	}
+
+	/**
+	 * Encodes a plate
+	 * @param vehicleRegNumber : vehicle's registration number
+	 * @return code or NONE if null, longer than MAX_LENGTH or with a character outside the alphabet
+	 */
+	public static long encode(String vehicleRegNumber) {
+		if(vehicleRegNumber == null || vehicleRegNumber.length() > MAX_LENGTH) {
+			return NONE;
+		}
+		long code = (long) vehicleRegNumber.length() << 60;
+		for(int i = 0; i < vehicleRegNumber.length(); i++) {
+			char character = vehicleRegNumber.charAt(i);
+			int symbol = (character < SYMBOLS.length) ? SYMBOLS[character] : -1;
+			if(symbol < 0) {
+				return NONE;
+			}
+			code |= (long) symbol << (6 * i);
+		}
+		return code;
+	}
+
+	/**
+	 * Decodes a plate
+	 * @param code : returned by encode()
+	 * @return vehicle's registration number
+	 * @throws IllegalArgumentException : if NONE or not a code
+	 */
+	public static String decode(long code) {
+		int length = (int) (code >>> 60);
+		if(length > MAX_LENGTH || (code & SYMBOLS_MASK) >>> (6 * length) != 0) { //symbols only within the length
+			throw new IllegalArgumentException("Not a plate code " + Long.toHexString(code));
+		}
+		char[] characters = new char[length];
+		for(int i = 0; i < length; i++) {
+			characters[i] = ALPHABET.charAt((int) (code >>> (6 * i)) & 0x3F);
+		}
+		return new String(characters);
+	}
+}
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import com.parkit.parkingsystem.constants.Fare;
@@ -86,4 +87,38 @@ public class DiscountFareServiceTest {
     	assertThat(ticket.getPrice()).isCloseTo(BigDecimal.valueOf(1.50*(1-5/100d)).setScale(2, RoundingMode.HALF_UP).doubleValue(), within(0.01));
     }
 
+    /**
+     * Fixed-point free stay : 30 minutes and 29 seconds rounded half up are 30 minutes
+     * @param seconds : seconds parked
+     * @param free : expected free
+     */
+    @ParameterizedTest(name = "{0} seconds in park should be free : {1}")
+    @CsvSource({"0,true","1800,true","1829,true","1830,false","3600,false"})
+    @DisplayName("Fixed-point free stay")
+    public void fareForThirtyOrLessMinutesCentsShouldBeFreeUnderThirtyMinutesAndHalf(int seconds, boolean free) {
+    	//GIVEN
+    	long cents = 150;
+
+    	//WHEN
+    	long fare = DiscountFareService.fareForThirtyOrLessMinutesCents(seconds * 1000L, cents);
+
+    	//THEN
+    	assertThat(fare).isEqualTo(free ? 0 : cents);
+    }
+
+    /**
+     * Fixed-point five percent discount rounded half up
+     * @param cents : fare
+     * @param discounted : expected fare
+     */
+    @ParameterizedTest(name = "{0} cents should cost {1} cents")
+    @CsvSource({"0,0","100,95","150,143","1000,950","3600,3420"})
+    @DisplayName("Fixed-point 5% off")
+    public void fivePourcentsOffCentsShouldReducePriceByFivePercent(long cents, long discounted) {
+    	//WHEN
+    	long fare = DiscountFareService.fivePourcentsOffCents(cents);
+
+    	//THEN
+    	assertThat(fare).isEqualTo(discounted);
+    }
 }
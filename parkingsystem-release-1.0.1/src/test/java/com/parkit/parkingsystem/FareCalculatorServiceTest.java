@@ -168,4 +168,102 @@ public class FareCalculatorServiceTest {
             assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
         }
     }
+
+    /**
+     * Nested Class for fixed-point mode's tests : same fares as in double, exact half cents rounded up
+     * @author Olivier MOREL
+     *
+     */
+    @Nested
+    @DisplayName("Fixed-point mode")
+    class fixedPoint {
+
+    	@BeforeEach
+        public void setUpPerTest() {
+        	fareCalculatorService.setFixedPoint(true);
+        }
+
+    	/**
+         * Same nominal cases as in double
+         * @param min : how long the vehicle parks (minutes)
+         * @param type : vehicle's type
+         */
+        @ParameterizedTest(name = "{0} minutes in park for {1} type should cost the same as in double")
+        @CsvSource({"60,CAR","60,BIKE","45,CAR","45,BIKE","1440,CAR","1440,BIKE","30,CAR","20,CAR","10,CAR","31,BIKE","100,CAR"})
+        @DisplayName("Nominal cases")
+        public void calculateFareShouldGiveSameFareAsDouble(int min, String type) {
+        	//GIVEN
+        	parkingSpot = new ParkingSpot(1, ParkingType.valueOf(type), false);
+        	Ticket doubleTicket = new Ticket();
+        	for(Ticket aTicket : new Ticket[] {ticket, doubleTicket}) {
+        		aTicket.setParkingSpot(parkingSpot);
+        		aTicket.setInTime(new Date(0));
+        		aTicket.setOutTime(new Date(min * 60 * 1000L));
+        	}
+        	new FareCalculatorService().calculateFare(doubleTicket);
+
+        	//WHEN
+        	fareCalculatorService.calculateFare(ticket);
+
+        	//THEN
+        	assertThat(ticket.getPrice()).isEqualTo(doubleTicket.getPrice());
+        }
+
+        @Test
+        @DisplayName("Exact half cent is rounded up")
+        public void calculateFareShouldRoundHalfCentUp() {
+        	//GIVEN 31 minutes for a car = 77.5 cents
+        	ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        	ticket.setInTime(new Date(0));
+        	ticket.setOutTime(new Date(31 * 60 * 1000L));
+
+        	//WHEN
+        	fareCalculatorService.calculateFare(ticket);
+
+        	//THEN
+        	assertThat(ticket.getPrice()).isEqualTo(0.78);
+        }
+
+        @Test
+        @DisplayName("Free under 30 minutes and 30 seconds")
+        public void calculateFareShouldBeFreeUnderThirtyMinutesAndHalf() {
+        	//GIVEN
+        	ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        	ticket.setInTime(new Date(0));
+        	ticket.setOutTime(new Date((30 * 60 + 29) * 1000L));
+
+        	//WHEN
+        	fareCalculatorService.calculateFare(ticket);
+
+        	//THEN
+        	assertThat(ticket.getPrice()).isZero();
+        }
+
+        @Test
+        @DisplayName("Test 5% off for reccurring users")
+        public void recurringUserTestShouldHaveFivePercentOff() {
+        	//GIVEN
+        	ticket.setPrice(1.50);
+
+        	//WHEN
+        	fareCalculatorService.recurringUser(ticket);
+
+        	//THEN
+        	assertThat(ticket.getPrice()).isEqualTo(1.43); //1.425 rounded half up
+        }
+
+        @Test
+        @DisplayName("Unknown vehicle's type")
+        public void calculateFareUnknownTypeShouldThrowsIllegalArgumentException() {
+        	//GIVEN
+        	ticket.setParkingSpot(new ParkingSpot(1, null, false));
+        	ticket.setInTime(new Date(0));
+        	ticket.setOutTime(new Date(60 * 60 * 1000L));
+
+        	//WHEN
+
+        	//THEN
+        	assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
+        }
+    }
 }
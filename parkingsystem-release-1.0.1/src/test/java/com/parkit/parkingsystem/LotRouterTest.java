@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.service.LotRouter;
+import com.parkit.parkingsystem.service.ParkingLot;
+
+/**
+ * Unit Test Class for LotRouter, lots north and south opened as mocks
+ * @author Olivier MOREL
+ *
+ */
+public class LotRouterTest {
+
+	private LotRouter lotRouter; //Class Under Test
+	private Map<String, ParkingLot> openedLots;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		openedLots = new HashMap<>();
+		lotRouter = new LotRouter(LotRouter.parseLots("north:prod_north, south:prod_south"), dataBaseConfig -> {
+			ParkingLot parkingLot = mock(ParkingLot.class);
+			openedLots.put(dataBaseConfig.getLotId(), parkingLot);
+			return parkingLot;
+		});
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		lotRouter = null;
+		openedLots = null;
+	}
+
+	@Test
+	@DisplayName("Each lot is opened once on its own configuration and closed with the router")
+	public void routeShouldOpenLotOnce() {
+		//GIVEN
+		ParkingLot north = lotRouter.route("north");
+
+		//WHEN
+		ParkingLot northAgain = lotRouter.route("north");
+		lotRouter.close();
+
+		//THEN
+		assertThat(northAgain).isSameAs(north);
+		assertThat(openedLots).containsOnlyKeys("north");
+		assertThat(lotRouter.getDefaultLotId()).isEqualTo("north");
+		verify(north).close();
+	}
+
+	@Test
+	@DisplayName("An unknown lot is not routed")
+	public void routeShouldRejectUnknownLot() {
+		//GIVEN
+		String lotId = "east";
+
+		//WHEN
+		//THEN
+		assertThatThrownBy(() -> lotRouter.route(lotId)).isInstanceOf(IllegalArgumentException.class);
+		assertThat(openedLots).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Without declaration the default lot is on the prod schema")
+	public void parseLotsShouldGiveDefaultLot() {
+		//GIVEN
+		String lots = null;
+
+		//WHEN
+		Map<String, DataBaseConfig> dataBaseConfigs = LotRouter.parseLots(lots);
+
+		//THEN
+		assertThat(dataBaseConfigs).containsOnlyKeys(DataBaseConfig.DEFAULT_LOT_ID);
+		assertThat(dataBaseConfigs.get(DataBaseConfig.DEFAULT_LOT_ID).isOfLot(null)).isTrue();
+		assertThat(dataBaseConfigs.get(DataBaseConfig.DEFAULT_LOT_ID).isOfLot("north")).isFalse();
+		assertThatThrownBy(() -> LotRouter.parseLots("north")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
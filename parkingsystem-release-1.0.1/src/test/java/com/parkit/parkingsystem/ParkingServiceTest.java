@@ -2,12 +2,15 @@ package com.parkit.parkingsystem;
 
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.FareCalculatorService;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ReservationService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.view.Viewer;
 import com.parkit.parkingsystem.view.ViewerImpl;
@@ -123,7 +126,7 @@ public class ParkingServiceTest {
 			when(inputReaderUtil.readSelection()).thenReturn(input);
 	    	inputReaderUtilReadSelectTimes++; //=1
 	    	
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+			when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
 	    	parkingSpotDAOGetTimes++; //=1
 			//parkingTypeCaptor picked up 1 ParkingType's element (of Enumeration)
 	    	
@@ -134,9 +137,7 @@ public class ParkingServiceTest {
 			}
 	    	inputReaderUtilReadRegNumTimes++; //=1
 	    	
-	    	when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
-	    	parkingSpotDAOUpdateTimes++; //=1
-	    	//parkingSpotCaptor picked up 1 ParkingSpot's object
+	    	//parkingSpotDAO.updateParking not used : spot already claimed as not available
 	    	
 	        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 	    	ticketDAOSaveTimes++; //=1
@@ -148,7 +149,7 @@ public class ParkingServiceTest {
 	        //THEN
 	        //Verify mocks are used
 	        verify(inputReaderUtil, times(inputReaderUtilReadSelectTimes)).readSelection();
-	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(any(ParkingType.class));
+	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(any(ParkingType.class));
 	        try {
 				verify(inputReaderUtil, times(inputReaderUtilReadRegNumTimes)).readVehicleRegistrationNumber(); //throws an exception when is not a Mock
 			} catch(Exception e) {
@@ -159,7 +160,7 @@ public class ParkingServiceTest {
 	        
 	        //Asserts the arguments are good
 	        if(parkingSpotDAOGetTimes == 1) { // To avoid having "No argument value was captured!" even if verify times(0) is a wanted success
-		        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(parkingTypeCaptor.capture());
+		        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(parkingTypeCaptor.capture());
 	        	assertThat(parkingTypeCaptor.getValue()).hasToString(type);
 	        }
 	
@@ -329,7 +330,7 @@ public class ParkingServiceTest {
             //THEN
             //Verify if mocks are used or never
             verify(inputReaderUtil, times(inputReaderUtilReadSelectTimes)).readSelection();
-            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(any(ParkingType.class));
+            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(any(ParkingType.class));
             try {
     			verify(inputReaderUtil, times(inputReaderUtilReadRegNumTimes)).readVehicleRegistrationNumber(); //throws an exception when is not a Mock
     		} catch(Exception e) {
@@ -356,7 +357,7 @@ public class ParkingServiceTest {
     		when(inputReaderUtil.readSelection()).thenReturn(1); // type = CAR
         	inputReaderUtilReadSelectTimes++; //=1
         	
-    		when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(-1);
+    		when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(0); //none available
         	parkingSpotDAOGetTimes++; //=1
     		//parkingTypeCaptor picked up 1 ParkingType's element
         	
@@ -369,7 +370,7 @@ public class ParkingServiceTest {
             //THEN
             //Verify mocks are used or never
             verify(inputReaderUtil, times(inputReaderUtilReadSelectTimes)).readSelection();
-            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(any(ParkingType.class));
+            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(any(ParkingType.class));
             try {
     			verify(inputReaderUtil, times(inputReaderUtilReadRegNumTimes)).readVehicleRegistrationNumber();  //throws an exception when is not a Mock
     		} catch(Exception e) {
@@ -380,7 +381,7 @@ public class ParkingServiceTest {
             
             //Assert the arguments are good
             if(parkingSpotDAOGetTimes == 1) { // To avoid having "No argument value was captured!" even if verify times(0) is a wanted success
-    	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(parkingTypeCaptor.capture());
+    	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(parkingTypeCaptor.capture());
             	assertThat(parkingTypeCaptor.getValue()).hasToString("CAR");
             }
     	}
@@ -402,7 +403,7 @@ public class ParkingServiceTest {
     		when(inputReaderUtil.readSelection()).thenReturn(1); // type = CAR
         	inputReaderUtilReadSelectTimes++; //=1
         	
-    		when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+    		when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         	parkingSpotDAOGetTimes++; //=1
     		//parkingTypeCaptor picked up 1 ParkingType's element
         	
@@ -412,8 +413,11 @@ public class ParkingServiceTest {
 				e1.printStackTrace();
 			}
         	inputReaderUtilReadRegNumTimes++; //=1
+
+        	when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        	parkingSpotDAOUpdateTimes++; //=1 claimed spot is released
        		/*Else shouldn't be used
-        	 *and comes back to menu, used DAO to read data and Exception caught*/
+        	 *and comes back to menu, used DAO to claim and release spot and Exception caught*/
 
             //WHEN & Asserts that Exception was caught
             assertDoesNotThrow(() -> parkingService.processIncomingVehicle());
@@ -421,7 +425,7 @@ public class ParkingServiceTest {
             //THEN
             //Verify mocks are used or never
             verify(inputReaderUtil, times(inputReaderUtilReadSelectTimes)).readSelection();
-            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(any(ParkingType.class));
+            verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(any(ParkingType.class));
             try {
     			verify(inputReaderUtil, times(inputReaderUtilReadRegNumTimes)).readVehicleRegistrationNumber();  //throws an exception when is not a Mock
     		} catch(Exception e) {
@@ -432,10 +436,92 @@ public class ParkingServiceTest {
             
             //Assert the arguments are good
             if(parkingSpotDAOGetTimes == 1) { // To avoid having "No argument value was captured!" even if verify times(0) is a wanted success
-    	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).getNextAvailableSlot(parkingTypeCaptor.capture());
+    	        verify(parkingSpotDAO, times(parkingSpotDAOGetTimes)).claimNextAvailableSlot(parkingTypeCaptor.capture());
             	assertThat(parkingTypeCaptor.getValue()).hasToString("CAR");
             }
-    	}	
+            if(parkingSpotDAOUpdateTimes == 1) { // To avoid having "No argument value was captured!" even if verify times(0) is a wanted success
+            	verify(parkingSpotDAO, times(parkingSpotDAOUpdateTimes)).updateParking(parkingSpotCaptor.capture());
+            	assertThat(parkingSpotCaptor.getValue())
+            		.usingRecursiveComparison().isEqualTo(new ParkingSpot(1, ParkingType.CAR, true));
+            }
+    	}
+
+        /**
+         * If ticket can't be saved, method processIncomingVehicle should release the claimed parking spot
+         */
+    	@Test
+        @DisplayName("Ticket can't be saved")
+        public void processIncomingVehicleSaveTicketFailsShouldReleaseParkingSpot(){
+        	//GIVEN
+    		when(inputReaderUtil.readSelection()).thenReturn(2); // type = BIKE
+    		when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE)).thenReturn(4);
+        	try {
+				when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("BIKEREG"); //throws an exception when is not a Mock
+			} catch(Exception e1) {
+				e1.printStackTrace();
+			}
+        	when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+        	when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+
+            //WHEN
+            assertDoesNotThrow(() -> parkingService.processIncomingVehicle());
+
+            //THEN
+            verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
+            verify(parkingSpotDAO, times(1)).updateParking(parkingSpotCaptor.capture());
+            assertThat(parkingSpotCaptor.getValue())
+            	.usingRecursiveComparison().isEqualTo(new ParkingSpot(4, ParkingType.BIKE, true));
+    	}
+
+        /**
+         * If occupancy counters count no free spot, method processIncomingVehicle should reject the vehicle without claim
+         */
+    	@Test
+        @DisplayName("Parking's slots counted full")
+        public void processIncomingVehicleCountedFullShouldNotClaim(){
+        	//GIVEN
+    		OccupancyCounters occupancyCounters = mock(OccupancyCounters.class);
+    		when(occupancyCounters.isFull(ParkingType.CAR)).thenReturn(true);
+    		parkingService.setOccupancyCounters(occupancyCounters);
+    		when(inputReaderUtil.readSelection()).thenReturn(1); // type = CAR
+
+            //WHEN
+            assertDoesNotThrow(() -> parkingService.processIncomingVehicle());
+
+            //THEN
+            verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class));
+            verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+            verify(occupancyCounters, never()).claimed(any(ParkingType.class));
+    	}
+
+        /**
+         * If vehicle has a reservation, method processIncomingVehicle should save its ticket on the held spot without claim
+         */
+    	@Test
+        @DisplayName("Reserved vehicle admitted on its held spot")
+        public void processIncomingVehicleReservedShouldNotClaim(){
+        	//GIVEN
+    		ReservationService reservationService = mock(ReservationService.class);
+    		when(reservationService.admit("RESREG"))
+    			.thenReturn(new Reservation("RESREG", new ParkingSpot(2, ParkingType.CAR, false), new Date(System.currentTimeMillis() + 60000)));
+    		parkingService.setReservationService(reservationService);
+        	try {
+				when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("RESREG"); //throws an exception when is not a Mock
+			} catch(Exception e1) {
+				e1.printStackTrace();
+			}
+        	when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+            //WHEN
+            assertDoesNotThrow(() -> parkingService.processIncomingVehicle());
+
+            //THEN
+            verify(inputReaderUtil, never()).readSelection();
+            verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class));
+            verify(ticketDAO, times(1)).saveTicket(ticketCaptor.capture());
+            assertThat(ticketCaptor.getValue().getParkingSpot().getId()).isEqualTo(2);
+            assertThat(ticketCaptor.getValue().getVehicleRegNumber()).isEqualTo("RESREG");
+    	}
     }
     
 	/**
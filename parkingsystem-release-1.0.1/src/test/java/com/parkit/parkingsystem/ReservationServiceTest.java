@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.StripedSpotAllocator;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.service.ReservationService;
+
+/**
+ * Unit Test Class for ReservationService, spots 4 and 5 BIKE allocated in memory
+ * @author Olivier MOREL
+ *
+ */
+public class ReservationServiceTest {
+
+	private ReservationService reservationService; //Class Under Test
+	private ReservationDAO reservationDAO;
+	private StripedSpotAllocator spotAllocator;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		reservationDAO = mock(ReservationDAO.class);
+		when(reservationDAO.saveReservation(any(Reservation.class))).thenReturn(true);
+		when(reservationDAO.deleteReservation(any(String.class))).thenReturn(true);
+		spotAllocator = new StripedSpotAllocator(Arrays.asList(new ParkingSpot(4, ParkingType.BIKE, true),
+				new ParkingSpot(5, ParkingType.BIKE, true)), 1, null, null);
+		reservationService = new ReservationService(spotAllocator, reservationDAO, 10);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		reservationService.close();
+		reservationService = null;
+		reservationDAO = null;
+		spotAllocator = null;
+	}
+
+	@Test
+	@DisplayName("A reserved vehicle is admitted on its held spot, once")
+	public void admitShouldGiveHeldSpot() {
+		//GIVEN
+		Reservation reservation = reservationService.reserve("BIKEREG", ParkingType.BIKE, new Date(System.currentTimeMillis() + 60000));
+
+		//WHEN
+		Reservation admitted = reservationService.admit("BIKEREG");
+
+		//THEN
+		assertThat(admitted).isSameAs(reservation);
+		assertThat(admitted.getParkingSpot().getId()).isEqualTo(4);
+		assertThat(reservationService.admit("BIKEREG")).isNull();
+		assertThat(spotAllocator.countAvailable(ParkingType.BIKE)).isEqualTo(1); //still claimed for the ticket
+		verify(reservationDAO, times(1)).deleteReservation("BIKEREG");
+	}
+
+	@Test
+	@DisplayName("An expired hold releases its spot")
+	public void expiryShouldReleaseSpot() {
+		//GIVEN
+		long expiry = System.currentTimeMillis() + 1000;
+		reservationService.reserve("BIKEREG", ParkingType.BIKE, new Date(expiry));
+		boolean reservedTwice = reservationService.reserve("BIKEREG", ParkingType.BIKE, new Date(expiry)) != null;
+
+		//WHEN
+		int expired = reservationService.expireUpTo(expiry + 20);
+
+		//THEN
+		assertThat(reservedTwice).isFalse();
+		assertThat(expired).isEqualTo(1);
+		assertThat(reservationService.getHoldCount()).isZero();
+		assertThat(reservationService.admit("BIKEREG")).isNull();
+		assertThat(spotAllocator.countAvailable(ParkingType.BIKE)).isEqualTo(2);
+	}
+}
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+/**
+ * Fare benchmark : calculateFare then recurringUser on tickets of stays from 0 to 3 hours, CAR and BIKE.
+ * Compares the double path (BigDecimal rounding) with the fixed-point one (long cents), in fares per second
+ * and bytes allocated per fare when the JVM measures it. Tickets are built once before the runs.
+ * Not a unit test, run its main : java ... com.parkit.parkingsystem.benchmark.FareCalculatorBenchmark [seconds per run]
+ * @author Olivier MOREL
+ *
+ */
+public class FareCalculatorBenchmark {
+
+	private static final int TICKETS = 4096;
+	private static final int RUNS = 3; //the first ones warm up the JIT
+
+	private static volatile double sink; //keeps prices alive
+
+	public static void main(String[] args) {
+		int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : 2;
+
+		Ticket[] tickets = new Ticket[TICKETS];
+		long[] stays = new long[TICKETS];
+		ParkingSpot car = new ParkingSpot(1, ParkingType.CAR, false);
+		ParkingSpot bike = new ParkingSpot(2, ParkingType.BIKE, false);
+		for(int i = 0; i < TICKETS; i++) {
+			stays[i] = (i * 2654435761L) % (3 * 3600 * 1000L); //scattered stays up to 3 hours
+			tickets[i] = new Ticket();
+			tickets[i].setParkingSpot((i % 2 == 0) ? car : bike);
+			tickets[i].setInTime(new Date(0));
+			tickets[i].setOutTime(new Date(stays[i]));
+		}
+		System.out.println("run;path;fares/s;bytes/fare");
+		for(int run = 1; run <= RUNS; run++) {
+			for(boolean fixedPoint : new boolean[] {false, true}) {
+				FareCalculatorService fareCalculatorService = new FareCalculatorService();
+				fareCalculatorService.setFixedPoint(fixedPoint);
+				run(run, fixedPoint ? "fixedPoint" : "double", fareCalculatorService, tickets, seconds);
+			}
+		}
+	}
+
+	private static void run(int run, String path, FareCalculatorService fareCalculatorService, Ticket[] tickets, int seconds) {
+		long allocatedBefore = allocatedBytes();
+		long fares = 0;
+		double total = 0;
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		while(System.nanoTime() < end) {
+			for(Ticket ticket : tickets) {
+				fareCalculatorService.calculateFare(ticket);
+				fareCalculatorService.recurringUser(ticket);
+				total += ticket.getPrice();
+			}
+			fares += tickets.length;
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocatedAfter = allocatedBytes();
+		sink = total;
+		System.out.println(run + ";" + path + ";" + fares * 1000000000L / elapsed + ";"
+				+ ((allocatedBefore < 0) ? "n/a" : String.format("%.1f", (double) (allocatedAfter - allocatedBefore) / fares)));
+	}
+
+	/**
+	 * Bytes allocated by this thread so far
+	 * @return bytes or a negative value if the JVM doesn't measure it
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if(threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotAllocator;
+import com.parkit.parkingsystem.dao.SqlSpotAllocator;
+import com.parkit.parkingsystem.dao.StripedSpotAllocator;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Contention benchmark of spot allocation : each thread is a gate claiming then releasing a CAR spot in a loop.
+ * Compares StripedSpotAllocator (in memory, no persistence) with SqlSpotAllocator (SQL per entry) on test database.
+ * Not a unit test, run its main, e.g. on the in-memory database without MySQL server :
+ * java -Dparkingsystem.db.backend=h2 ... com.parkit.parkingsystem.benchmark.SpotAllocatorBenchmark [seconds per run] [spots]
+ * @author Olivier MOREL
+ *
+ */
+public class SpotAllocatorBenchmark {
+
+	private static final int[] GATES = {1, 2, 4, 8, 16};
+
+	public static void main(String[] args) throws Exception {
+		int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+		int spotCount = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		for(int number = 1; number <= spotCount; number++) {
+			parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+		}
+		System.out.println("gates;allocator;claims/s;steals");
+		for(int gates : GATES) {
+			StripedSpotAllocator stripedSpotAllocator = new StripedSpotAllocator(parkingSpots, gates, null, null);
+			long claims = run(stripedSpotAllocator, gates, seconds);
+			System.out.println(gates + ";striped;" + claims / seconds + ";" + stripedSpotAllocator.getStealCount());
+		}
+
+		new DataBasePrepareService().clearDataBaseEntries(); //all spots of Data.sql available
+		ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+		parkingSpotDAO.setDataBaseConfig(new DataBaseTestConfig());
+		SqlSpotAllocator sqlSpotAllocator = new SqlSpotAllocator(parkingSpotDAO);
+		for(int gates : GATES) {
+			long claims = run(sqlSpotAllocator, gates, seconds);
+			System.out.println(gates + ";sql;" + claims / seconds + ";");
+		}
+		DataBaseConfig.shutdownConnectionPools();
+	}
+
+	private static long run(SpotAllocator spotAllocator, int gates, int seconds) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder claims = new LongAdder();
+		CountDownLatch started = new CountDownLatch(gates);
+		List<Thread> threads = new ArrayList<>();
+		for(int gate = 0; gate < gates; gate++) {
+			Thread thread = new Thread(() -> {
+				started.countDown();
+				while(running.get()) {
+					int parkingNumber = spotAllocator.claim(ParkingType.CAR);
+					if(parkingNumber > 0) {
+						claims.increment();
+						spotAllocator.release(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+					}
+				}
+			}, "gate-" + gate);
+			threads.add(thread);
+			thread.start();
+		}
+		started.await();
+		TimeUnit.SECONDS.sleep(seconds);
+		running.set(false);
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		return claims.sum();
+	}
+}
@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for ConnectionPool
+ * Physical connections are mocks given by the ConnectionFactory
+ * @author Olivier MOREL
+ *
+ */
+public class ConnectionPoolTest {
+
+	private ConnectionPool connectionPool; //Class Under Test
+	private ConnectionFactory connectionFactory;
+
+	/**
+	 * Before each test initialize a factory giving a new mock on each call
+	 */
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		connectionFactory = mock(ConnectionFactory.class);
+		when(connectionFactory.createConnection()).thenAnswer(invocation -> mock(Connection.class));
+	}
+
+	/**
+	 * After each test shutdown pool and nullify attributes
+	 */
+	@AfterEach
+	public void undefPerTest() {
+		connectionPool.shutdown();
+		connectionPool = null;
+		connectionFactory = null;
+	}
+
+	@Test
+	@DisplayName("A released connection is lent again without opening a new one")
+	public void borrowAfterReleaseShouldReuseConnection() throws Exception {
+		//GIVEN
+		connectionPool = new ConnectionPool("test", connectionFactory, 0, 2, 100, 0);
+		Connection first = connectionPool.borrow();
+		connectionPool.release(first);
+
+		//WHEN
+		Connection second = connectionPool.borrow();
+
+		//THEN
+		assertThat(second).isSameAs(first);
+		verify(connectionFactory, times(1)).createConnection();
+		assertThat(connectionPool.getStatistics())
+			.extracting(PoolStatistics::getTotalConnections, PoolStatistics::getActiveConnections, PoolStatistics::getBorrowCount)
+			.containsExactly(1, 1, 2L);
+	}
+
+	@Test
+	@DisplayName("No more than max size connections are lent")
+	public void borrowOverMaxSizeShouldTimeout() throws Exception {
+		//GIVEN
+		connectionPool = new ConnectionPool("test", connectionFactory, 0, 1, 50, 0);
+		connectionPool.borrow();
+
+		//WHEN
+
+		//THEN
+		assertThrows(SQLTimeoutException.class, () -> connectionPool.borrow());
+		assertThat(connectionPool.getStatistics().getTimeoutCount()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("A closed idle connection is destroyed and replaced on borrow")
+	public void borrowClosedIdleConnectionShouldOpenANewOne() throws Exception {
+		//GIVEN
+		connectionPool = new ConnectionPool("test", connectionFactory, 0, 2, 100, 0);
+		Connection broken = connectionPool.borrow();
+		connectionPool.release(broken);
+		when(broken.isClosed()).thenReturn(true); //e.g. closed by SGBD
+
+		//WHEN
+		Connection con = connectionPool.borrow();
+
+		//THEN
+		assertThat(con).isNotSameAs(broken);
+		assertThat(connectionPool.getStatistics())
+			.extracting(PoolStatistics::getValidationFailureCount, PoolStatistics::getDestroyedCount, PoolStatistics::getTotalConnections)
+			.containsExactly(1L, 1L, 1);
+	}
+
+	@Test
+	@DisplayName("Uncommitted work is rolled back when connection is released")
+	public void releaseShouldRollbackAndRestoreAutoCommit() throws SQLException {
+		//GIVEN
+		connectionPool = new ConnectionPool("test", connectionFactory, 0, 2, 100, 0);
+		Connection con = connectionPool.borrow();
+		when(con.getAutoCommit()).thenReturn(false);
+
+		//WHEN
+		connectionPool.release(con);
+
+		//THEN
+		verify(con).rollback();
+		verify(con).setAutoCommit(true);
+		assertThat(connectionPool.getStatistics().getIdleConnections()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("After evictAll() a connection borrowed before is destroyed on release, not lent again")
+	public void releaseAfterEvictAllShouldDestroyConnection() throws Exception {
+		//GIVEN
+		connectionPool = new ConnectionPool("test", connectionFactory, 0, 2, 100, 0);
+		Connection idle = connectionPool.borrow();
+		Connection borrowed = connectionPool.borrow();
+		connectionPool.release(idle);
+
+		//WHEN
+		connectionPool.evictAll(); //e.g. credentials changed
+		connectionPool.release(borrowed);
+		Connection con = connectionPool.borrow();
+
+		//THEN
+		verify(idle).close(); //idle one closed at once
+		verify(borrowed).close();
+		assertThat(con).isNotSameAs(idle).isNotSameAs(borrowed);
+		assertThat(connectionPool.getStatistics())
+			.extracting(PoolStatistics::getDestroyedCount, PoolStatistics::getCreatedCount, PoolStatistics::getTotalConnections)
+			.containsExactly(2L, 3L, 1);
+	}
+}
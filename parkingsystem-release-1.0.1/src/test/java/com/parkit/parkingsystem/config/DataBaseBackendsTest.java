@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for DataBaseBackends
+ * @author Olivier MOREL
+ *
+ */
+public class DataBaseBackendsTest {
+
+	@Test
+	@DisplayName("\"mysql\" gives the MySQL server backend")
+	public void forNameShouldGiveMySqlBackend() {
+		//GIVEN
+
+		//WHEN
+		DataBaseBackend dataBaseBackend = DataBaseBackends.forName("mysql");
+
+		//THEN
+		assertThat(dataBaseBackend).isInstanceOf(MySqlBackend.class);
+		assertThat(dataBaseBackend.getName()).isEqualTo(MySqlBackend.NAME);
+	}
+
+	@Test
+	@DisplayName("\"h2\" gives the in-memory backend, a new one on each call")
+	public void forNameShouldGiveH2InMemoryBackend() {
+		//GIVEN
+
+		//WHEN
+		DataBaseBackend dataBaseBackend = DataBaseBackends.forName("h2");
+
+		//THEN
+		assertThat(dataBaseBackend).isInstanceOf(H2InMemoryBackend.class);
+		assertThat(dataBaseBackend.getName()).isEqualTo(H2InMemoryBackend.NAME);
+		assertThat(DataBaseBackends.forName("h2")).isNotSameAs(dataBaseBackend);
+	}
+
+	@Test
+	@DisplayName("An unknown name throws IllegalArgumentException")
+	public void forNameShouldThrowIllegalArgumentExceptionIfUnknown() {
+		//GIVEN
+
+		//WHEN
+
+		//THEN
+		assertThrows(IllegalArgumentException.class, () -> DataBaseBackends.forName("oracle"));
+	}
+}
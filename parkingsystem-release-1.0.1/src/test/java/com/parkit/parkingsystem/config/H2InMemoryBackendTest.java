@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+/**
+ * Unit Test Class for H2InMemoryBackend, script with a "prod" and a "test" section in a temporary directory
+ * Connection and statement are mocks : no database is loaded
+ * @author Olivier MOREL
+ *
+ */
+public class H2InMemoryBackendTest {
+
+	private static final String SCRIPT = "/* Setting up PROD DB */\n"
+			+ "create database prod;\n"
+			+ "use prod;\n"
+			+ "create table parking(PARKING_NUMBER int PRIMARY KEY);\n"
+			+ "insert into parking(PARKING_NUMBER) values(1);\n"
+			+ "commit;\n"
+			+ "/* Setting up TEST DB */\n"
+			+ "create database test;\n"
+			+ "use test;\n"
+			+ "create table ticket(ID int PRIMARY KEY);\n"
+			+ "commit;\n";
+
+	@TempDir
+	Path directory;
+
+	private H2InMemoryBackend h2InMemoryBackend; //Class Under Test
+	private Path script;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		script = directory.resolve("Data.sql");
+		Files.write(script, SCRIPT.getBytes(StandardCharsets.UTF_8));
+		h2InMemoryBackend = new H2InMemoryBackend(script);
+	}
+
+	@Test
+	@DisplayName("Each section gives its own statements, without comments, create database, use and commit")
+	public void readScriptShouldGiveStatementsOfSection() throws Exception {
+		//GIVEN
+
+		//WHEN
+		List<String> prodStatements = h2InMemoryBackend.readScript(script, "prod");
+		List<String> testStatements = h2InMemoryBackend.readScript(script, "TEST");
+		List<String> lotStatements = h2InMemoryBackend.readScript(script, "lot2");
+
+		//THEN
+		assertThat(prodStatements).containsExactly("create table parking(PARKING_NUMBER int PRIMARY KEY)",
+				"insert into parking(PARKING_NUMBER) values(1)");
+		assertThat(testStatements).containsExactly("create table ticket(ID int PRIMARY KEY)");
+		assertThat(lotStatements).isEmpty();
+	}
+
+	@Test
+	@DisplayName("A script that can't be read throws SQLException")
+	public void readScriptShouldThrowSQLExceptionIfScriptMissing() {
+		//GIVEN
+		Path missing = directory.resolve("missing.sql");
+
+		//WHEN
+
+		//THEN
+		assertThrows(SQLException.class, () -> h2InMemoryBackend.readScript(missing, "prod"));
+	}
+
+	@Test
+	@DisplayName("A lot's schema without section is loaded from the template's section, once")
+	public void initializeShouldFallBackToLotTemplateSchema() throws Exception {
+		//GIVEN
+		Connection con = mock(Connection.class);
+		Statement st = mock(Statement.class);
+		when(con.createStatement()).thenReturn(st);
+
+		//WHEN
+		h2InMemoryBackend.initialize(con, "lot2");
+		h2InMemoryBackend.initialize(con, "lot2");
+
+		//THEN
+		InOrder inOrder = inOrder(st);
+		inOrder.verify(st).execute("create table parking(PARKING_NUMBER int PRIMARY KEY)");
+		inOrder.verify(st).execute("insert into parking(PARKING_NUMBER) values(1)");
+		verify(st, never()).execute("create table ticket(ID int PRIMARY KEY)");
+		verify(con, times(1)).createStatement();
+		verify(st).close();
+	}
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Unit Test Class for StatementCache
+ * Connection and statements are mocks : a new statement per SQL prepared
+ * @author Olivier MOREL
+ *
+ */
+public class StatementCacheTest {
+
+	private StatementCache statementCache; //Class Under Test
+	private Connection con;
+	private PreparedStatement selectPs;
+	private PreparedStatement insertPs;
+	private LongAdder hitCount;
+	private LongAdder missCount;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		con = mock(Connection.class);
+		selectPs = mock(PreparedStatement.class);
+		insertPs = mock(PreparedStatement.class);
+		when(con.prepareStatement(DBConstants.GET_TICKET)).thenReturn(selectPs);
+		when(con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertPs);
+		when(selectPs.getConnection()).thenReturn(con);
+		when(insertPs.getConnection()).thenReturn(con);
+		hitCount = new LongAdder();
+		missCount = new LongAdder();
+		statementCache = new StatementCache(con, hitCount, missCount);
+	}
+
+	@Test
+	@DisplayName("Same SQL gives the same statement, prepared once")
+	public void prepareStatementShouldGiveCachedStatementOnHit() throws Exception {
+		//GIVEN
+		PreparedStatement first = statementCache.prepareStatement(DBConstants.GET_TICKET);
+
+		//WHEN
+		PreparedStatement second = statementCache.prepareStatement(DBConstants.GET_TICKET);
+		PreparedStatement insert = statementCache.prepareStatement(DBConstants.SAVE_TICKET);
+
+		//THEN
+		assertThat(second).isSameAs(first).isSameAs(selectPs);
+		assertThat(insert).isSameAs(insertPs); //with generated keys
+		verify(con, times(1)).prepareStatement(DBConstants.GET_TICKET);
+		assertThat(hitCount.sum()).isEqualTo(1);
+		assertThat(missCount.sum()).isEqualTo(2);
+		assertThat(statementCache.contains(selectPs)).isTrue();
+		assertThat(statementCache.contains(mock(PreparedStatement.class))).isFalse();
+	}
+
+	@Test
+	@DisplayName("A cached statement is not closed after use, only its parameters are cleared")
+	public void closePreparedStatementShouldKeepCachedStatementOpened() throws Exception {
+		//GIVEN
+		ConnectionPool connectionPool = new ConnectionPool("test", () -> con, 0, 1, 100, 0);
+		DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+			@Override
+			public ConnectionPool getConnectionPool() {
+				return connectionPool;
+			}
+		};
+		Connection borrowed = connectionPool.borrow();
+		PreparedStatement ps = dataBaseConfig.prepareStatement(borrowed, DBConstants.GET_TICKET);
+		PreparedStatement notCached = mock(PreparedStatement.class);
+		when(notCached.getConnection()).thenReturn(con);
+
+		//WHEN
+		dataBaseConfig.closePreparedStatement(ps);
+		dataBaseConfig.closePreparedStatement(notCached);
+
+		//THEN
+		assertThat(ps).isSameAs(selectPs);
+		verify(selectPs).clearParameters();
+		verify(selectPs, never()).close();
+		verify(notCached).close();
+		connectionPool.shutdown();
+	}
+
+	@Test
+	@DisplayName("closeAll() closes every cached statement")
+	public void closeAllShouldCloseCachedStatements() throws Exception {
+		//GIVEN
+		statementCache.prepareStatement(DBConstants.GET_TICKET);
+		statementCache.prepareStatement(DBConstants.SAVE_TICKET);
+
+		//WHEN
+		statementCache.closeAll();
+
+		//THEN
+		verify(selectPs).close();
+		verify(insertPs).close();
+		assertThat(statementCache.contains(selectPs)).isFalse();
+	}
+}
@@ -0,0 +1,193 @@
+package com.parkit.parkingsystem.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for UnitOfWork
+ * Configurations, pools and connections are mocks : two configurations share the first pool, a third one has its own
+ * @author Olivier MOREL
+ *
+ */
+public class UnitOfWorkTest {
+
+	private DataBaseConfig dataBaseConfig;
+	private DataBaseConfig samePoolConfig;
+	private DataBaseConfig otherPoolConfig;
+	private ConnectionPool connectionPool;
+	private ConnectionPool otherConnectionPool;
+	private Connection con;
+	private Connection otherCon;
+	private List<String> hooks;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		dataBaseConfig = mock(DataBaseConfig.class);
+		samePoolConfig = mock(DataBaseConfig.class);
+		otherPoolConfig = mock(DataBaseConfig.class);
+		connectionPool = mock(ConnectionPool.class);
+		otherConnectionPool = mock(ConnectionPool.class);
+		con = mock(Connection.class);
+		otherCon = mock(Connection.class);
+		when(dataBaseConfig.getConnectionPool()).thenReturn(connectionPool);
+		when(samePoolConfig.getConnectionPool()).thenReturn(connectionPool);
+		when(otherPoolConfig.getConnectionPool()).thenReturn(otherConnectionPool);
+		when(connectionPool.borrow()).thenReturn(con);
+		when(otherConnectionPool.borrow()).thenReturn(otherCon);
+		hooks = new ArrayList<>();
+	}
+
+	/**
+	 * After each test no unit of work is left on the thread
+	 */
+	@AfterEach
+	public void undefPerTest() {
+		while(UnitOfWork.current() != null) {
+			UnitOfWork.current().close();
+		}
+	}
+
+	@Test
+	@DisplayName("The connection is borrowed on first use only, once, and committed with auto-commit off")
+	public void getConnectionShouldBorrowOnceLazily() throws Exception {
+		//GIVEN
+		UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig);
+		verify(connectionPool, never()).borrow();
+
+		//WHEN
+		Connection first = unitOfWork.getConnection();
+		Connection second = unitOfWork.getConnection();
+		unitOfWork.commit();
+
+		//THEN
+		assertThat(first).isSameAs(con);
+		assertThat(second).isSameAs(con);
+		verify(connectionPool, times(1)).borrow();
+		verify(con).setAutoCommit(false);
+		verify(con).commit();
+		verify(connectionPool).release(con);
+	}
+
+	@Test
+	@DisplayName("A unit of work begun on the same pool joins the outer one, which commits alone")
+	public void beginOnSamePoolShouldJoinOuterUnit() throws Exception {
+		//GIVEN
+		UnitOfWork outer = UnitOfWork.begin(dataBaseConfig);
+		outer.getConnection();
+
+		//WHEN
+		try(UnitOfWork inner = UnitOfWork.begin(samePoolConfig)) {
+			inner.afterCommit(() -> hooks.add("inner afterCommit"));
+			inner.commit();
+		}
+
+		//THEN
+		assertThat(UnitOfWork.current()).isSameAs(outer);
+		assertThat(UnitOfWork.joinedBy(samePoolConfig)).isSameAs(outer);
+		verify(con, never()).commit();
+		verify(con, never()).rollback();
+		assertThat(hooks).isEmpty();
+		outer.commit();
+		verify(con).commit();
+		assertThat(hooks).containsExactly("inner afterCommit");
+	}
+
+	@Test
+	@DisplayName("A unit of work begun on another pool doesn't join : own connection, own commit")
+	public void beginOnOtherPoolShouldNotJoin() throws Exception {
+		//GIVEN
+		UnitOfWork outer = UnitOfWork.begin(dataBaseConfig);
+		outer.getConnection();
+
+		//WHEN
+		UnitOfWork inner = UnitOfWork.begin(otherPoolConfig);
+		Connection innerCon = inner.getConnection();
+		UnitOfWork joinedByFirstPool = UnitOfWork.joinedBy(dataBaseConfig);
+		UnitOfWork current = UnitOfWork.current();
+		inner.commit();
+
+		//THEN
+		assertThat(innerCon).isSameAs(otherCon);
+		assertThat(current).isSameAs(inner);
+		assertThat(joinedByFirstPool).isSameAs(outer);
+		verify(otherCon).commit();
+		verify(otherConnectionPool).release(otherCon);
+		verify(con, never()).commit();
+		assertThat(UnitOfWork.current()).isSameAs(outer); //current again
+		outer.close();
+		verify(con).rollback();
+	}
+
+	@Test
+	@DisplayName("close() without commit() rolls back and runs afterRollback hooks only")
+	public void closeWithoutCommitShouldRollBack() throws Exception {
+		//GIVEN
+		UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig);
+		unitOfWork.getConnection();
+		unitOfWork.afterCommit(() -> hooks.add("afterCommit"));
+		unitOfWork.afterRollback(() -> hooks.add("afterRollback"));
+
+		//WHEN
+		unitOfWork.close();
+
+		//THEN
+		verify(con).rollback();
+		verify(con, never()).commit();
+		verify(connectionPool).release(con);
+		assertThat(hooks).containsExactly("afterRollback");
+	}
+
+	@Test
+	@DisplayName("A failing beforeCommit hook rolls back, afterCommit hooks don't run")
+	public void commitShouldRollBackWhenBeforeCommitHookFails() throws Exception {
+		//GIVEN
+		UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig);
+		unitOfWork.getConnection();
+		unitOfWork.beforeCommit(() -> {
+			throw new SQLException("Events of the unit of work not journaled");
+		});
+		unitOfWork.afterCommit(() -> hooks.add("afterCommit"));
+		unitOfWork.afterRollback(() -> hooks.add("afterRollback"));
+
+		//WHEN
+
+		//THEN
+		assertThrows(SQLException.class, () -> unitOfWork.commit());
+		verify(con, never()).commit();
+		verify(con).rollback();
+		verify(connectionPool).release(con);
+		assertThat(hooks).containsExactly("afterRollback");
+	}
+
+	@Test
+	@DisplayName("No unit of work is left on the thread once closed")
+	public void closeShouldClearCurrentUnitOfWork() throws Exception {
+		//GIVEN
+		UnitOfWork unitOfWork = UnitOfWork.begin(dataBaseConfig);
+		UnitOfWork current = UnitOfWork.current();
+
+		//WHEN
+		unitOfWork.close();
+
+		//THEN
+		assertThat(current).isSameAs(unitOfWork);
+		assertThat(UnitOfWork.current()).isNull();
+		assertThat(UnitOfWork.joinedBy(dataBaseConfig)).isNull();
+		assertThrows(SQLException.class, () -> unitOfWork.getConnection()); //completed
+	}
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Unit Test Class for AsyncTicketDAO
+ * Blocking TicketDAO is a mock
+ * @author Olivier MOREL
+ *
+ */
+public class AsyncTicketDAOTest {
+
+	private AsyncTicketDAO asyncTicketDAO; //Class Under Test
+	private AsyncDAOExecutor asyncDAOExecutor;
+	private TicketDAO ticketDAO;
+	private Ticket ticket;
+
+	/**
+	 * Before each test initialize mock, executor and a ticket
+	 */
+	@BeforeEach
+	public void setUpPerTest() {
+		ticketDAO = mock(TicketDAO.class);
+		asyncDAOExecutor = new AsyncDAOExecutor(2, 10);
+		asyncTicketDAO = new AsyncTicketDAO(ticketDAO, asyncDAOExecutor);
+		ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber("ABCDEF");
+		ticket.setInTime(new Date());
+	}
+
+	/**
+	 * After each test close executor and nullify attributes
+	 */
+	@AfterEach
+	public void undefPerTest() {
+		asyncDAOExecutor.close();
+		asyncDAOExecutor = null;
+		asyncTicketDAO = null;
+		ticket = null;
+	}
+
+	@Test
+	@DisplayName("getTicket gives the DAO's ticket in a future")
+	public void getTicketShouldCompleteWithTicket() throws Exception {
+		//GIVEN
+		when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+
+		//WHEN
+		Optional<Ticket> result = asyncTicketDAO.getTicket("ABCDEF").get();
+
+		//THEN
+		assertThat(result).containsSame(ticket);
+	}
+
+	@Test
+	@DisplayName("isRecurringUserTicket completes exceptionally when DAO returns null on error")
+	public void isRecurringUserTicketShouldCompleteExceptionallyOnError() {
+		//GIVEN
+		when(ticketDAO.isRecurringUserTicket(ticket)).thenReturn(null);
+
+		//WHEN
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> asyncTicketDAO.isRecurringUserTicket(ticket).get());
+
+		//THEN
+		assertThat(exception.getCause()).isInstanceOf(SQLException.class);
+	}
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit Test Class for CachedDBConfigFromFile, db.properties in a temporary directory, not watched : reloaded by the test
+ * @author Olivier MOREL
+ *
+ */
+public class CachedDBConfigFromFileTest {
+
+	@TempDir
+	Path directory;
+
+	private CachedDBConfigFromFile cachedDBConfigFromFile; //Class Under Test
+	private List<Properties> notifiedProperties;
+
+	private void writeFile(String content) throws IOException {
+		Files.write(directory.resolve("db.properties"), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		writeFile("url=jdbc:mysql://localhost:3306\nuser=root\npassword=rootroot\n");
+		cachedDBConfigFromFile = new CachedDBConfigFromFile(directory, false);
+		notifiedProperties = new ArrayList<>();
+		cachedDBConfigFromFile.addCredentialsListener(notifiedProperties::add);
+	}
+
+	@Test
+	@DisplayName("Properties given are a copy : the snapshot can't be modified by callers")
+	public void getDBPropertiesShouldGiveDefensiveCopy() {
+		//GIVEN
+		Properties dbProperties = cachedDBConfigFromFile.getDBProperties();
+
+		//WHEN
+		dbProperties.setProperty("password", "modified");
+
+		//THEN
+		assertThat(cachedDBConfigFromFile.getDBProperties().getProperty("password")).isEqualTo("rootroot");
+		assertThat(cachedDBConfigFromFile.getDBProperties()).isNotSameAs(cachedDBConfigFromFile.getDBProperties());
+	}
+
+	@Test
+	@DisplayName("An empty file, being written, is ignored : previous configuration kept")
+	public void reloadShouldIgnoreEmptyFile() throws Exception {
+		//GIVEN
+		writeFile("");
+
+		//WHEN
+		cachedDBConfigFromFile.reload();
+
+		//THEN
+		assertThat(cachedDBConfigFromFile.getDBProperties().getProperty("user")).isEqualTo("root");
+		assertThat(notifiedProperties).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Listeners are told only when user or password change")
+	public void reloadShouldNotifyListenersOnCredentialsChangeOnly() throws Exception {
+		//GIVEN
+		writeFile("url=jdbc:mysql://otherhost:3306\nuser=root\npassword=rootroot\n");
+		cachedDBConfigFromFile.reload();
+		List<Properties> notifiedOnUrlChange = new ArrayList<>(notifiedProperties);
+
+		//WHEN
+		writeFile("url=jdbc:mysql://otherhost:3306\nuser=root\npassword=newpassword\n");
+		cachedDBConfigFromFile.reload();
+
+		//THEN
+		assertThat(notifiedOnUrlChange).isEmpty();
+		assertThat(cachedDBConfigFromFile.getDBProperties().getProperty("url")).isEqualTo("jdbc:mysql://otherhost:3306");
+		assertThat(notifiedProperties).hasSize(1);
+		assertThat(notifiedProperties.get(0).getProperty("password")).isEqualTo("newpassword");
+	}
+}
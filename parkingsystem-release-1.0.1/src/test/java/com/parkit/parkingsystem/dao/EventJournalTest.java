@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Unit Test Class for EventJournal and LotState, segments of 1024 bytes in a temporary directory
+ * @author Olivier MOREL
+ *
+ */
+public class EventJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Events appended across segments are read again in order after reopening")
+	public void openShouldRecoverAppendedEvents() throws Exception {
+		//GIVEN
+		try(EventJournal journal = EventJournal.open(directory, 1024, false, 1)) {
+			for(int parkingNumber = 1; parkingNumber <= 100; parkingNumber++) {
+				journal.append(Arrays.asList(LotEvent.spotUpdated(parkingNumber, false), LotEvent.spotUpdated(parkingNumber, true)));
+			}
+		}
+
+		//WHEN
+		try(EventJournal journal = EventJournal.open(directory, 1024, false, 1)) {
+			EventJournal.Cursor cursor = journal.cursor(57);
+			LotEvent event = cursor.next();
+
+			//THEN
+			assertThat(journal.getLastSequence()).isEqualTo(200);
+			assertThat(cursor.getSequence()).isEqualTo(58);
+			assertThat(event.getType()).isEqualTo(LotEvent.Type.SPOT_FREED);
+			assertThat(event.getParkingNumber()).isEqualTo(29);
+		}
+	}
+
+	@Test
+	@DisplayName("A torn record is truncated on open, appends go on after the last valid one")
+	public void openShouldTruncateTornRecord() throws Exception {
+		//GIVEN
+		try(EventJournal journal = EventJournal.open(directory, 1024, false, 1)) {
+			journal.append(Collections.singletonList(LotEvent.spotUpdated(1, false)));
+			journal.append(Collections.singletonList(LotEvent.spotUpdated(2, false)));
+		}
+		try(RandomAccessFile segment = new RandomAccessFile(directory.resolve("journal-1.log").toFile(), "rw")) {
+			int firstRecordLength = segment.readInt();
+			segment.seek(4 + 4 + firstRecordLength + 4 + 4 + 8 + 2 + 1); //second record's PARKING_NUMBER
+			segment.writeInt(3); //CRC doesn't match anymore
+		}
+
+		//WHEN
+		try(EventJournal journal = EventJournal.open(directory, 1024, false, 1)) {
+			journal.append(Collections.singletonList(LotEvent.spotUpdated(4, true)));
+			EventJournal.Cursor cursor = journal.cursor(1);
+
+			//THEN
+			assertThat(journal.getLastSequence()).isEqualTo(2);
+			assertThat(cursor.next().getType()).isEqualTo(LotEvent.Type.SPOT_FREED);
+			assertThat(cursor.next()).isNull();
+		}
+	}
+
+	@Test
+	@DisplayName("State read from a snapshot has the same spots and open tickets")
+	public void readSnapshotShouldRestoreState() throws Exception {
+		//GIVEN
+		LotState state = new LotState("default", 0);
+		state.putSpot(1, ParkingType.CAR, true);
+		state.putSpot(2, ParkingType.CAR, true);
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber("ABCDEF");
+		ticket.setInTime(new Date(3600000));
+		state.apply(1, LotEvent.spotUpdated(1, false));
+		state.apply(2, LotEvent.ticketEntered(ticket));
+
+		//WHEN
+		state.writeSnapshot(directory.resolve("snapshot.bin"));
+		LotState readState = LotState.readSnapshot(directory.resolve("snapshot.bin"), "default");
+
+		//THEN
+		assertThat(readState.getSequence()).isEqualTo(2);
+		assertThat(readState.nextAvailable(ParkingType.CAR, 0)).isEqualTo(2);
+		assertThat(readState.getOpenTicket("ABCDEF").getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
+		assertThat(readState.getOpenTicket("ABCDEF").getInTime()).isEqualTo(new Date(3600000));
+	}
+}
@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Unit Test Class for EventStore's offline mode, journal in a temporary directory
+ * Configuration, pool, connection and statements are mocks : checkpoint at 0, 2 car spots, no open ticket
+ * @author Olivier MOREL
+ *
+ */
+public class EventStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private DataBaseConfig dataBaseConfig;
+	private ConnectionPool connectionPool;
+	private Connection con;
+	private PreparedStatement ps;
+	private ParkingSpotDAO parkingSpotDAO;
+	private TicketDAO ticketDAO;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		dataBaseConfig = mock(DataBaseConfig.class);
+		connectionPool = mock(ConnectionPool.class);
+		con = mock(Connection.class);
+		ps = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(dataBaseConfig.getLotId()).thenReturn("default");
+		when(dataBaseConfig.getConnection()).thenReturn(con);
+		when(dataBaseConfig.getConnectionPool()).thenReturn(connectionPool);
+		when(dataBaseConfig.prepareStatement(any(), anyString())).thenReturn(ps);
+		when(ps.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true);
+		when(rs.getLong(1)).thenReturn(0L);
+		when(ps.executeBatch()).thenReturn(new int[] {1});
+		parkingSpotDAO = mock(ParkingSpotDAO.class);
+		ticketDAO = mock(TicketDAO.class);
+		when(parkingSpotDAO.getDataBaseConfig()).thenReturn(dataBaseConfig);
+		when(parkingSpotDAO.getParkingSpots()).thenReturn(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true), new ParkingSpot(2, ParkingType.CAR, true)));
+		when(ticketDAO.getOpenTickets()).thenReturn(Collections.emptyList());
+	}
+
+	@Test
+	@DisplayName("Database unreachable : the gate is served from the journal, replayed in batches once it is back")
+	public void closeShouldReplayEventsJournaledOffline() throws Exception {
+		//GIVEN
+		EventStore eventStore = EventStore.open(parkingSpotDAO, ticketDAO, directory, 1024, true, 500, 10000);
+		when(connectionPool.borrow()).thenThrow(new SQLException("Communications link failure")).thenReturn(con);
+		int parkingNumber = eventStore.claimNextAvailableSlot(ParkingType.CAR);
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber("ABCDEF");
+		ticket.setInTime(new Date());
+		boolean saved = eventStore.saveTicket(ticket);
+		int failedProjection = eventStore.project();
+		boolean offline = eventStore.isOffline();
+		int offlineProjection = eventStore.project(); //no connection borrowed
+
+		//WHEN
+		eventStore.close();
+
+		//THEN
+		assertThat(parkingNumber).isEqualTo(1);
+		assertThat(saved).isTrue();
+		assertThat(failedProjection).isEqualTo(-1);
+		assertThat(offline).isTrue();
+		assertThat(offlineProjection).isEqualTo(-1);
+		assertThat(eventStore.isOffline()).isFalse();
+		assertThat(eventStore.getProjectedSequence()).isEqualTo(2);
+		verify(connectionPool, times(2)).borrow(); //failed projection then replay
+		verify(ps, times(2)).addBatch();
+		verify(ps, times(2)).executeBatch(); //spot update then entry
+		verify(ps).setLong(1, 2L); //checkpoint
+		verify(con).commit();
+	}
+
+	@Test
+	@DisplayName("Journal not synced : the appended claim is kept, the next entries are rejected until the lot is reopened")
+	public void claimShouldFailStopStoreWhenJournalSyncFails() throws Exception {
+		//GIVEN
+		when(connectionPool.borrow()).thenReturn(con);
+		EventStore eventStore = EventStore.open(parkingSpotDAO, ticketDAO, directory, firstSequence -> {
+			EventJournal journal = spy(EventJournal.open(directory, 1024, true, firstSequence));
+			doThrow(new IOException("No space left on device")).when(journal).sync(anyLong());
+			return journal;
+		}, 500, 10000);
+		int parkingNumber = eventStore.claimNextAvailableSlot(ParkingType.CAR);
+
+		//WHEN
+		int rejectedNumber = eventStore.claimNextAvailableSlot(ParkingType.CAR);
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber("ABCDEF");
+		ticket.setInTime(new Date());
+		boolean saved = eventStore.saveTicket(ticket);
+
+		//THEN
+		assertThat(parkingNumber).isEqualTo(1); //journaled and applied : taken, not leaked
+		assertThat(eventStore.isFailed()).isTrue();
+		assertThat(rejectedNumber).isEqualTo(-1);
+		assertThat(saved).isFalse();
+		assertThat(eventStore.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2); //rejected claim didn't take spot 2
+		assertThat(eventStore.getTicket("ABCDEF")).isNull();
+		eventStore.close();
+		assertThat(eventStore.getProjectedSequence()).isEqualTo(1); //the recorded claim is projected
+	}
+}
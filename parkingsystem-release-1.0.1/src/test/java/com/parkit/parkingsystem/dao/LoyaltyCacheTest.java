@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for LoyaltyCache, 2 vehicles at most for 1000 ms, results of month 202209 (September 2022)
+ * @author Olivier MOREL
+ *
+ */
+public class LoyaltyCacheTest {
+
+	private LoyaltyCache loyaltyCache; //Class Under Test
+
+	@BeforeEach
+	public void setUpPerTest() {
+		loyaltyCache = new LoyaltyCache(2, 1000);
+		loyaltyCache.put("ABCDEF", 202209, true, 0);
+		loyaltyCache.put("GHIJKL", 202209, false, 0);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		loyaltyCache = null;
+	}
+
+	@Test
+	@DisplayName("Results are hit until they expire, least recently used is evicted beyond size")
+	public void getShouldHitUntilExpiryAndEvictLeastRecentlyUsed() {
+		//GIVEN
+		Boolean hit = loyaltyCache.get("ABCDEF", 202209, 500); //GHIJKL is now least recently used
+
+		//WHEN
+		loyaltyCache.put("MNOPQR", 202209, true, 500);
+
+		//THEN
+		assertThat(hit).isTrue();
+		assertThat(loyaltyCache.get("GHIJKL", 202209, 500)).isNull();
+		assertThat(loyaltyCache.get("ABCDEF", 202209, 1000)).isNull(); //expired
+		assertThat(loyaltyCache.getHitCount()).isEqualTo(1);
+		assertThat(loyaltyCache.getMissCount()).isEqualTo(2);
+		assertThat(loyaltyCache.getEvictionCount()).isEqualTo(2);
+		assertThat(loyaltyCache.getHitRatio()).isEqualTo(1.0 / 3);
+	}
+
+	@Test
+	@DisplayName("Results are dropped at month rollover, earlier months are not cached")
+	public void getShouldMissAfterMonthRollover() {
+		//GIVEN
+		int nextMonth = 202210;
+
+		//WHEN
+		Boolean afterRollover = loyaltyCache.get("ABCDEF", nextMonth, 0);
+		loyaltyCache.put("ABCDEF", 202209, true, 0);
+
+		//THEN
+		assertThat(afterRollover).isNull();
+		assertThat(loyaltyCache.size()).isZero();
+	}
+}
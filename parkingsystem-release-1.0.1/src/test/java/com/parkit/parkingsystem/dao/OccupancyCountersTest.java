@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Unit Test Class for OccupancyCounters, counted by CountingSpotAllocator
+ * Loaded as Data.sql's table parking : spots 1 to 3 CAR, 4 and 5 BIKE
+ * @author Olivier MOREL
+ *
+ */
+public class OccupancyCountersTest {
+
+	private OccupancyCounters occupancyCounters; //Class Under Test
+	private ParkingSpotDAO parkingSpotDAO;
+	private SpotAllocator countingSpotAllocator;
+
+	private static Map<ParkingType, Occupancy> counted(long freeCars, long freeBikes) {
+		Map<ParkingType, Occupancy> occupancies = new EnumMap<>(ParkingType.class);
+		occupancies.put(ParkingType.CAR, new Occupancy(ParkingType.CAR, freeCars, 3 - freeCars));
+		occupancies.put(ParkingType.BIKE, new Occupancy(ParkingType.BIKE, freeBikes, 2 - freeBikes));
+		return occupancies;
+	}
+
+	@BeforeEach
+	public void setUpPerTest() {
+		parkingSpotDAO = mock(ParkingSpotDAO.class);
+		when(parkingSpotDAO.getOccupancy()).thenReturn(counted(3, 2));
+		occupancyCounters = OccupancyCounters.load(parkingSpotDAO);
+		countingSpotAllocator = new CountingSpotAllocator(new StripedSpotAllocator(Arrays.asList(
+				new ParkingSpot(1, ParkingType.CAR, true), new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.CAR, true),
+				new ParkingSpot(4, ParkingType.BIKE, true), new ParkingSpot(5, ParkingType.BIKE, true)), 1, null, null), occupancyCounters);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		occupancyCounters = null;
+		parkingSpotDAO = null;
+		countingSpotAllocator = null;
+	}
+
+	@Test
+	@DisplayName("Claims and releases are counted, full when no free spot")
+	public void claimAndReleaseShouldBeCounted() {
+		//GIVEN
+		countingSpotAllocator.claim(ParkingType.BIKE);
+		int parkingNumber = countingSpotAllocator.claim(ParkingType.BIKE);
+
+		//WHEN
+		boolean fullBikes = occupancyCounters.isFull(ParkingType.BIKE);
+		countingSpotAllocator.release(new ParkingSpot(parkingNumber, ParkingType.BIKE, false));
+
+		//THEN
+		assertThat(fullBikes).isTrue();
+		assertThat(occupancyCounters.getFree(ParkingType.BIKE)).isEqualTo(1);
+		assertThat(occupancyCounters.getOccupied(ParkingType.BIKE)).isEqualTo(1);
+		assertThat(occupancyCounters.getOccupancy(ParkingType.CAR).getCapacity()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("A drift is corrected only when read twice in a row")
+	public void reconcileShouldCorrectConfirmedDrift() {
+		//GIVEN another JVM claimed one CAR spot
+		when(parkingSpotDAO.getOccupancy()).thenReturn(counted(2, 2));
+
+		//WHEN
+		occupancyCounters.reconcile();
+		long freeAfterFirstReading = occupancyCounters.getFree(ParkingType.CAR);
+		occupancyCounters.reconcile();
+
+		//THEN
+		assertThat(freeAfterFirstReading).isEqualTo(3);
+		assertThat(occupancyCounters.getFree(ParkingType.CAR)).isEqualTo(2);
+		assertThat(occupancyCounters.getOccupied(ParkingType.CAR)).isEqualTo(1);
+	}
+}
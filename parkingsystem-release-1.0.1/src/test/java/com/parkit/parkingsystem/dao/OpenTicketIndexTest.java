@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Unit Test Class for OpenTicketIndex
+ * Loaded with two open tickets of vehicle ABCDEF (IDs 1 older and 2 last in) and one of vehicle GHIJKL (ID 3)
+ * @author Olivier MOREL
+ *
+ */
+public class OpenTicketIndexTest {
+
+	private OpenTicketIndex openTicketIndex; //Class Under Test
+
+	@BeforeEach
+	public void setUpPerTest() {
+		openTicketIndex = new OpenTicketIndex();
+		openTicketIndex.load(Arrays.asList(openTicket(2, "ABCDEF", 2000), openTicket(1, "ABCDEF", 1000), openTicket(3, "GHIJKL", 1500)));
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		openTicketIndex = null;
+	}
+
+	private Ticket openTicket(int id, String vehicleRegNumber, long inTime) {
+		Ticket ticket = new Ticket();
+		ticket.setId(id);
+		ticket.setParkingSpot(new ParkingSpot(id, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setInTime(new Date(inTime));
+		return ticket;
+	}
+
+	@Test
+	@DisplayName("Vehicle's last ticket in is given, as a copy")
+	public void getShouldGiveLastTicketInCopy() {
+		//GIVEN
+		Ticket ticket = openTicketIndex.get("ABCDEF");
+
+		//WHEN
+		ticket.setOutTime(new Date());
+		ticket.getParkingSpot().setAvailable(true);
+
+		//THEN
+		assertThat(ticket.getId()).isEqualTo(2);
+		assertThat(openTicketIndex.get("ABCDEF").getOutTime()).isNull();
+		assertThat(openTicketIndex.get("ABCDEF").getParkingSpot().isAvailable()).isFalse();
+		assertThat(openTicketIndex.size()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("A closed ticket is removed, not a newer one of the same vehicle")
+	public void removeShouldKeepNewerTicket() {
+		//GIVEN
+		Ticket older = openTicket(1, "ABCDEF", 1000);
+		Ticket indexed = openTicketIndex.get("ABCDEF");
+
+		//WHEN
+		openTicketIndex.remove(older);
+		boolean keptNewer = openTicketIndex.get("ABCDEF") != null;
+		openTicketIndex.remove(indexed);
+
+		//THEN
+		assertThat(keptNewer).isTrue();
+		assertThat(openTicketIndex.get("ABCDEF")).isNull();
+		assertThat(openTicketIndex.get("GHIJKL").getId()).isEqualTo(3);
+	}
+}
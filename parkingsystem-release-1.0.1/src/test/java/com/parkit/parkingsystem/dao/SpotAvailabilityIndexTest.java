@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Unit Test Class for SpotAvailabilityIndex
+ * Loaded as Data.sql's table parking : spots 1 to 3 CAR, 4 and 5 BIKE
+ * @author Olivier MOREL
+ *
+ */
+public class SpotAvailabilityIndexTest {
+
+	private SpotAvailabilityIndex spotAvailabilityIndex; //Class Under Test
+
+	/**
+	 * Before each test load all spots available
+	 */
+	@BeforeEach
+	public void setUpPerTest() {
+		Map<ParkingType, BitSet> availableSpots = new EnumMap<>(ParkingType.class);
+		BitSet carSpots = new BitSet();
+		carSpots.set(1, 4);
+		BitSet bikeSpots = new BitSet();
+		bikeSpots.set(4, 6);
+		availableSpots.put(ParkingType.CAR, carSpots);
+		availableSpots.put(ParkingType.BIKE, bikeSpots);
+		spotAvailabilityIndex = new SpotAvailabilityIndex();
+		spotAvailabilityIndex.load(availableSpots);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		spotAvailabilityIndex = null;
+	}
+
+	@Test
+	@DisplayName("Next available is the lowest available number of the type")
+	public void nextAvailableShouldBeLowestNumber() {
+		//GIVEN
+		spotAvailabilityIndex.setAvailable(ParkingType.CAR, 1, false);
+
+		//WHEN
+		int carSpot = spotAvailabilityIndex.nextAvailable(ParkingType.CAR);
+		int bikeSpot = spotAvailabilityIndex.nextAvailable(ParkingType.BIKE);
+
+		//THEN
+		assertThat(carSpot).isEqualTo(2);
+		assertThat(bikeSpot).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("Next available is 0 when all spots of the type are taken, then the freed one")
+	public void nextAvailableShouldBeZeroWhenFull() {
+		//GIVEN
+		spotAvailabilityIndex.setAvailable(ParkingType.BIKE, 4, false);
+		spotAvailabilityIndex.setAvailable(ParkingType.BIKE, 5, false);
+
+		//WHEN
+		int fullBikeSpot = spotAvailabilityIndex.nextAvailable(ParkingType.BIKE);
+		spotAvailabilityIndex.setAvailable(ParkingType.BIKE, 5, true);
+
+		//THEN
+		assertThat(fullBikeSpot).isZero();
+		assertThat(spotAvailabilityIndex.nextAvailable(ParkingType.BIKE)).isEqualTo(5);
+		assertThat(spotAvailabilityIndex.countAvailable(ParkingType.BIKE)).isEqualTo(1);
+	}
+}
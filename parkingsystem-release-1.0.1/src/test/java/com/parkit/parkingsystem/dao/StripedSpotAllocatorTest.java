@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Unit Test Class for StripedSpotAllocator, without persistence
+ * @author Olivier MOREL
+ *
+ */
+public class StripedSpotAllocatorTest {
+
+	private StripedSpotAllocator stripedSpotAllocator; //Class Under Test
+
+	private static List<ParkingSpot> carSpots(int count) {
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		for(int number = 1; number <= count; number++) {
+			parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+		}
+		return parkingSpots;
+	}
+
+	@Test
+	@DisplayName("All spots are claimed once, then none, then the released one")
+	public void claimShouldGiveEachSpotOnce() {
+		//GIVEN
+		stripedSpotAllocator = new StripedSpotAllocator(carSpots(3), 2, null, null);
+
+		//WHEN
+		Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+		for(int i = 0; i < 3; i++) {
+			claimed.add(stripedSpotAllocator.claim(ParkingType.CAR));
+		}
+		int whenFull = stripedSpotAllocator.claim(ParkingType.CAR);
+		boolean released = stripedSpotAllocator.release(new ParkingSpot(2, ParkingType.CAR, false));
+
+		//THEN
+		assertThat(claimed).containsExactlyInAnyOrder(1, 2, 3);
+		assertThat(whenFull).isZero();
+		assertThat(stripedSpotAllocator.claim(ParkingType.BIKE)).isZero();
+		assertThat(released).isTrue();
+		assertThat(stripedSpotAllocator.claim(ParkingType.CAR)).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Concurrent gates never get the same spot")
+	public void concurrentClaimsShouldNotDoubleAllocate() throws Exception {
+		//GIVEN
+		int spotCount = 1000;
+		int gates = 8;
+		stripedSpotAllocator = new StripedSpotAllocator(carSpots(spotCount), gates, null, null);
+		Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+		List<Integer> duplicates = new ArrayList<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+
+		//WHEN
+		for(int gate = 0; gate < gates; gate++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch(InterruptedException e) {
+					return;
+				}
+				int parkingNumber;
+				while((parkingNumber = stripedSpotAllocator.claim(ParkingType.CAR)) > 0) {
+					if(!claimed.add(parkingNumber)) {
+						synchronized(duplicates) {
+							duplicates.add(parkingNumber);
+						}
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		//THEN
+		assertThat(duplicates).isEmpty();
+		assertThat(claimed).hasSize(spotCount);
+		assertThat(stripedSpotAllocator.countAvailable(ParkingType.CAR)).isZero();
+	}
+}
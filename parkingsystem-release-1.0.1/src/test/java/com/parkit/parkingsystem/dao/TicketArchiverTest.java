@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for TicketArchiver, 3 months retention, TicketDAO mocked
+ * @author Olivier MOREL
+ *
+ */
+public class TicketArchiverTest {
+
+	private TicketArchiver ticketArchiver; //Class Under Test
+	private TicketDAO ticketDAO;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		ticketDAO = mock(TicketDAO.class);
+		ticketArchiver = new TicketArchiver(ticketDAO, 3);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		ticketArchiver.close();
+		ticketArchiver = null;
+		ticketDAO = null;
+	}
+
+	@Test
+	@DisplayName("Tickets out before the first day of the month 3 months ago are archived")
+	public void archiveShouldMoveTicketsBeforeRetention() {
+		//GIVEN
+		Date now = new GregorianCalendar(2022, 0, 15, 10, 30).getTime(); //15/01/2022
+		Date cutoff = new GregorianCalendar(2021, 9, 1).getTime(); //01/10/2021 00:00:00
+		when(ticketDAO.archiveTickets(cutoff)).thenReturn(42);
+
+		//WHEN
+		int archived = ticketArchiver.archive(now);
+
+		//THEN
+		assertThat(ticketArchiver.getCutoff(now)).isEqualTo(cutoff);
+		assertThat(archived).isEqualTo(42);
+		verify(ticketDAO).archiveTickets(cutoff);
+	}
+
+	@Test
+	@DisplayName("Last month is always kept for recurring users")
+	public void constructorShouldRejectRetentionUnderOneMonth() {
+		//GIVEN
+		int retentionMonths = 0;
+
+		//WHEN
+		//THEN
+		assertThatThrownBy(() -> new TicketArchiver(ticketDAO, retentionMonths)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("The month before last month is kept too : a vehicle in since last month is checked on it at exit")
+	public void constructorShouldRejectRetentionOfOneMonth() {
+		//GIVEN
+		int retentionMonths = 1;
+
+		//WHEN
+		//THEN
+		assertThatThrownBy(() -> new TicketArchiver(ticketDAO, retentionMonths)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Unit Test Class for TicketBulkTransfer, batches of 2 inserts committed every 2 inserts
+ * Configuration, connection, statements and result set are mocks : 3 tickets exported (ABCDEF's one, "A,B"'s one still in on spot 2)
+ * @author Olivier MOREL
+ *
+ */
+public class TicketBulkTransferTest {
+
+	private TicketBulkTransfer ticketBulkTransfer; //Class Under Test
+	private DataBaseConfig dataBaseConfig;
+	private Connection con;
+	private PreparedStatement exportPs;
+	private PreparedStatement importPs;
+	private PreparedStatement claimPs;
+	private PreparedStatement visitPs;
+	private ResultSet rs;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		dataBaseConfig = mock(DataBaseConfig.class);
+		con = mock(Connection.class);
+		exportPs = mock(PreparedStatement.class);
+		importPs = mock(PreparedStatement.class);
+		claimPs = mock(PreparedStatement.class);
+		visitPs = mock(PreparedStatement.class);
+		rs = mock(ResultSet.class);
+		when(dataBaseConfig.getConnection()).thenReturn(con);
+		when(con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(exportPs);
+		when(con.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(importPs);
+		when(con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)).thenReturn(claimPs);
+		when(con.prepareStatement(DBConstants.COUNT_MONTHLY_VISIT)).thenReturn(visitPs);
+		when(claimPs.executeBatch()).thenReturn(new int[0], new int[] {1}); //"A,B"'s spot in the second batch
+		when(exportPs.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true, true, true, false);
+		when(rs.getInt(1)).thenReturn(1, 2, 3);
+		when(rs.getInt(2)).thenReturn(1, 4, 2);
+		when(rs.getString(3)).thenReturn("ABCDEF", "GHIJKL", "A,B");
+		when(rs.getDouble(4)).thenReturn(1.5, 1.0, 0.0);
+		when(rs.getTimestamp(5)).thenReturn(new Timestamp(1000000), new Timestamp(2000000), new Timestamp(3000000));
+		when(rs.getTimestamp(6)).thenReturn(new Timestamp(1500000), new Timestamp(2500000), null);
+		ticketBulkTransfer = new TicketBulkTransfer(dataBaseConfig, 2, 2, 100);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		ticketBulkTransfer = null;
+		dataBaseConfig = null;
+	}
+
+	@ParameterizedTest(name = "Tickets exported as {0} are imported the same")
+	@EnumSource(TicketBulkTransfer.Format.class)
+	@DisplayName("Round trip export then import")
+	public void importShouldReadExportedTickets(TicketBulkTransfer.Format format) throws Exception {
+		//GIVEN
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		long exportedCount = ticketBulkTransfer.exportTickets(Channels.newChannel(exported), format);
+
+		//WHEN
+		long importedCount = ticketBulkTransfer.importTickets(Channels.newChannel(new ByteArrayInputStream(exported.toByteArray())), format);
+
+		//THEN
+		assertThat(exportedCount).isEqualTo(3);
+		assertThat(importedCount).isEqualTo(3);
+		verify(exportPs).setFetchSize(100);
+		verify(importPs).setString(2, "ABCDEF");
+		verify(importPs).setString(2, "A,B");
+		verify(importPs).setTimestamp(5, new Timestamp(2500000));
+		verify(importPs).setTimestamp(5, null); //still in
+		verify(importPs, times(3)).setInt(anyInt(), anyInt());
+		verify(importPs, times(3)).addBatch();
+		verify(con, times(1 + 2)).commit(); //export's cursor, then every 2 inserts and at end
+		verify(claimPs, times(1)).setInt(1, 2); //spot of the ticket still in
+		verify(claimPs, times(1)).addBatch();
+		verify(visitPs, never()).addBatch();
+	}
+
+	@Test
+	@DisplayName("In visit rollup mode, imported closed tickets are counted in their month")
+	public void importShouldCountVisitsOfClosedTicketsInRollupMode() throws Exception {
+		//GIVEN
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		ticketBulkTransfer.exportTickets(Channels.newChannel(exported), TicketBulkTransfer.Format.CSV);
+		ticketBulkTransfer.setVisitRollup(true);
+		Calendar outTime = Calendar.getInstance();
+		outTime.setTimeInMillis(1500000);
+
+		//WHEN
+		long importedCount = ticketBulkTransfer.importTickets(Channels.newChannel(new ByteArrayInputStream(exported.toByteArray())), TicketBulkTransfer.Format.CSV);
+
+		//THEN
+		assertThat(importedCount).isEqualTo(3);
+		verify(visitPs).setString(1, "ABCDEF");
+		verify(visitPs).setString(1, "GHIJKL");
+		verify(visitPs, times(2)).setInt(2, TicketDAO.visitMonth(outTime)); //both out times in the same month
+		verify(visitPs, times(2)).addBatch();
+		verify(visitPs, times(2)).executeBatch();
+	}
+
+	@Test
+	@DisplayName("An open ticket whose spot is already taken is not imported")
+	public void importShouldFailIfSpotOfOpenTicketIsTaken() throws Exception {
+		//GIVEN
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		ticketBulkTransfer.exportTickets(Channels.newChannel(exported), TicketBulkTransfer.Format.BINARY);
+		when(claimPs.executeBatch()).thenReturn(new int[0], new int[] {0}); //spot 2 not available
+
+		//WHEN
+		long importedCount = ticketBulkTransfer.importTickets(Channels.newChannel(new ByteArrayInputStream(exported.toByteArray())), TicketBulkTransfer.Format.BINARY);
+
+		//THEN
+		assertThat(importedCount).isEqualTo(-1);
+		verify(con, times(1 + 1)).commit(); //export's cursor, then the first 2 inserts
+		verify(con).rollback();
+	}
+}
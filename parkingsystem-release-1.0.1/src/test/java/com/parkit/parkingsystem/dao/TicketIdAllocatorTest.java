@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Unit Test Class for TicketIdAllocator, blocks of 3 IDs
+ * Configuration, pool, connection and statements are mocks : NEXT_ID is read as 4 after the first block, 10 after the second
+ * (another node reserved IDs 4 to 6 meanwhile)
+ * @author Olivier MOREL
+ *
+ */
+public class TicketIdAllocatorTest {
+
+	private TicketIdAllocator ticketIdAllocator; //Class Under Test
+	private ConnectionPool connectionPool;
+	private Connection con;
+	private PreparedStatement reservePs;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+		connectionPool = mock(ConnectionPool.class);
+		con = mock(Connection.class);
+		reservePs = mock(PreparedStatement.class);
+		PreparedStatement getPs = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(dataBaseConfig.getConnectionPool()).thenReturn(connectionPool);
+		when(connectionPool.borrow()).thenReturn(con);
+		when(dataBaseConfig.prepareStatement(con, DBConstants.RESERVE_TICKET_IDS)).thenReturn(reservePs);
+		when(dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET_ID_BLOCK)).thenReturn(getPs);
+		when(reservePs.executeUpdate()).thenReturn(1);
+		when(getPs.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true);
+		when(rs.getInt(1)).thenReturn(4, 10);
+		ticketIdAllocator = new TicketIdAllocator(dataBaseConfig, 3);
+	}
+
+	@Test
+	@DisplayName("IDs are given locally from each reserved block, one round trip per block")
+	public void nextIdShouldGiveIdsOfReservedBlocks() throws Exception {
+		//WHEN
+		int[] ids = new int[6];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = ticketIdAllocator.nextId();
+		}
+
+		//THEN
+		assertThat(ids).containsExactly(1, 2, 3, 7, 8, 9);
+		verify(reservePs, times(2)).setInt(1, 3);
+		verify(con, times(2)).commit();
+		verify(connectionPool, times(2)).release(con);
+	}
+
+	@Test
+	@DisplayName("No ID is given if the block can't be reserved")
+	public void nextIdShouldReturnMinusOneOnError() throws Exception {
+		//GIVEN
+		when(connectionPool.borrow()).thenThrow(new SQLException("Communications link failure"));
+
+		//WHEN
+		int id = ticketIdAllocator.nextId();
+
+		//THEN
+		assertThat(id).isEqualTo(-1);
+	}
+}
@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Unit Test Class for WriteBehindBuffer
+ * Pool, connection and statement are mocks
+ * @author Olivier MOREL
+ *
+ */
+public class WriteBehindBufferTest {
+
+	private WriteBehindBuffer writeBehindBuffer; //Class Under Test
+	private DataBaseConfig dataBaseConfig;
+	private Connection con;
+	private PreparedStatement ps;
+	private final List<WriteBehindBuffer.BatchReport> batchReports = new ArrayList<>();
+
+	/**
+	 * Before each test initialize mocks and a buffer flushed by hand only (batch bigger than capacity, long interval)
+	 */
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		dataBaseConfig = mock(DataBaseConfig.class);
+		ConnectionPool connectionPool = mock(ConnectionPool.class);
+		con = mock(Connection.class);
+		ps = mock(PreparedStatement.class);
+		when(dataBaseConfig.getConnectionPool()).thenReturn(connectionPool);
+		when(connectionPool.borrow()).thenReturn(con);
+		when(dataBaseConfig.prepareStatement(any(Connection.class), anyString())).thenReturn(ps);
+		writeBehindBuffer = new WriteBehindBuffer(dataBaseConfig, 10, 20, 60000, 10); //batch never full : no concurrent flush
+		writeBehindBuffer.addBatchListener(batchReports::add);
+	}
+
+	/**
+	 * After each test shutdown buffer and nullify attributes
+	 */
+	@AfterEach
+	public void undefPerTest() {
+		writeBehindBuffer.shutdown();
+		writeBehindBuffer = null;
+		batchReports.clear();
+	}
+
+	@Test
+	@DisplayName("Queued writes are executed in one batch and one commit")
+	public void flushShouldExecuteOneBatch() throws Exception {
+		//GIVEN
+		when(ps.executeBatch()).thenReturn(new int[] {1, 1, 1});
+		List<CompletableFuture<Boolean>> results = new ArrayList<>();
+		for(int i = 1; i <= 3; i++) {
+			int parkingNumber = i;
+			results.add(writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, statement -> statement.setInt(2, parkingNumber)));
+		}
+
+		//WHEN
+		writeBehindBuffer.flush();
+
+		//THEN
+		verify(ps, times(3)).addBatch();
+		verify(ps, times(1)).executeBatch();
+		verify(con, times(1)).commit();
+		assertThat(results).allMatch(result -> result.join());
+		assertThat(batchReports).hasSize(1);
+		assertThat(batchReports.get(0).getSucceeded()).isEqualTo(3);
+		assertThat((Throwable) batchReports.get(0).getFailure()).isNull();
+	}
+
+	@Test
+	@DisplayName("A failing batch is not committed and all its writes are reported as failed")
+	public void flushShouldReportFailedBatch() throws Exception {
+		//GIVEN
+		when(ps.executeBatch()).thenThrow(new BatchUpdateException());
+		CompletableFuture<Boolean> result = writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, statement -> statement.setInt(2, 1));
+
+		//WHEN
+		writeBehindBuffer.flush();
+
+		//THEN
+		verify(con, never()).commit();
+		assertThat(result.join()).isFalse();
+		assertThat(batchReports).hasSize(1);
+		assertThat(batchReports.get(0).getFailed()).isEqualTo(1);
+		assertThat((Throwable) batchReports.get(0).getFailure()).isInstanceOf(BatchUpdateException.class);
+	}
+
+	@Test
+	@DisplayName("Flushing a statement and key executes its writes and writes without key only, others stay queued")
+	public void flushOfStatementAndKeyShouldKeepOtherWritesQueued() throws Exception {
+		//GIVEN
+		when(ps.executeBatch()).thenReturn(new int[] {1, 1});
+		CompletableFuture<Boolean> carUpdate = writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, ParkingType.CAR, statement -> statement.setInt(2, 1));
+		CompletableFuture<Boolean> bikeUpdate = writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, ParkingType.BIKE, statement -> statement.setInt(2, 4));
+		CompletableFuture<Boolean> untypedUpdate = writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, statement -> statement.setInt(2, 2));
+		CompletableFuture<Boolean> ticketSave = writeBehindBuffer.submit(DBConstants.SAVE_TICKET, statement -> { });
+
+		//WHEN
+		writeBehindBuffer.flush(DBConstants.UPDATE_PARKING_SPOT, ParkingType.CAR);
+
+		//THEN
+		verify(ps, times(2)).addBatch();
+		verify(con, times(1)).commit();
+		assertThat(carUpdate.join()).isTrue();
+		assertThat(untypedUpdate.join()).isTrue();
+		assertThat(bikeUpdate).isNotDone();
+		assertThat(ticketSave).isNotDone();
+		assertThat(writeBehindBuffer.getPendingCount()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Writes over capacity are refused")
+	public void submitOverCapacityShouldFail() {
+		//GIVEN
+		for(int i = 0; i < 10; i++) {
+			writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, statement -> { });
+		}
+
+		//WHEN
+		CompletableFuture<Boolean> result = writeBehindBuffer.submit(DBConstants.UPDATE_PARKING_SPOT, statement -> { });
+
+		//THEN
+		assertThat(result.join()).isFalse();
+		assertThat(writeBehindBuffer.getPendingCount()).isEqualTo(10);
+	}
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Unit Test Class for ZoneAwareSpotAllocator, without persistence
+ * Loaded as Data.sql's tables parking and gate_distance : spots 1 to 3 CAR, 4 and 5 BIKE, gates NORTH and SOUTH
+ * @author Olivier MOREL
+ *
+ */
+public class ZoneAwareSpotAllocatorTest {
+
+	private ZoneAwareSpotAllocator zoneAwareSpotAllocator; //Class Under Test
+
+	@BeforeEach
+	public void setUpPerTest() {
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		parkingSpots.add(new ParkingSpot(1, ParkingType.CAR, true, "A", 0));
+		parkingSpots.add(new ParkingSpot(2, ParkingType.CAR, true, "A", 0));
+		parkingSpots.add(new ParkingSpot(3, ParkingType.CAR, true, "A", 1));
+		parkingSpots.add(new ParkingSpot(4, ParkingType.BIKE, true, "B", 0));
+		parkingSpots.add(new ParkingSpot(5, ParkingType.BIKE, true, "B", 0));
+		Map<String, Map<Integer, Integer>> gateDistances = new HashMap<>();
+		Map<Integer, Integer> north = new HashMap<>();
+		north.put(1, 10);
+		north.put(2, 20);
+		north.put(3, 30);
+		north.put(4, 15);
+		north.put(5, 25);
+		Map<Integer, Integer> south = new HashMap<>();
+		south.put(1, 30);
+		south.put(2, 20);
+		south.put(3, 10);
+		south.put(5, 15); //4 not measured : after 5
+		gateDistances.put("NORTH", north);
+		gateDistances.put("SOUTH", south);
+		zoneAwareSpotAllocator = new ZoneAwareSpotAllocator(parkingSpots, gateDistances, null, null);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		zoneAwareSpotAllocator = null;
+	}
+
+	@Test
+	@DisplayName("Each gate gets its nearest free spot, never one claimed by the other gate")
+	public void claimShouldGiveNearestSpotToGate() {
+		//GIVEN
+		SpotAllocator northGate = zoneAwareSpotAllocator.forGate("NORTH");
+		SpotAllocator southGate = zoneAwareSpotAllocator.forGate("SOUTH");
+
+		//WHEN
+		int firstSouth = southGate.claim(ParkingType.CAR);
+		int firstNorth = northGate.claim(ParkingType.CAR);
+		int secondSouth = southGate.claim(ParkingType.CAR);
+		int whenFull = northGate.claim(ParkingType.CAR);
+		int bikeSouth = southGate.claim(ParkingType.BIKE);
+
+		//THEN
+		assertThat(firstSouth).isEqualTo(3);
+		assertThat(firstNorth).isEqualTo(1);
+		assertThat(secondSouth).isEqualTo(2);
+		assertThat(whenFull).isZero();
+		assertThat(bikeSouth).isEqualTo(5);
+		assertThat(zoneAwareSpotAllocator.countAvailable(ParkingType.BIKE)).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("A released spot is the nearest again for all gates")
+	public void releaseShouldGiveSpotBackToAllGates() {
+		//GIVEN
+		SpotAllocator northGate = zoneAwareSpotAllocator.forGate("NORTH");
+		int claimed = northGate.claim(ParkingType.CAR);
+
+		//WHEN
+		boolean released = northGate.release(new ParkingSpot(claimed, ParkingType.CAR, false));
+		boolean releasedTwice = northGate.release(new ParkingSpot(claimed, ParkingType.CAR, false));
+
+		//THEN
+		assertThat(released).isTrue();
+		assertThat(releasedTwice).isFalse();
+		assertThat(zoneAwareSpotAllocator.countAvailable(ParkingType.CAR)).isEqualTo(3);
+		assertThat(northGate.claim(ParkingType.CAR)).isEqualTo(1);
+		assertThat(zoneAwareSpotAllocator.getParkingSpot(3).getLevel()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Unknown gate is rejected")
+	public void forGateShouldRejectUnknownGate() {
+		assertThatThrownBy(() -> zoneAwareSpotAllocator.forGate("EAST")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
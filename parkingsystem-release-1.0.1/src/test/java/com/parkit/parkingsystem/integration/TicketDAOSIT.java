@@ -8,6 +8,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -146,4 +147,76 @@ public class TicketDAOSIT {
         //THEN
         assertThat(isRecurent).isEqualTo(Boolean.valueOf(isRecurrentS));        
     }
+
+    @ParameterizedTest(name = "{0} exits of user FID last month counted in monthly_visit should be {1} for recurrent user")
+    @CsvSource({"11,true","10,false"})
+    @DisplayName("Visit rollup counted on exit and rebuilt by backfill")
+    public void isRecurringUserTicketTestWithVisitRollupShouldCountExits(int times, boolean isRecurrent) {
+
+    	//GIVEN
+    	ticketDAO.setVisitRollup(true);
+		inTimeCal = GregorianCalendar.getInstance();
+		inTimeCal.set(Calendar.DATE, 1); //set date at the begin of month
+		inTimeCal.add(Calendar.MONTH, -1); //One month ago
+		for(int i=1; i<=times; i++) { //each visit closed by updateTicket, which counts it
+			Ticket ticketFor = new Ticket();
+			ticketFor.setParkingSpot(parkingSpot);
+			ticketFor.setVehicleRegNumber("FID");
+			ticketFor.setPrice(0);
+			ticketFor.setInTime(inTimeCal.getTime());
+			ticketDAO.saveTicket(ticketFor);
+			ticketFor.setPrice(1.50);
+			ticketFor.setOutTime(new Date(inTimeCal.getTimeInMillis() + 3600*1000));
+			ticketDAO.updateTicket(ticketFor);
+			inTimeCal.roll(Calendar.DATE, 2); //Roll rule : Larger fields (here MONTH) are unchanged after the call.
+		}
+		ticket.setParkingSpot(parkingSpot);
+		ticket.setVehicleRegNumber("FID"); //current user
+		ticket.setInTime(new Date());
+
+        //WHEN
+        Boolean isRecurentCounted = ticketDAO.isRecurringUserTicket(ticket);
+        int backfilledRows = ticketDAO.backfillMonthlyVisits();
+        Boolean isRecurentBackfilled = ticketDAO.isRecurringUserTicket(ticket);
+
+        //THEN
+        assertThat(isRecurentCounted).isEqualTo(isRecurrent);
+        assertThat(backfilledRows).isEqualTo(1); //one vehicle, one month
+        assertThat(isRecurentBackfilled).isEqualTo(isRecurrent);
+    }
+
+    @ParameterizedTest(name = "{0} exits of user FID last month closed twice should be counted once")
+    @CsvSource({"10"})
+    @DisplayName("Visit rollup doesn't count a ticket already closed")
+    public void updateTicketTestWithVisitRollupShouldNotCountClosedTicketTwice(int times) {
+
+    	//GIVEN
+    	ticketDAO.setVisitRollup(true);
+		inTimeCal = GregorianCalendar.getInstance();
+		inTimeCal.set(Calendar.DATE, 1); //set date at the begin of month
+		inTimeCal.add(Calendar.MONTH, -1); //One month ago
+		List<Boolean> secondUpdates = new ArrayList<>();
+		for(int i=1; i<=times; i++) {
+			Ticket ticketFor = new Ticket();
+			ticketFor.setParkingSpot(parkingSpot);
+			ticketFor.setVehicleRegNumber("FID");
+			ticketFor.setPrice(0);
+			ticketFor.setInTime(inTimeCal.getTime());
+			ticketDAO.saveTicket(ticketFor);
+			ticketFor.setPrice(1.50);
+			ticketFor.setOutTime(new Date(inTimeCal.getTimeInMillis() + 3600*1000));
+			ticketDAO.updateTicket(ticketFor);
+
+	        //WHEN
+			secondUpdates.add(ticketDAO.updateTicket(ticketFor)); //e.g. another gate exiting the same plate
+			inTimeCal.roll(Calendar.DATE, 2); //Roll rule : Larger fields (here MONTH) are unchanged after the call.
+		}
+		ticket.setParkingSpot(parkingSpot);
+		ticket.setVehicleRegNumber("FID"); //current user
+		ticket.setInTime(new Date());
+
+        //THEN
+        assertThat(secondUpdates).containsOnly(false);
+        assertThat(ticketDAO.isRecurringUserTicket(ticket)).isFalse(); //10 visits, not 20
+    }
 }
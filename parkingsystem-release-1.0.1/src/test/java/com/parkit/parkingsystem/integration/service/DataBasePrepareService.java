@@ -18,6 +18,19 @@ public class DataBasePrepareService {
 
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();
+            connection.prepareStatement("delete from ticket_archive").execute();
+
+            //clear reservation entries;
+            connection.prepareStatement("delete from reservation").execute();
+
+            //clear monthly visit counts;
+            connection.prepareStatement("delete from monthly_visit").execute();
+
+            //reset projection of the journal;
+            connection.prepareStatement("update event_checkpoint set SEQUENCE = 0").execute();
+
+            //restart ticket IDs;
+            connection.prepareStatement("update ticket_id_block set NEXT_ID = 1").execute();
 
         } catch(Exception e) {
             e.printStackTrace();
@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.service.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Unit Test Class for ReportEngine, March 2024 in UTC
+ * Configuration, connection, statement and result set are mocks : a car parked 90 minutes, a bike parked since February
+ * and a car still in
+ * @author Olivier MOREL
+ *
+ */
+public class ReportEngineTest {
+
+	private ReportEngine reportEngine; //Class Under Test
+	private DataBaseConfig dataBaseConfig;
+	private PreparedStatement ps;
+
+	private static Timestamp at(int month, int day, int hour, int minute) {
+		return Timestamp.from(LocalDateTime.of(2024, month, day, hour, minute).toInstant(ZoneOffset.UTC));
+	}
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		dataBaseConfig = mock(DataBaseConfig.class);
+		Connection con = mock(Connection.class);
+		ps = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(dataBaseConfig.getConnection()).thenReturn(con);
+		when(con.prepareStatement(DBConstants.REPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+		when(ps.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true, true, true, false);
+		when(rs.getTimestamp(1)).thenReturn(at(3, 1, 10, 15), at(2, 28, 9, 0), at(3, 1, 10, 45));
+		when(rs.getTimestamp(2)).thenReturn(at(3, 1, 11, 45), at(3, 1, 11, 15), null);
+		when(rs.getDouble(3)).thenReturn(2.25, 1.0, 0.0);
+		when(rs.getString(4)).thenReturn("CAR", "BIKE", "CAR");
+		reportEngine = new ReportEngine(dataBaseConfig, 100, 1, ZoneOffset.UTC);
+	}
+
+	@Test
+	@DisplayName("Tickets of the month are aggregated by day and type")
+	public void writeReportShouldAggregateTicketsByDay() throws Exception {
+		//GIVEN
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		WritableByteChannel channel = Channels.newChannel(out);
+
+		//WHEN
+		long rows = reportEngine.writeReport(YearMonth.of(2024, 3), YearMonth.of(2024, 3), ReportEngine.Granularity.DAY, channel);
+
+		//THEN
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertThat(channel.isOpen()).isTrue(); //written, not closed
+		assertThat(rows).isEqualTo(62); //31 days, 2 types
+		assertThat(lines).hasSize(63);
+		assertThat(lines[0]).isEqualTo(ReportEngine.CSV_HEADER);
+		assertThat(lines[1]).isEqualTo("2024-03-01,CAR,2,1,2.25,90,2");
+		assertThat(lines[2]).isEqualTo("2024-03-01,BIKE,0,1,1.00,3015,1");
+		assertThat(lines[3]).isEqualTo("2024-03-02,CAR,0,0,0.00,0,1"); //still in
+		assertThat(lines[4]).isEqualTo("2024-03-02,BIKE,0,0,0.00,0,0");
+		verify(ps).setFetchSize(100);
+		verify(ps).setTimestamp(1, at(4, 1, 0, 0));
+		verify(ps).setTimestamp(2, at(3, 1, 0, 0));
+	}
+
+	@Test
+	@DisplayName("Tickets of the month are aggregated by hour and type")
+	public void writeReportShouldAggregateTicketsByHour() throws Exception {
+		//GIVEN
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		//WHEN
+		long rows = reportEngine.writeReport(YearMonth.of(2024, 3), YearMonth.of(2024, 3), ReportEngine.Granularity.HOUR, Channels.newChannel(out));
+
+		//THEN
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertThat(rows).isEqualTo(31 * 24 * 2);
+		assertThat(lines[21]).isEqualTo("2024-03-01 10:00,CAR,2,0,0.00,0,2");
+		assertThat(lines[23]).isEqualTo("2024-03-01 11:00,CAR,0,1,2.25,90,2");
+		assertThat(lines[24]).isEqualTo("2024-03-01 11:00,BIKE,0,1,1.00,3015,1");
+		assertThat(lines[26]).isEqualTo("2024-03-01 12:00,BIKE,0,0,0.00,0,0");
+	}
+
+	@Test
+	@DisplayName("No report if tickets can't be read")
+	public void writeReportShouldReturnMinusOneOnError() throws Exception {
+		//GIVEN
+		when(dataBaseConfig.getConnection()).thenThrow(new SQLException("Communications link failure"));
+
+		//WHEN
+		long rows = reportEngine.writeReport(YearMonth.of(2024, 1), YearMonth.of(2024, 3), ReportEngine.Granularity.DAY,
+				Channels.newChannel(new ByteArrayOutputStream()));
+
+		//THEN
+		assertThat(rows).isEqualTo(-1);
+	}
+}
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.util.HashedTimingWheel.Timeout;
+
+/**
+ * Unit Test Class for HashedTimingWheel, advanced by hand from time 0 with ticks of 10 ms on 8 buckets
+ * @author Olivier MOREL
+ *
+ */
+public class HashedTimingWheelTest {
+
+	private HashedTimingWheel<String> hashedTimingWheel; //Class Under Test
+	private List<String> expiredItems;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		expiredItems = new ArrayList<>();
+		hashedTimingWheel = new HashedTimingWheel<>(10, 8, 0, expiredItems::add);
+	}
+
+	@AfterEach
+	public void undefPerTest() {
+		hashedTimingWheel.close();
+		hashedTimingWheel = null;
+		expiredItems = null;
+	}
+
+	@Test
+	@DisplayName("Items expire at their deadline's tick, also after many turns of the wheel")
+	public void advanceToShouldExpireDueItems() {
+		//GIVEN
+		hashedTimingWheel.schedule("soon", 25);
+		hashedTimingWheel.schedule("later", 1000); //12 turns of the wheel later
+
+		//WHEN
+		int expiredBefore = hashedTimingWheel.advanceTo(29);
+		int expiredAtSoon = hashedTimingWheel.advanceTo(30);
+		int expiredBeforeLater = hashedTimingWheel.advanceTo(999);
+
+		//THEN
+		assertThat(expiredBefore).isZero();
+		assertThat(expiredAtSoon).isEqualTo(1);
+		assertThat(expiredBeforeLater).isZero();
+		assertThat(hashedTimingWheel.advanceTo(1000)).isEqualTo(1);
+		assertThat(expiredItems).containsExactly("soon", "later");
+		assertThat(hashedTimingWheel.size()).isZero();
+	}
+
+	@Test
+	@DisplayName("A cancelled item never expires")
+	public void cancelShouldRemoveItem() {
+		//GIVEN
+		Timeout<String> timeout = hashedTimingWheel.schedule("cancelled", 50);
+		hashedTimingWheel.schedule("kept", 50);
+
+		//WHEN
+		boolean cancelled = timeout.cancel();
+		boolean cancelledTwice = timeout.cancel();
+		hashedTimingWheel.advanceTo(100);
+
+		//THEN
+		assertThat(cancelled).isTrue();
+		assertThat(cancelledTwice).isFalse();
+		assertThat(expiredItems).containsExactly("kept");
+	}
+}
@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit Test Class for LongIntHashMap, created for no key with -1 as missing value
+ * @author Olivier MOREL
+ *
+ */
+public class LongIntHashMapTest {
+
+	private LongIntHashMap longIntHashMap; //Class Under Test
+
+	@BeforeEach
+	public void setUpPerTest() {
+		longIntHashMap = new LongIntHashMap(0, -1);
+	}
+
+	@Test
+	@DisplayName("Key 0, kept aside from free slots, is put, got and removed as any key")
+	public void putShouldHoldKeyZero() {
+		//WHEN
+		int missing = longIntHashMap.put(0, 7);
+		longIntHashMap.put(PlateCodec.encode("ABCDEF"), 8);
+
+		//THEN
+		assertThat(missing).isEqualTo(-1);
+		assertThat(longIntHashMap.get(0)).isEqualTo(7);
+		assertThat(longIntHashMap.size()).isEqualTo(2);
+		assertThat(longIntHashMap.remove(0)).isEqualTo(7);
+		assertThat(longIntHashMap.containsKey(0)).isFalse();
+		assertThat(longIntHashMap.get(PlateCodec.encode("ABCDEF"))).isEqualTo(8);
+	}
+
+	@Test
+	@DisplayName("Random puts and removes while growing give the same values as a HashMap")
+	public void getShouldMatchHashMapAfterRandomOperations() {
+		//GIVEN
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		//WHEN
+		for(int i = 0; i < 100000; i++) {
+			long key = random.nextInt(2000) - 1000; //collisions, removals inside probes
+			if(random.nextBoolean()) {
+				int value = random.nextInt(1000);
+				assertThat(longIntHashMap.put(key, value)).isEqualTo(expected.getOrDefault(key, -1));
+				expected.put(key, value);
+			} else {
+				assertThat(longIntHashMap.remove(key)).isEqualTo(expected.getOrDefault(key, -1));
+				expected.remove(key);
+			}
+		}
+
+		//THEN
+		assertThat(longIntHashMap.size()).isEqualTo(expected.size());
+		for(long key = -1000; key < 1000; key++) {
+			assertThat(longIntHashMap.get(key)).isEqualTo(expected.getOrDefault(key, -1));
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit Test Class for PlateCodec
+ * @author Olivier MOREL
+ *
+ */
+public class PlateCodecTest {
+
+	@ParameterizedTest(name = "\"{0}\" is decoded the same")
+	@ValueSource(strings = {"ABCDEF", "ab-12 CD9z", "0000000000", "A", "  "})
+	@DisplayName("Plates of the alphabet are encoded in one long and decoded exactly")
+	public void decodeShouldReturnEncodedPlate(String vehicleRegNumber) {
+		//WHEN
+		long code = PlateCodec.encode(vehicleRegNumber);
+
+		//THEN
+		assertThat(code).isNotEqualTo(PlateCodec.NONE);
+		assertThat(PlateCodec.decode(code)).isEqualTo(vehicleRegNumber);
+	}
+
+	@Test
+	@DisplayName("Plates differing by length or case have distinct codes")
+	public void encodeShouldDistinguishPlates() {
+		assertThat(PlateCodec.encode("A")).isNotEqualTo(PlateCodec.encode("A0"));
+		assertThat(PlateCodec.encode("abc")).isNotEqualTo(PlateCodec.encode("ABC"));
+	}
+
+	@ParameterizedTest(name = "\"{0}\" has no code")
+	@ValueSource(strings = {"ABCDEFGHIJK", "AB.CD", "AB\u00C9"})
+	@DisplayName("Plates too long or outside the alphabet are not encoded")
+	public void encodeShouldReturnNoneForOtherPlates(String vehicleRegNumber) {
+		assertThat(PlateCodec.encode(vehicleRegNumber)).isEqualTo(PlateCodec.NONE);
+	}
+
+	@Test
+	@DisplayName("NONE is not decoded")
+	public void decodeShouldRejectNone() {
+		assertThatThrownBy(() -> PlateCodec.decode(PlateCodec.NONE)).isInstanceOf(IllegalArgumentException.class);
+	}
+}